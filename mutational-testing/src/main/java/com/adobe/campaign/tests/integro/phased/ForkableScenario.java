@@ -0,0 +1,30 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares that the permutations of a {@link Mutational} scenario can share their steps. When
+ * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_PREFIX_SHARING} is activated, the permutations are executed as a
+ * walk through their prefix tree: the steps shared by consecutive permutations are executed only once, and the next
+ * permutation continues from the state saved by the {@link ScenarioFork} after the last shared step.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ForkableScenario {
+
+    /**
+     * @return The class saving and restoring the state of the scenario
+     */
+    Class<? extends ScenarioFork> value();
+}
@@ -11,6 +11,8 @@ package com.adobe.campaign.tests.integro.phased;
 import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
 import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestDefinitionException;
 import com.adobe.campaign.tests.integro.phased.internal.PhaseProcessorFactory;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioDependencyCache;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioIndex;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencies;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencyFactory;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.StepDependencies;
@@ -25,11 +27,12 @@ import org.testng.xml.XmlClass;
 import org.testng.xml.XmlSuite;
 import org.testng.xml.XmlTest;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.*;
-import java.util.function.Function;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class MutationListener
@@ -39,6 +42,9 @@ public class MutationListener
     @Override
     public void alter(List<XmlSuite> suites) {
         IAlterSuiteListener.super.alter(suites);
+        RunConfiguration.refresh();
+        setUpDataBroker(suites);
+
 
         log.debug("{} in alter - current Execution State is : {}", PhasedTestManager.PHASED_TEST_LOG_PREFIX
                 , ExecutionMode.getCurrentMode());
@@ -46,6 +52,44 @@ public class MutationListener
         ConfigValueHandlerPhased.warnIfLegacyNamesAreUsed();
         ConfigValueHandlerPhased.warnIfDeprecatedPropertiesAreUsed();
 
+        final int l_nrOfScenarios = ScenarioIndex.load();
+        log.debug("{} Loaded {} scenarios from the scenario index.", PhasedTestManager.PHASED_TEST_LOG_PREFIX,
+                l_nrOfScenarios);
+
+        // *** import context for consumer ***
+        //The second condition is there for testing purposes. You can bypass the file by filling the Test
+        if (ExecutionMode.INTERRUPTIVE.isSelected("CONSUMER") && PhasedTestManager.getPhasedCache().isEmpty()) {
+            //Waits for the download started in setUpDataBroker
+            final Set<String> l_selectedClasses = PhasedDataSharding.fetchSelectedClasses(suites);
+            PhasedTestManager.importPhaseData(l_selectedClasses);
+        }
+
+        //Inject the phased tests executed in the previous phase
+        // This is activated when the test group "PHASED_PRODUCED_TESTS" group
+        for (XmlTest lt_xmlTest : suites.get(0).getTests().stream()
+                .filter(t -> t.getIncludedGroups().contains(PhasedTestManager.STD_GROUP_SELECT_TESTS_BY_PRODUCER))
+                .collect(Collectors.toList())) {
+
+            PhasedTestManager.activateTestSelectionByProducerMode();
+
+            //Attach new classes to suite
+            final Set<XmlClass> l_newXMLTests = PhasedTestManager.fetchExecutedPhasedClasses().stream()
+                    .map(XmlClass::new).collect(Collectors.toSet());
+
+            //add the original test classes
+            l_newXMLTests.addAll(lt_xmlTest.getXmlClasses());
+            lt_xmlTest.setXmlClasses(new ArrayList<>(l_newXMLTests));
+        }
+    }
+
+    /**
+     * Sets the data broker of the suite, if any. In a CONSUMER phase, the download of the Phased Data through the data
+     * broker is started here, so that it overlaps with the loading of the scenario index and the selection of the
+     * classes. The data is imported once these are done.
+     *
+     * @param suites The suites being altered
+     */
+    private void setUpDataBroker(List<XmlSuite> suites) {
         // *** Import DataBroker ***
         String l_phasedDataBrokerClass = null;
         if (ConfigValueHandlerPhased.PROP_PHASED_TEST_DATABROKER.isSet()) {
@@ -70,27 +114,8 @@ public class MutationListener
             }
         }
 
-        // *** import context for consumer ***
-        //The second condition is there for testing purposes. You can bypass the file by filling the Test
         if (ExecutionMode.INTERRUPTIVE.isSelected("CONSUMER") && PhasedTestManager.getPhasedCache().isEmpty()) {
-            PhasedTestManager.importPhaseData();
-        }
-
-        //Inject the phased tests executed in the previous phase
-        // This is activated when the test group "PHASED_PRODUCED_TESTS" group
-        for (XmlTest lt_xmlTest : suites.get(0).getTests().stream()
-                .filter(t -> t.getIncludedGroups().contains(PhasedTestManager.STD_GROUP_SELECT_TESTS_BY_PRODUCER))
-                .collect(Collectors.toList())) {
-
-            PhasedTestManager.activateTestSelectionByProducerMode();
-
-            //Attach new classes to suite
-            final Set<XmlClass> l_newXMLTests = PhasedTestManager.fetchExecutedPhasedClasses().stream()
-                    .map(XmlClass::new).collect(Collectors.toSet());
-
-            //add the original test classes
-            l_newXMLTests.addAll(lt_xmlTest.getXmlClasses());
-            lt_xmlTest.setXmlClasses(new ArrayList<>(l_newXMLTests));
+            PhasedTestManager.prefetchPhaseData();
         }
     }
 
@@ -209,8 +234,10 @@ public class MutationListener
         //If the property PHASED.TESTS.DETECT.ORDER not set, we follow the standard TestNG order
 
             //Generate scenario step dependencies
-        PhasedTestManager.setStepDependencies(l_phasedClasses.stream().filter(pc -> !pc.equals(Mutational.class))
-                    .map(ScenarioStepDependencyFactory::listMethodCalls).collect(Collectors.toMap(ScenarioStepDependencies::getScenarioName, Function.identity())));
+        PhasedTestManager.setStepDependencies(ScenarioStepDependencyFactory.analyzeScenarios(
+                l_phasedClasses.stream().filter(pc -> !pc.equals(Mutational.class)).collect(Collectors.toList()))
+                .getDependencies());
+            ScenarioDependencyCache.persist();
 
 
             //if (Phases.getCurrentPhase().hasSplittingEvent()) {
@@ -265,7 +292,8 @@ public class MutationListener
             //Cases 1,2,4,5
             final String l_dataProvider = PhasedTestManager.concatenateParameterArray(result.getParameters());
 
-            PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(l_method), l_dataProvider);
+            PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(l_method), l_dataProvider,
+                    result.getParameters());
 
             switch (PhasedTestManager.scenarioStateDecision(result)) {
             case SKIP_PREVIOUS_FAILURE:
@@ -290,7 +318,15 @@ public class MutationListener
                 break;
             case CONFIG_FAILURE:
             default:
+                final PhasedStepFailure l_pruningCause = MutationManager.fetchPruningCause(result);
+                if (l_pruningCause != null) {
+                    log.info(l_pruningCause.getMessage());
+                    result.setStatus(ITestResult.SKIP);
+                    result.setThrowable(l_pruningCause);
+                    break;
+                }
                 //Continue
+                PhasedTestManager.prepareConsumables(result);
             }
         }
     }
@@ -298,14 +334,31 @@ public class MutationListener
 
 
 
+    @Override
+    public void onStart(ITestContext context) {
+        ITestListener.super.onStart(context);
+
+        //The prefixes of a previous test are not shared with this one, and its failures do not prune this one
+        SharedPrefix.clear();
+        MutationManager.clearFailedPrefixes();
+    }
+
     @Override
     public void onFinish(ITestContext context) {
         ITestListener.super.onFinish(context);
 
+        //Releases the snapshots of the shared prefixes, and the failures kept for pruning
+        SharedPrefix.clear();
+        MutationManager.clearFailedPrefixes();
+
+        //The dependencies parsed while the steps were executed are kept for the next run
+        ScenarioDependencyCache.persist();
+
         //Once the tests have finished in producer mode we, need to export the data
+        CompletableFuture<File> l_export = CompletableFuture.completedFuture(null);
         if (ExecutionMode.INTERRUPTIVE.isSelected("PRODUCER")) {
             log.info("{} At the end. Exporting data", PhasedTestManager.PHASED_TEST_LOG_PREFIX);
-            PhasedTestManager.exportPhaseData();
+            l_export = PhasedTestManager.exportPhaseDataAsync();
         }
         log.debug("{} Purging results - Keeping one method per test class",
                 PhasedTestManager.PHASED_TEST_LOG_PREFIX);
@@ -313,6 +366,8 @@ public class MutationListener
         if (ExecutionMode.NON_INTERRUPTIVE.isSelected()) {
             PhasedEventManager.stopEventExecutor();
         }
+
+        PhasedTestManager.awaitTransfer(l_export);
     }
 }
 
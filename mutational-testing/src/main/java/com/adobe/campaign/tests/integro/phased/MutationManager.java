@@ -8,20 +8,36 @@
  */
 package com.adobe.campaign.tests.integro.phased;
 
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
 import com.adobe.campaign.tests.integro.phased.spi.MutationMode;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioPermutations;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.StepDependencies;
 import com.adobe.campaign.tests.integro.phased.utils.ClassPathParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.testng.ITestNGMethod;
 import org.testng.ITestResult;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 public class MutationManager {
+    private static final Logger log = LogManager.getLogger();
+
+    /**
+     * The failed prefixes of the permutations executed in this phase, per scenario class
+     */
+    private static final Map<String, List<FailedPrefix>> failedPrefixes = new ConcurrentHashMap<>();
 
     /**
      * The {@link MutationMode} implementation for permutational ("Mutational") scenarios, delegating to this
@@ -207,7 +223,11 @@ public class MutationManager {
 
     /**
      * Returns the provider for shuffling tests. For the {@link ExecutionMode#PERMUTATIONAL} execution mode, the
-     * values are the possible permutations of the scenario's steps. For any other execution mode, this delegates
+     * values are the possible permutations of the scenario's steps. When the scenario has more permutations than
+     * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_SAMPLE}, a uniform random sample of them is selected. When
+     * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_REDUCTION} is activated, only one permutation is executed
+     * per set of permutations that differ by the order of commuting steps. For
+     * any other execution mode, this delegates
      * to {@link PhasedTestManager#fetchProvidersShuffled(String, RunValues)}.
      * <p>
      * Author : gandomi
@@ -223,17 +243,187 @@ public class MutationManager {
 
         final MethodMapping l_methodMapping = PhasedTestManager.getMethodMap().get(in_methodFullName);
 
-        Map<String, List<StepDependencies>> l_permutations = PhasedTestManager.getStepDependencies()
-                .get(l_methodMapping.declaredClass.getTypeName()).fetchScenarioPermutations();
-        Object[][] l_objectArrayPhased = new Object[l_permutations.size()][1];
-        int i = 0;
-        for (Entry<String, List<StepDependencies>> entry : l_permutations.entrySet()) {
-            l_objectArrayPhased[i][0] = entry.getKey();
-            i++;
+        final String l_scenarioName = l_methodMapping.declaredClass.getTypeName();
+        ScenarioPermutations l_permutations = PhasedTestManager.getStepDependencies().get(l_scenarioName)
+                .fetchPermutations();
+        final int l_sampleSize = fetchPermutationSampleSize();
+        final Object[][] l_objectArrayPhased;
+        if (ConfigValueHandlerPhased.PROP_PERMUTATIONS_REDUCTION.is("true")) {
+            final SortedMap<Long, List<StepDependencies>> l_representatives = new TreeMap<>();
+            for (List<StepDependencies> lt_representative : l_permutations.fetchRepresentatives()) {
+                l_representatives.put(l_permutations.indexOf(lt_representative), lt_representative);
+            }
+            log.info("{} The {} permutations of the scenario {} are reduced to {}. {} equivalent permutations are "
+                            + "pruned.", PhasedTestManager.PHASED_TEST_LOG_PREFIX, l_permutations.size(), l_scenarioName,
+                    l_representatives.size(), l_permutations.size() - l_representatives.size());
+
+            if (l_sampleSize > 0 && l_representatives.size() > l_sampleSize) {
+                final List<Long> l_indexes = new ArrayList<>(l_representatives.keySet());
+                Collections.shuffle(l_indexes, new Random(fetchPermutationSeed(l_scenarioName)));
+                l_representatives.keySet().retainAll(l_indexes.subList(0, l_sampleSize));
+                log.info("{} Executing {} of the reduced permutations of the scenario {}.",
+                        PhasedTestManager.PHASED_TEST_LOG_PREFIX, l_sampleSize, l_scenarioName);
+            }
+            l_objectArrayPhased = toProviders(l_permutations, l_representatives);
+        } else if (l_sampleSize > 0 && l_permutations.size() > l_sampleSize) {
+            final SortedMap<Long, List<StepDependencies>> l_sample = l_permutations.sample(l_sampleSize,
+                    new Random(fetchPermutationSeed(l_scenarioName)));
+            log.info("{} Executing {} of the {} permutations of the scenario {}.",
+                    PhasedTestManager.PHASED_TEST_LOG_PREFIX, l_sampleSize, l_permutations.size(), l_scenarioName);
+
+            l_objectArrayPhased = toProviders(l_permutations, l_sample);
+        } else {
+            final List<List<StepDependencies>> l_orderings = new ArrayList<>();
+            l_permutations.forEach(l_orderings::add);
+            l_objectArrayPhased = new Object[l_orderings.size()][1];
+            for (int i = 0; i < l_orderings.size(); i++) {
+                l_objectArrayPhased[i][0] = ScenarioPermutations.fetchName(l_orderings.get(i), i,
+                        l_orderings.size());
+            }
         }
 
         Object[][] l_userDefinedDataProviders = PhasedTestManager.fetchDataProviderValues(l_methodMapping.declaredClass);
 
         return PhasedTestManager.dataProvidersCrossJoin(l_objectArrayPhased, l_userDefinedDataProviders);
     }
+
+    private static Object[][] toProviders(ScenarioPermutations in_permutations,
+            SortedMap<Long, List<StepDependencies>> in_selection) {
+        return in_selection.entrySet().stream()
+                .map(e -> new Object[] { in_permutations.fetchName(e.getValue(), e.getKey()) })
+                .toArray(Object[][]::new);
+    }
+
+    /**
+     * @return The maximum number of permutations executed per scenario, as set in
+     * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_SAMPLE}. 0 if all the permutations are executed
+     */
+    static int fetchPermutationSampleSize() {
+        final String l_value = ConfigValueHandlerPhased.PROP_PERMUTATIONS_SAMPLE.fetchValue();
+        final int lr_sampleSize;
+        try {
+            lr_sampleSize = Integer.parseInt(l_value.trim());
+        } catch (NumberFormatException e) {
+            throw new PhasedTestConfigurationException(
+                    "The value " + l_value + " of " + ConfigValueHandlerPhased.PROP_PERMUTATIONS_SAMPLE.systemName
+                            + " is not a number.", e);
+        }
+        if (lr_sampleSize < 0) {
+            throw new PhasedTestConfigurationException(
+                    "The value of " + ConfigValueHandlerPhased.PROP_PERMUTATIONS_SAMPLE.systemName
+                            + " cannot be negative. It was " + lr_sampleSize + ".");
+        }
+        return lr_sampleSize;
+    }
+
+    /**
+     * Returns the seed for sampling the permutations of a scenario. Unless
+     * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_SEED} is set, it is derived from the scenario name, so that
+     * each phase selects the same permutations.
+     *
+     * @param in_scenarioName The name of a scenario
+     * @return The seed for sampling the permutations of the scenario
+     */
+    static long fetchPermutationSeed(String in_scenarioName) {
+        if (!ConfigValueHandlerPhased.PROP_PERMUTATIONS_SEED.isSet()) {
+            return in_scenarioName.hashCode();
+        }
+        final String l_value = ConfigValueHandlerPhased.PROP_PERMUTATIONS_SEED.fetchValue();
+        try {
+            return Long.parseLong(l_value.trim()) ^ in_scenarioName.hashCode();
+        } catch (NumberFormatException e) {
+            throw new PhasedTestConfigurationException(
+                    "The value " + l_value + " of " + ConfigValueHandlerPhased.PROP_PERMUTATIONS_SEED.systemName
+                            + " is not a number.", e);
+        }
+    }
+
+    /**
+     * Records the steps of a permutation up to the step that failed. Depending on
+     * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_PRUNING}, the permutations starting in the same way are then
+     * skipped. This is only done in the PERMUTATIONAL execution mode.
+     *
+     * @param in_className  The name of the scenario class
+     * @param in_phaseGroup The phase group of the failed permutation
+     * @param in_prefix     The steps of the permutation, the last one being the step that failed
+     * @param in_failure    The failure of the step
+     */
+    static void recordFailedPrefix(String in_className, String in_phaseGroup, List<StepDependencies> in_prefix,
+            Throwable in_failure) {
+        if (!ExecutionMode.is(ExecutionMode.PERMUTATIONAL) || in_prefix.isEmpty()) {
+            return;
+        }
+        failedPrefixes.computeIfAbsent(in_className, k -> new CopyOnWriteArrayList<>()).add(new FailedPrefix(
+                in_phaseGroup, in_prefix.stream().map(StepDependencies::getStepName).collect(Collectors.toList()),
+                in_failure));
+    }
+
+    /**
+     * Lets us know if a permutation is to be skipped because it starts like a failed permutation, as defined by
+     * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_PRUNING}
+     *
+     * @param in_testResult The permutation that is about to be executed
+     * @return The reason for skipping the permutation, caused by the original failure. Null if it is to be executed
+     */
+    public static PhasedStepFailure fetchPruningCause(ITestResult in_testResult) {
+        if (!ExecutionMode.is(ExecutionMode.PERMUTATIONAL) || !(in_testResult.getInstance() instanceof Mutational)
+                || in_testResult.getParameters().length == 0) {
+            return null;
+        }
+        return fetchPruningCause(in_testResult.getInstance().getClass().getTypeName(),
+                in_testResult.getParameters()[0].toString());
+    }
+
+    /**
+     * Lets us know if a permutation is to be skipped because it starts like a failed permutation, as defined by
+     * {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_PRUNING}
+     *
+     * @param in_className  The name of the scenario class
+     * @param in_phaseGroup The phase group of the permutation
+     * @return The reason for skipping the permutation, caused by the original failure. Null if it is to be executed
+     */
+    static PhasedStepFailure fetchPruningCause(String in_className, String in_phaseGroup) {
+        final List<FailedPrefix> l_failedPrefixes = failedPrefixes.get(in_className);
+        final PermutationPruning l_pruning = PermutationPruning.fetchCurrent();
+        if (l_failedPrefixes == null || l_pruning == PermutationPruning.OFF) {
+            return null;
+        }
+
+        final List<StepDependencies> l_permutation = PhasedTestManager.getStepDependencies().get(in_className)
+                .fetchPermutations().fetchPermutation(in_phaseGroup);
+        if (l_permutation == null) {
+            return null;
+        }
+        final List<String> l_stepNames = l_permutation.stream().map(StepDependencies::getStepName)
+                .collect(Collectors.toList());
+
+        return l_failedPrefixes.stream()
+                .filter(f -> !f.phaseGroup.equals(in_phaseGroup) && l_pruning.prunes(f.steps, l_stepNames))
+                .findFirst().map(f -> new PhasedStepFailure(
+                        PhasedTestManager.PHASED_TEST_LOG_PREFIX + "Skipping the permutation " + in_phaseGroup
+                                + " of " + in_className + ", as the permutation " + f.phaseGroup
+                                + " failed in step " + f.steps.get(f.steps.size() - 1) + " after the steps "
+                                + f.steps.subList(0, f.steps.size() - 1) + " (" + l_pruning + ").", f.failure))
+                .orElse(null);
+    }
+
+    /**
+     * Forgets the failed prefixes of the permutations. This is done by {@link MutationListener} at the start and at the
+     * end of each test
+     */
+    static void clearFailedPrefixes() {
+        failedPrefixes.clear();
+    }
+
+    private static final class FailedPrefix {
+        private final String phaseGroup;
+        private final List<String> steps;
+        private final Throwable failure;
+
+        private FailedPrefix(String in_phaseGroup, List<String> in_steps, Throwable in_failure) {
+            phaseGroup = in_phaseGroup;
+            steps = in_steps;
+            failure = in_failure;
+        }
+    }
 }
@@ -37,7 +37,7 @@ public abstract class Mutational {
 
         List<StepDependencies> l_orderList = ExecutionMode.is(ExecutionMode.PERMUTATIONAL) ? l_scenarioDependencies.get(
                         l_executingClass.getTypeName())
-                .fetchScenarioPermutations().get(phaseGroup) : l_scenarioDependencies.get(
+                .fetchPermutations().fetchPermutation(phaseGroup) : l_scenarioDependencies.get(
                 l_executingClass.getTypeName()).fetchExecutionOrderList();
 
         // var nrOfSteps = Phases.getCurrentPhase().hasSplittingEvent() ? PhasedTestManager.fetchShuffledStepCount(
@@ -49,60 +49,79 @@ public abstract class Mutational {
         //for (Method stepMethod : l_executingClass.getDeclaredMethods()) {
         //for (StepDependencies stepOrdering : stepOrder) {
 
-        for (int i = l_boundaries[0]; i < l_boundaries[1]; i++) {
-            try {
-                //String lt_currentStepName = stepOrder.get(i).getStepName();
-                //Method stepMethod = Arrays.stream(l_executingClass.getMethods()).filter(m -> m.getName().equals(lt_currentStepName)).findFirst().get();
-                String stepName = l_orderList.get(i).getStepName();
-                String stepId = l_executingClass.getTypeName() + "." + stepName + "(" + phaseGroup + ")";
-
-                Method stepMethod = Arrays.stream(l_executingClass.getDeclaredMethods())
-                        .filter(dm -> dm.getName().equals(stepName)).findFirst()
-                        .orElseThrow(() -> new PhasedTestConfigurationException(
-                                "Could not find step method \"" + stepName + "\" in class " + l_executingClass
-                                        .getTypeName()));
+        final SharedPrefix l_sharedPrefix = SharedPrefix.isApplicable(l_executingClass, l_boundaries,
+                l_orderList.size()) ? SharedPrefix.fetch(l_executingClass) : null;
+
+        try {
+            int l_firstStep = l_sharedPrefix == null ? l_boundaries[0] : l_sharedPrefix.fork(this,
+                    phaseGroup, l_orderList);
+
+            for (int i = l_firstStep; i < l_boundaries[1]; i++) {
+                try {
+                    //String lt_currentStepName = stepOrder.get(i).getStepName();
+                    //Method stepMethod = Arrays.stream(l_executingClass.getMethods()).filter(m -> m.getName().equals(lt_currentStepName)).findFirst().get();
+                    String stepName = l_orderList.get(i).getStepName();
+                    String stepId = l_executingClass.getTypeName() + "." + stepName + "(" + phaseGroup + ")";
+
+                    Method stepMethod = Arrays.stream(l_executingClass.getDeclaredMethods())
+                            .filter(dm -> dm.getName().equals(stepName)).findFirst()
+                            .orElseThrow(() -> new PhasedTestConfigurationException(
+                                    "Could not find step method \"" + stepName + "\" in class " + l_executingClass
+                                            .getTypeName()));
+
+                    PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(stepMethod), phaseGroup,
+                            new Object[] { phaseGroup });
+
+                    if (ExecutionMode.NON_INTERRUPTIVE.isSelected()) {
+
+                        //Check if there is an event declared
+                        String lt_event = PhasedEventManager.fetchEvent(stepMethod, phaseGroup);
+                        if (lt_event != null) {
+                            //TODO use PhasedTestManager for fetching full name instead
+                            PhasedEventManager.startEvent(lt_event, stepId);
+                        }
+                    }
 
-                PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(stepMethod), phaseGroup);
+                    Object ourInstance = l_executingClass.getDeclaredConstructor().newInstance();
+                    long l_start = System.currentTimeMillis();
+                    stepMethod.invoke(ourInstance, phaseGroup);
+                    long l_end = System.currentTimeMillis();
+
+                    if (ExecutionMode.NON_INTERRUPTIVE.isSelected()) {
+                        //Check if there is an event declared
+                        String lt_event = PhasedEventManager.fetchEvent(stepMethod, phaseGroup);
+                        if (lt_event != null) {
+                            //TODO use PhasedTestManager for fetching full name instead
+                            PhasedEventManager.finishEvent(lt_event, stepId);
+                        }
+                    }
 
-                if (ExecutionMode.NON_INTERRUPTIVE.isSelected()) {
+                    PhasedTestManager.scenarioStateStore(PhasedTestManager.fetchScenarioName(stepMethod, phaseGroup),
+                            ClassPathParser.fetchFullName(stepMethod), TestResult.SUCCESS, l_start, l_end);
+                    PhasedTestManager.releaseConsumables(PhasedTestManager.fetchScenarioName(stepMethod, phaseGroup),
+                            stepName);
 
-                    //Check if there is an event declared
-                    String lt_event = PhasedEventManager.fetchEvent(stepMethod, phaseGroup);
-                    if (lt_event != null) {
-                        //TODO use PhasedTestManager for fetching full name instead
-                        PhasedEventManager.startEvent(lt_event, stepId);
+                    if (l_sharedPrefix != null && i < l_boundaries[1] - 1) {
+                        l_sharedPrefix.push(this, stepMethod, l_start, l_end);
                     }
-                }
 
-                Object ourInstance = l_executingClass.getDeclaredConstructor().newInstance();
-                long l_start = System.currentTimeMillis();
-                stepMethod.invoke(ourInstance, phaseGroup);
-                long l_end = System.currentTimeMillis();
-
-                if (ExecutionMode.NON_INTERRUPTIVE.isSelected()) {
-                    //Check if there is an event declared
-                    String lt_event = PhasedEventManager.fetchEvent(stepMethod, phaseGroup);
-                    if (lt_event != null) {
-                        //TODO use PhasedTestManager for fetching full name instead
-                        PhasedEventManager.finishEvent(lt_event, stepId);
-                    }
+                } catch (IllegalAccessException e) {
+                    throw new RuntimeException(e);
+                } catch (InvocationTargetException e) {
+                    Throwable targetException = e.getTargetException();
+                    MutationManager.recordFailedPrefix(l_executingClass.getTypeName(), phaseGroup,
+                            l_orderList.subList(0, i + 1), targetException);
+                    throw targetException;
+                } catch (InstantiationException e) {
+                    throw new RuntimeException(e);
+                } catch (NoSuchMethodException e) {
+                    throw new RuntimeException(e);
                 }
-
-                PhasedTestManager.scenarioStateStore(PhasedTestManager.fetchScenarioName(stepMethod, phaseGroup),
-                        ClassPathParser.fetchFullName(stepMethod), TestResult.SUCCESS, l_start, l_end);
-
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
-            } catch (InvocationTargetException e) {
-                Throwable targetException = e.getTargetException();
-                throw targetException;
-            } catch (InstantiationException e) {
-                throw new RuntimeException(e);
-            } catch (NoSuchMethodException e) {
-                throw new RuntimeException(e);
             }
+        } finally {
+            PhasedTestManager.releaseConsumables(l_thisScneario);
+            PhasedTestManager.clearStepContext();
         }
-
     }
 
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * The policies for skipping, in the PERMUTATIONAL execution mode, the permutations that start like a permutation that
+ * has failed. The failed prefix of a permutation is made of its steps up to, and including, the step that failed.
+ */
+public enum PermutationPruning {
+    /**
+     * All the permutations are executed
+     */
+    OFF {
+        @Override
+        boolean prunes(List<String> in_failedPrefix, List<String> in_permutation) {
+            return false;
+        }
+    },
+    /**
+     * The permutations starting with the failed prefix are skipped
+     */
+    EXACT_PREFIX {
+        @Override
+        boolean prunes(List<String> in_failedPrefix, List<String> in_permutation) {
+            return in_permutation.size() >= in_failedPrefix.size() && in_permutation.subList(0,
+                    in_failedPrefix.size()).equals(in_failedPrefix);
+        }
+    },
+    /**
+     * The permutations that execute the failed step after the same steps as the failed prefix, in any order, are
+     * skipped. The failed step is then executed with the same produced data.
+     */
+    PREFIX_SAME_STATE {
+        @Override
+        boolean prunes(List<String> in_failedPrefix, List<String> in_permutation) {
+            final int l_failedStep = in_failedPrefix.size() - 1;
+            return in_permutation.size() > l_failedStep && in_permutation.get(l_failedStep)
+                    .equals(in_failedPrefix.get(l_failedStep)) && new HashSet<>(
+                    in_permutation.subList(0, l_failedStep)).equals(
+                    new HashSet<>(in_failedPrefix.subList(0, l_failedStep)));
+        }
+    };
+
+    /**
+     * Lets us know if a permutation is skipped because of a failed prefix
+     *
+     * @param in_failedPrefix The names of the steps of a failed permutation, up to the step that failed
+     * @param in_permutation  The names of the steps of a permutation
+     * @return true if the permutation is expected to fail like the failed prefix
+     */
+    abstract boolean prunes(List<String> in_failedPrefix, List<String> in_permutation);
+
+    /**
+     * Returns the pruning policy set in {@link ConfigValueHandlerPhased#PROP_PERMUTATIONS_PRUNING}
+     *
+     * @return The current pruning policy
+     */
+    public static PermutationPruning fetchCurrent() {
+        final String l_value = ConfigValueHandlerPhased.PROP_PERMUTATIONS_PRUNING.fetchValue();
+        try {
+            return valueOf(l_value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PhasedTestConfigurationException(
+                    "The value " + l_value + " of " + ConfigValueHandlerPhased.PROP_PERMUTATIONS_PRUNING.systemName
+                            + " is not one of " + Arrays.toString(values()) + ".", e);
+        }
+    }
+}
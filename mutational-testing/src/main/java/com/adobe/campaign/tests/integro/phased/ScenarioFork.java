@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import java.util.List;
+
+/**
+ * Saves and restores the state that a {@link Mutational} scenario creates outside the phase cache. A scenario declares
+ * its fork with {@link ForkableScenario}. The fork is instantiated once per scenario and thread, and needs a public
+ * constructor without arguments.
+ * <p>
+ * The values produced in the phase cache by the shared steps are copied to the phase group of the next permutation
+ * by the framework. The fork only needs to take care of the state of the system under test. The instance of the
+ * scenario executing the permutation is passed to the fork, so that it can reach the resources of the scenario.
+ * However, each step is executed on its own instance of the scenario class, so the fields set by the steps are not
+ * visible on this instance. The fork needs to save and restore the state from resources outside the scenario
+ * instance, such as the system under test or static resources.
+ */
+public interface ScenarioFork {
+
+    /**
+     * Saves the state of the scenario after a step. This is called after each step of a permutation, except the
+     * last.
+     *
+     * @param in_scenario      The instance of the scenario executing the permutation
+     * @param in_phaseGroup    The phase group of the permutation being executed
+     * @param in_executedSteps The names of the steps that have been executed, in their order of execution
+     * @return An object from which the state can be restored with
+     * {@link #restoreScenario(Mutational, Object, String, List)}
+     */
+    Object snapshotScenario(Mutational in_scenario, String in_phaseGroup, List<String> in_executedSteps);
+
+    /**
+     * Restores the state of the scenario before executing the remaining steps of a permutation. The steps that were
+     * executed are the prefix shared with a previous permutation.
+     *
+     * @param in_scenario      The instance of the scenario executing the permutation
+     * @param in_snapshot      The object returned by {@link #snapshotScenario(Mutational, String, List)} after the
+     *                         last shared step
+     * @param in_phaseGroup    The phase group of the permutation about to be executed
+     * @param in_executedSteps The names of the shared steps, in their order of execution
+     */
+    void restoreScenario(Mutational in_scenario, Object in_snapshot, String in_phaseGroup,
+            List<String> in_executedSteps);
+}
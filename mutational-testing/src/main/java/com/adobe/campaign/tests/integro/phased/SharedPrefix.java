@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.StepDependencies;
+import com.adobe.campaign.tests.integro.phased.utils.ClassPathParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.internal.TestResult;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The steps of the last permutation of a {@link ForkableScenario} scenario that can be shared with the next permutation. The
+ * shared steps are found by comparing the step names of the next permutation with those of the last one, so any order
+ * of the permutations is correct. The permutations are however provided in lexicographic order, even when they are
+ * sampled or reduced, which is the depth first order of their prefix tree. Keeping the path of the last permutation
+ * is therefore enough for the next permutation to share its longest prefix with it.
+ * <p>
+ * The prefixes are kept per thread, as the steps of a permutation are executed by the thread executing the scenario.
+ * They are discarded by {@link MutationListener} at the start and at the end of each test, whichever thread executed
+ * them.
+ */
+final class SharedPrefix {
+    private static final Logger log = LogManager.getLogger();
+
+    private static final Map<Long, Map<String, SharedPrefix>> prefixes = new ConcurrentHashMap<>();
+
+    private final ScenarioFork fork;
+    private final List<SharedStep> steps = new ArrayList<>();
+    private String phaseGroup = null;
+
+    private SharedPrefix(ScenarioFork in_fork) {
+        fork = in_fork;
+    }
+
+    /**
+     * Lets us know if the steps of the given scenario can be shared between permutations
+     *
+     * @param in_scenarioClass The class of the scenario
+     * @param in_boundaries    The indexes of the first step to execute, and of the step after the last
+     * @param in_nrOfSteps     The number of steps in the scenario
+     * @return true if prefix sharing is activated, and the whole of a {@link ForkableScenario} scenario is executed
+     */
+    static boolean isApplicable(Class<?> in_scenarioClass, Integer[] in_boundaries, int in_nrOfSteps) {
+        return in_scenarioClass.isAnnotationPresent(ForkableScenario.class) && ExecutionMode.is(ExecutionMode.PERMUTATIONAL)
+                && !ExecutionMode.NON_INTERRUPTIVE.isSelected()
+                && ConfigValueHandlerPhased.PROP_PERMUTATIONS_PREFIX_SHARING.is("true") && in_boundaries[0] == 0
+                && in_boundaries[1] == in_nrOfSteps;
+    }
+
+    /**
+     * Returns the prefix of the last permutation of the scenario executed by the current thread. The fork of the
+     * scenario is instantiated the first time.
+     *
+     * @param in_scenarioClass The class of a {@link ForkableScenario} scenario
+     * @return The prefix of the last permutation of the scenario executed by the current thread
+     */
+    static SharedPrefix fetch(Class<?> in_scenarioClass) {
+        return prefixes.computeIfAbsent(Thread.currentThread().getId(), k -> new HashMap<>()).computeIfAbsent(
+                in_scenarioClass.getTypeName(),
+                k -> new SharedPrefix(createFork(in_scenarioClass)));
+    }
+
+    private static ScenarioFork createFork(Class<?> in_scenarioClass) {
+        final Class<? extends ScenarioFork> l_forkClass = in_scenarioClass.getAnnotation(ForkableScenario.class)
+                .value();
+        try {
+            return l_forkClass.getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException
+                 | NoSuchMethodException e) {
+            throw new PhasedTestConfigurationException(
+                    "The scenario fork " + l_forkClass.getTypeName() + " of " + in_scenarioClass.getTypeName()
+                            + " could not be instantiated.", e);
+        }
+    }
+
+    /**
+     * Forgets the prefixes kept by all the threads, along with their snapshots
+     */
+    static void clear() {
+        prefixes.clear();
+    }
+
+    /**
+     * Prepares the execution of a permutation. The steps it shares with the previous permutation are not executed
+     * again: the state of the scenario is restored from the snapshot taken after the last shared step, the values
+     * produced by the shared steps are copied to the phase group of the permutation, and the shared steps are stored
+     * as successful in the scenario context.
+     *
+     * @param in_scenario   The instance of the scenario executing the permutation
+     * @param in_phaseGroup The phase group of the permutation
+     * @param in_orderList  The steps of the permutation
+     * @return The number of steps that need not be executed
+     */
+    int fork(Mutational in_scenario, String in_phaseGroup, List<StepDependencies> in_orderList) {
+        int lr_nrOfSharedSteps = 0;
+        while (lr_nrOfSharedSteps < steps.size() && lr_nrOfSharedSteps < in_orderList.size() - 1 && steps.get(
+                lr_nrOfSharedSteps).stepName.equals(in_orderList.get(lr_nrOfSharedSteps).getStepName())) {
+            lr_nrOfSharedSteps++;
+        }
+        if (in_phaseGroup.equals(phaseGroup)) {
+            lr_nrOfSharedSteps = 0;
+        }
+        steps.subList(lr_nrOfSharedSteps, steps.size()).clear();
+
+        final String l_previousPhaseGroup = phaseGroup;
+        phaseGroup = in_phaseGroup;
+
+        if (lr_nrOfSharedSteps == 0) {
+            return 0;
+        }
+
+        final List<String> l_forkedKeys;
+        try {
+            l_forkedKeys = PhasedTestManager.forkProducedData(
+                    steps.stream().flatMap(s -> s.producedKeys.stream()).collect(Collectors.toList()),
+                    l_previousPhaseGroup, in_phaseGroup);
+        } catch (PhasedTestException e) {
+            log.warn("{} The steps shared with the phase group {} could not be reused, and will be executed again : {}",
+                    PhasedTestManager.PHASED_TEST_LOG_PREFIX, l_previousPhaseGroup, e.getMessage());
+            steps.clear();
+            return 0;
+        }
+
+        int l_keyIndex = 0;
+        for (SharedStep lt_step : steps) {
+            final int lt_nrOfKeys = lt_step.producedKeys.size();
+            lt_step.producedKeys = new ArrayList<>(l_forkedKeys.subList(l_keyIndex, l_keyIndex + lt_nrOfKeys));
+            l_keyIndex += lt_nrOfKeys;
+        }
+
+        try {
+            fork.restoreScenario(in_scenario, steps.get(lr_nrOfSharedSteps - 1).snapshot, in_phaseGroup,
+                    fetchStepNames());
+        } catch (RuntimeException e) {
+            steps.clear();
+            throw e;
+        }
+
+        for (SharedStep lt_step : steps) {
+            PhasedTestManager.scenarioStateStore(
+                    PhasedTestManager.fetchScenarioName(lt_step.stepMethod, in_phaseGroup),
+                    ClassPathParser.fetchFullName(lt_step.stepMethod), TestResult.SUCCESS, lt_step.startMillis,
+                    lt_step.endMillis);
+        }
+        return lr_nrOfSharedSteps;
+    }
+
+    /**
+     * Adds a successful step to the prefix, and takes a snapshot of the scenario after it
+     *
+     * @param in_scenario    The instance of the scenario executing the permutation
+     * @param in_stepMethod  The method of the step
+     * @param in_startMillis The start time of the step
+     * @param in_endMillis   The end time of the step
+     */
+    void push(Mutational in_scenario, Method in_stepMethod, long in_startMillis, long in_endMillis) {
+        final PhasedStepContext l_stepContext = PhasedTestManager.fetchStepContext();
+        final SharedStep l_step = new SharedStep(in_stepMethod,
+                l_stepContext == null ? new ArrayList<>() : new ArrayList<>(l_stepContext.getProducedKeys()),
+                in_startMillis, in_endMillis);
+        steps.add(l_step);
+        l_step.snapshot = fork.snapshotScenario(in_scenario, phaseGroup, fetchStepNames());
+    }
+
+    private List<String> fetchStepNames() {
+        return steps.stream().map(s -> s.stepName).collect(Collectors.toList());
+    }
+
+    private static final class SharedStep {
+        private final Method stepMethod;
+        private final String stepName;
+        private final long startMillis;
+        private final long endMillis;
+        private List<String> producedKeys;
+        private Object snapshot = null;
+
+        private SharedStep(Method in_stepMethod, List<String> in_producedKeys, long in_startMillis,
+                long in_endMillis) {
+            stepMethod = in_stepMethod;
+            stepName = in_stepMethod.getName();
+            producedKeys = in_producedKeys;
+            startMillis = in_startMillis;
+            endMillis = in_endMillis;
+        }
+    }
+}
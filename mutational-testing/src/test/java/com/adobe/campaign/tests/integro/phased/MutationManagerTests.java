@@ -9,6 +9,7 @@
 package com.adobe.campaign.tests.integro.phased;
 
 import com.adobe.campaign.tests.integro.phased.data.NormalSeries_A;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
 import com.adobe.campaign.tests.integro.phased.mutational.data.ie.MutationalTestSingleRun;
 import com.adobe.campaign.tests.integro.phased.mutational.data.nested.MutationalTestParent;
 import com.adobe.campaign.tests.integro.phased.mutational.data.permutational.MultipleProducerConsumer;
@@ -22,6 +23,7 @@ import com.adobe.campaign.tests.integro.phased.utils.GeneralTestUtils;
 import com.adobe.campaign.tests.integro.phased.utils.MockTestTools;
 import org.hamcrest.Matchers;
 import org.mockito.Mockito;
+import org.testng.Assert;
 import org.testng.ITestResult;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeClass;
@@ -395,4 +397,112 @@ public class MutationManagerTests {
 
     }
 
+    @Test
+    public void testCreateDataProviderData_permutationalSample() throws SecurityException, NoSuchMethodException {
+        Phases l_currentPhase = Phases.PERMUTATIONAL;
+        Map<Class<?>, List<String>> l_myMap = new HashMap<>();
+
+        var testClass = ShoppingCartDemo.class;
+        Method method1 = testClass.getMethod("loginToSite", String.class);
+        Method method2 = testClass.getMethod("searchProduct", String.class);
+        Method method3 = testClass.getMethod("addProductToCart", String.class);
+        Method method4 = testClass.getMethod("checkout", String.class);
+
+        l_myMap.put(ShoppingCartDemo.class,
+                Arrays.asList(ClassPathParser.fetchFullName(method1), ClassPathParser.fetchFullName(method2),
+                        ClassPathParser.fetchFullName(method3), ClassPathParser.fetchFullName(method4)));
+
+        ScenarioStepDependencies l_scenario = ScenarioStepDependencyFactory.listMethodCalls(testClass);
+        PhasedTestManager.setStepDependencies(Collections.singletonMap(l_scenario.getScenarioName(), l_scenario));
+        PhasedTestManager.generatePhasedProviders(l_myMap, l_currentPhase.fetchRunValues());
+
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_SAMPLE.activate("2");
+        Object[][] l_providerPerm = MutationManager.fetchProvidersShuffled(ClassPathParser.fetchFullName(method1),
+                l_currentPhase.fetchRunValues());
+
+        assertThat("We only execute the sampled permutations", l_providerPerm.length, equalTo(2));
+        for (Object[] lt_provider : l_providerPerm) {
+            assertThat((String) lt_provider[0], Matchers.endsWith("-3"));
+            assertThat("The sampled permutation can be found from its name",
+                    l_scenario.fetchPermutations().fetchPermutation((String) lt_provider[0]),
+                    Matchers.notNullValue());
+        }
+
+        assertThat("Each phase samples the same permutations", MutationManager.fetchProvidersShuffled(
+                        ClassPathParser.fetchFullName(method1), l_currentPhase.fetchRunValues()),
+                equalTo(l_providerPerm));
+
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_SAMPLE.activate("3");
+        assertThat("All the permutations are executed when they do not exceed the sample",
+                MutationManager.fetchProvidersShuffled(ClassPathParser.fetchFullName(method1),
+                        l_currentPhase.fetchRunValues()).length, equalTo(3));
+
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_SAMPLE.activate("-1");
+        Assert.assertThrows(PhasedTestConfigurationException.class, MutationManager::fetchPermutationSampleSize);
+
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_SEED.activate("many");
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> MutationManager.fetchPermutationSeed(l_scenario.getScenarioName()));
+    }
+
+    @Test
+    public void testCreateDataProviderData_permutationalReduced() throws SecurityException, NoSuchMethodException {
+        Phases l_currentPhase = Phases.PERMUTATIONAL;
+        Map<Class<?>, List<String>> l_myMap = new HashMap<>();
+
+        var testClass = ShoppingCartDemo.class;
+        Method method1 = testClass.getMethod("loginToSite", String.class);
+        Method method2 = testClass.getMethod("searchProduct", String.class);
+        Method method3 = testClass.getMethod("addProductToCart", String.class);
+        Method method4 = testClass.getMethod("checkout", String.class);
+
+        l_myMap.put(ShoppingCartDemo.class,
+                Arrays.asList(ClassPathParser.fetchFullName(method1), ClassPathParser.fetchFullName(method2),
+                        ClassPathParser.fetchFullName(method3), ClassPathParser.fetchFullName(method4)));
+
+        ScenarioStepDependencies l_scenario = ScenarioStepDependencyFactory.listMethodCalls(testClass);
+        PhasedTestManager.setStepDependencies(Collections.singletonMap(l_scenario.getScenarioName(), l_scenario));
+        PhasedTestManager.generatePhasedProviders(l_myMap, l_currentPhase.fetchRunValues());
+
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_REDUCTION.activate("true");
+        Object[][] l_providerPerm = MutationManager.fetchProvidersShuffled(ClassPathParser.fetchFullName(method1),
+                l_currentPhase.fetchRunValues());
+
+        assertThat("The login commutes with the search and the cart, so the three permutations are equivalent",
+                l_providerPerm.length, equalTo(1));
+        assertThat(l_providerPerm[0][0], equalTo("PERMUTATIONAL_lestatct_1-3"));
+        assertThat(l_scenario.fetchPermutations().fetchPermutation((String) l_providerPerm[0][0]),
+                Matchers.notNullValue());
+    }
+
+    @Test
+    public void testPermutationPruning() {
+        List<String> l_failedPrefix = Arrays.asList("stepA", "stepB", "stepD");
+
+        assertThat(PermutationPruning.fetchCurrent(), equalTo(PermutationPruning.OFF));
+        assertThat(PermutationPruning.OFF.prunes(l_failedPrefix, Arrays.asList("stepA", "stepB", "stepD", "stepC")),
+                equalTo(false));
+
+        assertThat(PermutationPruning.EXACT_PREFIX.prunes(l_failedPrefix,
+                Arrays.asList("stepA", "stepB", "stepD", "stepC")), equalTo(true));
+        assertThat(PermutationPruning.EXACT_PREFIX.prunes(l_failedPrefix,
+                Arrays.asList("stepB", "stepA", "stepD", "stepC")), equalTo(false));
+        assertThat(PermutationPruning.EXACT_PREFIX.prunes(l_failedPrefix, Arrays.asList("stepA", "stepB")),
+                equalTo(false));
+
+        assertThat("The failed step is executed after the same steps",
+                PermutationPruning.PREFIX_SAME_STATE.prunes(l_failedPrefix,
+                        Arrays.asList("stepB", "stepA", "stepD", "stepC")), equalTo(true));
+        assertThat(PermutationPruning.PREFIX_SAME_STATE.prunes(l_failedPrefix,
+                Arrays.asList("stepB", "stepC", "stepD", "stepA")), equalTo(false));
+        assertThat(PermutationPruning.PREFIX_SAME_STATE.prunes(l_failedPrefix,
+                Arrays.asList("stepB", "stepA", "stepC", "stepD")), equalTo(false));
+
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_PRUNING.activate("exact_prefix");
+        assertThat(PermutationPruning.fetchCurrent(), equalTo(PermutationPruning.EXACT_PREFIX));
+
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_PRUNING.activate("ALWAYS");
+        Assert.assertThrows(PhasedTestConfigurationException.class, PermutationPruning::fetchCurrent);
+    }
+
 }
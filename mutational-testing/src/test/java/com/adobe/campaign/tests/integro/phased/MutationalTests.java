@@ -16,8 +16,11 @@ import com.adobe.campaign.tests.integro.phased.mutational.data.erroneous.IE_Shuf
 import com.adobe.campaign.tests.integro.phased.mutational.data.erroneous.IE_Shuffled_ErrorOtherNonAssertive1;
 import com.adobe.campaign.tests.integro.phased.mutational.data.ie.MutationalTestSingleRun;
 import com.adobe.campaign.tests.integro.phased.mutational.data.nie.TestMutationalShuffled_eventPassedAsExecutionVariable;
+import com.adobe.campaign.tests.integro.phased.mutational.data.permutational.FailingPermutations;
+import com.adobe.campaign.tests.integro.phased.mutational.data.permutational.ForkableProducerConsumer;
 import com.adobe.campaign.tests.integro.phased.mutational.data.permutational.MultipleProducerConsumer;
 import com.adobe.campaign.tests.integro.phased.mutational.data.permutational.ShoppingCartDemo;
+import com.adobe.campaign.tests.integro.phased.mutational.data.permutational.SystemStateFork;
 import com.adobe.campaign.tests.integro.phased.mutational.data.simple1.PhasedChild1;
 import com.adobe.campaign.tests.integro.phased.mutational.data.simple1.PhasedChild2;
 import com.adobe.campaign.tests.integro.phased.utils.GeneralTestUtils;
@@ -43,6 +46,7 @@ import java.util.stream.Collectors;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 
 public class MutationalTests {
     @BeforeClass
@@ -55,6 +59,10 @@ public class MutationalTests {
 
         PhasedTestManager.clearCache();
 
+        SharedPrefix.clear();
+
+        MutationManager.clearFailedPrefixes();
+
         PhasedTestManager.deactivateTestSelectionByProducerMode();
 
         PhasedTestManager.MergedReportData.resetReport();
@@ -426,6 +434,185 @@ public class MutationalTests {
                 is(equalTo(3)));
     }
 
+    @Test
+    public void testPermutationalForkable() {
+        SystemStateFork.reset();
+
+        // Rampup
+        TestNG myTestNG = TestTools.createTestNG();
+        TestListenerAdapter tla = TestTools.fetchTestResultsHandler(myTestNG);
+
+        ExecutionMode.PERMUTATIONAL.activate();
+
+        // Define suites
+        XmlSuite mySuite = TestTools.addSuitToTestNGTest(myTestNG, "Automated Suite Phased Testing");
+
+        // Add listeners
+        mySuite.addListener(MutationListener.class.getTypeName());
+
+        // Create an instance of XmlTest and assign a name for it.
+        XmlTest myTest = TestTools.attachTestToSuite(mySuite, "Test Permutational Tests ");
+
+        myTest.setXmlClasses(Collections.singletonList(new XmlClass(ForkableProducerConsumer.class)));
+
+        myTestNG.run();
+
+        assertThat("We should have 6 successful permutations", tla.getPassedTests().size(), is(equalTo(6)));
+        assertThat("Without prefix sharing, all the steps of each permutation are executed",
+                SystemStateFork.executedSteps.size(), is(equalTo(24)));
+        assertThat(SystemStateFork.nrOfRestores, is(equalTo(0)));
+    }
+
+    @Test
+    public void testPermutationalForkable_prefixSharing() {
+        SystemStateFork.reset();
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_PREFIX_SHARING.activate("true");
+
+        // Rampup
+        TestNG myTestNG = TestTools.createTestNG();
+        TestListenerAdapter tla = TestTools.fetchTestResultsHandler(myTestNG);
+
+        ExecutionMode.PERMUTATIONAL.activate();
+
+        // Define suites
+        XmlSuite mySuite = TestTools.addSuitToTestNGTest(myTestNG, "Automated Suite Phased Testing");
+
+        // Add listeners
+        mySuite.addListener(MutationListener.class.getTypeName());
+
+        // Create an instance of XmlTest and assign a name for it.
+        XmlTest myTest = TestTools.attachTestToSuite(mySuite, "Test Permutational Tests ");
+
+        myTest.setXmlClasses(Collections.singletonList(new XmlClass(ForkableProducerConsumer.class)));
+
+        myTestNG.run();
+
+        assertThat("We should have 6 successful permutations", tla.getPassedTests().size(), is(equalTo(6)));
+        assertThat("Each node of the prefix tree is executed once : 1 + 3 + 6 + 6",
+                SystemStateFork.executedSteps.size(), is(equalTo(16)));
+        assertThat(SystemStateFork.executedSteps.stream().filter(s -> s.equals("step1")).count(),
+                is(equalTo(1L)));
+        assertThat("Each permutation but the first continues from a snapshot", SystemStateFork.nrOfRestores,
+                is(equalTo(5)));
+
+        var l_contexts = PhasedTestManager.getScenarioContext().entrySet().stream()
+                .filter(e -> e.getKey().startsWith(ForkableProducerConsumer.class.getTypeName()))
+                .map(Map.Entry::getValue).collect(Collectors.toList());
+        assertThat(l_contexts.size(), is(equalTo(6)));
+        assertThat("The shared steps are stored in the context of each permutation",
+                l_contexts.stream().allMatch(c -> c.isPassed() && c.getStepNr() == 4), is(equalTo(true)));
+    }
+
+    @Test
+    public void testPermutationalForkable_prefixSharingWithSample() {
+        SystemStateFork.reset();
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_PREFIX_SHARING.activate("true");
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_SAMPLE.activate("3");
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_SEED.activate("1");
+
+        // Rampup
+        TestNG myTestNG = TestTools.createTestNG();
+        TestListenerAdapter tla = TestTools.fetchTestResultsHandler(myTestNG);
+
+        ExecutionMode.PERMUTATIONAL.activate();
+
+        // Define suites
+        XmlSuite mySuite = TestTools.addSuitToTestNGTest(myTestNG, "Automated Suite Phased Testing");
+
+        // Add listeners
+        mySuite.addListener(MutationListener.class.getTypeName());
+
+        // Create an instance of XmlTest and assign a name for it.
+        XmlTest myTest = TestTools.attachTestToSuite(mySuite, "Test Permutational Tests ");
+
+        myTest.setXmlClasses(Collections.singletonList(new XmlClass(ForkableProducerConsumer.class)));
+
+        myTestNG.run();
+
+        assertThat("We should have 3 successful permutations", tla.getPassedTests().size(), is(equalTo(3)));
+        assertThat(tla.getFailedTests().size(), is(equalTo(0)));
+        assertThat("All the sampled permutations start with step1, which is only executed once",
+                SystemStateFork.executedSteps.stream().filter(s -> s.equals("step1")).count(), is(equalTo(1L)));
+        assertThat("Each sampled permutation but the first continues from a snapshot", SystemStateFork.nrOfRestores,
+                is(equalTo(2)));
+        assertThat("The shared steps are not executed again", SystemStateFork.executedSteps.size(),
+                is(lessThan(12)));
+
+        var l_contexts = PhasedTestManager.getScenarioContext().entrySet().stream()
+                .filter(e -> e.getKey().startsWith(ForkableProducerConsumer.class.getTypeName()))
+                .map(Map.Entry::getValue).collect(Collectors.toList());
+        assertThat(l_contexts.size(), is(equalTo(3)));
+        assertThat(l_contexts.stream().allMatch(c -> c.isPassed() && c.getStepNr() == 4), is(equalTo(true)));
+    }
+
+    private TestListenerAdapter runFailingPermutations() {
+        FailingPermutations.executedSteps.clear();
+
+        // Rampup
+        TestNG myTestNG = TestTools.createTestNG();
+        TestListenerAdapter tla = TestTools.fetchTestResultsHandler(myTestNG);
+
+        ExecutionMode.PERMUTATIONAL.activate();
+
+        // Define suites
+        XmlSuite mySuite = TestTools.addSuitToTestNGTest(myTestNG, "Automated Suite Phased Testing");
+
+        // Add listeners
+        mySuite.addListener(MutationListener.class.getTypeName());
+
+        // Create an instance of XmlTest and assign a name for it.
+        XmlTest myTest = TestTools.attachTestToSuite(mySuite, "Test Permutational Tests ");
+
+        myTest.setXmlClasses(Collections.singletonList(new XmlClass(FailingPermutations.class)));
+
+        myTestNG.run();
+
+        return tla;
+    }
+
+    @Test
+    public void testPermutationalPruning_off() {
+        TestListenerAdapter tla = runFailingPermutations();
+
+        assertThat(tla.getPassedTests().size(), is(equalTo(12)));
+        assertThat("All the failing permutations are executed", tla.getFailedTests().size(), is(equalTo(12)));
+        assertThat(tla.getSkippedTests().size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testPermutationalPruning_exactPrefix() {
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_PRUNING.activate("EXACT_PREFIX");
+
+        TestListenerAdapter tla = runFailingPermutations();
+
+        assertThat(tla.getPassedTests().size(), is(equalTo(12)));
+        assertThat(tla.getFailedTests().size(), is(equalTo(7)));
+        assertThat("The permutations starting with stepC are skipped once one of them fails",
+                tla.getSkippedTests().size(), is(equalTo(5)));
+        assertThat(tla.getSkippedTests().stream()
+                .allMatch(r -> r.getParameters()[0].toString().startsWith("PERMUTATIONAL_sC")), is(true));
+
+        assertThat("The skipped permutations refer to the original failure", tla.getSkippedTests().stream()
+                .allMatch(r -> r.getThrowable() instanceof PhasedStepFailure && r.getThrowable()
+                        .getCause() instanceof AssertionError && r.getThrowable().getMessage()
+                        .contains("as the permutation PERMUTATIONAL_sC")), is(true));
+    }
+
+    @Test
+    public void testPermutationalPruning_prefixSameState() {
+        ConfigValueHandlerPhased.PROP_PERMUTATIONS_PRUNING.activate("PREFIX_SAME_STATE");
+
+        TestListenerAdapter tla = runFailingPermutations();
+
+        assertThat(tla.getPassedTests().size(), is(equalTo(12)));
+        assertThat("Only the first permutation failing with each set of previous steps is executed",
+                tla.getFailedTests().size(), is(equalTo(3)));
+        assertThat(tla.getFailedTests().stream()
+                .filter(r -> r.getParameters()[0].toString().startsWith("PERMUTATIONAL_sC")).count(),
+                is(equalTo(1L)));
+        assertThat(tla.getSkippedTests().size(), is(equalTo(9)));
+    }
+
     /**
      * This is a test for non-intyerruptive events in shuffled classes
      */
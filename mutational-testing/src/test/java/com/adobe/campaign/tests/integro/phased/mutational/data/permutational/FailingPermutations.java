@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.mutational.data.permutational;
+
+import com.adobe.campaign.tests.integro.phased.Mutational;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Independent steps, where stepC fails when executed first, and stepD fails when executed after stepA and stepB
+ */
+@Test
+public class FailingPermutations extends Mutational {
+    public static final Map<String, Set<String>> executedSteps = new ConcurrentHashMap<>();
+
+    public void stepA(String phaseGroup) {
+        executedSteps.computeIfAbsent(phaseGroup, k -> new HashSet<>()).add("stepA");
+    }
+
+    public void stepB(String phaseGroup) {
+        executedSteps.computeIfAbsent(phaseGroup, k -> new HashSet<>()).add("stepB");
+    }
+
+    public void stepC(String phaseGroup) {
+        Assert.assertTrue(executedSteps.containsKey(phaseGroup), "stepC cannot be the first step.");
+        executedSteps.get(phaseGroup).add("stepC");
+    }
+
+    public void stepD(String phaseGroup) {
+        final Set<String> l_executedSteps = executedSteps.computeIfAbsent(phaseGroup, k -> new HashSet<>());
+        Assert.assertFalse(l_executedSteps.contains("stepA") && l_executedSteps.contains("stepB"),
+                "stepD cannot be executed after stepA and stepB.");
+        l_executedSteps.add("stepD");
+    }
+}
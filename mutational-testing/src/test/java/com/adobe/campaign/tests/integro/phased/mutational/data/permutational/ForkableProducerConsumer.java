@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.mutational.data.permutational;
+
+import com.adobe.campaign.tests.integro.phased.ForkableScenario;
+import com.adobe.campaign.tests.integro.phased.Mutational;
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test
+@ForkableScenario(SystemStateFork.class)
+public class ForkableProducerConsumer extends Mutational {
+    public void step1(String param) {
+        SystemStateFork.systemState.clear();
+        SystemStateFork.execute("step1");
+        PhasedTestManager.produce("base", "A");
+    }
+
+    public void step2(String param) {
+        SystemStateFork.execute("step2");
+        PhasedTestManager.produce("two", PhasedTestManager.consume("base") + "2");
+    }
+
+    public void step3(String param) {
+        SystemStateFork.execute("step3");
+        PhasedTestManager.produce("three", PhasedTestManager.consume("base") + "3");
+    }
+
+    public void step4(String param) {
+        SystemStateFork.execute("step4");
+        Assert.assertEquals(PhasedTestManager.consume("base"), "A");
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.mutational.data.permutational;
+
+import com.adobe.campaign.tests.integro.phased.Mutational;
+import com.adobe.campaign.tests.integro.phased.ScenarioFork;
+import org.testng.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simulates a system under test, in which each step of a scenario leaves a trace
+ */
+public class SystemStateFork implements ScenarioFork {
+    public static final List<String> executedSteps = new ArrayList<>();
+    public static final List<String> systemState = new ArrayList<>();
+    public static int nrOfRestores = 0;
+
+    public static void reset() {
+        executedSteps.clear();
+        systemState.clear();
+        nrOfRestores = 0;
+    }
+
+    public static void execute(String in_stepName) {
+        Assert.assertFalse(systemState.contains(in_stepName), "The step " + in_stepName + " was already executed.");
+        executedSteps.add(in_stepName);
+        systemState.add(in_stepName);
+    }
+
+    @Override
+    public Object snapshotScenario(Mutational in_scenario, String in_phaseGroup, List<String> in_executedSteps) {
+        Assert.assertTrue(in_scenario instanceof ForkableProducerConsumer);
+        Assert.assertEquals(in_executedSteps, systemState);
+        return new ArrayList<>(systemState);
+    }
+
+    @Override
+    public void restoreScenario(Mutational in_scenario, Object in_snapshot, String in_phaseGroup,
+            List<String> in_executedSteps) {
+        Assert.assertTrue(in_scenario instanceof ForkableProducerConsumer);
+        nrOfRestores++;
+        systemState.clear();
+        systemState.addAll((List<String>) in_snapshot);
+        Assert.assertEquals(in_executedSteps, systemState);
+    }
+}
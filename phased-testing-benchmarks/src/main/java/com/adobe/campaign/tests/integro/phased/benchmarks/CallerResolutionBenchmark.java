@@ -0,0 +1,83 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.benchmarks;
+
+import com.adobe.campaign.tests.integro.phased.utils.CallerIdentity;
+import com.adobe.campaign.tests.integro.phased.utils.StackTraceManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the resolution of the caller of {@code PhasedTestManager.produce}/{@code consume} as it was done with
+ * {@link Thread#getStackTrace()} (twice per call), with the {@link StackWalker} based resolution of
+ * {@link StackTraceManager}. The {@code stackDepth} parameter simulates the frames TestNG and Surefire add below a
+ * test step.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CallerResolutionBenchmark {
+
+    @Param({ "10", "50", "150" })
+    int stackDepth;
+
+    @Benchmark
+    public String threadStackTrace() {
+        return descend(stackDepth, true);
+    }
+
+    @Benchmark
+    public String stackWalker() {
+        return descend(stackDepth, false);
+    }
+
+    private static String descend(int in_remainingDepth, boolean in_legacy) {
+        if (in_remainingDepth > 0) {
+            return descend(in_remainingDepth - 1, in_legacy);
+        }
+        return in_legacy ? legacyStep() : stackWalkerStep();
+    }
+
+    /**
+     * Plays the role of a test step calling {@code produce}
+     */
+    private static String legacyStep() {
+        return legacyProduce();
+    }
+
+    private static String stackWalkerStep() {
+        return stackWalkerProduce();
+    }
+
+    /**
+     * The caller resolution of {@code PhasedTestManager.produce} before the move to {@link StackWalker}
+     */
+    private static String legacyProduce() {
+        final String l_className = legacyFetchCalledBy().getClassName();
+        return l_className + legacyFetchCalledByFullName();
+    }
+
+    private static String stackWalkerProduce() {
+        final CallerIdentity l_caller = StackTraceManager.fetchCallerIdentity(StackTraceManager.fetchCalledByFrame());
+        return l_caller.getClassName() + l_caller.getFullName();
+    }
+
+    private static StackTraceElement legacyFetchCalledBy() {
+        return Thread.currentThread().getStackTrace()[3];
+    }
+
+    private static String legacyFetchCalledByFullName() {
+        StackTraceElement l_calledElement = Thread.currentThread().getStackTrace()[3];
+        return l_calledElement.getClassName() + '.' + l_calledElement.getMethodName();
+    }
+}
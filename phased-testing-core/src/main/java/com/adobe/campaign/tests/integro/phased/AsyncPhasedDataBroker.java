@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A data broker that transfers the phase data as streams, and does so asynchronously. This allows the upload of the
+ * phase data to overlap with the end of the PRODUCER phase, and its download to overlap with the preparation of the
+ * CONSUMER phase.
+ * <p>
+ * Brokers implementing the file based {@link PhasedDataBroker} are used through {@link FileDataBrokerAdapter}.
+ */
+public interface AsyncPhasedDataBroker {
+
+    /**
+     * This method should store the given content in the location you have designated. The content is to be read
+     * until its end, but not closed.
+     *
+     * @param in_name    The name under which the content is stored
+     * @param in_content The content to store
+     * @return A future that completes once the content is stored
+     */
+    CompletableFuture<Void> store(String in_name, InputStream in_content);
+
+    /**
+     * This method should fetch the content stored under the given name, from the location you have designated.
+     *
+     * @param in_name The name under which the content was stored
+     * @return A future of the stored content. The stream is closed by the caller
+     */
+    CompletableFuture<InputStream> fetch(String in_name);
+
+    /**
+     * Stores the given file under its name. By default the file is passed as a stream to
+     * {@link #store(String, InputStream)}.
+     *
+     * @param in_file A file in which the phase data was exported
+     * @return A future that completes once the file is stored
+     */
+    default CompletableFuture<Void> store(File in_file) {
+        final InputStream l_content;
+        try {
+            l_content = new FileInputStream(in_file);
+        } catch (IOException e) {
+            throw new PhasedTestException("Error when reading the file " + in_file.getPath() + ".", e);
+        }
+
+        return store(in_file.getName(), l_content).whenComplete((v, e) -> {
+            try {
+                l_content.close();
+            } catch (IOException ex) {
+                throw new PhasedTestException("Error when closing the file " + in_file.getPath() + ".", ex);
+            }
+        });
+    }
+}
@@ -39,10 +39,40 @@ public enum ConfigValueHandlerPhased {
     PHASED_TEST_DETECT_ORDER("MUTATIONAL.TESTS.DETECT.ORDER", "false", false,
             "PHASED.TESTS.DETECT.ORDER",
             "Activates code-based detection of step execution order within a scenario."),
+    PROP_PARSE_CACHE("MUTATIONAL.TESTS.PARSE.CACHE", "true", false,
+            "When true, the dependencies parsed from the scenario sources are cached in the output directory, and a source is only parsed again when it has changed."),
+    PROP_ANALYSIS_PARALLELISM("MUTATIONAL.TESTS.ANALYSIS.PARALLELISM", "0", false,
+            "The maximum number of scenario sources analyzed at the same time. 0 uses the number of available processors, 1 analyzes the sources sequentially."),
+    PROP_ANALYSIS_EXTRACTOR("MUTATIONAL.TESTS.ANALYSIS.EXTRACTOR", "SOURCE", false,
+            "Where the produce / consume dependencies of the scenarios are read from. SOURCE parses the scenario sources, BYTECODE reads the compiled classes from the class path."),
+    PROP_PERMUTATIONS_SAMPLE("MUTATIONAL.TESTS.PERMUTATIONS.SAMPLE", "0", false,
+            "The maximum number of permutations executed per scenario in the PERMUTATIONAL execution mode. Larger scenarios are executed with a uniform random sample of their permutations. 0 executes all the permutations."),
+    PROP_PERMUTATIONS_SEED("MUTATIONAL.TESTS.PERMUTATIONS.SEED", null, false,
+            "The seed used for sampling the permutations of a scenario. By default, the seed is derived from the scenario name, so that all phases select the same permutations."),
+    PROP_PERMUTATIONS_REDUCTION("MUTATIONAL.TESTS.PERMUTATIONS.REDUCTION", "false", false,
+            "When true, the PERMUTATIONAL execution mode only executes one permutation per set of permutations that differ by the order of commuting steps."),
+    PROP_PERMUTATIONS_PREFIX_SHARING("MUTATIONAL.TESTS.PERMUTATIONS.PREFIX.SHARING", "false", false,
+            "When true, the PERMUTATIONAL execution mode executes the steps shared by consecutive permutations only once, for the scenarios annotated with ForkableScenario."),
+    PROP_PERMUTATIONS_PRUNING("MUTATIONAL.TESTS.PERMUTATIONS.PRUNING", "OFF", false,
+            "How the PERMUTATIONAL execution mode skips the permutations starting like a failed permutation: OFF, EXACT_PREFIX or PREFIX_SAME_STATE."),
     PHASED_TEST_NONPHASED_LEGACY("PHASED.TESTS.NONPHASED.LEGACY", "false", false,
             "Keeps the pre-8.0.0 default execution mode ('phased-data-provider-single') for backward "
                     + "compatibility.",
             true),
+    PROP_STORAGE_FORMAT("MUTATIONAL.TESTS.STORAGE.FORMAT", "PROPERTIES", false,
+            "The format in which the Phased Test data is exported (PROPERTIES, BINARY, INDEXED, COMPRESSED). The format is detected on import."),
+    PROP_STORAGE_SHARDING("MUTATIONAL.TESTS.STORAGE.SHARDING", "NONE", false,
+            "The way the exported Phased Test data is split into shards (NONE, CLASS, HASH)."),
+    PROP_STORAGE_SHARDS("MUTATIONAL.TESTS.STORAGE.SHARDS", "16", false,
+            "The number of shards when the Phased Test data is sharded by HASH."),
+    PROP_STORAGE_PREFETCH("MUTATIONAL.TESTS.STORAGE.PREFETCH", "false", false,
+            "When true, a CONSUMER phase fetches all the values a scenario consumes when the scenario starts. The values are only fetched with the INDEXED format."),
+    PROP_STORAGE_EVICTION("MUTATIONAL.TESTS.STORAGE.EVICTION", "false", false,
+            "When true, a CONSUMER phase releases the values of a scenario from memory once the steps consuming them have finished."),
+    PROP_STORAGE_JOURNAL("MUTATIONAL.TESTS.STORAGE.JOURNAL", "false", false,
+            "When true, the data produced in a PRODUCER phase is also appended to a journal as it is produced."),
+    PROP_STORAGE_JOURNAL_SYNC_INTERVAL("MUTATIONAL.TESTS.STORAGE.JOURNAL.SYNC.INTERVAL", "1000", false,
+            "The maximum time in milliseconds between two writes of the journal to the disk."),
     PROP_SCENARIO_EXPORTED_PREFIX("MUTATIONAL.TESTS.STORAGE.SCENARIO.PREFIX", "[TC]", false,
             "PHASED.TESTS.STORAGE.SCENARIO.PREFIX",
             "The prefix used for exported/stored scenario names."),
@@ -109,15 +139,31 @@ public enum ConfigValueHandlerPhased {
      * @return The string value of the given property
      */
     public String fetchValue() {
-        if (legacySystemName != null && System.getProperties().containsKey(legacySystemName)
-                && !System.getProperties().containsKey(systemName)) {
+        if (isLegacyNameUsed()) {
             log.warn("IMPORTANT: The property {} is DEPRECATED. Please use the property {} henceforth.",
                     legacySystemName, systemName);
+        }
+        return resolveValue();
+    }
+
+    /**
+     * Returns the value for our config element, without warning about the use of a legacy property name. This is used
+     * when resolving the {@link RunConfiguration}, as the legacy names are reported once when the suite starts.
+     *
+     * @return The string value of the given property
+     */
+    String resolveValue() {
+        if (isLegacyNameUsed()) {
             return System.getProperty(legacySystemName, defaultValue);
         }
         return System.getProperty(this.systemName, this.defaultValue);
     }
 
+    private boolean isLegacyNameUsed() {
+        return legacySystemName != null && System.getProperties().containsKey(legacySystemName)
+                && !System.getProperties().containsKey(systemName);
+    }
+
     /**
      * Sets the given value to our property
      * 
@@ -125,6 +171,7 @@ public enum ConfigValueHandlerPhased {
      */
     public void activate(String in_value) {
         System.setProperty(this.systemName, in_value);
+        RunConfiguration.invalidate();
     }
 
     /**
@@ -135,6 +182,7 @@ public enum ConfigValueHandlerPhased {
         if (legacySystemName != null) {
             System.clearProperty(legacySystemName);
         }
+        RunConfiguration.invalidate();
     }
 
     /**
@@ -45,17 +45,15 @@ public enum ExecutionMode {
     }
 
     /**
-     * Returns the Phased Test state in which the current test session is being executed
+     * Returns the Phased Test state in which the current test session is being executed. The mode is read from the
+     * {@link RunConfiguration} of the current run.
      * <p>
      * Author : gandomi
      *
      * @return The phase which is currently being executed
      */
     public static ExecutionMode getCurrentMode() {
-        if (ConfigValueHandlerPhased.PROP_EXECUTION_MODE.isSet()) {
-            return fetchCorrespondingMode(ConfigValueHandlerPhased.PROP_EXECUTION_MODE.fetchValue());
-        }
-        return Phases.getCurrentPhase().fetchRunValues().getExecutionMode();
+        return RunConfiguration.fetch().getExecutionMode();
     }
 
     /**
@@ -102,7 +100,7 @@ public enum ExecutionMode {
     }
 
     public RunValues fetchRunValues() {
-        return new RunValues(getCurrentMode(), getCurrentMode().fetchBehavior());
+        return RunConfiguration.fetch().getRunValues();
     }
 
     public boolean isTypeValid() {
@@ -161,19 +159,7 @@ public enum ExecutionMode {
      * @return The mode set at runtime
      */
     public String fetchBehavior() {
-        if (ConfigValueHandlerPhased.PROP_EXECUTION_MODE.isSet()) {
-            String l_value = ConfigValueHandlerPhased.PROP_EXECUTION_MODE.fetchValue();
-            int l_startIndex = l_value.indexOf("(");
-            int l_endIndex = l_value.indexOf(")");
-
-            if (l_startIndex != -1 && l_endIndex != -1) {
-                return l_value.substring(l_startIndex + 1, l_endIndex);
-            }
-            return "";
-        } else {
-            return Phases.getCurrentPhase().behavior;
-        }
-
+        return RunConfiguration.fetch().getBehavior();
     }
 
     /**
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Allows a file based {@link PhasedDataBroker} to be used as an {@link AsyncPhasedDataBroker}. The calls to the
+ * broker are executed in background threads.
+ */
+public final class FileDataBrokerAdapter implements AsyncPhasedDataBroker {
+
+    private static final ExecutorService BROKER_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread lr_thread = new Thread(r, "phased-data-broker");
+        lr_thread.setDaemon(true);
+        return lr_thread;
+    });
+
+    private final PhasedDataBroker dataBroker;
+
+    /**
+     * Creates an asynchronous broker that delegates to the given file based broker
+     *
+     * @param in_dataBroker The file based data broker to adapt
+     */
+    public FileDataBrokerAdapter(PhasedDataBroker in_dataBroker) {
+        dataBroker = in_dataBroker;
+    }
+
+    /**
+     * @return The adapted data broker
+     */
+    public PhasedDataBroker getDataBroker() {
+        return dataBroker;
+    }
+
+    /**
+     * Copies the content to a temporary file with the given name, and stores it with the adapted broker. The content
+     * is copied in the calling thread, so that the caller may close it once this method returns.
+     */
+    @Override
+    public CompletableFuture<Void> store(String in_name, InputStream in_content) {
+        final File l_tempFile;
+        try {
+            final Path l_tempDir = Files.createTempDirectory("phased-data-broker");
+            l_tempFile = l_tempDir.resolve(in_name).toFile();
+            Files.copy(in_content, l_tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new PhasedTestException("Error when preparing " + in_name + " for the data broker.", e);
+        }
+
+        return store(l_tempFile).whenComplete((v, e) -> {
+            l_tempFile.delete();
+            l_tempFile.getParentFile().delete();
+        });
+    }
+
+    /**
+     * Passes the file as it is to the adapted broker.
+     */
+    @Override
+    public CompletableFuture<Void> store(File in_file) {
+        return CompletableFuture.runAsync(() -> dataBroker.store(in_file), BROKER_EXECUTOR);
+    }
+
+    @Override
+    public CompletableFuture<InputStream> fetch(String in_name) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return new FileInputStream(dataBroker.fetch(in_name));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, BROKER_EXECUTOR);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import com.adobe.campaign.tests.integro.phased.spi.PhasedDataCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The registry of the codecs used for typed phased data. Codecs for {@link String}, the boxed primitives and
+ * {@code byte[]} are always available. Additional codecs are discovered via {@link ServiceLoader}, or registered with
+ * {@link #register(PhasedDataCodec)}.
+ */
+public final class PhasedDataCodecs {
+
+    private static final Map<String, PhasedDataCodec<?>> codecs = buildCodecs();
+
+    private PhasedDataCodecs() {
+        //Utility class. Defeat instantiation
+    }
+
+    private static Map<String, PhasedDataCodec<?>> buildCodecs() {
+        Map<String, PhasedDataCodec<?>> lr_codecs = new ConcurrentHashMap<>();
+        addCodec(lr_codecs, new SimpleCodec<>(String.class, s -> s.getBytes(StandardCharsets.UTF_8),
+                b -> new String(b, StandardCharsets.UTF_8)));
+        addCodec(lr_codecs, new SimpleCodec<>(byte[].class, byte[]::clone, byte[]::clone));
+        addCodec(lr_codecs, new SimpleCodec<>(Boolean.class, v -> new byte[] { (byte) (v ? 1 : 0) }, b -> b[0] != 0));
+        addCodec(lr_codecs, new SimpleCodec<>(Integer.class, v -> ByteBuffer.allocate(Integer.BYTES).putInt(v).array(),
+                b -> ByteBuffer.wrap(b).getInt()));
+        addCodec(lr_codecs, new SimpleCodec<>(Long.class, v -> ByteBuffer.allocate(Long.BYTES).putLong(v).array(),
+                b -> ByteBuffer.wrap(b).getLong()));
+        addCodec(lr_codecs, new SimpleCodec<>(Double.class,
+                v -> ByteBuffer.allocate(Double.BYTES).putDouble(v).array(), b -> ByteBuffer.wrap(b).getDouble()));
+        addCodec(lr_codecs, new SimpleCodec<>(Float.class, v -> ByteBuffer.allocate(Float.BYTES).putFloat(v).array(),
+                b -> ByteBuffer.wrap(b).getFloat()));
+        addCodec(lr_codecs, new SimpleCodec<>(Short.class, v -> ByteBuffer.allocate(Short.BYTES).putShort(v).array(),
+                b -> ByteBuffer.wrap(b).getShort()));
+        addCodec(lr_codecs, new SimpleCodec<>(Byte.class, v -> new byte[] { v }, b -> b[0]));
+        addCodec(lr_codecs, new SimpleCodec<>(Character.class,
+                v -> ByteBuffer.allocate(Character.BYTES).putChar(v).array(), b -> ByteBuffer.wrap(b).getChar()));
+
+        ServiceLoader.load(PhasedDataCodec.class).forEach(c -> addCodec(lr_codecs, c));
+        return lr_codecs;
+    }
+
+    private static void addCodec(Map<String, PhasedDataCodec<?>> in_codecs, PhasedDataCodec<?> in_codec) {
+        in_codecs.put(in_codec.getType().getName(), in_codec);
+    }
+
+    /**
+     * Registers a codec. A codec registered for a type that already has one, replaces it.
+     *
+     * @param in_codec A codec for typed phased data
+     */
+    public static void register(PhasedDataCodec<?> in_codec) {
+        addCodec(codecs, in_codec);
+    }
+
+    /**
+     * Returns the codec for the given type
+     *
+     * @param in_type The type of the values to encode/decode. Primitive types are mapped to their boxed types
+     * @param <T>     The type of the values to encode/decode
+     * @return The codec for the given type
+     * @throws PhasedTestConfigurationException if no codec is registered for the type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PhasedDataCodec<T> fetchCodec(Class<T> in_type) {
+        return (PhasedDataCodec<T>) fetchCodec(box(in_type).getName());
+    }
+
+    /**
+     * Returns the codec registered for the given type name
+     *
+     * @param in_typeName The name of the type, as returned by {@link Class#getName()}
+     * @return The codec for the given type
+     * @throws PhasedTestConfigurationException if no codec is registered for the type
+     */
+    public static PhasedDataCodec<?> fetchCodec(String in_typeName) {
+        final PhasedDataCodec<?> lr_codec = codecs.get(in_typeName);
+        if (lr_codec == null) {
+            throw new PhasedTestConfigurationException(
+                    "No PhasedDataCodec is registered for the type " + in_typeName + ".");
+        }
+        return lr_codec;
+    }
+
+    private static Class<?> box(Class<?> in_type) {
+        if (!in_type.isPrimitive()) {
+            return in_type;
+        }
+        switch (in_type.getName()) {
+        case "boolean":
+            return Boolean.class;
+        case "int":
+            return Integer.class;
+        case "long":
+            return Long.class;
+        case "double":
+            return Double.class;
+        case "float":
+            return Float.class;
+        case "short":
+            return Short.class;
+        case "byte":
+            return Byte.class;
+        case "char":
+            return Character.class;
+        default:
+            throw new PhasedTestConfigurationException("The type " + in_type.getName() + " cannot be encoded.");
+        }
+    }
+
+    /**
+     * A codec built from two functions
+     *
+     * @param <T> The type of values handled by this codec
+     */
+    private static final class SimpleCodec<T> implements PhasedDataCodec<T> {
+        private final Class<T> type;
+        private final Function<T, byte[]> encoder;
+        private final Function<byte[], T> decoder;
+
+        SimpleCodec(Class<T> in_type, Function<T, byte[]> in_encoder, Function<byte[], T> in_decoder) {
+            type = in_type;
+            encoder = in_encoder;
+            decoder = in_decoder;
+        }
+
+        @Override
+        public Class<T> getType() {
+            return type;
+        }
+
+        @Override
+        public byte[] encode(T in_value) {
+            return encoder.apply(in_value);
+        }
+
+        @Override
+        public T decode(byte[] in_encodedValue) {
+            return decoder.apply(in_encodedValue);
+        }
+    }
+}
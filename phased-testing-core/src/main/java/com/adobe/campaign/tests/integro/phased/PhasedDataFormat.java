@@ -0,0 +1,405 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The formats in which the phase cache and the scenario contexts can be exported. The format used for exporting is
+ * set with {@link ConfigValueHandlerPhased#PROP_STORAGE_FORMAT}. When importing, the format is detected from the
+ * content of the file, so a consumer can always read what a producer has written.
+ */
+public enum PhasedDataFormat {
+    /**
+     * A standard property file. This is the default format.
+     */
+    PROPERTIES {
+        @Override
+        void write(OutputStream in_outputStream, PhasedDataStore in_phasedCache,
+                Map<String, String> in_scenarioContexts) throws IOException {
+            Properties lt_transformedScenarios = new Properties();
+            lt_transformedScenarios.putAll(in_scenarioContexts);
+
+            Writer l_writer = new OutputStreamWriter(in_outputStream);
+            in_phasedCache.store(l_writer, null);
+            lt_transformedScenarios.store(l_writer, null);
+            l_writer.flush();
+        }
+
+        @Override
+        Properties read(InputStream in_inputStream) throws IOException {
+            Properties lr_importedProperties = new Properties();
+            lr_importedProperties.load(in_inputStream);
+            return PhasedDataStore.importTypedValues(lr_importedProperties);
+        }
+    },
+
+    /**
+     * A binary format, in which the keys and values are stored without escaping, and the typed values are stored as
+     * they are encoded by their codec.
+     */
+    BINARY {
+        @Override
+        void write(OutputStream in_outputStream, PhasedDataStore in_phasedCache,
+                Map<String, String> in_scenarioContexts) throws IOException {
+            DataOutputStream l_output = new DataOutputStream(in_outputStream);
+            l_output.write(BINARY_MAGIC);
+            l_output.writeByte(BINARY_VERSION);
+
+            for (Map.Entry<Object, Object> lt_entry : in_phasedCache.entrySet()) {
+                if (lt_entry.getValue() instanceof PhasedDataStore.EncodedValue) {
+                    final PhasedDataStore.EncodedValue lt_encodedValue =
+                            (PhasedDataStore.EncodedValue) lt_entry.getValue();
+                    l_output.writeByte(ENTRY_TYPED);
+                    l_output.writeUTF(lt_entry.getKey().toString());
+                    l_output.writeUTF(lt_encodedValue.getTypeName());
+                    writeBytes(l_output, lt_encodedValue.getBytes());
+                } else {
+                    l_output.writeByte(ENTRY_STRING);
+                    l_output.writeUTF(lt_entry.getKey().toString());
+                    writeBytes(l_output, lt_entry.getValue().toString().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+
+            for (Map.Entry<String, String> lt_entry : in_scenarioContexts.entrySet()) {
+                l_output.writeByte(ENTRY_STRING);
+                l_output.writeUTF(lt_entry.getKey());
+                writeBytes(l_output, lt_entry.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+            l_output.writeByte(ENTRY_END);
+            l_output.flush();
+        }
+
+        @Override
+        Properties read(InputStream in_inputStream) throws IOException {
+            DataInputStream l_input = new DataInputStream(in_inputStream);
+            byte[] l_magic = new byte[BINARY_MAGIC.length];
+            l_input.readFully(l_magic);
+            if (!Arrays.equals(l_magic, BINARY_MAGIC)) {
+                throw new PhasedTestException("The given file is not in the " + name() + " format.");
+            }
+            final int l_version = l_input.readUnsignedByte();
+            if (l_version != BINARY_VERSION) {
+                throw new PhasedTestException("Unsupported version " + l_version + " of the " + name() + " format.");
+            }
+
+            Properties lr_importedProperties = new Properties();
+            for (int lt_entryType = l_input.readUnsignedByte(); lt_entryType != ENTRY_END;
+                    lt_entryType = l_input.readUnsignedByte()) {
+                final String lt_key = l_input.readUTF();
+                if (lt_entryType == ENTRY_TYPED) {
+                    final String lt_typeName = l_input.readUTF();
+                    lr_importedProperties.put(lt_key, new PhasedDataStore.EncodedValue(lt_typeName,
+                            readBytes(l_input)));
+                } else if (lt_entryType == ENTRY_STRING) {
+                    lr_importedProperties.put(lt_key, new String(readBytes(l_input), StandardCharsets.UTF_8));
+                } else {
+                    throw new PhasedTestException("Unexpected entry type " + lt_entryType + " in the " + name()
+                            + " format.");
+                }
+            }
+            return lr_importedProperties;
+        }
+    },
+
+    /**
+     * A binary format in which the values are followed by an index of their keys. A consumer only reads the index
+     * when importing such a file, and the values are decoded when they are consumed. See {@link PhasedDataIndex}.
+     */
+    INDEXED {
+        @Override
+        void write(OutputStream in_outputStream, PhasedDataStore in_phasedCache,
+                Map<String, String> in_scenarioContexts) throws IOException {
+            DataOutputStream l_output = new DataOutputStream(in_outputStream);
+            l_output.write(PhasedDataIndex.INDEXED_MAGIC);
+            l_output.writeByte(PhasedDataIndex.INDEXED_VERSION);
+
+            //The index is built while the values are written, and is written after them
+            ByteArrayOutputStream l_indexBytes = new ByteArrayOutputStream();
+            DataOutputStream l_index = new DataOutputStream(l_indexBytes);
+            long l_offset = 0;
+            int l_nrOfEntries = 0;
+
+            Map<Object, Object> l_allEntries = new LinkedHashMap<>(in_phasedCache);
+            l_allEntries.putAll(in_scenarioContexts);
+
+            for (Map.Entry<Object, Object> lt_entry : l_allEntries.entrySet()) {
+                final byte[] lt_bytes;
+                if (lt_entry.getValue() instanceof PhasedDataStore.EncodedValue) {
+                    final PhasedDataStore.EncodedValue lt_encodedValue =
+                            (PhasedDataStore.EncodedValue) lt_entry.getValue();
+                    l_index.writeByte(PhasedDataIndex.ENTRY_TYPED);
+                    l_index.writeUTF(lt_entry.getKey().toString());
+                    l_index.writeUTF(lt_encodedValue.getTypeName());
+                    lt_bytes = lt_encodedValue.getBytes();
+                } else {
+                    l_index.writeByte(PhasedDataIndex.ENTRY_STRING);
+                    l_index.writeUTF(lt_entry.getKey().toString());
+                    lt_bytes = lt_entry.getValue().toString().getBytes(StandardCharsets.UTF_8);
+                }
+                if (l_offset + lt_bytes.length > Integer.MAX_VALUE) {
+                    throw new PhasedTestException("The phased data is too large for the " + name()
+                            + " format. Please use the BINARY format instead.");
+                }
+                l_index.writeInt((int) l_offset);
+                l_index.writeInt(lt_bytes.length);
+                l_output.write(lt_bytes);
+                l_offset += lt_bytes.length;
+                l_nrOfEntries++;
+            }
+
+            final long l_indexPosition = PhasedDataIndex.INDEXED_MAGIC.length + 1 + l_offset;
+            l_output.writeInt(l_nrOfEntries);
+            l_indexBytes.writeTo(l_output);
+            l_output.writeLong(l_indexPosition);
+            l_output.flush();
+        }
+
+        @Override
+        Properties read(InputStream in_inputStream) throws IOException {
+            PhasedDataIndex l_index = new PhasedDataIndex(ByteBuffer.wrap(in_inputStream.readAllBytes()));
+
+            Properties lr_importedProperties = new Properties();
+            l_index.keys().forEach(k -> lr_importedProperties.put(k, l_index.fetch(k)));
+            lr_importedProperties.putAll(l_index.getScenarioEntries());
+            return lr_importedProperties;
+        }
+    },
+
+    /**
+     * A GZIP compressed binary format. The entries are sorted by key, and each key is stored as the length of the
+     * prefix it shares with the previous key, followed by the rest of the key. Since the keys start with the names of
+     * the classes and steps that produced them, this removes most of their size before compression.
+     */
+    COMPRESSED {
+        @Override
+        void write(OutputStream in_outputStream, PhasedDataStore in_phasedCache,
+                Map<String, String> in_scenarioContexts) throws IOException {
+            in_outputStream.write(COMPRESSED_MAGIC);
+            in_outputStream.write(COMPRESSED_VERSION);
+
+            GZIPOutputStream l_compressedOutput = new GZIPOutputStream(in_outputStream);
+            DataOutputStream l_output = new DataOutputStream(l_compressedOutput);
+
+            Map<String, Object> l_sortedEntries = new TreeMap<>();
+            in_phasedCache.forEach((k, v) -> l_sortedEntries.put(k.toString(), v));
+            l_sortedEntries.putAll(in_scenarioContexts);
+
+            String l_previousKey = "";
+            for (Map.Entry<String, Object> lt_entry : l_sortedEntries.entrySet()) {
+                final String lt_key = lt_entry.getKey();
+                final int lt_sharedLength = fetchSharedPrefixLength(l_previousKey, lt_key);
+
+                if (lt_entry.getValue() instanceof PhasedDataStore.EncodedValue) {
+                    final PhasedDataStore.EncodedValue lt_encodedValue =
+                            (PhasedDataStore.EncodedValue) lt_entry.getValue();
+                    l_output.writeByte(ENTRY_TYPED);
+                    l_output.writeShort(lt_sharedLength);
+                    l_output.writeUTF(lt_key.substring(lt_sharedLength));
+                    l_output.writeUTF(lt_encodedValue.getTypeName());
+                    writeBytes(l_output, lt_encodedValue.getBytes());
+                } else {
+                    l_output.writeByte(ENTRY_STRING);
+                    l_output.writeShort(lt_sharedLength);
+                    l_output.writeUTF(lt_key.substring(lt_sharedLength));
+                    writeBytes(l_output, lt_entry.getValue().toString().getBytes(StandardCharsets.UTF_8));
+                }
+                l_previousKey = lt_key;
+            }
+            l_output.writeByte(ENTRY_END);
+            l_output.flush();
+            l_compressedOutput.finish();
+        }
+
+        @Override
+        Properties read(InputStream in_inputStream) throws IOException {
+            byte[] l_magic = in_inputStream.readNBytes(COMPRESSED_MAGIC.length);
+            if (!Arrays.equals(l_magic, COMPRESSED_MAGIC)) {
+                throw new PhasedTestException("The given file is not in the " + name() + " format.");
+            }
+            final int l_version = in_inputStream.read();
+            if (l_version != COMPRESSED_VERSION) {
+                throw new PhasedTestException("Unsupported version " + l_version + " of the " + name() + " format.");
+            }
+
+            DataInputStream l_input = new DataInputStream(
+                    new BufferedInputStream(new GZIPInputStream(in_inputStream)));
+            Properties lr_importedProperties = new Properties();
+            String l_previousKey = "";
+            for (int lt_entryType = l_input.readUnsignedByte(); lt_entryType != ENTRY_END;
+                    lt_entryType = l_input.readUnsignedByte()) {
+                final int lt_sharedLength = l_input.readUnsignedShort();
+                if (lt_sharedLength > l_previousKey.length()) {
+                    throw new PhasedTestException("Corrupted key in the " + name() + " format.");
+                }
+                final String lt_key = l_previousKey.substring(0, lt_sharedLength) + l_input.readUTF();
+
+                if (lt_entryType == ENTRY_TYPED) {
+                    final String lt_typeName = l_input.readUTF();
+                    lr_importedProperties.put(lt_key, new PhasedDataStore.EncodedValue(lt_typeName,
+                            readBytes(l_input)));
+                } else if (lt_entryType == ENTRY_STRING) {
+                    lr_importedProperties.put(lt_key, new String(readBytes(l_input), StandardCharsets.UTF_8));
+                } else {
+                    throw new PhasedTestException("Unexpected entry type " + lt_entryType + " in the " + name()
+                            + " format.");
+                }
+                l_previousKey = lt_key;
+            }
+            return lr_importedProperties;
+        }
+    };
+
+    static final byte[] BINARY_MAGIC = { 'P', 'H', 'D', 'B' };
+    static final int BINARY_VERSION = 1;
+    static final byte[] COMPRESSED_MAGIC = { 'P', 'H', 'D', 'Z' };
+    static final int COMPRESSED_VERSION = 1;
+    private static final int ENTRY_END = 0;
+    private static final int ENTRY_STRING = 1;
+    private static final int ENTRY_TYPED = 2;
+
+    /**
+     * Writes the phase cache and the scenario contexts into the given stream.
+     *
+     * @param in_outputStream     The stream to write to
+     * @param in_phasedCache      The phase cache
+     * @param in_scenarioContexts The exported scenario contexts, with their prefixed names as keys
+     * @throws IOException when the stream cannot be written
+     */
+    abstract void write(OutputStream in_outputStream, PhasedDataStore in_phasedCache,
+            Map<String, String> in_scenarioContexts) throws IOException;
+
+    /**
+     * Reads the content of a stream written in this format.
+     *
+     * @param in_inputStream The stream to read
+     * @return A Properties object with the phase cache data and the scenario contexts. Typed values are stored as
+     * {@link PhasedDataStore.EncodedValue}
+     * @throws IOException when the stream cannot be read
+     */
+    abstract Properties read(InputStream in_inputStream) throws IOException;
+
+    /**
+     * Writes the phase cache and the scenario contexts into the given file.
+     *
+     * @param in_file             The file to write to
+     * @param in_phasedCache      The phase cache
+     * @param in_scenarioContexts The exported scenario contexts, with their prefixed names as keys
+     * @throws IOException when the file cannot be written
+     */
+    public void write(File in_file, PhasedDataStore in_phasedCache, Map<String, String> in_scenarioContexts)
+            throws IOException {
+        in_phasedCache.materialize();
+        try (OutputStream l_output = new BufferedOutputStream(new FileOutputStream(in_file))) {
+            write(l_output, in_phasedCache, in_scenarioContexts);
+        }
+    }
+
+    /**
+     * Reads the given file, after having detected its format.
+     *
+     * @param in_file A file exported in one of the formats
+     * @return A Properties object with the phase cache data and the scenario contexts
+     * @throws IOException when the file cannot be read
+     */
+    public static Properties readFile(File in_file) throws IOException {
+        try (InputStream l_input = new BufferedInputStream(new FileInputStream(in_file))) {
+            return detect(l_input).read(l_input);
+        }
+    }
+
+    /**
+     * Detects the format of the given stream, by looking at its first bytes. The stream is reset to its start.
+     *
+     * @param in_inputStream A stream that supports mark/reset
+     * @return The format of the stream
+     * @throws IOException when the stream cannot be read
+     */
+    static PhasedDataFormat detect(InputStream in_inputStream) throws IOException {
+        in_inputStream.mark(BINARY_MAGIC.length);
+        byte[] l_header = in_inputStream.readNBytes(BINARY_MAGIC.length);
+        in_inputStream.reset();
+
+        if (Arrays.equals(l_header, BINARY_MAGIC)) {
+            return BINARY;
+        }
+        if (Arrays.equals(l_header, COMPRESSED_MAGIC)) {
+            return COMPRESSED;
+        }
+        return Arrays.equals(l_header, PhasedDataIndex.INDEXED_MAGIC) ? INDEXED : PROPERTIES;
+    }
+
+    /**
+     * Detects the format of the given file, by looking at its first bytes.
+     *
+     * @param in_file A file exported in one of the formats
+     * @return The format of the file
+     * @throws IOException when the file cannot be read
+     */
+    static PhasedDataFormat detect(File in_file) throws IOException {
+        try (InputStream l_input = new BufferedInputStream(new FileInputStream(in_file))) {
+            return detect(l_input);
+        }
+    }
+
+    /**
+     * Returns the format selected with {@link ConfigValueHandlerPhased#PROP_STORAGE_FORMAT}
+     *
+     * @return The format to be used for exporting
+     * @throws PhasedTestConfigurationException when the selected format does not exist
+     */
+    public static PhasedDataFormat fetchSelectedFormat() {
+        final String l_selectedFormat = ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.fetchValue();
+        return Arrays.stream(values()).filter(f -> f.name().equalsIgnoreCase(l_selectedFormat)).findFirst()
+                .orElseThrow(() -> new PhasedTestConfigurationException(
+                        "The storage format " + l_selectedFormat + " does not exist. The possible formats are : "
+                                + Arrays.toString(values())));
+    }
+
+    private static void writeBytes(DataOutputStream in_output, byte[] in_bytes) throws IOException {
+        in_output.writeInt(in_bytes.length);
+        in_output.write(in_bytes);
+    }
+
+    /**
+     * Returns the length of the prefix shared by two keys. The length is limited to what can be stored in the
+     * {@link #COMPRESSED} format.
+     *
+     * @param in_previousKey The previously written key
+     * @param in_key         The key to write
+     * @return The number of leading characters the keys have in common
+     */
+    static int fetchSharedPrefixLength(String in_previousKey, String in_key) {
+        final int l_maxLength = Math.min(Math.min(in_previousKey.length(), in_key.length()), 0xFFFF);
+        int lr_sharedLength = 0;
+        while (lr_sharedLength < l_maxLength && in_previousKey.charAt(lr_sharedLength) == in_key.charAt(
+                lr_sharedLength)) {
+            lr_sharedLength++;
+        }
+        return lr_sharedLength;
+    }
+
+    private static byte[] readBytes(DataInputStream in_input) throws IOException {
+        byte[] lr_bytes = new byte[in_input.readInt()];
+        in_input.readFully(lr_bytes);
+        return lr_bytes;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * A read-only view of a file exported in the {@link PhasedDataFormat#INDEXED} format. Only the index of the file is
+ * read when it is opened. The values stay in the file, which is memory-mapped, and are decoded when they are fetched.
+ * <p>
+ * The scenario contexts, which are small and all needed by the consumer, are read when the index is opened.
+ */
+final class PhasedDataIndex {
+
+    static final byte[] INDEXED_MAGIC = { 'P', 'H', 'D', 'I' };
+    static final int INDEXED_VERSION = 1;
+    static final int ENTRY_STRING = 1;
+    static final int ENTRY_TYPED = 2;
+
+    private final ByteBuffer values;
+    private final Map<String, IndexEntry> entries = new HashMap<>();
+    private final Properties scenarioEntries = new Properties();
+
+    /**
+     * Reads the index of the given content
+     *
+     * @param in_content The content of an indexed file, positioned at its start
+     * @throws PhasedTestException if the content is not in the indexed format
+     */
+    PhasedDataIndex(ByteBuffer in_content) {
+        ByteBuffer l_content = in_content.duplicate();
+        byte[] l_magic = new byte[INDEXED_MAGIC.length];
+        l_content.get(l_magic);
+        if (!Arrays.equals(l_magic, INDEXED_MAGIC)) {
+            throw new PhasedTestException(
+                    "The given content is not in the " + PhasedDataFormat.INDEXED.name() + " format.");
+        }
+        final int l_version = Byte.toUnsignedInt(l_content.get());
+        if (l_version != INDEXED_VERSION) {
+            throw new PhasedTestException("Unsupported version " + l_version + " of the "
+                    + PhasedDataFormat.INDEXED.name() + " format.");
+        }
+        values = l_content.slice();
+
+        //The position of the index is stored in the last bytes of the content
+        final int l_indexPosition = (int) l_content.getLong(l_content.limit() - Long.BYTES);
+        ByteBuffer l_index = in_content.duplicate();
+        l_index.position(l_indexPosition).limit(in_content.limit() - Long.BYTES);
+
+        try (DataInputStream l_input = new DataInputStream(new ByteBufferInputStream(l_index))) {
+            final int l_nrOfEntries = l_input.readInt();
+            for (int i = 0; i < l_nrOfEntries; i++) {
+                final int lt_entryType = l_input.readUnsignedByte();
+                final String lt_key = l_input.readUTF();
+                final String lt_typeName = lt_entryType == ENTRY_TYPED ? l_input.readUTF() : null;
+                final IndexEntry lt_entry = new IndexEntry(lt_typeName, l_input.readInt(), l_input.readInt());
+
+                if (lt_key.startsWith(PhasedTestManager.SCENARIO_CONTEXT_PREFIX)) {
+                    scenarioEntries.put(lt_key, decode(lt_entry));
+                } else {
+                    entries.put(lt_key, lt_entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new PhasedTestException("The index of the " + PhasedDataFormat.INDEXED.name()
+                    + " content could not be read.", e);
+        }
+    }
+
+    /**
+     * Opens the given file. The file is memory-mapped, and only its index is read.
+     *
+     * @param in_file A file exported in the indexed format
+     * @return The index of the file
+     * @throws IOException if the file could not be read
+     * @throws PhasedTestException if the file is not in the indexed format, or if it is too large to be mapped
+     */
+    static PhasedDataIndex open(File in_file) throws IOException {
+        try (FileChannel l_channel = FileChannel.open(in_file.toPath(), StandardOpenOption.READ)) {
+            if (l_channel.size() > Integer.MAX_VALUE) {
+                throw new PhasedTestException("The file " + in_file.getPath()
+                        + " is too large for the " + PhasedDataFormat.INDEXED.name()
+                        + " format. Please use the BINARY format instead.");
+            }
+            //The mapping remains valid once the channel is closed
+            return new PhasedDataIndex(l_channel.map(FileChannel.MapMode.READ_ONLY, 0, l_channel.size()));
+        }
+    }
+
+    /**
+     * @return The keys of the phased data in the index. The scenario contexts are not included
+     */
+    Set<String> keys() {
+        return entries.keySet();
+    }
+
+    /**
+     * @param in_key A key of the phased data
+     * @return true if the index has a value for the given key
+     */
+    boolean containsKey(String in_key) {
+        return entries.containsKey(in_key);
+    }
+
+    /**
+     * @return The number of phased data values in the index
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Decodes the value stored for the given key. This method is thread-safe.
+     *
+     * @param in_key A key of the phased data
+     * @return The stored value, which is either a String or an {@link PhasedDataStore.EncodedValue}. Null if there is
+     * no value for the given key
+     */
+    Object fetch(String in_key) {
+        final IndexEntry l_entry = entries.get(in_key);
+        return l_entry == null ? null : decode(l_entry);
+    }
+
+    /**
+     * @return The exported scenario contexts, with their prefixed names as keys
+     */
+    Properties getScenarioEntries() {
+        return scenarioEntries;
+    }
+
+    private Object decode(IndexEntry in_entry) {
+        byte[] l_bytes = new byte[in_entry.length];
+        ByteBuffer l_view = values.duplicate();
+        l_view.position(in_entry.offset);
+        l_view.get(l_bytes);
+
+        return in_entry.typeName == null ? new String(l_bytes, StandardCharsets.UTF_8)
+                : new PhasedDataStore.EncodedValue(in_entry.typeName, l_bytes);
+    }
+
+    /**
+     * The location of a value in the value region of the file
+     */
+    private static final class IndexEntry {
+        private final String typeName;
+        private final int offset;
+        private final int length;
+
+        private IndexEntry(String in_typeName, int in_offset, int in_length) {
+            typeName = in_typeName;
+            offset = in_offset;
+            length = in_length;
+        }
+    }
+
+    /**
+     * Allows the index to be read with a {@link DataInputStream}
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer in_buffer) {
+            buffer = in_buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? Byte.toUnsignedInt(buffer.get()) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int lr_read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, lr_read);
+            return lr_read;
+        }
+    }
+}
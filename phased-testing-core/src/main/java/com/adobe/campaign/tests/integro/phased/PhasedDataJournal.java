@@ -0,0 +1,281 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of the data produced during a PRODUCER phase. Every produced value and every change of a
+ * scenario state is appended as a record, so that the data of a phase is not lost if the JVM stops before the final
+ * export. The records are buffered, and are written to disk every
+ * {@link ConfigValueHandlerPhased#PROP_STORAGE_JOURNAL_SYNC_INTERVAL} milliseconds by a background thread, as well as
+ * when the journal is closed.
+ * <p>
+ * Each record is stored with its length and a CRC32 checksum. When a journal is replayed, we stop at the first
+ * incomplete or corrupt record, which is usually a record that was being written when the JVM stopped.
+ */
+public final class PhasedDataJournal implements Closeable {
+    private static final Logger log = LogManager.getLogger();
+
+    static final String JOURNAL_SUFFIX = ".journal";
+    static final byte[] JOURNAL_MAGIC = { 'P', 'H', 'J', 'L' };
+    static final int JOURNAL_VERSION = 1;
+
+    private static final int RECORD_STRING = 1;
+    private static final int RECORD_TYPED = 2;
+    private static final int RECORD_SCENARIO = 3;
+
+    private final File journalFile;
+    private final FileOutputStream fileOutput;
+    private final DataOutputStream output;
+    private final ScheduledExecutorService syncScheduler;
+    private boolean unsynced = false;
+    private boolean closed = false;
+
+    /**
+     * Creates a new journal. If the file already exists it is truncated.
+     *
+     * @param in_journalFile  The file in which the records are written
+     * @param in_syncInterval The maximum time in milliseconds between two writes to the disk. If 0 or less, every
+     *                        record is written to the disk as soon as it is appended
+     * @throws IOException if the file could not be created
+     */
+    PhasedDataJournal(File in_journalFile, long in_syncInterval) throws IOException {
+        journalFile = in_journalFile;
+        fileOutput = new FileOutputStream(in_journalFile, false);
+        output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+        output.write(JOURNAL_MAGIC);
+        output.writeByte(JOURNAL_VERSION);
+        sync();
+
+        if (in_syncInterval > 0) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread lr_thread = new Thread(r, "phased-journal-sync");
+                lr_thread.setDaemon(true);
+                return lr_thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::syncPending, in_syncInterval, in_syncInterval,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            syncScheduler = null;
+        }
+    }
+
+    /**
+     * Returns the journal file that corresponds to the given export file
+     *
+     * @param in_exportFile The file in which the phase data is exported
+     * @return The journal file
+     */
+    static File fetchJournalFile(File in_exportFile) {
+        return new File(in_exportFile.getPath() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * @return The file in which the records are written
+     */
+    public File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Appends a produced String value
+     *
+     * @param in_key   The key of the value in the phase cache
+     * @param in_value The produced value
+     */
+    void appendValue(String in_key, String in_value) {
+        append(RECORD_STRING, in_key, null, in_value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends a produced typed value
+     *
+     * @param in_key          The key of the value in the phase cache
+     * @param in_encodedValue The produced value
+     */
+    void appendValue(String in_key, PhasedDataStore.EncodedValue in_encodedValue) {
+        append(RECORD_TYPED, in_key, in_encodedValue.getTypeName(), in_encodedValue.getBytes());
+    }
+
+    /**
+     * Appends the state of a scenario. When replayed, the last state of a scenario is the one that is kept.
+     *
+     * @param in_scenarioName The name of the scenario
+     * @param in_exportedState The state of the scenario, as exported by the scenario context
+     */
+    void appendScenarioState(String in_scenarioName, String in_exportedState) {
+        append(RECORD_SCENARIO, in_scenarioName, null, in_exportedState.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private synchronized void append(int in_recordType, String in_key, String in_typeName, byte[] in_value) {
+        if (closed) {
+            log.warn("{} The journal {} is closed. The record {} is not journaled.",
+                    PhasedTestManager.PHASED_TEST_LOG_PREFIX, journalFile.getPath(), in_key);
+            return;
+        }
+        try {
+            ByteArrayOutputStream l_payloadBytes = new ByteArrayOutputStream(in_key.length() + in_value.length + 16);
+            DataOutputStream l_payload = new DataOutputStream(l_payloadBytes);
+            l_payload.writeByte(in_recordType);
+            l_payload.writeUTF(in_key);
+            if (in_typeName != null) {
+                l_payload.writeUTF(in_typeName);
+            }
+            l_payload.writeInt(in_value.length);
+            l_payload.write(in_value);
+
+            final byte[] l_record = l_payloadBytes.toByteArray();
+            CRC32 l_crc = new CRC32();
+            l_crc.update(l_record);
+
+            output.writeInt(l_record.length);
+            output.writeInt((int) l_crc.getValue());
+            output.write(l_record);
+
+            unsynced = true;
+            if (syncScheduler == null) {
+                sync();
+            }
+        } catch (IOException e) {
+            throw new PhasedTestException("Error when writing to the journal " + journalFile.getPath() + ".", e);
+        }
+    }
+
+    /**
+     * Writes the buffered records to the disk
+     *
+     * @throws IOException if the records could not be written
+     */
+    synchronized void sync() throws IOException {
+        output.flush();
+        fileOutput.getFD().sync();
+        unsynced = false;
+    }
+
+    /**
+     * Writes the buffered records to the disk if records have been appended since the last write. This is called
+     * periodically by the background thread.
+     */
+    private synchronized void syncPending() {
+        if (closed || !unsynced) {
+            return;
+        }
+        try {
+            sync();
+        } catch (IOException e) {
+            log.warn("{} The journal {} could not be written to the disk : {}",
+                    PhasedTestManager.PHASED_TEST_LOG_PREFIX, journalFile.getPath(), e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (syncScheduler != null) {
+            syncScheduler.shutdownNow();
+        }
+        sync();
+        output.close();
+    }
+
+    /**
+     * Replays the given journal. The returned properties have the same structure as those of an exported file. The
+     * states of the scenarios are stored with the prefix {@link PhasedTestManager#SCENARIO_CONTEXT_PREFIX}.
+     *
+     * @param in_journalFile A journal file
+     * @return A Properties object with the phase cache data and the scenario contexts
+     * @throws IOException if the file could not be read
+     */
+    static Properties replay(File in_journalFile) throws IOException {
+        Properties lr_replayedProperties = new Properties();
+        int l_nrOfRecords = 0;
+
+        try (DataInputStream l_input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(in_journalFile)))) {
+            byte[] l_magic = l_input.readNBytes(JOURNAL_MAGIC.length);
+            if (!Arrays.equals(l_magic, JOURNAL_MAGIC) || l_input.read() != JOURNAL_VERSION) {
+                throw new PhasedTestException("The file " + in_journalFile.getPath() + " is not a phased journal.");
+            }
+
+            byte[] lt_record;
+            while ((lt_record = readRecord(l_input)) != null) {
+                DataInputStream lt_payload = new DataInputStream(new ByteArrayInputStream(lt_record));
+                final int lt_recordType = lt_payload.readUnsignedByte();
+                final String lt_key = lt_payload.readUTF();
+                final String lt_typeName = lt_recordType == RECORD_TYPED ? lt_payload.readUTF() : null;
+                final byte[] lt_value = lt_payload.readNBytes(lt_payload.readInt());
+
+                switch (lt_recordType) {
+                case RECORD_STRING:
+                    lr_replayedProperties.put(lt_key, new String(lt_value, StandardCharsets.UTF_8));
+                    break;
+                case RECORD_TYPED:
+                    lr_replayedProperties.put(lt_key, new PhasedDataStore.EncodedValue(lt_typeName, lt_value));
+                    break;
+                case RECORD_SCENARIO:
+                    lr_replayedProperties.put(PhasedTestManager.SCENARIO_CONTEXT_PREFIX + lt_key,
+                            new String(lt_value, StandardCharsets.UTF_8));
+                    break;
+                default:
+                    throw new PhasedTestException("Unexpected record type " + lt_recordType + " in the journal "
+                            + in_journalFile.getPath() + ".");
+                }
+                l_nrOfRecords++;
+            }
+        }
+        log.info("{} Replayed {} records from the journal {}.", PhasedTestManager.PHASED_TEST_LOG_PREFIX,
+                l_nrOfRecords, in_journalFile.getPath());
+        return lr_replayedProperties;
+    }
+
+    /**
+     * Reads the next record
+     *
+     * @param in_input The journal stream
+     * @return The payload of the record. Null if there are no more complete records
+     * @throws IOException if the file could not be read
+     */
+    private static byte[] readRecord(DataInputStream in_input) throws IOException {
+        final byte[] l_header = in_input.readNBytes(2 * Integer.BYTES);
+        if (l_header.length < 2 * Integer.BYTES) {
+            return null;
+        }
+        DataInputStream l_headerInput = new DataInputStream(new ByteArrayInputStream(l_header));
+        final int l_length = l_headerInput.readInt();
+        final int l_checksum = l_headerInput.readInt();
+        if (l_length < 0) {
+            return null;
+        }
+
+        final byte[] lr_payload = in_input.readNBytes(l_length);
+        CRC32 l_crc = new CRC32();
+        l_crc.update(lr_payload);
+        if (lr_payload.length < l_length || (int) l_crc.getValue() != l_checksum) {
+            log.warn("{} The journal ends with an incomplete record. It is ignored.",
+                    PhasedTestManager.PHASED_TEST_LOG_PREFIX);
+            return null;
+        }
+        return lr_payload;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the steps that still need the imported values of a scenario. Each value is retained as long as one
+ * of the steps consuming it has not finished. Once the last of them has finished, or once the scenario has finished,
+ * the value can be released from the phase cache.
+ */
+final class PhasedDataRetention {
+    private final Map<String, ScenarioRetention> scenarios = new ConcurrentHashMap<>();
+
+    /**
+     * Starts retaining the values consumed by the steps of a scenario
+     *
+     * @param in_scenarioName The name of the scenario
+     * @param in_stepKeys     The keys in the phase cache consumed by each step of the scenario
+     * @param in_nrOfSteps    The number of steps of the scenario executed in the current phase. A negative value if it
+     *                        is not known
+     */
+    void register(String in_scenarioName, Map<String, Set<String>> in_stepKeys, int in_nrOfSteps) {
+        scenarios.put(in_scenarioName, new ScenarioRetention(in_stepKeys, in_nrOfSteps));
+    }
+
+    /**
+     * Lets the retention know that a step has finished
+     *
+     * @param in_scenarioName The name of the scenario
+     * @param in_stepName     The name of the step that has finished
+     * @return The keys that are no longer needed by the scenario
+     */
+    Set<String> stepFinished(String in_scenarioName, String in_stepName) {
+        final ScenarioRetention l_scenario = scenarios.get(in_scenarioName);
+        if (l_scenario == null) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> lr_releasedKeys = l_scenario.stepFinished(in_stepName);
+        if (l_scenario.isFinished()) {
+            scenarios.remove(in_scenarioName);
+            lr_releasedKeys.addAll(l_scenario.releaseAll());
+        }
+        return lr_releasedKeys;
+    }
+
+    /**
+     * Lets the retention know that a scenario has finished in the current phase
+     *
+     * @param in_scenarioName The name of the scenario
+     * @return The keys that were still retained for the scenario
+     */
+    Set<String> scenarioFinished(String in_scenarioName) {
+        final ScenarioRetention l_scenario = scenarios.remove(in_scenarioName);
+        return l_scenario == null ? Collections.emptySet() : l_scenario.releaseAll();
+    }
+
+    /**
+     * @param in_scenarioName The name of a scenario
+     * @return true if the values of the scenario are being retained
+     */
+    boolean isRetaining(String in_scenarioName) {
+        return scenarios.containsKey(in_scenarioName);
+    }
+
+    void clear() {
+        scenarios.clear();
+    }
+
+    /**
+     * The retained values of one scenario. The steps of a scenario are executed sequentially, but the methods are
+     * synchronized as the steps of a scenario are not necessarily executed by the same thread.
+     */
+    private static final class ScenarioRetention {
+        private final Map<String, Set<String>> stepKeys;
+        private final Map<String, Integer> consumerCounts = new HashMap<>();
+        private int remainingSteps;
+
+        private ScenarioRetention(Map<String, Set<String>> in_stepKeys, int in_nrOfSteps) {
+            stepKeys = new HashMap<>(in_stepKeys);
+            remainingSteps = in_nrOfSteps;
+            in_stepKeys.values().forEach(ks -> ks.forEach(k -> consumerCounts.merge(k, 1, Integer::sum)));
+        }
+
+        private synchronized Set<String> stepFinished(String in_stepName) {
+            remainingSteps--;
+            Set<String> lr_releasedKeys = new TreeSet<>();
+            for (String lt_key : stepKeys.getOrDefault(in_stepName, Collections.emptySet())) {
+                if (consumerCounts.containsKey(lt_key)
+                        && consumerCounts.computeIfPresent(lt_key, (k, c) -> c > 1 ? c - 1 : null) == null) {
+                    lr_releasedKeys.add(lt_key);
+                }
+            }
+            stepKeys.remove(in_stepName);
+            return lr_releasedKeys;
+        }
+
+        private synchronized boolean isFinished() {
+            return remainingSteps == 0;
+        }
+
+        private synchronized Set<String> releaseAll() {
+            Set<String> lr_releasedKeys = new TreeSet<>(consumerCounts.keySet());
+            consumerCounts.clear();
+            stepKeys.clear();
+            return lr_releasedKeys;
+        }
+    }
+}
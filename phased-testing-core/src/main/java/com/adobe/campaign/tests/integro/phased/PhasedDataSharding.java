@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import org.testng.xml.XmlPackage;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The ways in which the exported phase data can be split into shards. The sharding is set with
+ * {@link ConfigValueHandlerPhased#PROP_STORAGE_SHARDING}.
+ * <p>
+ * When the data is sharded, the export file becomes a manifest. The manifest contains the scenario states, and the
+ * name of the shard in which the data of each scenario class is stored. The shards are stored next to the manifest,
+ * in the format selected by {@link ConfigValueHandlerPhased#PROP_STORAGE_FORMAT}. A consumer only needs to import the
+ * shards of the classes it executes.
+ */
+public enum PhasedDataSharding {
+    /**
+     * All the data is exported in one file. This is the default.
+     */
+    NONE {
+        @Override
+        String fetchShardId(String in_className, int in_nrOfShards) {
+            return null;
+        }
+    },
+
+    /**
+     * One shard is created for each scenario class.
+     */
+    CLASS {
+        @Override
+        String fetchShardId(String in_className, int in_nrOfShards) {
+            return in_className;
+        }
+    },
+
+    /**
+     * The scenario classes are distributed among {@link ConfigValueHandlerPhased#PROP_STORAGE_SHARDS} shards, based
+     * on the hash of their name.
+     */
+    HASH {
+        @Override
+        String fetchShardId(String in_className, int in_nrOfShards) {
+            return "shard" + Math.floorMod(in_className.hashCode(), in_nrOfShards);
+        }
+    };
+
+    static final String MANIFEST_SHARD_PREFIX = "[SHARD]";
+
+    /**
+     * Returns the identity of the shard in which the data of the given class is stored
+     *
+     * @param in_className    The name of a scenario class
+     * @param in_nrOfShards   The number of shards. Only used by {@link #HASH}
+     * @return The identity of the shard
+     */
+    abstract String fetchShardId(String in_className, int in_nrOfShards);
+
+    /**
+     * Exports the phase cache into shards, and writes the manifest into the given file.
+     *
+     * @param in_manifestFile     The export file, in which the manifest is written
+     * @param in_format           The format in which the shards are written
+     * @param in_phasedCache      The phase cache
+     * @param in_scenarioContexts The exported scenario contexts, with their prefixed names as keys
+     * @return The exported files. The manifest is the last file of the list
+     * @throws IOException when a file cannot be written
+     */
+    List<File> export(File in_manifestFile, PhasedDataFormat in_format, PhasedDataStore in_phasedCache,
+            Map<String, String> in_scenarioContexts) throws IOException {
+        final int l_nrOfShards = Integer.parseInt(ConfigValueHandlerPhased.PROP_STORAGE_SHARDS.fetchValue());
+        in_phasedCache.materialize();
+
+        Map<String, PhasedDataStore> l_shards = new TreeMap<>();
+        Map<String, String> l_manifest = new TreeMap<>(in_scenarioContexts);
+
+        in_phasedCache.forEach((k, v) -> {
+            final String lt_className = fetchScenarioClass(k.toString());
+            final String lt_shardFileName = in_manifestFile.getName() + "." + fetchShardId(lt_className, l_nrOfShards);
+            l_shards.computeIfAbsent(lt_shardFileName, s -> new PhasedDataStore()).put(k, v);
+            l_manifest.put(MANIFEST_SHARD_PREFIX + lt_className, lt_shardFileName);
+        });
+
+        List<File> lr_exportedFiles = new ArrayList<>();
+        for (Map.Entry<String, PhasedDataStore> lt_shard : l_shards.entrySet()) {
+            final File lt_shardFile = new File(in_manifestFile.getParentFile(), lt_shard.getKey());
+            in_format.write(lt_shardFile, lt_shard.getValue(), Collections.emptyMap());
+            lr_exportedFiles.add(lt_shardFile);
+        }
+
+        PhasedDataFormat.PROPERTIES.write(in_manifestFile, new PhasedDataStore(), l_manifest);
+        lr_exportedFiles.add(in_manifestFile);
+        return lr_exportedFiles;
+    }
+
+    /**
+     * Returns the scenario class of a key in the phase cache. Keys produced with a storage key start with the class
+     * name, while keys produced with {@link PhasedTestManager#produceInStep(String)} start with the full name of the
+     * step.
+     *
+     * @param in_key A key of the phase cache
+     * @return The name of the class that produced the key
+     */
+    static String fetchScenarioClass(String in_key) {
+        final int l_separator = in_key.indexOf(PhasedTestManager.STD_KEY_CLASS_SEPARATOR);
+        final int l_phaseGroup = in_key.indexOf('(');
+        final int l_end = Math.min(l_separator < 0 ? in_key.length() : l_separator,
+                l_phaseGroup < 0 ? in_key.length() : l_phaseGroup);
+        final String l_identity = in_key.substring(0, l_end);
+
+        if (l_separator >= 0) {
+            return l_identity;
+        }
+        //Produced in step : the identity is that of the method
+        final int l_lastDot = l_identity.lastIndexOf('.');
+        return l_lastDot < 0 ? l_identity : l_identity.substring(0, l_lastDot);
+    }
+
+    /**
+     * Lets us know if the given imported properties are a manifest of shards
+     *
+     * @param in_importedProperties The content of an imported file
+     * @return true if the properties contain shard entries
+     */
+    static boolean isManifest(Properties in_importedProperties) {
+        return in_importedProperties.stringPropertyNames().stream().anyMatch(k -> k.startsWith(MANIFEST_SHARD_PREFIX));
+    }
+
+    /**
+     * Returns the names of the shard files that are needed for the given classes, and removes the shard entries from
+     * the manifest.
+     *
+     * @param in_manifest        The imported manifest. Only the scenario states remain after this call
+     * @param in_selectedClasses The classes that are executed. Nested classes of these classes are included. If null,
+     *                           all shards are selected
+     * @return The names of the shard files to import
+     */
+    static Set<String> extractShardFileNames(Properties in_manifest, Collection<String> in_selectedClasses) {
+        Set<String> lr_shardFileNames = new TreeSet<>();
+        in_manifest.stringPropertyNames().stream().filter(k -> k.startsWith(MANIFEST_SHARD_PREFIX)).forEach(k -> {
+            final String lt_className = k.substring(MANIFEST_SHARD_PREFIX.length());
+            final Object lt_shardFileName = in_manifest.remove(k);
+            if (in_selectedClasses == null || in_selectedClasses.stream()
+                    .anyMatch(c -> lt_className.equals(c) || lt_className.startsWith(c + "$"))) {
+                lr_shardFileNames.add(lt_shardFileName.toString());
+            }
+        });
+        return lr_shardFileNames;
+    }
+
+    /**
+     * Returns the classes that will be executed by the given suites. This is used for importing only the shards these
+     * classes need.
+     *
+     * @param in_suites The suites that will be executed
+     * @return The names of the classes in the suites. Null if the classes cannot be known in advance, in which case all
+     * shards are needed
+     */
+    public static Set<String> fetchSelectedClasses(List<XmlSuite> in_suites) {
+        Set<String> lr_selectedClasses = new HashSet<>();
+        for (XmlTest lt_xmlTest : in_suites.stream().flatMap(s -> s.getTests().stream()).collect(
+                Collectors.toList())) {
+            //The classes of the previous phase are added to this test later on
+            if (lt_xmlTest.getIncludedGroups().contains(PhasedTestManager.STD_GROUP_SELECT_TESTS_BY_PRODUCER)) {
+                return null;
+            }
+            lt_xmlTest.getXmlClasses().forEach(c -> lr_selectedClasses.add(c.getName()));
+            for (XmlPackage lt_package : lt_xmlTest.getXmlPackages()) {
+                lt_package.getXmlClasses().forEach(c -> lr_selectedClasses.add(c.getName()));
+            }
+        }
+        return lr_selectedClasses.isEmpty() ? null : lr_selectedClasses;
+    }
+
+    /**
+     * Returns the sharding selected with {@link ConfigValueHandlerPhased#PROP_STORAGE_SHARDING}
+     *
+     * @return The sharding to be used for exporting
+     * @throws PhasedTestConfigurationException when the selected sharding does not exist
+     */
+    public static PhasedDataSharding fetchSelectedSharding() {
+        final String l_selectedSharding = ConfigValueHandlerPhased.PROP_STORAGE_SHARDING.fetchValue();
+        return Arrays.stream(values()).filter(f -> f.name().equalsIgnoreCase(l_selectedSharding)).findFirst()
+                .orElseThrow(() -> new PhasedTestConfigurationException(
+                        "The storage sharding " + l_selectedSharding + " does not exist. The possible values are : "
+                                + Arrays.toString(values())));
+    }
+}
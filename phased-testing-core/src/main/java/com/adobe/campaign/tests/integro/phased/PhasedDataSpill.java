@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A file to which the values released from the phase cache are written. The values are no longer kept on the heap,
+ * but can still be read if a step needs them again.
+ */
+final class PhasedDataSpill implements Closeable {
+    private final File spillFile;
+    private final FileChannel channel;
+    private final Map<String, SpilledValue> spilledValues = new ConcurrentHashMap<>();
+    private long spillSize = 0;
+
+    PhasedDataSpill(File in_spillFile) throws IOException {
+        spillFile = in_spillFile;
+        channel = FileChannel.open(in_spillFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes the given value at the end of the spill file
+     *
+     * @param in_key   The key of the value
+     * @param in_value A String or an {@link PhasedDataStore.EncodedValue}
+     * @throws IOException when the value cannot be written
+     */
+    synchronized void spill(String in_key, Object in_value) throws IOException {
+        final String l_typeName;
+        final byte[] l_bytes;
+        if (in_value instanceof PhasedDataStore.EncodedValue) {
+            l_typeName = ((PhasedDataStore.EncodedValue) in_value).getTypeName();
+            l_bytes = ((PhasedDataStore.EncodedValue) in_value).getBytes();
+        } else {
+            l_typeName = null;
+            l_bytes = in_value.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        ByteBuffer l_buffer = ByteBuffer.wrap(l_bytes);
+        while (l_buffer.hasRemaining()) {
+            channel.write(l_buffer, spillSize + l_buffer.position());
+        }
+        spilledValues.put(in_key, new SpilledValue(l_typeName, spillSize, l_bytes.length));
+        spillSize += l_bytes.length;
+    }
+
+    /**
+     * Reads a spilled value. The value remains in the spill file.
+     *
+     * @param in_key The key of the value
+     * @return The value, or null if no value was spilled for that key
+     * @throws IOException when the value cannot be read
+     */
+    Object restore(String in_key) throws IOException {
+        final SpilledValue l_spilledValue = spilledValues.get(in_key);
+        if (l_spilledValue == null) {
+            return null;
+        }
+
+        ByteBuffer l_buffer = ByteBuffer.allocate(l_spilledValue.length);
+        while (l_buffer.hasRemaining()) {
+            if (channel.read(l_buffer, l_spilledValue.offset + l_buffer.position()) < 0) {
+                throw new EOFException("The spilled value " + in_key + " is incomplete in " + spillFile.getPath());
+            }
+        }
+        return l_spilledValue.typeName == null ? new String(l_buffer.array(), StandardCharsets.UTF_8)
+                : new PhasedDataStore.EncodedValue(l_spilledValue.typeName, l_buffer.array());
+    }
+
+    boolean containsKey(String in_key) {
+        return spilledValues.containsKey(in_key);
+    }
+
+    Set<String> keys() {
+        return spilledValues.keySet();
+    }
+
+    int size() {
+        return spilledValues.size();
+    }
+
+    /**
+     * Closes and deletes the spill file
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        spilledValues.clear();
+        if (!spillFile.delete()) {
+            throw new IOException("The spill file " + spillFile.getPath() + " could not be deleted.");
+        }
+    }
+
+    private static final class SpilledValue {
+        private final String typeName;
+        private final long offset;
+        private final int length;
+
+        private SpilledValue(String in_typeName, long in_offset, int in_length) {
+            typeName = in_typeName;
+            offset = in_offset;
+            length = in_length;
+        }
+    }
+}
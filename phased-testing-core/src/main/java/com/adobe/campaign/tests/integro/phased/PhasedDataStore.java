@@ -0,0 +1,442 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * The store for the data produced by the phased steps. It remains a {@link Properties} so that it can be exported
+ * and imported as a standard property file, but it guarantees that a value is only produced once, even when
+ * several scenarios are executed in parallel.
+ * <p>
+ * Reads are lock-free, as {@link Properties} is backed by a concurrent map. Writes go through
+ * {@link #produce(String, String)}, which is atomic, so that two threads can never both succeed in storing the same
+ * key.
+ * <p>
+ * Values produced with a type are kept as an {@link EncodedValue}. When the store is written as a property file,
+ * they are written with the prefix {@value #TYPED_VALUE_PREFIX}, as the name of their type followed by their Base64
+ * representation.
+ * <p>
+ * When a file in the {@link PhasedDataFormat#INDEXED} format is imported, its index is attached to the store. The
+ * values of the index are decoded the first time they are read, and are then kept in the store. Several indexes can
+ * be attached when the phase data is sharded. All the values are decoded before the store is iterated over.
+ * <p>
+ * Values that are no longer needed can be released from the heap with {@link #release(String)}.
+ */
+public class PhasedDataStore extends Properties {
+
+    private static final long serialVersionUID = 4316405817265402367L;
+
+    static final String TYPED_VALUE_PREFIX = "[TD]";
+    private static final char TYPED_VALUE_SEPARATOR = ';';
+
+    private final transient List<PhasedDataIndex> indexes = new CopyOnWriteArrayList<>();
+
+    private transient PhasedDataSpill spill = null;
+
+    /**
+     * Stores the given value, unless a value has already been stored for that key. The check and the storage are done
+     * in one atomic operation.
+     *
+     * @param in_storeKey   The key to be used for storing the value
+     * @param in_storeValue The value to be stored
+     * @return The key used for storing the value
+     * @throws PhasedTestException if a value has already been stored for the given key
+     */
+    public String produce(final String in_storeKey, String in_storeValue) {
+        return produceValue(in_storeKey, in_storeValue);
+    }
+
+    /**
+     * Stores the given encoded value, unless a value has already been stored for that key. The check and the storage
+     * are done in one atomic operation.
+     *
+     * @param in_storeKey     The key to be used for storing the value
+     * @param in_encodedValue The encoded value to be stored
+     * @return The key used for storing the value
+     * @throws PhasedTestException if a value has already been stored for the given key
+     */
+    public String produce(final String in_storeKey, EncodedValue in_encodedValue) {
+        return produceValue(in_storeKey, in_encodedValue);
+    }
+
+    private String produceValue(final String in_storeKey, Object in_storeValue) {
+        if (fetchIndex(in_storeKey) != null || isSpilled(in_storeKey)
+                || putIfAbsent(in_storeKey, in_storeValue) != null) {
+            throw new PhasedTestException("Phased Test data " + in_storeKey + " already stored.");
+        }
+        return in_storeKey;
+    }
+
+    /**
+     * Returns the value stored for the given key. This is a lock-free read.
+     *
+     * @param in_storeKey The key of the produced value
+     * @return The stored value, or null if nothing was stored for that key
+     * @throws PhasedTestException if the value was produced with a type
+     */
+    public String fetch(final String in_storeKey) {
+        final Object lr_value = get(in_storeKey);
+
+        if (lr_value instanceof EncodedValue) {
+            throw new PhasedTestException(
+                    "Phased Test data " + in_storeKey + " was produced as a " + ((EncodedValue) lr_value).getTypeName()
+                            + ". It needs to be consumed with its type.");
+        }
+        return (String) lr_value;
+    }
+
+    /**
+     * Returns the raw value stored for the given key. This is a lock-free read.
+     *
+     * @param in_storeKey The key of the produced value
+     * @return The stored value, which is either a String or an {@link EncodedValue}. Null if nothing was stored for
+     * that key
+     */
+    public Object fetchValue(final String in_storeKey) {
+        return get(in_storeKey);
+    }
+
+    /**
+     * Attaches the index of an imported file. The values of the index are decoded when they are first read.
+     *
+     * @param in_index The index of a file in the {@link PhasedDataFormat#INDEXED} format
+     */
+    void attachIndex(PhasedDataIndex in_index) {
+        indexes.add(in_index);
+    }
+
+    /**
+     * @param in_key A key of the phased data
+     * @return The attached index that contains the given key. Null if none of them do
+     */
+    private PhasedDataIndex fetchIndex(Object in_key) {
+        if (indexes.isEmpty() || !(in_key instanceof String)) {
+            return null;
+        }
+        return indexes.stream().filter(i -> i.containsKey((String) in_key)).findFirst().orElse(null);
+    }
+
+    /**
+     * Makes the values of the given keys available in the store. Values that are in an attached index are decoded in
+     * one pass, so that the steps consuming them do not need to. Without an attached index, that is for any format
+     * other than INDEXED, all the values are already on the heap and nothing is done.
+     *
+     * @param in_storeKeys The keys of the values that will be consumed
+     */
+    void prefetch(Collection<String> in_storeKeys) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        in_storeKeys.forEach(this::get);
+    }
+
+    /**
+     * Removes the value of the given key from the heap, once it is no longer needed. A value that is in an attached
+     * index can be decoded again from its file. Other values are written to a spill file, from which they are read if
+     * they are needed again.
+     *
+     * @param in_storeKey The key of a value that is no longer needed
+     */
+    void release(String in_storeKey) {
+        final Object l_value = super.get(in_storeKey);
+        if (l_value == null) {
+            return;
+        }
+
+        if (fetchIndex(in_storeKey) == null) {
+            try {
+                fetchSpill().spill(in_storeKey, l_value);
+            } catch (IOException e) {
+                throw new PhasedTestException("Error when spilling the Phased Test data " + in_storeKey + ".", e);
+            }
+        }
+        super.remove(in_storeKey, l_value);
+    }
+
+    private synchronized PhasedDataSpill fetchSpill() throws IOException {
+        if (spill == null) {
+            final File l_spillFile = File.createTempFile("phased-data", ".spill");
+            l_spillFile.deleteOnExit();
+            spill = new PhasedDataSpill(l_spillFile);
+        }
+        return spill;
+    }
+
+    private boolean isSpilled(Object in_key) {
+        final PhasedDataSpill l_spill = spill;
+        return l_spill != null && in_key instanceof String && l_spill.containsKey((String) in_key);
+    }
+
+    private Object restore(Object in_key) {
+        final PhasedDataSpill l_spill = spill;
+        try {
+            return l_spill == null ? null : l_spill.restore((String) in_key);
+        } catch (IOException e) {
+            throw new PhasedTestException("Error when reading the spilled Phased Test data " + in_key + ".", e);
+        }
+    }
+
+    private synchronized void closeSpill() {
+        if (spill == null) {
+            return;
+        }
+        try {
+            spill.close();
+        } catch (IOException e) {
+            throw new PhasedTestException("Error when closing the spill file of the Phased Test data.", e);
+        }
+        spill = null;
+    }
+
+    /**
+     * Decodes all the values of the attached indexes, if any, and stores them in this store, along with the spilled
+     * values. This is needed before iterating over the content of the store.
+     */
+    void materialize() {
+        if (indexes.isEmpty() && spill == null) {
+            return;
+        }
+        indexes.forEach(i -> i.keys().forEach(this::get));
+        indexes.clear();
+        if (spill != null) {
+            spill.keys().forEach(k -> super.putIfAbsent(k, restore(k)));
+            closeSpill();
+        }
+    }
+
+    @Override
+    public Object get(Object key) {
+        final Object lr_value = super.get(key);
+        if (lr_value == null && isSpilled(key)) {
+            return restore(key);
+        }
+        final PhasedDataIndex l_index = lr_value == null ? fetchIndex(key) : null;
+        if (l_index == null) {
+            return lr_value;
+        }
+
+        final Object l_decodedValue = l_index.fetch((String) key);
+        final Object l_previousValue = super.putIfAbsent(key, l_decodedValue);
+        return l_previousValue == null ? l_decodedValue : l_previousValue;
+    }
+
+    @Override
+    public String getProperty(String key) {
+        final Object l_value = get(key);
+        return l_value instanceof String ? (String) l_value : super.getProperty(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return super.containsKey(key) || fetchIndex(key) != null || isSpilled(key);
+    }
+
+    @Override
+    public int size() {
+        final int l_nrOfSpilledValues = spill == null ? 0 : spill.size();
+        if (indexes.isEmpty()) {
+            return super.size() + l_nrOfSpilledValues;
+        }
+        return indexes.stream().mapToInt(PhasedDataIndex::size).sum() + (int) super.keySet().stream()
+                .filter(k -> fetchIndex(k) == null).count() + l_nrOfSpilledValues;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Returns the keys of the values that are currently on the heap. Unlike {@link #keySet()}, this does not decode
+     * the values of the attached indexes, nor does it restore the released values.
+     *
+     * @return An unmodifiable view of the keys of the values on the heap
+     */
+    Set<Object> fetchResidentKeys() {
+        return Collections.unmodifiableSet(super.keySet());
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        materialize();
+        return super.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        materialize();
+        return super.entrySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        materialize();
+        return super.values();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Object, ? super Object> action) {
+        materialize();
+        super.forEach(action);
+    }
+
+    @Override
+    public Enumeration<Object> keys() {
+        materialize();
+        return super.keys();
+    }
+
+    @Override
+    public Enumeration<Object> elements() {
+        materialize();
+        return super.elements();
+    }
+
+    @Override
+    public Enumeration<?> propertyNames() {
+        materialize();
+        return super.propertyNames();
+    }
+
+    @Override
+    public Set<String> stringPropertyNames() {
+        materialize();
+        return super.stringPropertyNames();
+    }
+
+    @Override
+    public synchronized void clear() {
+        super.clear();
+        indexes.clear();
+        closeSpill();
+    }
+
+    /**
+     * Writes the store as a property file. Values produced with a type are written with the prefix
+     * {@value #TYPED_VALUE_PREFIX}.
+     */
+    @Override
+    public void store(Writer writer, String comments) throws IOException {
+        fetchExportedValues().store(writer, comments);
+    }
+
+    /**
+     * Writes the store as a property file, in ISO 8859-1. Values produced with a type are written with the prefix
+     * {@value #TYPED_VALUE_PREFIX}.
+     */
+    @Override
+    public void store(OutputStream out, String comments) throws IOException {
+        fetchExportedValues().store(out, comments);
+    }
+
+    /**
+     * Writes the store as an XML document. Values produced with a type are written with the prefix
+     * {@value #TYPED_VALUE_PREFIX}. The other storeToXML methods write through this one.
+     */
+    @Override
+    public void storeToXML(OutputStream os, String comment, Charset charset) throws IOException {
+        fetchExportedValues().storeToXML(os, comment, charset);
+    }
+
+    /**
+     * Lists the store, with the values produced with a type as they are written in a property file
+     */
+    @Override
+    public void list(PrintStream out) {
+        fetchExportedValues().list(out);
+    }
+
+    /**
+     * Lists the store, with the values produced with a type as they are written in a property file
+     */
+    @Override
+    public void list(PrintWriter out) {
+        fetchExportedValues().list(out);
+    }
+
+    /**
+     * @return A copy of the store in which all the values are strings. The values produced with a type are stored
+     * under their key prefixed with {@value #TYPED_VALUE_PREFIX}
+     */
+    private Properties fetchExportedValues() {
+        materialize();
+        Properties lr_exportedValues = new Properties();
+        forEach((k, v) -> lr_exportedValues.put(
+                v instanceof EncodedValue ? TYPED_VALUE_PREFIX + k : k,
+                v instanceof EncodedValue ? ((EncodedValue) v).exportToString() : v));
+        return lr_exportedValues;
+    }
+
+    /**
+     * Transforms the entries of a loaded property file, so that the values written with the prefix
+     * {@value #TYPED_VALUE_PREFIX} are stored as {@link EncodedValue} under their original key.
+     *
+     * @param in_loadedProperties Properties loaded from a file written by {@link #store(Writer, String)}
+     * @return The given properties, with the typed values decoded
+     */
+    static Properties importTypedValues(Properties in_loadedProperties) {
+        in_loadedProperties.stringPropertyNames().stream().filter(k -> k.startsWith(TYPED_VALUE_PREFIX)).forEach(
+                k -> in_loadedProperties.put(k.substring(TYPED_VALUE_PREFIX.length()),
+                        EncodedValue.importFromString(in_loadedProperties.remove(k).toString())));
+        return in_loadedProperties;
+    }
+
+    /**
+     * A value that was encoded by a {@link com.adobe.campaign.tests.integro.phased.spi.PhasedDataCodec}, along with
+     * the name of its type.
+     */
+    public static final class EncodedValue {
+        private final String typeName;
+        private final byte[] bytes;
+
+        public EncodedValue(String in_typeName, byte[] in_bytes) {
+            typeName = in_typeName;
+            bytes = in_bytes;
+        }
+
+        /**
+         * @return The name of the type of the encoded value
+         */
+        public String getTypeName() {
+            return typeName;
+        }
+
+        /**
+         * @return The encoded bytes. The returned array is not to be modified
+         */
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        String exportToString() {
+            return typeName + TYPED_VALUE_SEPARATOR + Base64.getEncoder().encodeToString(bytes);
+        }
+
+        static EncodedValue importFromString(String in_exportedValue) {
+            final int l_separator = in_exportedValue.indexOf(TYPED_VALUE_SEPARATOR);
+            if (l_separator < 0) {
+                throw new PhasedTestException("The typed value " + in_exportedValue + " could not be imported.");
+            }
+            return new EncodedValue(in_exportedValue.substring(0, l_separator),
+                    Base64.getDecoder().decode(in_exportedValue.substring(l_separator + 1)));
+        }
+    }
+}
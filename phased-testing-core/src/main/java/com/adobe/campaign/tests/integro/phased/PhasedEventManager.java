@@ -17,10 +17,10 @@ import org.apache.logging.log4j.Logger;
 import org.testng.ITestResult;
 
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -51,16 +51,17 @@ public class PhasedEventManager {
         }
 
 */
+        final List<String> l_classEvents = PhasedTestManager.fetchScenarioMetadata(in_method.getDeclaringClass())
+                .getEventClasses();
         if (PhasedTestManager.isPhasedTestWithEvent(in_method.getDeclaringClass())) {
             if (in_method.isAnnotationPresent(PhaseEvent.class)) {
                 //if the event is declared on the Event annotation it gets precedence
                 if (in_method.getDeclaredAnnotation(PhaseEvent.class).eventClasses().length > 0) {
                     return in_method.getDeclaredAnnotation(PhaseEvent.class).eventClasses()[0];
-                } else if (in_method.getDeclaringClass().getDeclaredAnnotation(PhasedTest.class).eventClasses().length
-                        > 0) {
-                    return in_method.getDeclaringClass().getDeclaredAnnotation(PhasedTest.class).eventClasses()[0];
+                } else if (!l_classEvents.isEmpty()) {
+                    return l_classEvents.get(0);
                 } else {
-                    return ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.fetchValue();
+                    return RunConfiguration.fetch().getEvent();
                 }
             } else {
                 return null;
@@ -74,22 +75,22 @@ public class PhasedEventManager {
 
              */
         }
-        else if (in_method.getDeclaringClass().isAnnotationPresent(PhasedTest.class) && in_method.getDeclaringClass().getDeclaredAnnotation(PhasedTest.class).eventClasses().length > 0) {
-            return in_method.getDeclaringClass().getDeclaredAnnotation(PhasedTest.class).eventClasses()[0];
-        } else if (ConfigValueHandlerPhased.EVENT_TARGET.isSet()) {
-            return PhasedTestManager.isPhasedTestTargetOfEvent(in_method) ? ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.fetchValue() : null;
-        } else if (ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.isSet()) {
-            return ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.fetchValue();
+        else if (!l_classEvents.isEmpty()) {
+            return l_classEvents.get(0);
+        } else if (RunConfiguration.fetch().getEventTarget() != null) {
+            return PhasedTestManager.isPhasedTestTargetOfEvent(in_method) ? RunConfiguration.fetch().getEvent() : null;
+        } else if (RunConfiguration.fetch().getEvent() != null) {
+            return RunConfiguration.fetch().getEvent();
         }
         return null;
     }
 
     protected static enum EventMode {START, END};
 
-    static Map<String, NonInterruptiveEvent> events = new HashMap<>();
+    static Map<String, NonInterruptiveEvent> events = new ConcurrentHashMap<>();
 
 
-    private static List<PhasedEventLogEntry> eventLogs = new ArrayList();
+    private static List<PhasedEventLogEntry> eventLogs = new CopyOnWriteArrayList<>();
 
     /**
      * Used for logging events
@@ -111,14 +112,12 @@ public class PhasedEventManager {
      */
     protected static NonInterruptiveEvent startEvent(String in_event, String in_onAccountOfStep) {
         //Lazy load the service when needed
-        if (eventExecutor == null) {
-            eventExecutor = Executors.newSingleThreadExecutor();
-        }
+        final ExecutorService l_eventExecutor = fetchEventExecutor();
         log.info("Starting event {} for step {}.",in_event,in_onAccountOfStep);
         NonInterruptiveEvent nie = instantiateClassFromString(in_event);
         logEvent(EventMode.START, in_event, in_onAccountOfStep);
         events.put(in_onAccountOfStep, nie);
-        nie.threadFuture = eventExecutor.submit(nie);
+        nie.threadFuture = l_eventExecutor.submit(nie);
         while (nie.getState().equals(NonInterruptiveEvent.states.DEFINED)) {
             try {
                 Thread.sleep(1);
@@ -148,6 +147,13 @@ public class PhasedEventManager {
         return nie;
     }
 
+    private static synchronized ExecutorService fetchEventExecutor() {
+        if (eventExecutor == null) {
+            eventExecutor = Executors.newSingleThreadExecutor();
+        }
+        return eventExecutor;
+    }
+
     private static NonInterruptiveEvent instantiateClassFromString(String in_event) {
         NonInterruptiveEvent nie = null;
 
@@ -239,8 +245,8 @@ public class PhasedEventManager {
      * resets the events. Mostly used for testing
      */
     static void resetEvents() {
-        events = new HashMap<>();
-        eventLogs = new ArrayList();
+        events = new ConcurrentHashMap<>();
+        eventLogs = new CopyOnWriteArrayList<>();
     }
 
     public static Map<String, NonInterruptiveEvent> getEvents() {
@@ -289,7 +295,7 @@ public class PhasedEventManager {
         return eventExecutor;
     }
 
-    public static void stopEventExecutor() {
+    public static synchronized void stopEventExecutor() {
         if (eventExecutor != null) {
             eventExecutor.shutdown();
         }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The context of a step invocation. It carries the phase group and the data provider values with which the step is
+ * being executed. The context is bound to the thread executing the step, so that two phase groups of the same step
+ * can be executed at the same time without overwriting each other's context.
+ */
+public final class PhasedStepContext {
+    private final String stepFullName;
+    private final String phaseGroup;
+    private final Object[] parameters;
+    private final List<String> producedKeys = new ArrayList<>();
+
+    PhasedStepContext(String in_stepFullName, String in_phaseGroup, Object[] in_parameters) {
+        stepFullName = in_stepFullName;
+        phaseGroup = in_phaseGroup;
+        parameters = in_parameters == null ? new Object[0] : in_parameters.clone();
+    }
+
+    /**
+     * @return The full name of the step, i.e. the class name followed by the method name
+     */
+    public String getStepFullName() {
+        return stepFullName;
+    }
+
+    /**
+     * @return The phase group with which the step is executed
+     */
+    public String getPhaseGroup() {
+        return phaseGroup;
+    }
+
+    /**
+     * @return A copy of the data provider values with which the step is executed
+     */
+    public Object[] getParameters() {
+        return parameters.clone();
+    }
+
+    /**
+     * @return The keys of the values stored in the phase cache by the step, in the order in which they were stored
+     */
+    public List<String> getProducedKeys() {
+        return Collections.unmodifiableList(producedKeys);
+    }
+
+    void addProducedKey(String in_storeKey) {
+        producedKeys.add(in_storeKey);
+    }
+
+    @Override
+    public String toString() {
+        return stepFullName + "(" + phaseGroup + ")" + Arrays.toString(parameters);
+    }
+}
@@ -11,8 +11,11 @@ package com.adobe.campaign.tests.integro.phased;
 import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
 import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencies;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencyFactory;
 import com.adobe.campaign.tests.integro.phased.spi.FrameworkDataProvider;
 import com.adobe.campaign.tests.integro.phased.spi.MutationMode;
+import com.adobe.campaign.tests.integro.phased.spi.PhasedDataCodec;
+import com.adobe.campaign.tests.integro.phased.utils.CallerIdentity;
 import com.adobe.campaign.tests.integro.phased.utils.ClassPathParser;
 import com.adobe.campaign.tests.integro.phased.utils.GeneralTestUtils;
 import com.adobe.campaign.tests.integro.phased.utils.StackTraceManager;
@@ -27,8 +30,14 @@ import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public final class PhasedTestManager {
@@ -107,15 +116,38 @@ public final class PhasedTestManager {
         CONTINUE, SKIP_NORESULT, SKIP_PREVIOUS_FAILURE, CONFIG_FAILURE
     }
 
-    static Properties phasedCache = new Properties();
-    private static final Map<String, ScenarioContextData> scenarioContext = new HashMap<>();
+    static PhasedDataStore phasedCache = new PhasedDataStore();
+    private static final Map<String, ScenarioContextData> scenarioContext = new ConcurrentHashMap<>();
 
-    static Map<String, MethodMapping> methodMap = new HashMap<>();
+    static Map<String, MethodMapping> methodMap = new ConcurrentHashMap<>();
 
     static Properties phaseContext = new Properties();
 
+    private static final ThreadLocal<PhasedStepContext> stepContext = new ThreadLocal<>();
+
+    private static final Set<String> prefetchedScenarios = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The values of the phase cache retained for the scenarios being executed
+     */
+    private static final PhasedDataRetention retention = new PhasedDataRetention();
+
+    private static final Map<Class<?>, Optional<ScenarioStepDependencies>> scenarioDependencies =
+            new ConcurrentHashMap<>();
+
+    private static volatile PhasedDataJournal journal = null;
+
+    /**
+     * Lets us know if we have already decided whether the current phase is journaled
+     */
+    private static volatile boolean journalResolved = false;
+
     private static PhasedDataBroker dataBroker = null;
 
+    private static AsyncPhasedDataBroker asyncDataBroker = null;
+
+    private static CompletableFuture<InputStream> pendingFetch = null;
+
     static Boolean mergedReportsActivated = Boolean.TRUE;
 
     static Boolean selectTestsByProducerMode = Boolean.FALSE;
@@ -160,7 +192,7 @@ public final class PhasedTestManager {
     /**
      * @return the phasedCache
      */
-    public static Properties getPhasedCache() {
+    public static PhasedDataStore getPhasedCache() {
         return phasedCache;
     }
 
@@ -179,15 +211,29 @@ public final class PhasedTestManager {
     }
 
     /**
-     * @param dataBroker the dataBroker to set
+     * @return the data broker through which the phase data is transferred. File based data brokers are wrapped in a
+     * {@link FileDataBrokerAdapter}
+     */
+    static AsyncPhasedDataBroker getAsyncDataBroker() {
+        return asyncDataBroker;
+    }
+
+    /**
+     * @param dataBroker the dataBroker to set. Either a {@link PhasedDataBroker} or an {@link AsyncPhasedDataBroker}
      */
     public static void setDataBroker(Object dataBroker) {
-        PhasedTestManager.dataBroker = (PhasedDataBroker) dataBroker;
+        if (dataBroker instanceof AsyncPhasedDataBroker) {
+            PhasedTestManager.dataBroker = null;
+            asyncDataBroker = (AsyncPhasedDataBroker) dataBroker;
+        } else {
+            PhasedTestManager.dataBroker = (PhasedDataBroker) dataBroker;
+            asyncDataBroker = new FileDataBrokerAdapter(PhasedTestManager.dataBroker);
+        }
     }
 
     /**
      * Initiaizes the databroker given the full class path of the implementation of the interface {@code
-     * PhasedDataBroker}
+     * PhasedDataBroker} or {@code AsyncPhasedDataBroker}
      * <p>
      * Author : gandomi
      *
@@ -200,7 +246,8 @@ public final class PhasedTestManager {
         Object l_dataBroker;
         try {
             l_dataBrokerImplementation = Class.forName(in_classPath);
-            if (!PhasedDataBroker.class.isAssignableFrom(l_dataBrokerImplementation)) {
+            if (!PhasedDataBroker.class.isAssignableFrom(l_dataBrokerImplementation)
+                    && !AsyncPhasedDataBroker.class.isAssignableFrom(l_dataBrokerImplementation)) {
                 throw new PhasedTestConfigurationException("The given class was not an instance of PhasedDataBroker");
             }
 
@@ -210,7 +257,7 @@ public final class PhasedTestManager {
                     "Error while fetching / instantiating the given PhasedDataBroker class " + in_classPath + ".", e);
         }
 
-        if (!(l_dataBroker instanceof PhasedDataBroker)) {
+        if (!(l_dataBroker instanceof PhasedDataBroker) && !(l_dataBroker instanceof AsyncPhasedDataBroker)) {
             throw new PhasedTestConfigurationException("The given class was not an instance of PhasedDataBroker");
         }
 
@@ -225,6 +272,8 @@ public final class PhasedTestManager {
      */
     public static void clearDataBroker() {
         dataBroker = null;
+        asyncDataBroker = null;
+        pendingFetch = null;
 
     }
 
@@ -242,15 +291,11 @@ public final class PhasedTestManager {
      * @return The key that was used in storing the value
      */
     public static String produceInStep(String in_storeValue) {
-        final String l_methodFullName = StackTraceManager.fetchCalledByFullName();
-        StringBuilder sb = new StringBuilder(l_methodFullName);
-
-        if (phaseContext.containsKey(l_methodFullName)) {
-            sb.append("(").append(phaseContext.get(l_methodFullName)).append(")");
-        }
+        final CallerIdentity l_caller = StackTraceManager.fetchCallerIdentity(StackTraceManager.fetchCalledByFrame());
+        final StepKey l_stepKey = StepKey.fetchStepKey(l_caller, fetchPhaseGroup(l_caller.getFullName()),
+                l_caller.getMethodName());
 
-        final String lr_storeKey = sb.toString();
-        return storePhasedCache(lr_storeKey, in_storeValue);
+        return storePhasedCache(l_stepKey.getIdentity(), in_storeValue);
     }
 
     /**
@@ -263,12 +308,51 @@ public final class PhasedTestManager {
      * @return The key that was used in storing the value
      */
     public static String produce(String in_storageKey, String in_storeValue) {
-        final String l_className = StackTraceManager.fetchCalledBy().getClassName();
-        final String l_fullId = generateStepKeyIdentity(StackTraceManager.fetchCalledByFullName(), l_className,
-                in_storageKey);
+        final CallerIdentity l_caller = StackTraceManager.fetchCallerIdentity(StackTraceManager.fetchCalledByFrame());
+        final String l_fullId = fetchStorageKey(l_caller, in_storageKey).getIdentity();
         return storePhasedCache(l_fullId, in_storeValue);
     }
 
+    /**
+     * Stores a typed value with the given key. We include the class as prefix. The value is encoded with the
+     * {@link com.adobe.campaign.tests.integro.phased.spi.PhasedDataCodec} registered for its type in
+     * {@link PhasedDataCodecs}. String values are stored as they are.
+     *
+     * @param in_storageKey A string that is added to the generated key for identification of the stored data
+     * @param in_storeValue The value we want to store
+     * @param <T>           The type of the stored value
+     * @return The key that was used in storing the value
+     */
+    public static <T> String produce(String in_storageKey, T in_storeValue) {
+        final CallerIdentity l_caller = StackTraceManager.fetchCallerIdentity(StackTraceManager.fetchCalledByFrame());
+        final String l_fullId = fetchStorageKey(l_caller, in_storageKey).getIdentity();
+
+        if (in_storeValue == null) {
+            throw new PhasedTestException("The Phased Test data " + l_fullId + " can not be null.");
+        }
+
+        if (in_storeValue instanceof String) {
+            return storePhasedCache(l_fullId, (String) in_storeValue);
+        }
+
+        @SuppressWarnings("unchecked")
+        final PhasedDataCodec<T> l_codec = PhasedDataCodecs.fetchCodec((Class<T>) in_storeValue.getClass());
+
+        return storePhasedCache(l_fullId, new PhasedDataStore.EncodedValue(l_codec.getType().getName(),
+                l_codec.encode(in_storeValue)));
+    }
+
+    /**
+     * Returns the interned key under which the given step stores or fetches a value with a storage key
+     *
+     * @param in_caller     The step producing or consuming the value
+     * @param in_storageKey An additional identifier for storing the data
+     * @return The key of the value in the cache
+     */
+    private static StepKey fetchStorageKey(CallerIdentity in_caller, String in_storageKey) {
+        return StepKey.fetchStorageKey(in_caller, fetchPhaseGroup(in_caller.getFullName()), in_storageKey);
+    }
+
     /**
      * This method generates the identifier for a producer/consumer used for storing in the cache
      * <p>
@@ -297,9 +381,10 @@ public final class PhasedTestManager {
             String in_storageKey) {
         StringBuilder sb = new StringBuilder(in_idPrefixToStore);
 
-        if (phaseContext.containsKey(in_idInPhaseContext)) {
+        final String l_phaseGroup = fetchPhaseGroup(in_idInPhaseContext);
+        if (l_phaseGroup != null) {
             sb.append("(");
-            sb.append(phaseContext.get(in_idInPhaseContext));
+            sb.append(l_phaseGroup);
             sb.append(")");
         }
 
@@ -333,14 +418,106 @@ public final class PhasedTestManager {
      * @return The key used for storing the value
      */
     private static String storePhasedCache(final String in_storeKey, String in_storeValue) {
-        if (phasedCache.containsKey(in_storeKey)) {
-            throw new PhasedTestException("Phased Test data " + in_storeKey + " already stored.");
+        phasedCache.produce(in_storeKey, in_storeValue);
+        recordProducedKey(in_storeKey);
+
+        final PhasedDataJournal l_journal = fetchJournal();
+        if (l_journal != null) {
+            l_journal.appendValue(in_storeKey, in_storeValue);
         }
+        return in_storeKey;
+    }
+
+    /**
+     * Stores a typed value in the cache
+     *
+     * @param in_storeKey     The key to be used for storing the value
+     * @param in_encodedValue The encoded value to be stored
+     * @return The key used for storing the value
+     */
+    private static String storePhasedCache(final String in_storeKey, PhasedDataStore.EncodedValue in_encodedValue) {
+        phasedCache.produce(in_storeKey, in_encodedValue);
+        recordProducedKey(in_storeKey);
 
-        phasedCache.put(in_storeKey, in_storeValue);
+        final PhasedDataJournal l_journal = fetchJournal();
+        if (l_journal != null) {
+            l_journal.appendValue(in_storeKey, in_encodedValue);
+        }
         return in_storeKey;
     }
 
+    /**
+     * Adds the given key to the keys produced by the step executed by the current thread, if any
+     *
+     * @param in_storeKey The key of a value that was stored
+     */
+    private static void recordProducedKey(final String in_storeKey) {
+        final PhasedStepContext l_stepContext = stepContext.get();
+        if (l_stepContext != null) {
+            l_stepContext.addProducedKey(in_storeKey);
+        }
+    }
+
+    /**
+     * Returns the journal of the current phase. The journal is only kept when
+     * {@link ConfigValueHandlerPhased#PROP_STORAGE_JOURNAL} is activated, and when we are in a PRODUCER phase. This is
+     * resolved at the first write of the phase, after which no lock is taken. Once the journal has been closed, it is
+     * not created again until the cache is cleared.
+     *
+     * @return The journal of the current phase. Null if no journal is kept
+     */
+    static PhasedDataJournal fetchJournal() {
+        if (!journalResolved) {
+            resolveJournal();
+        }
+        return journal;
+    }
+
+    /**
+     * Creates the journal of the current phase if it is to be kept
+     */
+    private static synchronized void resolveJournal() {
+        if (journalResolved) {
+            return;
+        }
+        if (ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.is("true") && ExecutionMode.INTERRUPTIVE.isSelected(
+                "PRODUCER")) {
+            final File l_journalFile = PhasedDataJournal.fetchJournalFile(fetchExportFile());
+            log.info("{} Journaling Phased Testing data to {}", PHASED_TEST_LOG_PREFIX, l_journalFile.getPath());
+            try {
+                journal = new PhasedDataJournal(l_journalFile,
+                        Long.parseLong(ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL_SYNC_INTERVAL.fetchValue()));
+            } catch (IOException e) {
+                throw new PhasedTestException("Error when creating the journal " + l_journalFile.getPath() + ".", e);
+            }
+        }
+        journalResolved = true;
+    }
+
+    /**
+     * Closes the journal of the current phase, if any. The buffered records are written to the disk before closing.
+     *
+     * @param in_delete When true the journal file is deleted. This is done once the journal has been compacted into
+     *                  the export file
+     */
+    static synchronized void closeJournal(boolean in_delete) {
+        final PhasedDataJournal l_journal = journal;
+        journalResolved = true;
+        if (l_journal == null) {
+            return;
+        }
+        journal = null;
+        try {
+            l_journal.close();
+        } catch (IOException e) {
+            log.error("Error when closing the journal {}", l_journal.getJournalFile().getPath(), e);
+        }
+        if (in_delete && !l_journal.getJournalFile().delete()) {
+            log.warn("{} The journal {} could not be deleted.", PHASED_TEST_LOG_PREFIX,
+                    l_journal.getJournalFile().getPath());
+        }
+    }
+
     /**
      * Given a step in the Phased Test it fetches the value committed for that test. It will fetch a Phased Test data
      * with the method/test that called this method. This method is to be used if you have produced your Phased Data
@@ -353,23 +530,14 @@ public final class PhasedTestManager {
      * @return The value store by the method
      */
     public static String consumeFromStep(String in_stepName) {
-        StackTraceElement l_calledElement = StackTraceManager.fetchCalledBy();
-        StringBuilder sb = new StringBuilder(l_calledElement.getClassName());
+        final StackWalker.StackFrame l_calledFrame = StackTraceManager.fetchCalledByFrame();
+        final CallerIdentity l_caller = StackTraceManager.fetchCallerIdentity(l_calledFrame);
 
-        sb.append('.');
-        sb.append(in_stepName);
+        //The phase group is that of the consuming step
+        final StepKey l_stepKey = StepKey.fetchStepKey(l_caller, fetchPhaseGroup(l_caller.getFullName()),
+                in_stepName);
 
-        String l_methodFullNameOfProducer = StackTraceManager.fetchCalledByFullName();
-        //Fetch current data  provider
-        if (phaseContext.containsKey(l_methodFullNameOfProducer)) {
-            sb.append("(");
-            sb.append(phaseContext.get(l_methodFullNameOfProducer));
-            sb.append(")");
-        }
-
-        final String l_storageKey = sb.toString();
-
-        return fetchStoredConsumable(l_storageKey, l_calledElement.toString());
+        return fetchStoredConsumable(l_stepKey.getIdentity(), l_calledFrame);
     }
 
     /**
@@ -382,13 +550,31 @@ public final class PhasedTestManager {
      * @return The value for the given consumable. If not found a PhasedTestException is thrown
      */
     public static String fetchStoredConsumable(final String in_consumableKey, String in_calledByTest) {
-        if (!phasedCache.containsKey(in_consumableKey)) {
+        final String lr_value = phasedCache.fetch(in_consumableKey);
+
+        if (lr_value == null) {
             throw new PhasedTestException(
                     "The given consumable " + in_consumableKey + " requested by " + in_calledByTest
                             + " was not available.");
         }
 
-        return phasedCache.getProperty(in_consumableKey);
+        return lr_value;
+    }
+
+    /**
+     * Returns the value stored in the context. The string representation of the calling frame is only resolved when
+     * the consumable is missing, as it is only needed for the error message.
+     *
+     * @param in_consumableKey The key identifier for the consumable
+     * @param in_calledByFrame The frame of the test accessing the consumable
+     * @return The value for the given consumable. If not found a PhasedTestException is thrown
+     */
+    private static String fetchStoredConsumable(final String in_consumableKey,
+            StackWalker.StackFrame in_calledByFrame) {
+        final String lr_value = phasedCache.fetch(in_consumableKey);
+
+        return lr_value != null ? lr_value : fetchStoredConsumable(in_consumableKey,
+                in_calledByFrame.toStackTraceElement().toString());
     }
 
     /**
@@ -400,12 +586,234 @@ public final class PhasedTestManager {
      * @return The value that was stored
      */
     public static String consume(String in_storageKey) {
-        final StackTraceElement l_fetchCalledBy = StackTraceManager.fetchCalledBy();
+        final StackWalker.StackFrame l_calledFrame = StackTraceManager.fetchCalledByFrame();
+        final CallerIdentity l_caller = StackTraceManager.fetchCallerIdentity(l_calledFrame);
+
+        final String l_realKey = fetchStorageKey(l_caller, in_storageKey).getIdentity();
+
+        return fetchStoredConsumable(l_realKey, l_calledFrame);
+    }
+
+    /**
+     * Given a step in the Phased Test it fetches the typed value committed for that test. The value is decoded with the
+     * {@link com.adobe.campaign.tests.integro.phased.spi.PhasedDataCodec} registered for the given type in
+     * {@link PhasedDataCodecs}.
+     *
+     * @param in_storageKey A key that was used to store the value in this scenario
+     * @param in_type       The type of the stored value
+     * @param <T>           The type of the stored value
+     * @return The value that was stored
+     */
+    public static <T> T consume(String in_storageKey, Class<T> in_type) {
+        final StackWalker.StackFrame l_calledFrame = StackTraceManager.fetchCalledByFrame();
+        final CallerIdentity l_caller = StackTraceManager.fetchCallerIdentity(l_calledFrame);
+
+        final String l_realKey = fetchStorageKey(l_caller, in_storageKey).getIdentity();
+        final Object l_storedValue = phasedCache.fetchValue(l_realKey);
+
+        if (l_storedValue == null) {
+            throw new PhasedTestException(
+                    "The given consumable " + l_realKey + " requested by " + l_calledFrame.toStackTraceElement()
+                            + " was not available.");
+        }
+
+        final PhasedDataCodec<T> l_codec = PhasedDataCodecs.fetchCodec(in_type);
+
+        if (l_storedValue instanceof PhasedDataStore.EncodedValue) {
+            final PhasedDataStore.EncodedValue l_encodedValue = (PhasedDataStore.EncodedValue) l_storedValue;
+            if (!l_encodedValue.getTypeName().equals(l_codec.getType().getName())) {
+                throw new PhasedTestException(
+                        "The consumable " + l_realKey + " was produced as a " + l_encodedValue.getTypeName()
+                                + ", and can not be consumed as a " + in_type.getTypeName() + ".");
+            }
+            return l_codec.decode(l_encodedValue.getBytes());
+        }
+
+        if (l_codec.getType().equals(String.class)) {
+            return l_codec.getType().cast(l_storedValue);
+        }
+        throw new PhasedTestException("The consumable " + l_realKey + " was produced as a String, and can not be "
+                + "consumed as a " + in_type.getTypeName() + ".");
+    }
+
+    /**
+     * Prepares the values that the steps of a scenario consume, when the scenario starts in a CONSUMER phase. The
+     * consumed keys are found by analyzing the source code of the scenario, as is done by
+     * {@link ScenarioStepDependencyFactory#listMethodCalls(Class)}.
+     * <ul>
+     *     <li>When {@link ConfigValueHandlerPhased#PROP_STORAGE_PREFETCH} is activated, the values stored in an
+     *     imported index are decoded in one pass, so that the steps do not need to decode them one by one. This only
+     *     applies to the INDEXED storage format. The other formats are fully loaded when they are imported, so there
+     *     is nothing left to fetch, and only the validation below is performed.</li>
+     *     <li>When {@link ConfigValueHandlerPhased#PROP_STORAGE_EVICTION} is activated, the values are retained until
+     *     the last step consuming them has finished. See {@link #releaseConsumables(String, String)}.</li>
+     * </ul>
+     * <p>
+     * The consumed keys are also validated. A warning is logged for the keys that were not produced in the previous
+     * phase, and that are not produced by the scenario itself.
+     *
+     * @param in_testResult The step that is about to be executed
+     * @return The consumed keys that are not available. Null if the scenario was not prepared by this call
+     */
+    public static Set<String> prepareConsumables(ITestResult in_testResult) {
+        final boolean l_prefetch = ConfigValueHandlerPhased.PROP_STORAGE_PREFETCH.is("true");
+        final boolean l_eviction = ConfigValueHandlerPhased.PROP_STORAGE_EVICTION.is("true");
+        if ((!l_prefetch && !l_eviction) || !ExecutionMode.INTERRUPTIVE.isSelected("CONSUMER")
+                || !prefetchedScenarios.add(fetchScenarioName(in_testResult))) {
+            return null;
+        }
+
+        final Class<?> l_scenarioClass = in_testResult.getMethod().getRealClass();
+        final ScenarioStepDependencies l_dependencies = scenarioDependencies.computeIfAbsent(l_scenarioClass, c -> {
+            try {
+                return Optional.of(ScenarioStepDependencyFactory.listMethodCalls(c));
+            } catch (RuntimeException e) {
+                log.warn("{} The consumables of {} could not be detected, and will not be prepared : {}",
+                        PHASED_TEST_LOG_PREFIX, c.getTypeName(), e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+
+        if (l_dependencies == null) {
+            return null;
+        }
+
+        final String l_className = l_scenarioClass.getTypeName();
+        final String l_phaseGroup = fetchPhaseGroup(
+                ClassPathParser.fetchFullName(in_testResult.getMethod().getConstructorOrMethod().getMethod()));
+        final Set<String> l_producedKeys = l_dependencies.getStepDependencies().values().stream()
+                .flatMap(s -> s.getProduceSet().stream()).collect(Collectors.toSet());
+
+        Map<String, String> l_storeKeys = new LinkedHashMap<>();
+        Set<String> lr_missingKeys = new TreeSet<>();
+        l_dependencies.getStepDependencies().values().stream().flatMap(s -> s.getConsumeSet().stream()).distinct()
+                .forEach(k -> {
+                    //The key is either a storage key, or the name of a step that produced a value in step
+                    final String lt_storageKey = new StepKey(l_className, null, l_phaseGroup, k).getIdentity();
+                    final String lt_stepKey = new StepKey(l_className, k, l_phaseGroup, null).getIdentity();
+                    if (phasedCache.containsKey(lt_storageKey)) {
+                        l_storeKeys.put(k, lt_storageKey);
+                    } else if (phasedCache.containsKey(lt_stepKey)) {
+                        l_storeKeys.put(k, lt_stepKey);
+                    } else if (!l_producedKeys.contains(k)) {
+                        lr_missingKeys.add(k);
+                    }
+                });
+
+        if (l_prefetch) {
+            phasedCache.prefetch(l_storeKeys.values());
+        }
+
+        if (l_eviction) {
+            Map<String, Set<String>> l_stepKeys = new HashMap<>();
+            l_dependencies.getStepDependencies().forEach((lt_stepName, lt_step) -> l_stepKeys.put(lt_stepName,
+                    lt_step.getConsumeSet().stream().filter(l_storeKeys::containsKey).map(l_storeKeys::get)
+                            .collect(Collectors.toSet())));
 
-        String l_realKey = generateStepKeyIdentity(StackTraceManager.fetchCalledByFullName(),
-                l_fetchCalledBy.getClassName(), in_storageKey);
+            retention.register(fetchScenarioName(in_testResult), l_stepKeys,
+                    fetchNrOfStepsInConsumer(l_scenarioClass, l_phaseGroup));
+        }
 
-        return fetchStoredConsumable(l_realKey, l_fetchCalledBy.toString());
+        if (!lr_missingKeys.isEmpty()) {
+            log.warn("{} The scenario {} consumes {}, which were not produced in the previous phase.",
+                    PHASED_TEST_LOG_PREFIX, fetchScenarioName(in_testResult), lr_missingKeys);
+        }
+        return lr_missingKeys;
+    }
+
+    /**
+     * Returns the number of steps of a scenario that are executed in the current CONSUMER phase
+     *
+     * @param in_scenarioClass The class of the scenario
+     * @param in_phaseGroup    The phase group of the scenario
+     * @return The number of steps executed in the CONSUMER phase. -1 if it cannot be deduced from the phase group
+     */
+    static int fetchNrOfStepsInConsumer(Class<?> in_scenarioClass, String in_phaseGroup) {
+        if (STD_PHASED_GROUP_SINGLE.equals(in_phaseGroup)) {
+            return (int) Arrays.stream(in_scenarioClass.getMethods()).filter(PhasedTestManager::isPhasedTest)
+                    .filter(m -> !isExecutedInProducerMode(m)).count();
+        }
+
+        if (in_phaseGroup != null && in_phaseGroup.startsWith(STD_PHASED_GROUP_PREFIX)) {
+            try {
+                return fetchShuffledStepCount(in_phaseGroup)[1];
+            } catch (PhasedTestException e) {
+                log.debug("{} The number of steps of the phase group {} could not be deduced.",
+                        PHASED_TEST_LOG_PREFIX, in_phaseGroup);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Lets the phase cache know that a step of a scenario has finished. The values that are no longer consumed by the
+     * remaining steps of the scenario are released from the heap. This is only done when
+     * {@link ConfigValueHandlerPhased#PROP_STORAGE_EVICTION} is activated.
+     *
+     * @param in_scenarioName The name of the scenario
+     * @param in_stepName     The name of the step that has finished
+     * @return The keys that were released
+     */
+    public static Set<String> releaseConsumables(String in_scenarioName, String in_stepName) {
+        return releaseFromCache(retention.stepFinished(in_scenarioName, in_stepName));
+    }
+
+    /**
+     * Lets the phase cache know that a scenario has finished in the current phase. All the values still retained for
+     * the scenario are released from the heap, and the keys interned for the scenario are dropped.
+     *
+     * @param in_scenarioName The name of the scenario
+     * @return The keys that were released
+     */
+    public static Set<String> releaseConsumables(String in_scenarioName) {
+        StepKey.releaseInternedKeys(in_scenarioName);
+        return releaseFromCache(retention.scenarioFinished(in_scenarioName));
+    }
+
+    private static Set<String> releaseFromCache(Set<String> in_keys) {
+        in_keys.forEach(phasedCache::release);
+        return in_keys;
+    }
+
+    /**
+     * Copies the values stored under the given keys in one phase group to another phase group. This allows a scenario
+     * to continue from the steps executed with another phase group, as if it had executed them itself. All the values
+     * are checked before any of them is copied, so that nothing is copied if one of them is missing.
+     *
+     * @param in_storeKeys      The keys of the values stored by the steps executed in the original phase group
+     * @param in_fromPhaseGroup The phase group in which the values were stored
+     * @param in_toPhaseGroup   The phase group to which the values are copied
+     * @return The keys of the copied values, in the order of the given keys
+     * @throws PhasedTestException if a key does not belong to the original phase group, or if its value is not
+     *                             available
+     */
+    public static List<String> forkProducedData(Collection<String> in_storeKeys, String in_fromPhaseGroup,
+            String in_toPhaseGroup) {
+        final String l_fromGroup = "(" + in_fromPhaseGroup + ")";
+        final String l_toGroup = "(" + in_toPhaseGroup + ")";
+
+        final Map<String, Object> l_forkedValues = new LinkedHashMap<>();
+        for (String lt_storeKey : in_storeKeys) {
+            final int lt_groupStart = lt_storeKey.indexOf(l_fromGroup);
+            final Object lt_value = lt_groupStart < 0 ? null : phasedCache.fetchValue(lt_storeKey);
+            if (lt_value == null) {
+                throw new PhasedTestException(
+                        "The Phased Test data " + lt_storeKey + " of the phase group " + in_fromPhaseGroup
+                                + " is not available, and cannot be copied to the phase group " + in_toPhaseGroup
+                                + ".");
+            }
+            l_forkedValues.put(lt_storeKey.substring(0, lt_groupStart) + l_toGroup + lt_storeKey.substring(
+                    lt_groupStart + l_fromGroup.length()), lt_value);
+        }
+
+        l_forkedValues.forEach((k, v) -> {
+            if (v instanceof PhasedDataStore.EncodedValue) {
+                storePhasedCache(k, (PhasedDataStore.EncodedValue) v);
+            } else {
+                storePhasedCache(k, (String) v);
+            }
+        });
+        return new ArrayList<>(l_forkedValues.keySet());
     }
 
     /**
@@ -416,10 +824,17 @@ public final class PhasedTestManager {
     static synchronized void clearCache() {
         phasedCache.clear();
 
-        methodMap = new HashMap<>();
+        methodMap = new ConcurrentHashMap<>();
 
         phaseContext.clear();
+        stepContext.remove();
         scenarioContext.clear();
+        prefetchedScenarios.clear();
+        retention.clear();
+        scenarioDependencies.clear();
+        StepKey.clearInternedKeys();
+        closeJournal(false);
+        journalResolved = false;
     }
 
     /**
@@ -436,6 +851,17 @@ public final class PhasedTestManager {
         return exportContext(l_exportCacheFile);
     }
 
+    /**
+     * Exports the cache into a standard PhasedTest property file. The file is written before this method returns, but
+     * its transfer through the data broker, if any, is done in the background.
+     *
+     * @return A future of the file that was used for storing the phase cache. It completes once the data broker has
+     * stored the file
+     */
+    public static CompletableFuture<File> exportPhaseDataAsync() {
+        return exportContextAsync(fetchExportFile());
+    }
+
     /**
      * Returns the export file that will be used for exporting the PhaseCache
      * <p>
@@ -446,8 +872,8 @@ public final class PhasedTestManager {
     public static File fetchExportFile() {
         File l_exportCacheFile;
 
-        if (ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.isSet() ) {
-            return new File(ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.fetchValue());
+        if (RunConfiguration.fetch().getDataPath() != null) {
+            return new File(RunConfiguration.fetch().getDataPath());
         } else {
             return new File(GeneralTestUtils.fetchCacheDirectory(STD_STORE_DIR), STD_STORE_FILE);
         }
@@ -462,63 +888,220 @@ public final class PhasedTestManager {
      * @return The file used for storing the Phase Context.
      */
     static File exportContext(File in_file) {
+        return awaitTransfer(exportContextAsync(in_file));
+    }
+
+    /**
+     * Exports the Phase cache and the scenario context into the given file. The transfer through the data broker, if
+     * any, is done in the background.
+     *
+     * @param in_file that will contain the phase cache and scenario contexts
+     * @return A future of the file used for storing the Phase Context.
+     */
+    static CompletableFuture<File> exportContextAsync(File in_file) {
 
         log.info("{} Exporting Phased Testing data to {}", PHASED_TEST_LOG_PREFIX, in_file.getPath());
 
-        Properties lt_transformedScenarios = new Properties();
+        Map<String, String> lt_transformedScenarios = new HashMap<>();
         scenarioContext.forEach(
                 (key, value) -> lt_transformedScenarios.put(attachContextFlag(key), value.exportToString()));
 
-        try (FileWriter fw = new FileWriter(in_file)) {
-
-            getPhasedCache().store(fw, null);
-            lt_transformedScenarios.store(fw, null);
+        List<File> l_exportedFiles;
+        try {
+            final PhasedDataSharding l_sharding = PhasedDataSharding.fetchSelectedSharding();
+            if (l_sharding == PhasedDataSharding.NONE) {
+                PhasedDataFormat.fetchSelectedFormat().write(in_file, getPhasedCache(), lt_transformedScenarios);
+                l_exportedFiles = Collections.singletonList(in_file);
+            } else {
+                log.info("{} Sharding Phased Testing data by {}", PHASED_TEST_LOG_PREFIX, l_sharding);
+                l_exportedFiles = l_sharding.export(in_file, PhasedDataFormat.fetchSelectedFormat(), getPhasedCache(),
+                        lt_transformedScenarios);
+            }
 
         } catch (IOException e) {
             log.error("Error when creating file {}", in_file.getPath(), e);
             throw new PhasedTestException("Error when creating file " + in_file.getPath() + ".", e);
         }
+        //The journal is no longer needed once the data is exported
+        closeJournal(true);
+
         //Store in DataBroker
-        if (dataBroker != null) {
-            log.info("{} Exporting Phased Testing to location specified by provided PhasedDataBroker.",
-                    PHASED_TEST_LOG_PREFIX);
-            dataBroker.store(in_file);
+        if (asyncDataBroker == null) {
+            return CompletableFuture.completedFuture(in_file);
         }
+        log.info("{} Exporting Phased Testing to location specified by provided PhasedDataBroker.",
+                PHASED_TEST_LOG_PREFIX);
+        return CompletableFuture.allOf(
+                        l_exportedFiles.stream().map(asyncDataBroker::store).toArray(CompletableFuture[]::new))
+                .thenApply(v -> in_file);
+    }
 
-        return in_file;
+    /**
+     * Waits for a transfer through the data broker to finish
+     *
+     * @param in_transfer A transfer started by the data broker
+     * @param <T>         The result of the transfer
+     * @return The result of the transfer
+     * @throws PhasedTestException if the transfer failed
+     */
+    public static <T> T awaitTransfer(CompletableFuture<T> in_transfer) {
+        try {
+            return in_transfer.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof PhasedTestException) {
+                throw (PhasedTestException) e.getCause();
+            }
+            throw new PhasedTestException("Error while transferring the Phased Test data with the data broker.",
+                    e.getCause());
+        }
     }
 
     /**
      * Imports a file and stored the properties in the phased cache and in the scenario context.
      * <p>
+     * When the file is in the {@link PhasedDataFormat#INDEXED} format, only its index is read. The values are decoded
+     * when they are consumed, and the returned Properties only contain the scenario contexts.
+     * <p>
      * Author : gandomi
      *
      * @param in_phasedTestFile A file that contains the phase cache data from a previous phase
      * @return A Properties object with the phase cache data from the previous phase
      */
     static Properties importContext(File in_phasedTestFile) {
-        log.info("{} Importing phase cache.", PHASED_TEST_LOG_PREFIX);
-        Properties lr_importedProperties = new Properties();
-        try (InputStream input = new FileInputStream(in_phasedTestFile)) {
+        return importContext(in_phasedTestFile, null);
+    }
 
-            // load a properties file
-            lr_importedProperties.load(input);
+    /**
+     * Imports a file and stored the properties in the phased cache and in the scenario context. If the file is the
+     * manifest of a sharded export, we only import the shards of the given classes.
+     *
+     * @param in_phasedTestFile  A file that contains the phase cache data from a previous phase
+     * @param in_selectedClasses The classes whose data is needed. If null, all the data is imported
+     * @return A Properties object with the phase cache data from the previous phase
+     */
+    static Properties importContext(File in_phasedTestFile, Collection<String> in_selectedClasses) {
+        log.info("{} Importing phase cache.", PHASED_TEST_LOG_PREFIX);
+        Properties lr_importedProperties;
+        try {
+            if (in_phasedTestFile.exists() && PhasedDataFormat.detect(in_phasedTestFile) == PhasedDataFormat.INDEXED) {
+                final PhasedDataIndex l_index = PhasedDataIndex.open(in_phasedTestFile);
+                phasedCache.attachIndex(l_index);
+                lr_importedProperties = l_index.getScenarioEntries();
+            } else {
+                lr_importedProperties = PhasedDataFormat.readFile(in_phasedTestFile);
+            }
         } catch (IOException e) {
             log.error("Error when loading file {}", in_phasedTestFile.getPath());
             throw new PhasedTestException("Error when loading file " + in_phasedTestFile.getPath() + ".", e);
         }
 
+        if (PhasedDataSharding.isManifest(lr_importedProperties)) {
+            final Set<String> l_shardFileNames = PhasedDataSharding.extractShardFileNames(lr_importedProperties,
+                    in_selectedClasses);
+            return importShards(l_shardFileNames, lr_importedProperties,
+                    n -> importContext(new File(in_phasedTestFile.getParentFile(), n)));
+        }
+        return importProperties(lr_importedProperties);
+    }
+
+    /**
+     * Imports the content fetched by the data broker, and stores the properties in the phased cache and in the
+     * scenario context. If the content is the manifest of a sharded export, the needed shards are fetched in parallel.
+     * <p>
+     * Files in the {@link PhasedDataFormat#INDEXED} format are copied to the standard location, so that they can be
+     * memory-mapped.
+     *
+     * @param in_name            The name of the content in the data broker
+     * @param in_fetch           The fetching of the content by the data broker
+     * @param in_selectedClasses The classes whose data is needed. If null, all the data is imported
+     * @return A Properties object with the phase cache data from the previous phase
+     */
+    static Properties importFromBroker(String in_name, CompletableFuture<InputStream> in_fetch,
+            Collection<String> in_selectedClasses) {
+        Properties lr_importedProperties;
+        try (InputStream l_input = new BufferedInputStream(awaitTransfer(in_fetch))) {
+            final PhasedDataFormat l_format = PhasedDataFormat.detect(l_input);
+            if (l_format == PhasedDataFormat.INDEXED) {
+                final File l_localFile = new File(GeneralTestUtils.fetchCacheDirectory(STD_STORE_DIR), in_name);
+                Files.copy(l_input, l_localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return importContext(l_localFile, in_selectedClasses);
+            }
+            lr_importedProperties = l_format.read(l_input);
+        } catch (IOException e) {
+            log.error("Error when loading {} from the data broker", in_name);
+            throw new PhasedTestException("Error when loading " + in_name + " from the data broker.", e);
+        }
+
+        if (PhasedDataSharding.isManifest(lr_importedProperties)) {
+            final Set<String> l_shardFileNames = PhasedDataSharding.extractShardFileNames(lr_importedProperties,
+                    in_selectedClasses);
+            Map<String, CompletableFuture<InputStream>> l_fetches = new HashMap<>();
+            l_shardFileNames.forEach(n -> l_fetches.put(n, asyncDataBroker.fetch(n)));
+
+            return importShards(l_shardFileNames, lr_importedProperties,
+                    n -> importFromBroker(n, l_fetches.get(n), null));
+        }
+        return importProperties(lr_importedProperties);
+    }
+
+    /**
+     * Imports the shards listed in a manifest, along with the scenario contexts the manifest contains.
+     *
+     * @param in_shardFileNames The names of the shards to import
+     * @param in_manifest       The content of the manifest, without its shard entries
+     * @param in_shardImporter  Imports a shard given its name
+     * @return A Properties object with the imported phase cache data and the scenario contexts
+     */
+    private static Properties importShards(Set<String> in_shardFileNames, Properties in_manifest,
+            Function<String, Properties> in_shardImporter) {
+        log.info("{} Importing {} shards of the phase cache.", PHASED_TEST_LOG_PREFIX, in_shardFileNames.size());
+
+        Properties lr_importedProperties = new Properties();
+        in_shardFileNames.forEach(n -> lr_importedProperties.putAll(in_shardImporter.apply(n)));
+        lr_importedProperties.putAll(importProperties(in_manifest));
+        return lr_importedProperties;
+    }
+
+    /**
+     * Replays a journal, and stores its content in the phased cache and in the scenario context. This is used when a
+     * PRODUCER phase stopped before it could export its data.
+     *
+     * @param in_journalFile A journal written during a previous phase
+     * @return A Properties object with the phase cache data from the previous phase
+     */
+    static Properties importJournal(File in_journalFile) {
+        log.warn("{} Importing phase cache from the journal {}. The previous phase may not have finished.",
+                PHASED_TEST_LOG_PREFIX, in_journalFile.getPath());
+        try {
+            return importProperties(PhasedDataJournal.replay(in_journalFile));
+        } catch (IOException e) {
+            log.error("Error when loading file {}", in_journalFile.getPath());
+            throw new PhasedTestException("Error when loading file " + in_journalFile.getPath() + ".", e);
+        }
+    }
+
+    /**
+     * Stores the imported properties in the phased cache and in the scenario context.
+     *
+     * @param in_importedProperties The properties of a previous phase
+     * @return The given properties
+     */
+    private static Properties importProperties(Properties in_importedProperties) {
+
         //Import produced data into phase cache
-        lr_importedProperties.stringPropertyNames().stream().filter(k -> !k.startsWith(SCENARIO_CONTEXT_PREFIX))
-                .forEach(fk -> phasedCache.put(fk, lr_importedProperties.get(fk)));
+        in_importedProperties.forEach((fk, fv) -> {
+            if (!fk.toString().startsWith(SCENARIO_CONTEXT_PREFIX)) {
+                phasedCache.put(fk, fv);
+            }
+        });
 
         //Import scenario contexts into scenario context
-        lr_importedProperties.stringPropertyNames().stream().filter(k -> k.startsWith(SCENARIO_CONTEXT_PREFIX)).forEach(
+        in_importedProperties.stringPropertyNames().stream().filter(k -> k.startsWith(SCENARIO_CONTEXT_PREFIX)).forEach(
                 fk -> scenarioContext
                         .put(fk.substring(SCENARIO_CONTEXT_PREFIX.length()), new ScenarioContextData(
-                                (String) lr_importedProperties.get(fk))));
+                                (String) in_importedProperties.get(fk))));
 
-        return lr_importedProperties;
+        return in_importedProperties;
     }
 
     /**
@@ -530,24 +1113,69 @@ public final class PhasedTestManager {
      * @return A Properties object with the phase cache data from the previous phase
      */
     static Properties importPhaseData() {
-        File l_importCacheFile;
+        return importPhaseData(null);
+    }
 
-        if (dataBroker == null) {
+    /**
+     * Loads the Phased Test data from the standard location. If the data was sharded, only the shards of the given
+     * classes are imported.
+     *
+     * @param in_selectedClasses The classes that are executed. If null, all the data is imported
+     * @return A Properties object with the phase cache data from the previous phase
+     */
+    public static Properties importPhaseData(Collection<String> in_selectedClasses) {
+        if (asyncDataBroker != null) {
+            log.info("{} Fetching cache through DataBroker.", PHASED_TEST_LOG_PREFIX);
+            final CompletableFuture<InputStream> l_fetch;
+            synchronized (PhasedTestManager.class) {
+                prefetchPhaseData();
+                l_fetch = pendingFetch;
+                pendingFetch = null;
+            }
+            try {
+                return importFromBroker(STD_STORE_FILE, l_fetch, in_selectedClasses);
+            } catch (PhasedTestException e) {
+                //The PRODUCER phase may have stopped before it could store its data with the broker
+                final File l_journalFile = PhasedDataJournal.fetchJournalFile(fetchExportFile());
+                if (!l_journalFile.exists()) {
+                    throw e;
+                }
+                log.warn("{} The Phased Test data could not be fetched through the DataBroker : {}",
+                        PHASED_TEST_LOG_PREFIX, e.getMessage());
+                return importJournal(l_journalFile);
+            }
+        }
 
-            if (ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.isSet()) {
-                l_importCacheFile = new File(ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.fetchValue());
+        File l_importCacheFile;
+        if (RunConfiguration.fetch().getDataPath() != null) {
+            l_importCacheFile = new File(RunConfiguration.fetch().getDataPath());
 
-            } else {
-                l_importCacheFile = new File(GeneralTestUtils.fetchCacheDirectory(STD_STORE_DIR), STD_STORE_FILE);
-                log.warn("{} The system property {} not set. Fetching Phased Test data from {}.",
-                        PHASED_TEST_LOG_PREFIX, ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.systemName, l_importCacheFile.getPath());
-            }
         } else {
-            log.info("{} Fetching cache through DataBroker.", PHASED_TEST_LOG_PREFIX);
-            l_importCacheFile = dataBroker.fetch(STD_STORE_FILE);
+            l_importCacheFile = new File(GeneralTestUtils.fetchCacheDirectory(STD_STORE_DIR), STD_STORE_FILE);
+            log.warn("{} The system property {} not set. Fetching Phased Test data from {}.",
+                    PHASED_TEST_LOG_PREFIX, ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.systemName, l_importCacheFile.getPath());
         }
-        return importContext(l_importCacheFile);
 
+        final File l_journalFile = PhasedDataJournal.fetchJournalFile(l_importCacheFile);
+        if (!l_importCacheFile.exists() && l_journalFile.exists()) {
+            return importJournal(l_journalFile);
+        }
+        return importContext(l_importCacheFile, in_selectedClasses);
+
+    }
+
+    /**
+     * Starts fetching the Phased Test data through the data broker, if any. The fetched data is imported by
+     * {@link #importPhaseData(Collection)}. This allows the download to overlap with the loading of the scenario index
+     * and the selection of the classes.
+     * <p>
+     * This fetches the whole file. Fetching the values of each scenario when it starts is done by
+     * {@link #prepareConsumables(ITestResult)}, and only applies to the INDEXED storage format.
+     */
+    public static synchronized void prefetchPhaseData() {
+        if (asyncDataBroker != null && pendingFetch == null) {
+            pendingFetch = asyncDataBroker.fetch(STD_STORE_FILE);
+        }
     }
 
     /**
@@ -699,7 +1327,7 @@ public final class PhasedTestManager {
      */
     public static Map<String, MethodMapping> generatePhasedProviders(Map<Class<?>, List<String>> in_classMethodMap,
             Map<String, ScenarioStepDependencies> in_scenarioDependencies, RunValues in_runValues) {
-        methodMap = new HashMap<>();
+        methodMap = new ConcurrentHashMap<>();
 
         for (Entry<Class<?>, List<String>> lt_entry : in_classMethodMap.entrySet().stream().filter(e -> !Modifier.isAbstract(e.getKey().getModifiers())).collect(
                 Collectors.toList())) {
@@ -741,15 +1369,69 @@ public final class PhasedTestManager {
     }
 
     /**
-     * Updates the context with the method and its current Phase Group ID
+     * Updates the context with the method and its current Phase Group ID. Besides the context of the current thread,
+     * the phase group is stored in the shared phase context, for code that is not executed in the thread of the
+     * step. The listeners use {@link #storePhasedContext(String, String, Object[])}, which does not touch the shared
+     * phase context.
      * <p>
      * Author : gandomi
      *
      * @param in_methodFullName The full name of the method
      * @param in_phasedGroupId  The Id of the phase group
+     * @deprecated The shared phase context is not bound to the thread of the step. Use
+     * {@link #storePhasedContext(String, String, Object[])} instead
      */
+    @Deprecated
     public static void storePhasedContext(String in_methodFullName, String in_phasedGroupId) {
         phaseContext.put(in_methodFullName, in_phasedGroupId);
+        storePhasedContext(in_methodFullName, in_phasedGroupId, null);
+    }
+
+    /**
+     * Updates the context with the method, its current Phase Group ID and the data provider values it is executed
+     * with. The context is bound to the current thread, and is used by produce/consume for resolving the storage keys
+     * of the step.
+     *
+     * @param in_methodFullName The full name of the method
+     * @param in_phasedGroupId  The Id of the phase group
+     * @param in_parameters     The data provider values of the step. May be null
+     */
+    public static void storePhasedContext(String in_methodFullName, String in_phasedGroupId,
+            Object[] in_parameters) {
+        stepContext.set(new PhasedStepContext(in_methodFullName, in_phasedGroupId, in_parameters));
+    }
+
+    /**
+     * Returns the context of the step executed by the current thread.
+     *
+     * @return The context of the current step, or null if no step is being executed by this thread
+     */
+    public static PhasedStepContext fetchStepContext() {
+        return stepContext.get();
+    }
+
+    /**
+     * Removes the context of the step executed by the current thread. This is done once the step has finished.
+     */
+    public static void clearStepContext() {
+        stepContext.remove();
+    }
+
+    /**
+     * Returns the phase group for the given id. We first look at the context of the step executed by the current
+     * thread. Only if the id is not that of the current step, do we look in the shared phase context.
+     *
+     * @param in_idInPhaseContext The id of the step in the context
+     * @return The phase group for the given id, or null if there is none
+     */
+    static String fetchPhaseGroup(final String in_idInPhaseContext) {
+        final PhasedStepContext l_stepContext = stepContext.get();
+
+        if (l_stepContext != null && l_stepContext.getStepFullName().equals(in_idInPhaseContext)) {
+            return l_stepContext.getPhaseGroup();
+        }
+
+        return phaseContext.getProperty(in_idInPhaseContext);
     }
 
     /**
@@ -821,13 +1503,7 @@ public final class PhasedTestManager {
             return false;
         }
 
-        final Class<?> l_declaringClass = in_method.getDeclaringClass();
-        List<Method> l_myMethods = Arrays.stream(l_declaringClass.getMethods())
-            .filter(PhasedTestManager::isPhasedTest)
-            .sorted(Comparator.comparing(Method::getName))
-            .collect(Collectors.toList());
-
-        for (Method lt_declaredMethod : l_myMethods) {
+        for (Method lt_declaredMethod : fetchScenarioMetadata(in_method.getDeclaringClass()).getSteps()) {
             if (PhasedTestManager.isPhaseLimit(lt_declaredMethod)) {
                 return false;
             }
@@ -846,8 +1522,7 @@ public final class PhasedTestManager {
      * @return true if the scenario has a step that contains the annotation {{@link PhaseEvent}}
      */
     public static boolean isPhasedTestWithEvent(Class in_testScenario) {
-
-        return Arrays.stream(in_testScenario.getDeclaredMethods()).anyMatch(t -> t.isAnnotationPresent(PhaseEvent.class));
+        return fetchScenarioMetadata(in_testScenario).isWithEvent();
     }
 
 
@@ -891,11 +1566,35 @@ public final class PhasedTestManager {
      */
     public static void registerMutationMode(MutationMode in_mode) {
         mutationModes.add(mutationModes.size() - 1, in_mode);
+        scenarioMetadata = createScenarioMetadata();
     }
 
-    private static MutationMode fetchApplicableMode(Class<?> in_class) {
-        return mutationModes.stream().filter(m -> m.appliesTo(in_class)).findFirst()
-                .orElseGet(() -> mutationModes.get(mutationModes.size() - 1));
+    /**
+     * The phased characteristics of each scenario class. The whole cache is replaced when a mutation mode is
+     * registered, as a {@link ClassValue} can only discard the values of the classes it is given.
+     */
+    private static volatile ClassValue<ScenarioClassMetadata> scenarioMetadata = createScenarioMetadata();
+
+    private static ClassValue<ScenarioClassMetadata> createScenarioMetadata() {
+        return new ClassValue<ScenarioClassMetadata>() {
+            @Override
+            protected ScenarioClassMetadata computeValue(Class<?> in_class) {
+                final Optional<MutationMode> l_mode = mutationModes.stream().filter(m -> m.appliesTo(in_class))
+                        .findFirst();
+                return new ScenarioClassMetadata(in_class,
+                        l_mode.orElseGet(() -> mutationModes.get(mutationModes.size() - 1)), l_mode.isPresent());
+            }
+        };
+    }
+
+    /**
+     * Returns the phased characteristics of the given class, as computed the first time the class was examined
+     *
+     * @param in_class A scenario class
+     * @return The metadata of the class
+     */
+    static ScenarioClassMetadata fetchScenarioMetadata(Class<?> in_class) {
+        return scenarioMetadata.get(in_class);
     }
 
     private static MutationMode fetchApplicableMode(ITestResult in_testResult) {
@@ -929,12 +1628,13 @@ public final class PhasedTestManager {
         public boolean isSingleMode(Class<?> in_class) {
             //TODO in 8.11.3 to be removed -  make public
             //return isPhasedTest(in_class) && (isPhasedTestWithEvent(in_class)
-            return isPhasedTest(in_class) && (isPhasedTestWithEvent(in_class) || !in_class.getAnnotation(PhasedTest.class).canShuffle()) || isPhasedTestTargetOfEvent(in_class);
+            return isPhasedTest(in_class) && (isPhasedTestWithEvent(in_class) || !fetchScenarioMetadata(in_class)
+                    .canShuffle()) || isPhasedTestTargetOfEvent(in_class);
         }
 
         @Override
         public boolean isShuffleMode(Class<?> in_class) {
-            return isPhasedTest(in_class) && !isPhasedTestWithEvent(in_class) && in_class.getAnnotation(PhasedTest.class)
+            return isPhasedTest(in_class) && !isPhasedTestWithEvent(in_class) && fetchScenarioMetadata(in_class)
                     .canShuffle() && !isPhasedTestTargetOfEvent(in_class);
         }
 
@@ -955,6 +1655,17 @@ public final class PhasedTestManager {
      * @return true if The annotations PhasedTest and PhasedStep are present
      */
     public static boolean isPhasedTest(Method in_method) {
+        return fetchScenarioMetadata(in_method.getDeclaringClass()).isPhasedStep(in_method);
+    }
+
+    /**
+     * Asks the registered mutation modes whether the given method is a phased step. The result is cached per method
+     * in the metadata of its class.
+     *
+     * @param in_method A test method
+     * @return true if one of the registered mutation modes applies to the method
+     */
+    static boolean isAppliedToByMutationMode(Method in_method) {
         return mutationModes.stream().anyMatch(m -> m.appliesTo(in_method));
     }
 
@@ -967,7 +1678,7 @@ public final class PhasedTestManager {
      * @return True if the class is a phased test scenario
      */
     public static boolean isPhasedTest(Class<?> in_class) {
-        return mutationModes.stream().anyMatch(m -> m.appliesTo(in_class));
+        return fetchScenarioMetadata(in_class).isPhasedTest();
     }
 
     /**
@@ -987,7 +1698,7 @@ public final class PhasedTestManager {
      * @return True if the test class is a SingleRun Phase Test scenario
      */
     static boolean isPhasedTestSingleMode(Class<?> in_class) {
-        return fetchApplicableMode(in_class).isSingleMode(in_class);
+        return fetchScenarioMetadata(in_class).isSingleMode(RunConfiguration.fetch().getEventTarget());
     }
 
     /**
@@ -1020,7 +1731,7 @@ public final class PhasedTestManager {
      * @return True if the given test scenario is a Shuffled Phased Test scenario
      */
     static boolean isPhasedTestShuffledMode(Class<?> in_class) {
-        return fetchApplicableMode(in_class).isShuffleMode(in_class);
+        return fetchScenarioMetadata(in_class).isShuffleMode(RunConfiguration.fetch().getEventTarget());
     }
 
     /**
@@ -1086,14 +1797,16 @@ public final class PhasedTestManager {
      */
     public static void scenarioStateStore(String in_scenarioName, String in_stepFullName, int in_status, long in_startMillis, long in_endMillis) {
 
-        //TODO move to synchronize state
-        if (scenarioContext.containsKey(in_scenarioName)) {
-            scenarioContext.get(in_scenarioName).synchronizeState(in_stepFullName, in_status, in_startMillis, in_endMillis);
-        } else {
-            ScenarioContextData l_scenarioContextData = new ScenarioContextData();
-            l_scenarioContextData.synchronizeState(in_stepFullName, in_status, in_startMillis, in_endMillis);
-            scenarioContext.put(in_scenarioName, l_scenarioContextData);
-        }
+        final PhasedDataJournal l_journal = fetchJournal();
+
+        scenarioContext.compute(in_scenarioName, (k, v) -> {
+            ScenarioContextData lr_scenarioContextData = v == null ? new ScenarioContextData() : v;
+            lr_scenarioContextData.synchronizeState(in_stepFullName, in_status, in_startMillis, in_endMillis);
+            if (l_journal != null) {
+                l_journal.appendScenarioState(k, lr_scenarioContextData.exportToString());
+            }
+            return lr_scenarioContextData;
+        });
     }
 
     private static String attachContextFlag(String in_scenarioName) {
@@ -1875,11 +2588,7 @@ public final class PhasedTestManager {
      * @return true if the property MUTATIONAL.EVENTS.TARGET points to a method in the class
      */
     public static boolean isPhasedTestTargetOfEvent(Class in_class) {
-        if (!ConfigValueHandlerPhased.EVENT_TARGET.isSet()) {
-            return false;
-        }
-        return ClassPathParser.elementsCorrespond(in_class,
-                ConfigValueHandlerPhased.EVENT_TARGET.fetchValue());
+        return fetchScenarioMetadata(in_class).isTargetOfEvent(RunConfiguration.fetch().getEventTarget());
     }
 
     /**
@@ -1889,12 +2598,12 @@ public final class PhasedTestManager {
      * @return true if the property MUTATIONAL.EVENTS.TARGET points to the method
      */
     public static boolean isPhasedTestTargetOfEvent(Method in_method) {
-        if (!ConfigValueHandlerPhased.EVENT_TARGET.isSet()) {
+        final String l_eventTarget = RunConfiguration.fetch().getEventTarget();
+        if (l_eventTarget == null) {
             return false;
         }
 
-        return ClassPathParser.elementsCorrespond(in_method,
-                ConfigValueHandlerPhased.EVENT_TARGET.fetchValue());
+        return ClassPathParser.elementsCorrespond(in_method, l_eventTarget);
     }
 
 }
@@ -33,26 +33,7 @@ public enum Phases {
      * @return The phase which is currently being executed
      */
     public static Phases getCurrentPhase() {
-        if (ConfigValueHandlerPhased.PROP_EXECUTION_MODE.isSet()) {
-            ExecutionMode currentExecutionMode = ExecutionMode.getCurrentMode();
-            switch (currentExecutionMode) {
-            case INTERRUPTIVE:
-                if (currentExecutionMode.fetchBehavior().equals("PRODUCER")) {
-                    return PRODUCER;
-                } else {
-                    return CONSUMER;
-                }
-            case NON_INTERRUPTIVE:
-                return ASYNCHRONOUS;
-            case PERMUTATIONAL:
-                return PERMUTATIONAL;
-            default:
-                return NON_PHASED;
-            }
-        }
-
-
-        return fetchCorrespondingPhase(ConfigValueHandlerPhased.PROP_SELECTED_PHASE.fetchValue());
+        return RunConfiguration.fetch().getPhase();
     }
 
     /**
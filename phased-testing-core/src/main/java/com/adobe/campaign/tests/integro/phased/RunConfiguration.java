@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+/**
+ * An immutable snapshot of the run-time configuration of the current suite. The execution mode, its behavior and the
+ * event settings are resolved from the system properties once, and are then read as fields by the decision paths of
+ * the listeners.
+ * <p>
+ * The snapshot is resolved when the suite is altered, or when it is first needed. It is discarded whenever a value is
+ * changed through {@link ConfigValueHandlerPhased}. When system properties are changed directly, the snapshot needs to
+ * be resolved again with {@link #refresh()}.
+ */
+public final class RunConfiguration {
+    private static volatile RunConfiguration current = null;
+
+    private final ExecutionMode executionMode;
+    private final String behavior;
+    private final Phases phase;
+    private final RunValues runValues;
+    private final String event;
+    private final String eventTarget;
+    private final String dataPath;
+
+    private RunConfiguration() {
+        final Phases l_selectedPhase = Phases.fetchCorrespondingPhase(
+                ConfigValueHandlerPhased.PROP_SELECTED_PHASE.resolveValue());
+
+        if (ConfigValueHandlerPhased.PROP_EXECUTION_MODE.isSet()) {
+            final String l_value = ConfigValueHandlerPhased.PROP_EXECUTION_MODE.resolveValue();
+            executionMode = ExecutionMode.fetchCorrespondingMode(l_value);
+            behavior = fetchBehavior(l_value);
+            phase = fetchPhase(executionMode, behavior);
+        } else {
+            executionMode = l_selectedPhase.executionMode;
+            behavior = l_selectedPhase.behavior;
+            phase = l_selectedPhase;
+        }
+        runValues = new RunValues(executionMode, behavior);
+
+        event = ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.isSet()
+                ? ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.resolveValue() : null;
+        eventTarget = ConfigValueHandlerPhased.EVENT_TARGET.isSet()
+                ? ConfigValueHandlerPhased.EVENT_TARGET.resolveValue() : null;
+        dataPath = ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.isSet()
+                ? ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.resolveValue() : null;
+    }
+
+    /**
+     * Extracts the behavior from an execution mode value. I.e. CONSUMER in INTERRUPTIVE(CONSUMER)
+     *
+     * @param in_executionModeValue The value of the property MUTATIONAL.EXECUTION.MODE
+     * @return The behavior between the parenthesis. An empty string if there is none
+     */
+    private static String fetchBehavior(String in_executionModeValue) {
+        int l_startIndex = in_executionModeValue.indexOf("(");
+        int l_endIndex = in_executionModeValue.indexOf(")");
+
+        if (l_startIndex != -1 && l_endIndex != -1) {
+            return in_executionModeValue.substring(l_startIndex + 1, l_endIndex);
+        }
+        return "";
+    }
+
+    private static Phases fetchPhase(ExecutionMode in_executionMode, String in_behavior) {
+        switch (in_executionMode) {
+        case INTERRUPTIVE:
+            return in_behavior.equals("PRODUCER") ? Phases.PRODUCER : Phases.CONSUMER;
+        case NON_INTERRUPTIVE:
+            return Phases.ASYNCHRONOUS;
+        case PERMUTATIONAL:
+            return Phases.PERMUTATIONAL;
+        default:
+            return Phases.NON_PHASED;
+        }
+    }
+
+    /**
+     * Returns the configuration of the current run. It is resolved if it has not yet been resolved since the last
+     * change.
+     *
+     * @return The current run configuration
+     */
+    public static RunConfiguration fetch() {
+        RunConfiguration lr_configuration = current;
+        if (lr_configuration == null) {
+            lr_configuration = new RunConfiguration();
+            current = lr_configuration;
+        }
+        return lr_configuration;
+    }
+
+    /**
+     * Resolves the configuration of the current run from the system properties. This is done at the start of each
+     * suite.
+     *
+     * @return The newly resolved run configuration
+     */
+    public static RunConfiguration refresh() {
+        final RunConfiguration lr_configuration = new RunConfiguration();
+        current = lr_configuration;
+        return lr_configuration;
+    }
+
+    /**
+     * Discards the current snapshot, so that it is resolved again when it is next needed
+     */
+    static void invalidate() {
+        current = null;
+    }
+
+    /**
+     * @return The execution mode of the current run
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * @return The behavior of the execution mode. I.e. PRODUCER or CONSUMER. Empty if the mode has no behavior
+     */
+    public String getBehavior() {
+        return behavior;
+    }
+
+    /**
+     * @return The legacy phase corresponding to the execution mode
+     */
+    public Phases getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return The execution mode and its behavior, as passed to the methods computing the steps to execute
+     */
+    public RunValues getRunValues() {
+        return runValues;
+    }
+
+    /**
+     * @return The non-interruptive event set at run-time. Null if none is set
+     */
+    public String getEvent() {
+        return event;
+    }
+
+    /**
+     * @return The step targeted by the event set at run-time. Null if none is set
+     */
+    public String getEventTarget() {
+        return eventTarget;
+    }
+
+    /**
+     * @return The path of the Phased Data file set at run-time. Null if none is set
+     */
+    public String getDataPath() {
+        return dataPath;
+    }
+
+    @Override
+    public String toString() {
+        return runValues.toString();
+    }
+}
@@ -11,8 +11,8 @@ package com.adobe.campaign.tests.integro.phased;
 import java.util.Objects;
 
 public class RunValues {
-    private ExecutionMode executionMode;
-    private String behavior;
+    private final ExecutionMode executionMode;
+    private final String behavior;
 
     RunValues(ExecutionMode executionMode, String behavior) {
         this.executionMode = executionMode;
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.spi.MutationMode;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioIndex;
+import com.adobe.campaign.tests.integro.phased.utils.ClassPathParser;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The phased characteristics of a scenario class. They are computed once per class, instead of being looked up with
+ * reflection each time a step is examined. The metadata of a class is held by a {@link ClassValue} in
+ * {@link PhasedTestManager}, and is discarded when a {@link MutationMode} is registered.
+ * <p>
+ * The characteristics that depend on the event target of the current run are computed again when the target changes.
+ * Whether a method is a phased step is decided by the registered mutation modes for each method. The decision is
+ * kept here the first time a method is examined. When the class is in the {@link ScenarioIndex}, the steps carrying a
+ * {@link PhaseEvent} are read from the index instead of being looked up with reflection.
+ */
+final class ScenarioClassMetadata {
+    private final Class<?> scenarioClass;
+    private final MutationMode mutationMode;
+    private final boolean phasedTest;
+    private final boolean withEvent;
+    private final boolean canShuffle;
+    private final List<String> eventClasses;
+    private final Map<Method, Boolean> phasedSteps = new ConcurrentHashMap<>();
+
+    private volatile List<Method> steps = null;
+    private volatile TargetMatch targetMatch = null;
+    private volatile ModeFlags modeFlags = null;
+
+    ScenarioClassMetadata(Class<?> in_scenarioClass, MutationMode in_mutationMode, boolean in_phasedTest) {
+        scenarioClass = in_scenarioClass;
+        mutationMode = in_mutationMode;
+        phasedTest = in_phasedTest;
+        withEvent = ScenarioIndex.isIndexed(in_scenarioClass) ? !ScenarioIndex.fetchEventSteps(in_scenarioClass)
+                .isEmpty() : Arrays.stream(in_scenarioClass.getDeclaredMethods())
+                .anyMatch(m -> m.isAnnotationPresent(PhaseEvent.class));
+
+        final PhasedTest l_annotation = in_scenarioClass.getAnnotation(PhasedTest.class);
+        canShuffle = l_annotation != null && l_annotation.canShuffle();
+
+        final PhasedTest l_declaredAnnotation = in_scenarioClass.getDeclaredAnnotation(PhasedTest.class);
+        eventClasses = l_declaredAnnotation == null ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(l_declaredAnnotation.eventClasses()));
+    }
+
+    /**
+     * @return The mutation mode governing the class. The built-in mode if no registered mode applies to it
+     */
+    MutationMode getMutationMode() {
+        return mutationMode;
+    }
+
+    /**
+     * @return true if one of the registered mutation modes applies to the class
+     */
+    boolean isPhasedTest() {
+        return phasedTest;
+    }
+
+    /**
+     * Lets us know if the given method of the class is a phased step. The registered mutation modes are asked the
+     * first time the method is examined.
+     *
+     * @param in_method A method declared by the class
+     * @return true if one of the registered mutation modes applies to the method
+     */
+    boolean isPhasedStep(Method in_method) {
+        return phasedSteps.computeIfAbsent(in_method, PhasedTestManager::isAppliedToByMutationMode);
+    }
+
+    /**
+     * @return true if one of the steps declared in the class has the annotation {@link PhaseEvent}. For an indexed
+     * class, the answer comes from the {@link ScenarioIndex}
+     */
+    boolean isWithEvent() {
+        return withEvent;
+    }
+
+    /**
+     * @return The value of the attribute canShuffle of the {@link PhasedTest} annotation. False if the class is not
+     * annotated
+     */
+    boolean canShuffle() {
+        return canShuffle;
+    }
+
+    /**
+     * @return The event classes declared on the {@link PhasedTest} annotation of the class
+     */
+    List<String> getEventClasses() {
+        return eventClasses;
+    }
+
+    /**
+     * Returns the public phased steps of the class, sorted by name. They are listed the first time they are needed.
+     *
+     * @return The steps of the scenario
+     */
+    List<Method> getSteps() {
+        List<Method> lr_steps = steps;
+        if (lr_steps == null) {
+            lr_steps = Collections.unmodifiableList(Arrays.stream(scenarioClass.getMethods())
+                    .filter(PhasedTestManager::isPhasedTest)
+                    .sorted(Comparator.comparing(Method::getName)).collect(Collectors.toList()));
+            steps = lr_steps;
+        }
+        return lr_steps;
+    }
+
+    /**
+     * Lets us know if the event target of the current run points to this class
+     *
+     * @param in_eventTarget The event target of the current run. May be null
+     * @return true if the event target is set and points to this class
+     */
+    boolean isTargetOfEvent(String in_eventTarget) {
+        if (in_eventTarget == null) {
+            return false;
+        }
+
+        TargetMatch l_match = targetMatch;
+        if (l_match == null || !l_match.eventTarget.equals(in_eventTarget)) {
+            l_match = new TargetMatch(in_eventTarget, ClassPathParser.elementsCorrespond(scenarioClass, in_eventTarget));
+            targetMatch = l_match;
+        }
+        return l_match.matches;
+    }
+
+    /**
+     * @param in_eventTarget The event target of the current run. May be null
+     * @return true if the class is a SingleRun scenario under its mutation mode
+     */
+    boolean isSingleMode(String in_eventTarget) {
+        return fetchModeFlags(in_eventTarget).singleMode;
+    }
+
+    /**
+     * @param in_eventTarget The event target of the current run. May be null
+     * @return true if the class is a Shuffled scenario under its mutation mode
+     */
+    boolean isShuffleMode(String in_eventTarget) {
+        return fetchModeFlags(in_eventTarget).shuffleMode;
+    }
+
+    private ModeFlags fetchModeFlags(String in_eventTarget) {
+        ModeFlags l_flags = modeFlags;
+        if (l_flags == null || !Objects.equals(l_flags.eventTarget, in_eventTarget)) {
+            l_flags = new ModeFlags(in_eventTarget, mutationMode.isSingleMode(scenarioClass),
+                    mutationMode.isShuffleMode(scenarioClass));
+            modeFlags = l_flags;
+        }
+        return l_flags;
+    }
+
+    private static final class TargetMatch {
+        private final String eventTarget;
+        private final boolean matches;
+
+        private TargetMatch(String in_eventTarget, boolean in_matches) {
+            eventTarget = in_eventTarget;
+            matches = in_matches;
+        }
+    }
+
+    private static final class ModeFlags {
+        private final String eventTarget;
+        private final boolean singleMode;
+        private final boolean shuffleMode;
+
+        private ModeFlags(String in_eventTarget, boolean in_singleMode, boolean in_shuffleMode) {
+            eventTarget = in_eventTarget;
+            singleMode = in_singleMode;
+            shuffleMode = in_shuffleMode;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.utils.CallerIdentity;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The key under which a step produces or consumes a value in the phase cache. A key is made of the scenario class,
+ * an optional step, the phase group, and an optional storage key.
+ * <p>
+ * Step keys are interned per call site and phase group, so that the key of a value is only assembled the first time
+ * a step produces or consumes it. The identity of the key, as stored in the phase cache, and its hash are computed
+ * when the key is created. The keys of a scenario are dropped once the scenario has finished. As scenarios are not
+ * always known to finish, the number of interned keys is also bounded by {@value #MAX_INTERNED_KEYS}. When the
+ * bound is reached, the keys of the scenarios that were interned first are dropped, until the number of keys is back
+ * under the bound. Dropped keys are interned again if they are used again.
+ */
+final class StepKey {
+    private static final Object NO_PHASE_GROUP = new Object();
+
+    static final int MAX_INTERNED_KEYS = 10000;
+
+    private static final AtomicInteger nrOfInternedKeys = new AtomicInteger();
+
+    /**
+     * The keys of values produced with a storage key, per call site, phase group and storage key
+     */
+    private static final Map<CallerIdentity, Map<Object, Map<String, StepKey>>> STORAGE_KEYS =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The keys of values produced in a step, per call site, phase group and step name
+     */
+    private static final Map<CallerIdentity, Map<Object, Map<String, StepKey>>> STEP_KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * The keys of each call site and phase group, in the order in which they were first interned
+     */
+    private static final Queue<InternedGroup> INTERNED_GROUPS = new ConcurrentLinkedQueue<>();
+
+    private final String className;
+    private final String stepName;
+    private final String phaseGroup;
+    private final String storageKey;
+    private final String identity;
+    private final int hash;
+
+    StepKey(String in_className, String in_stepName, String in_phaseGroup, String in_storageKey) {
+        className = in_className;
+        stepName = in_stepName;
+        phaseGroup = in_phaseGroup;
+        storageKey = (in_storageKey == null || in_storageKey.trim().isEmpty()) ? null : in_storageKey;
+
+        StringBuilder sb = new StringBuilder(className);
+        if (stepName != null) {
+            sb.append('.').append(stepName);
+        }
+        if (phaseGroup != null) {
+            sb.append('(').append(phaseGroup).append(')');
+        }
+        if (storageKey != null) {
+            sb.append(PhasedTestManager.STD_KEY_CLASS_SEPARATOR).append(storageKey);
+        }
+        identity = sb.toString();
+        hash = identity.hashCode();
+    }
+
+    /**
+     * Returns the key of a value produced or consumed with a storage key. Such keys start with the name of the class.
+     *
+     * @param in_caller     The step producing or consuming the value
+     * @param in_phaseGroup The phase group of the step. May be null
+     * @param in_storageKey The storage key given by the step
+     * @return The interned key
+     */
+    static StepKey fetchStorageKey(CallerIdentity in_caller, String in_phaseGroup, String in_storageKey) {
+        return intern(STORAGE_KEYS, in_caller, in_phaseGroup, in_storageKey == null ? "" : in_storageKey,
+                k -> new StepKey(in_caller.getClassName(), null, in_phaseGroup, in_storageKey));
+    }
+
+    /**
+     * Returns the key of a value produced by a step with {@link PhasedTestManager#produceInStep(String)}. Such keys
+     * start with the full name of the step.
+     *
+     * @param in_caller     The step producing or consuming the value
+     * @param in_phaseGroup The phase group of the step. May be null
+     * @param in_stepName   The name of the step that produced the value
+     * @return The interned key
+     */
+    static StepKey fetchStepKey(CallerIdentity in_caller, String in_phaseGroup, String in_stepName) {
+        return intern(STEP_KEYS, in_caller, in_phaseGroup, in_stepName,
+                k -> new StepKey(in_caller.getClassName(), in_stepName, in_phaseGroup, null));
+    }
+
+    private static StepKey intern(Map<CallerIdentity, Map<Object, Map<String, StepKey>>> in_keys,
+            CallerIdentity in_caller, String in_phaseGroup, String in_name,
+            Function<String, StepKey> in_keyFactory) {
+        final Map<Object, Map<String, StepKey>> l_callerKeys = in_keys.computeIfAbsent(in_caller,
+                c -> new ConcurrentHashMap<>());
+        final StepKey lr_key = l_callerKeys.computeIfAbsent(in_phaseGroup == null ? NO_PHASE_GROUP : in_phaseGroup,
+                g -> {
+                    final Map<String, StepKey> lt_groupKeys = new ConcurrentHashMap<>();
+                    INTERNED_GROUPS.add(new InternedGroup(l_callerKeys, g, lt_groupKeys));
+                    return lt_groupKeys;
+                }).computeIfAbsent(in_name, k -> {
+                    nrOfInternedKeys.incrementAndGet();
+                    return in_keyFactory.apply(k);
+                });
+
+        while (nrOfInternedKeys.get() > MAX_INTERNED_KEYS) {
+            final InternedGroup lt_oldestGroup = INTERNED_GROUPS.poll();
+            if (lt_oldestGroup == null) {
+                break;
+            }
+            lt_oldestGroup.release();
+        }
+        return lr_key;
+    }
+
+    /**
+     * Removes all the interned keys. This is done when the phase cache is cleared.
+     */
+    static void clearInternedKeys() {
+        STORAGE_KEYS.clear();
+        STEP_KEYS.clear();
+        INTERNED_GROUPS.clear();
+        nrOfInternedKeys.set(0);
+    }
+
+    /**
+     * Removes the interned keys of a scenario. This is done once the scenario has finished.
+     *
+     * @param in_scenarioName The name of the scenario, made of the name of its class and of its phase group
+     */
+    static void releaseInternedKeys(String in_scenarioName) {
+        releaseInternedKeys(STORAGE_KEYS, in_scenarioName);
+        releaseInternedKeys(STEP_KEYS, in_scenarioName);
+    }
+
+    private static void releaseInternedKeys(Map<CallerIdentity, Map<Object, Map<String, StepKey>>> in_keys,
+            String in_scenarioName) {
+        in_keys.forEach((lt_caller, lt_phaseGroupKeys) -> {
+            if (!in_scenarioName.startsWith(lt_caller.getClassName())) {
+                return;
+            }
+            lt_phaseGroupKeys.keySet().removeIf(g -> {
+                final String lt_scenarioName = g == NO_PHASE_GROUP ? lt_caller.getClassName()
+                        : lt_caller.getClassName() + "(" + g + ")";
+                if (!lt_scenarioName.equals(in_scenarioName)) {
+                    return false;
+                }
+                final Map<String, StepKey> lt_keys = lt_phaseGroupKeys.get(g);
+                nrOfInternedKeys.addAndGet(-(lt_keys == null ? 0 : lt_keys.size()));
+                INTERNED_GROUPS.removeIf(i -> i.keys == lt_keys);
+                return true;
+            });
+        });
+    }
+
+    /**
+     * @return The number of keys currently interned
+     */
+    static int countInternedKeys() {
+        return nrOfInternedKeys.get();
+    }
+
+    String getClassName() {
+        return className;
+    }
+
+    String getStepName() {
+        return stepName;
+    }
+
+    String getPhaseGroup() {
+        return phaseGroup;
+    }
+
+    String getStorageKey() {
+        return storageKey;
+    }
+
+    /**
+     * @return The identity of the key, as stored in the phase cache
+     */
+    String getIdentity() {
+        return identity;
+    }
+
+    @Override
+    public boolean equals(Object in_object) {
+        if (this == in_object) {
+            return true;
+        }
+        if (!(in_object instanceof StepKey)) {
+            return false;
+        }
+        StepKey l_other = (StepKey) in_object;
+        return hash == l_other.hash && className.equals(l_other.className) && Objects.equals(stepName,
+                l_other.stepName) && Objects.equals(phaseGroup, l_other.phaseGroup) && Objects.equals(storageKey,
+                l_other.storageKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return identity;
+    }
+
+    /**
+     * The keys interned for a call site and a phase group
+     */
+    private static final class InternedGroup {
+        private final Map<Object, Map<String, StepKey>> callerKeys;
+        private final Object phaseGroup;
+        private final Map<String, StepKey> keys;
+
+        private InternedGroup(Map<Object, Map<String, StepKey>> in_callerKeys, Object in_phaseGroup,
+                Map<String, StepKey> in_keys) {
+            callerKeys = in_callerKeys;
+            phaseGroup = in_phaseGroup;
+            keys = in_keys;
+        }
+
+        /**
+         * Drops the keys of the group, unless they were already released
+         */
+        private void release() {
+            if (callerKeys.remove(phaseGroup, keys)) {
+                nrOfInternedKeys.addAndGet(-keys.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.spi;
+
+/**
+ * Encodes and decodes values of a given type, so that they can be produced and consumed by phased steps without
+ * being converted to strings. Codecs for strings, primitives and byte arrays are provided by the framework. Codecs
+ * for other types can be registered with {@code PhasedDataCodecs.register}, or declared in
+ * {@code META-INF/services/com.adobe.campaign.tests.integro.phased.spi.PhasedDataCodec}.
+ * <p>
+ * The name of the type is stored with the encoded value, so a codec should keep decoding what it has encoded in a
+ * previous phase.
+ *
+ * @param <T> The type of values handled by this codec
+ */
+public interface PhasedDataCodec<T> {
+
+    /**
+     * @return The type of values handled by this codec
+     */
+    Class<T> getType();
+
+    /**
+     * Encodes the given value
+     *
+     * @param in_value A value to encode. Never null
+     * @return The encoded value
+     */
+    byte[] encode(T in_value);
+
+    /**
+     * Decodes the given bytes
+     *
+     * @param in_encodedValue bytes that were produced by {@link #encode(Object)}
+     * @return The decoded value
+     */
+    T decode(byte[] in_encodedValue);
+}
@@ -0,0 +1,792 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Extracts the dependencies of a scenario from its compiled class. The class file is read from the class path, so the
+ * sources are not needed, and the scenario can be in a jar.
+ * <p>
+ * The extractor looks for the invocations of {@link PhasedTestManager} produce, produceInStep, consume and
+ * consumeFromStep. The key is the first argument of the invocation, when it is a constant string. As the operand stack
+ * is followed from instruction to instruction, the key is found even when the other arguments are computed, and
+ * constants declared in fields are resolved to their values. Calls made in a lambda are attributed to the step
+ * declaring the lambda. The lines are read from the LineNumberTable, and a step is located at the first line of its
+ * code. When a key is computed at run-time, it cannot be resolved from the class file, and the extraction is abandoned
+ * so that the source of the scenario is parsed instead.
+ */
+final class BytecodeDependencyExtractor {
+    private static final Logger log = LogManager.getLogger();
+    private static final String MANAGER_CLASS = PhasedTestManager.class.getTypeName().replace('.', '/');
+    private static final Set<String> PRODUCE_METHODS = new HashSet<>(Arrays.asList("produce", "produceInStep"));
+    private static final Set<String> CONSUME_METHODS = new HashSet<>(Arrays.asList("consume", "consumeFromStep"));
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_BRIDGE = 0x0040;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int TAG_UTF8 = 1;
+    private static final int TAG_INTEGER = 3;
+    private static final int TAG_FLOAT = 4;
+    private static final int TAG_LONG = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_CLASS = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_FIELD_REF = 9;
+    private static final int TAG_METHOD_REF = 10;
+    private static final int TAG_INTERFACE_METHOD_REF = 11;
+    private static final int TAG_NAME_AND_TYPE = 12;
+    private static final int TAG_METHOD_HANDLE = 15;
+    private static final int TAG_METHOD_TYPE = 16;
+    private static final int TAG_DYNAMIC = 17;
+    private static final int TAG_INVOKE_DYNAMIC = 18;
+    private static final int TAG_MODULE = 19;
+    private static final int TAG_PACKAGE = 20;
+
+    private BytecodeDependencyExtractor() {
+    }
+
+    /**
+     * Reads the class file of the given class from its class loader
+     *
+     * @param in_class A scenario class
+     * @return The content of the class file, or an empty optional if it cannot be found
+     */
+    static Optional<byte[]> fetchClassBytes(Class<?> in_class) {
+        final ClassLoader l_classLoader = in_class.getClassLoader() == null ? ClassLoader.getSystemClassLoader()
+                : in_class.getClassLoader();
+        try (InputStream l_stream = l_classLoader.getResourceAsStream(
+                in_class.getName().replace('.', '/') + ".class")) {
+            if (l_stream == null) {
+                return Optional.empty();
+            }
+            ByteArrayOutputStream l_content = new ByteArrayOutputStream();
+            byte[] l_buffer = new byte[8192];
+            int lt_read;
+            while ((lt_read = l_stream.read(l_buffer)) != -1) {
+                l_content.write(l_buffer, 0, lt_read);
+            }
+            return Optional.of(l_content.toByteArray());
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Extracts the steps of a scenario, and what they produce / consume, from its class file. The steps are the
+     * public methods declared in the class.
+     *
+     * @param in_scenarioName The name of the scenario
+     * @param in_classBytes   The content of the class file of the scenario
+     * @param in_isConfig     Lets us know if a step is a configuration method
+     * @return The dependencies of the scenario, or an empty optional if a produced or consumed key could not be
+     * resolved
+     */
+    static Optional<ScenarioStepDependencies> extract(String in_scenarioName, byte[] in_classBytes,
+            Predicate<String> in_isConfig) {
+        final List<MethodCode> l_methods;
+        try {
+            l_methods = new ClassFileReader(in_classBytes).readMethods();
+        } catch (IOException | RuntimeException e) {
+            throw new PhasedTestConfigurationException(
+                    "The class file of the scenario " + in_scenarioName + " could not be read.", e);
+        }
+
+        ScenarioStepDependencies lr_dependencies = new ScenarioStepDependencies(in_scenarioName);
+
+        for (MethodCode lt_method : l_methods) {
+            if ((lt_method.access & ACC_PUBLIC) == 0 || (lt_method.access & (ACC_SYNTHETIC | ACC_BRIDGE)) != 0
+                    || lt_method.name.startsWith("<") || lt_method.code == null) {
+                continue;
+            }
+            lr_dependencies.getStepDependencies().put(lt_method.name, new StepDependencies(lt_method.name));
+            lr_dependencies.getStep(lt_method.name).setStepLine(lt_method.fetchFirstLine());
+            lr_dependencies.getStep(lt_method.name).setConfigMethod(in_isConfig.test(lt_method.name));
+        }
+
+        for (MethodCode lt_method : l_methods) {
+            final String lt_stepName = fetchStepName(lt_method);
+            if (lt_method.code == null || lt_stepName == null
+                    || !lr_dependencies.getStepDependencies().containsKey(lt_stepName)) {
+                continue;
+            }
+
+            for (ManagerCall lt_call : lt_method.calls) {
+                if (PRODUCE_METHODS.contains(lt_call.methodName)) {
+                    final String lt_key = lt_call.methodName.equals("produceInStep") ? lt_stepName : lt_call.key;
+                    if (lt_key == null) {
+                        logUnresolvedKey(in_scenarioName, lt_stepName, lt_call);
+                        return Optional.empty();
+                    }
+                    lr_dependencies.putProduce(lt_stepName, lt_key, lt_call.line);
+                } else if (lt_call.key != null) {
+                    lr_dependencies.putConsume(lt_stepName, lt_call.key, lt_call.line);
+                } else {
+                    logUnresolvedKey(in_scenarioName, lt_stepName, lt_call);
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(lr_dependencies);
+    }
+
+    private static void logUnresolvedKey(String in_scenarioName, String in_stepName, ManagerCall in_call) {
+        log.warn("{} The key passed to {} in the step {} of {}, at line {}, is computed at run-time, and cannot be "
+                        + "read from the class file. The source of the scenario is parsed instead.",
+                PhasedTestManager.PHASED_TEST_LOG_PREFIX, in_call.methodName, in_stepName, in_scenarioName,
+                in_call.line);
+    }
+
+    /**
+     * Returns the step to which the calls of a method belong. The synthetic methods of lambdas are named
+     * lambda$step$N by javac.
+     */
+    private static String fetchStepName(MethodCode in_method) {
+        if ((in_method.access & ACC_SYNTHETIC) == 0) {
+            return in_method.name;
+        }
+        if (in_method.name.startsWith("lambda$")) {
+            final int l_end = in_method.name.lastIndexOf('$');
+            return l_end > "lambda$".length() ? in_method.name.substring("lambda$".length(), l_end) : null;
+        }
+        return null;
+    }
+
+    /**
+     * The code of a method, with the calls to {@link PhasedTestManager} found in it
+     */
+    private static final class MethodCode {
+        private final int access;
+        private final String name;
+        private byte[] code = null;
+        private final SortedMap<Integer, Integer> lines = new TreeMap<>();
+        private final List<ManagerCall> calls = new ArrayList<>();
+
+        private MethodCode(int in_access, String in_name) {
+            access = in_access;
+            name = in_name;
+        }
+
+        private int fetchFirstLine() {
+            return lines.values().stream().min(Integer::compare).orElse(StepDependencies.DEFAULT_LINE_LOCATION);
+        }
+
+        private int fetchLine(int in_pc) {
+            final SortedMap<Integer, Integer> l_before = lines.headMap(in_pc + 1);
+            return l_before.isEmpty() ? fetchFirstLine() : l_before.get(l_before.lastKey());
+        }
+    }
+
+    private static final class ManagerCall {
+        private final String methodName;
+        private final String key;
+        private final int line;
+
+        private ManagerCall(String in_methodName, String in_key, int in_line) {
+            methodName = in_methodName;
+            key = in_key;
+            line = in_line;
+        }
+    }
+
+    /**
+     * A value on the operand stack. Only the constant strings are known. Long and double values take two slots.
+     */
+    private static final class StackValue {
+        private static final StackValue UNKNOWN = new StackValue(null, false);
+        private static final StackValue UNKNOWN_WIDE = new StackValue(null, true);
+
+        private final String constant;
+        private final boolean wide;
+
+        private StackValue(String in_constant, boolean in_wide) {
+            constant = in_constant;
+            wide = in_wide;
+        }
+
+        private int slots() {
+            return wide ? 2 : 1;
+        }
+
+        private static StackValue of(char in_type) {
+            return in_type == 'J' || in_type == 'D' ? UNKNOWN_WIDE : UNKNOWN;
+        }
+    }
+
+    /**
+     * A minimal reader of the class file format. It reads the constant pool, and the Code and LineNumberTable
+     * attributes of the methods.
+     */
+    private static final class ClassFileReader {
+        private final DataInputStream input;
+        private Object[] constants;
+        private int[] tags;
+
+        private ClassFileReader(byte[] in_classBytes) {
+            input = new DataInputStream(new ByteArrayInputStream(in_classBytes));
+        }
+
+        private List<MethodCode> readMethods() throws IOException {
+            if (input.readInt() != 0xCAFEBABE) {
+                throw new IOException("The content is not a class file.");
+            }
+            input.readUnsignedShort();
+            input.readUnsignedShort();
+            readConstantPool();
+
+            input.readUnsignedShort();
+            input.readUnsignedShort();
+            input.readUnsignedShort();
+            skipFully(2 * input.readUnsignedShort());
+
+            final int l_nrOfFields = input.readUnsignedShort();
+            for (int i = 0; i < l_nrOfFields; i++) {
+                skipFully(6);
+                skipAttributes();
+            }
+
+            final int l_nrOfMethods = input.readUnsignedShort();
+            List<MethodCode> lr_methods = new ArrayList<>(l_nrOfMethods);
+            for (int i = 0; i < l_nrOfMethods; i++) {
+                final int lt_access = input.readUnsignedShort();
+                final MethodCode lt_method = new MethodCode(lt_access, utf8(input.readUnsignedShort()));
+                input.readUnsignedShort();
+                final int lt_nrOfAttributes = input.readUnsignedShort();
+                for (int a = 0; a < lt_nrOfAttributes; a++) {
+                    final String lt_attributeName = utf8(input.readUnsignedShort());
+                    final int lt_length = input.readInt();
+                    if (lt_attributeName.equals("Code")) {
+                        readCode(lt_method);
+                    } else {
+                        skipFully(lt_length);
+                    }
+                }
+                if (lt_method.code != null) {
+                    new CodeScanner(this, lt_method).scan();
+                }
+                lr_methods.add(lt_method);
+            }
+            return lr_methods;
+        }
+
+        private void readConstantPool() throws IOException {
+            final int l_count = input.readUnsignedShort();
+            constants = new Object[l_count];
+            tags = new int[l_count];
+            for (int i = 1; i < l_count; i++) {
+                tags[i] = input.readUnsignedByte();
+                switch (tags[i]) {
+                case TAG_UTF8:
+                    constants[i] = input.readUTF();
+                    break;
+                case TAG_INTEGER:
+                case TAG_FLOAT:
+                    input.readInt();
+                    break;
+                case TAG_LONG:
+                case TAG_DOUBLE:
+                    input.readLong();
+                    i++;
+                    break;
+                case TAG_CLASS:
+                case TAG_STRING:
+                case TAG_METHOD_TYPE:
+                case TAG_MODULE:
+                case TAG_PACKAGE:
+                    constants[i] = input.readUnsignedShort();
+                    break;
+                case TAG_FIELD_REF:
+                case TAG_METHOD_REF:
+                case TAG_INTERFACE_METHOD_REF:
+                case TAG_NAME_AND_TYPE:
+                case TAG_DYNAMIC:
+                case TAG_INVOKE_DYNAMIC:
+                    constants[i] = new int[] { input.readUnsignedShort(), input.readUnsignedShort() };
+                    break;
+                case TAG_METHOD_HANDLE:
+                    input.readUnsignedByte();
+                    constants[i] = input.readUnsignedShort();
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tags[i] + " at index " + i + ".");
+                }
+            }
+        }
+
+        private void readCode(MethodCode in_method) throws IOException {
+            input.readUnsignedShort();
+            input.readUnsignedShort();
+            in_method.code = new byte[input.readInt()];
+            input.readFully(in_method.code);
+            skipFully(8 * input.readUnsignedShort());
+
+            final int l_nrOfAttributes = input.readUnsignedShort();
+            for (int a = 0; a < l_nrOfAttributes; a++) {
+                final String lt_attributeName = utf8(input.readUnsignedShort());
+                final int lt_length = input.readInt();
+                if (lt_attributeName.equals("LineNumberTable")) {
+                    final int lt_nrOfLines = input.readUnsignedShort();
+                    for (int l = 0; l < lt_nrOfLines; l++) {
+                        final int lt_pc = input.readUnsignedShort();
+                        in_method.lines.putIfAbsent(lt_pc, input.readUnsignedShort());
+                    }
+                } else {
+                    skipFully(lt_length);
+                }
+            }
+        }
+
+        private void skipAttributes() throws IOException {
+            final int l_nrOfAttributes = input.readUnsignedShort();
+            for (int a = 0; a < l_nrOfAttributes; a++) {
+                input.readUnsignedShort();
+                skipFully(input.readInt());
+            }
+        }
+
+        private void skipFully(int in_nrOfBytes) throws IOException {
+            if (input.skipBytes(in_nrOfBytes) != in_nrOfBytes) {
+                throw new IOException("The class file is truncated.");
+            }
+        }
+
+        private String utf8(int in_index) {
+            return (String) constants[in_index];
+        }
+
+        /**
+         * @return The string of a CONSTANT_String entry, or null if the entry is another constant
+         */
+        private String fetchString(int in_index) {
+            return tags[in_index] == TAG_STRING ? utf8((Integer) constants[in_index]) : null;
+        }
+
+        /**
+         * @return The owner, the name and the descriptor of a field or method reference, or of an invokedynamic
+         * entry, in which case the owner is null
+         */
+        private String[] fetchReference(int in_index) {
+            final int[] l_reference = (int[]) constants[in_index];
+            final int[] l_nameAndType = (int[]) constants[l_reference[1]];
+            final String l_owner = tags[in_index] == TAG_INVOKE_DYNAMIC || tags[in_index] == TAG_DYNAMIC ? null
+                    : utf8((Integer) constants[l_reference[0]]);
+            return new String[] { l_owner, utf8(l_nameAndType[0]), utf8(l_nameAndType[1]) };
+        }
+    }
+
+    /**
+     * Follows the operand stack through the instructions of a method, and records the calls to
+     * {@link PhasedTestManager}. The stack of the instructions reached through a jump is recorded when the jump is
+     * found. When an instruction cannot be reached from the previous one, and no jump to it has been seen, the stack
+     * is unknown until the next recorded instruction.
+     */
+    private static final class CodeScanner {
+        private final ClassFileReader reader;
+        private final MethodCode method;
+        private final byte[] code;
+        private final Map<Integer, List<StackValue>> jumpStacks = new HashMap<>();
+        private List<StackValue> stack = new ArrayList<>();
+
+        private CodeScanner(ClassFileReader in_reader, MethodCode in_method) {
+            reader = in_reader;
+            method = in_method;
+            code = in_method.code;
+        }
+
+        private int u1(int in_pc) {
+            return code[in_pc] & 0xFF;
+        }
+
+        private int u2(int in_pc) {
+            return (u1(in_pc) << 8) | u1(in_pc + 1);
+        }
+
+        private int s2(int in_pc) {
+            return (short) u2(in_pc);
+        }
+
+        private int s4(int in_pc) {
+            return (u2(in_pc) << 16) | u2(in_pc + 2);
+        }
+
+        private void scan() {
+            boolean l_fallsThrough = true;
+            int pc = 0;
+            while (pc < code.length) {
+                if (!l_fallsThrough || jumpStacks.containsKey(pc)) {
+                    final List<StackValue> lt_jumpStack = jumpStacks.get(pc);
+                    if (!l_fallsThrough) {
+                        stack = lt_jumpStack == null ? null : new ArrayList<>(lt_jumpStack);
+                    } else if (stack == null && lt_jumpStack != null) {
+                        stack = new ArrayList<>(lt_jumpStack);
+                    }
+                }
+                l_fallsThrough = true;
+
+                final int l_opcode = u1(pc);
+                int l_length = 1;
+                switch (l_opcode) {
+                case 0x00: //nop
+                    break;
+                case 0x01: //aconst_null
+                case 0x02: case 0x03: case 0x04: case 0x05: case 0x06: case 0x07: case 0x08: //iconst
+                case 0x0b: case 0x0c: case 0x0d: //fconst
+                case 0x1a: case 0x1b: case 0x1c: case 0x1d: //iload_n
+                case 0x22: case 0x23: case 0x24: case 0x25: //fload_n
+                case 0x2a: case 0x2b: case 0x2c: case 0x2d: //aload_n
+                    push(StackValue.UNKNOWN);
+                    break;
+                case 0x09: case 0x0a: //lconst
+                case 0x0e: case 0x0f: //dconst
+                case 0x1e: case 0x1f: case 0x20: case 0x21: //lload_n
+                case 0x26: case 0x27: case 0x28: case 0x29: //dload_n
+                    push(StackValue.UNKNOWN_WIDE);
+                    break;
+                case 0x10: //bipush
+                    push(StackValue.UNKNOWN);
+                    l_length = 2;
+                    break;
+                case 0x11: //sipush
+                    push(StackValue.UNKNOWN);
+                    l_length = 3;
+                    break;
+                case 0x12: //ldc
+                    push(new StackValue(reader.fetchString(u1(pc + 1)), false));
+                    l_length = 2;
+                    break;
+                case 0x13: //ldc_w
+                    push(new StackValue(reader.fetchString(u2(pc + 1)), false));
+                    l_length = 3;
+                    break;
+                case 0x14: //ldc2_w
+                    push(StackValue.UNKNOWN_WIDE);
+                    l_length = 3;
+                    break;
+                case 0x15: case 0x17: case 0x19: //iload, fload, aload
+                    push(StackValue.UNKNOWN);
+                    l_length = 2;
+                    break;
+                case 0x16: case 0x18: //lload, dload
+                    push(StackValue.UNKNOWN_WIDE);
+                    l_length = 2;
+                    break;
+                case 0x2e: case 0x30: case 0x32: case 0x33: case 0x34: case 0x35: //iaload, faload, aaload...
+                    pop(2);
+                    push(StackValue.UNKNOWN);
+                    break;
+                case 0x2f: case 0x31: //laload, daload
+                    pop(2);
+                    push(StackValue.UNKNOWN_WIDE);
+                    break;
+                case 0x36: case 0x37: case 0x38: case 0x39: case 0x3a: //istore...astore
+                    pop(1);
+                    l_length = 2;
+                    break;
+                case 0x3b: case 0x3c: case 0x3d: case 0x3e: case 0x3f: case 0x40: case 0x41: case 0x42:
+                case 0x43: case 0x44: case 0x45: case 0x46: case 0x47: case 0x48: case 0x49: case 0x4a:
+                case 0x4b: case 0x4c: case 0x4d: case 0x4e: //xstore_n
+                    pop(1);
+                    break;
+                case 0x4f: case 0x50: case 0x51: case 0x52: case 0x53: case 0x54: case 0x55: case 0x56: //xastore
+                    pop(3);
+                    break;
+                case 0x57: //pop
+                    popSlots(1);
+                    break;
+                case 0x58: //pop2
+                    popSlots(2);
+                    break;
+                case 0x59: //dup
+                    duplicate(1, 0);
+                    break;
+                case 0x5a: //dup_x1
+                    duplicate(1, 1);
+                    break;
+                case 0x5b: //dup_x2
+                    duplicate(1, 2);
+                    break;
+                case 0x5c: //dup2
+                    duplicate(2, 0);
+                    break;
+                case 0x5d: //dup2_x1
+                    duplicate(2, 1);
+                    break;
+                case 0x5e: //dup2_x2
+                    duplicate(2, 2);
+                    break;
+                case 0x5f: //swap
+                    duplicate(1, 1);
+                    popSlots(1);
+                    break;
+                case 0x84: //iinc
+                    l_length = 3;
+                    break;
+                case 0x94: case 0x95: case 0x96: case 0x97: case 0x98: //lcmp, fcmpl...
+                    pop(2);
+                    push(StackValue.UNKNOWN);
+                    break;
+                case 0x99: case 0x9a: case 0x9b: case 0x9c: case 0x9d: case 0x9e: //if<cond>
+                case 0xc6: case 0xc7: //ifnull, ifnonnull
+                    pop(1);
+                    recordJump(pc + s2(pc + 1));
+                    l_length = 3;
+                    break;
+                case 0x9f: case 0xa0: case 0xa1: case 0xa2: case 0xa3: case 0xa4: case 0xa5: case 0xa6: //if_xcmp
+                    pop(2);
+                    recordJump(pc + s2(pc + 1));
+                    l_length = 3;
+                    break;
+                case 0xa7: //goto
+                    recordJump(pc + s2(pc + 1));
+                    l_fallsThrough = false;
+                    l_length = 3;
+                    break;
+                case 0xc8: //goto_w
+                    recordJump(pc + s4(pc + 1));
+                    l_fallsThrough = false;
+                    l_length = 5;
+                    break;
+                case 0xa8: //jsr
+                case 0xc9: //jsr_w
+                case 0xa9: //ret
+                    stack = null;
+                    l_length = l_opcode == 0xa8 ? 3 : l_opcode == 0xc9 ? 5 : 2;
+                    break;
+                case 0xaa: { //tableswitch
+                    pop(1);
+                    final int l_base = (pc + 4) & ~3;
+                    final int l_low = s4(l_base + 4);
+                    final int l_high = s4(l_base + 8);
+                    recordJump(pc + s4(l_base));
+                    for (int i = 0; i <= l_high - l_low; i++) {
+                        recordJump(pc + s4(l_base + 12 + 4 * i));
+                    }
+                    l_fallsThrough = false;
+                    l_length = l_base + 12 + 4 * (l_high - l_low + 1) - pc;
+                    break;
+                }
+                case 0xab: { //lookupswitch
+                    pop(1);
+                    final int l_base = (pc + 4) & ~3;
+                    final int l_nrOfPairs = s4(l_base + 4);
+                    recordJump(pc + s4(l_base));
+                    for (int i = 0; i < l_nrOfPairs; i++) {
+                        recordJump(pc + s4(l_base + 12 + 8 * i));
+                    }
+                    l_fallsThrough = false;
+                    l_length = l_base + 8 + 8 * l_nrOfPairs - pc;
+                    break;
+                }
+                case 0xac: case 0xad: case 0xae: case 0xaf: case 0xb0: case 0xb1: //xreturn, return
+                case 0xbf: //athrow
+                    l_fallsThrough = false;
+                    break;
+                case 0xb2: //getstatic
+                    push(StackValue.of(reader.fetchReference(u2(pc + 1))[2].charAt(0)));
+                    l_length = 3;
+                    break;
+                case 0xb3: //putstatic
+                    pop(1);
+                    l_length = 3;
+                    break;
+                case 0xb4: //getfield
+                    pop(1);
+                    push(StackValue.of(reader.fetchReference(u2(pc + 1))[2].charAt(0)));
+                    l_length = 3;
+                    break;
+                case 0xb5: //putfield
+                    pop(2);
+                    l_length = 3;
+                    break;
+                case 0xb6: case 0xb7: case 0xb8: //invokevirtual, invokespecial, invokestatic
+                    invoke(pc, reader.fetchReference(u2(pc + 1)), l_opcode != 0xb8);
+                    l_length = 3;
+                    break;
+                case 0xb9: //invokeinterface
+                    invoke(pc, reader.fetchReference(u2(pc + 1)), true);
+                    l_length = 5;
+                    break;
+                case 0xba: //invokedynamic
+                    invoke(pc, reader.fetchReference(u2(pc + 1)), false);
+                    l_length = 5;
+                    break;
+                case 0xbb: //new
+                    push(StackValue.UNKNOWN);
+                    l_length = 3;
+                    break;
+                case 0xbc: //newarray
+                    pop(1);
+                    push(StackValue.UNKNOWN);
+                    l_length = 2;
+                    break;
+                case 0xbd: //anewarray
+                case 0xc1: //instanceof
+                    pop(1);
+                    push(StackValue.UNKNOWN);
+                    l_length = 3;
+                    break;
+                case 0xbe: //arraylength
+                    pop(1);
+                    push(StackValue.UNKNOWN);
+                    break;
+                case 0xc0: //checkcast keeps the value
+                    l_length = 3;
+                    break;
+                case 0xc2: case 0xc3: //monitorenter, monitorexit
+                    pop(1);
+                    break;
+                case 0xc4: { //wide
+                    final int l_wideOpcode = u1(pc + 1);
+                    if (l_wideOpcode == 0x84) {
+                        l_length = 6;
+                    } else {
+                        if (l_wideOpcode >= 0x15 && l_wideOpcode <= 0x19) {
+                            push(l_wideOpcode == 0x16 || l_wideOpcode == 0x18 ? StackValue.UNKNOWN_WIDE
+                                    : StackValue.UNKNOWN);
+                        } else if (l_wideOpcode >= 0x36 && l_wideOpcode <= 0x3a) {
+                            pop(1);
+                        } else {
+                            stack = null;
+                        }
+                        l_length = 4;
+                    }
+                    break;
+                }
+                case 0xc5: //multianewarray
+                    pop(u1(pc + 3));
+                    push(StackValue.UNKNOWN);
+                    l_length = 4;
+                    break;
+                default:
+                    if (l_opcode >= 0x60 && l_opcode <= 0x73) { //add, sub, mul, div, rem
+                        pop(2);
+                        push((l_opcode & 1) == 1 ? StackValue.UNKNOWN_WIDE : StackValue.UNKNOWN);
+                    } else if (l_opcode >= 0x74 && l_opcode <= 0x77) { //neg
+                        pop(1);
+                        push((l_opcode & 1) == 1 ? StackValue.UNKNOWN_WIDE : StackValue.UNKNOWN);
+                    } else if (l_opcode >= 0x78 && l_opcode <= 0x83) { //shifts and bitwise operations
+                        pop(2);
+                        push((l_opcode & 1) == 1 ? StackValue.UNKNOWN_WIDE : StackValue.UNKNOWN);
+                    } else if (l_opcode >= 0x85 && l_opcode <= 0x93) { //conversions
+                        pop(1);
+                        push(l_opcode == 0x85 || l_opcode == 0x87 || l_opcode == 0x8a || l_opcode == 0x8c
+                                || l_opcode == 0x8d || l_opcode == 0x8f ? StackValue.UNKNOWN_WIDE
+                                : StackValue.UNKNOWN);
+                    } else {
+                        throw new IllegalStateException(
+                                "Unknown opcode " + l_opcode + " at " + pc + " in " + method.name + ".");
+                    }
+                }
+                pc += l_length;
+            }
+        }
+
+        private void invoke(int in_pc, String[] in_reference, boolean in_hasReceiver) {
+            final List<Character> l_argumentTypes = new ArrayList<>();
+            final String l_descriptor = in_reference[2];
+            int i = 1;
+            while (l_descriptor.charAt(i) != ')') {
+                final char lt_type = l_descriptor.charAt(i);
+                l_argumentTypes.add(lt_type);
+                while (l_descriptor.charAt(i) == '[') {
+                    i++;
+                }
+                i = l_descriptor.charAt(i) == 'L' ? l_descriptor.indexOf(';', i) + 1 : i + 1;
+            }
+
+            if (MANAGER_CLASS.equals(in_reference[0]) && (PRODUCE_METHODS.contains(in_reference[1])
+                    || CONSUME_METHODS.contains(in_reference[1]))) {
+                String l_key = null;
+                if (stack != null && stack.size() >= l_argumentTypes.size() && !l_argumentTypes.isEmpty()) {
+                    l_key = stack.get(stack.size() - l_argumentTypes.size()).constant;
+                }
+                method.calls.add(new ManagerCall(in_reference[1], l_key, method.fetchLine(in_pc)));
+            }
+
+            pop(l_argumentTypes.size() + (in_hasReceiver ? 1 : 0));
+            final char l_returnType = l_descriptor.charAt(l_descriptor.indexOf(')') + 1);
+            if (l_returnType != 'V') {
+                push(StackValue.of(l_returnType));
+            }
+        }
+
+        private void recordJump(int in_target) {
+            if (stack != null && in_target > 0) {
+                jumpStacks.putIfAbsent(in_target, new ArrayList<>(stack));
+            }
+        }
+
+        private void push(StackValue in_value) {
+            if (stack != null) {
+                stack.add(in_value);
+            }
+        }
+
+        private void pop(int in_nrOfValues) {
+            if (stack == null) {
+                return;
+            }
+            if (stack.size() < in_nrOfValues) {
+                stack = null;
+                return;
+            }
+            stack.subList(stack.size() - in_nrOfValues, stack.size()).clear();
+        }
+
+        /**
+         * Removes values taking the given number of slots from the top of the stack
+         *
+         * @return The removed values, in stack order. Null if the values do not take exactly that number of slots
+         */
+        private List<StackValue> popSlots(int in_nrOfSlots) {
+            if (stack == null) {
+                return null;
+            }
+            LinkedList<StackValue> lr_values = new LinkedList<>();
+            int l_slots = 0;
+            while (l_slots < in_nrOfSlots && !stack.isEmpty()) {
+                final StackValue lt_value = stack.remove(stack.size() - 1);
+                lr_values.addFirst(lt_value);
+                l_slots += lt_value.slots();
+            }
+            if (l_slots != in_nrOfSlots) {
+                stack = null;
+                return null;
+            }
+            return lr_values;
+        }
+
+        /**
+         * Implements the dup instructions. The values taking the given number of slots at the top of the stack are
+         * copied below the values taking the given number of slots under them.
+         */
+        private void duplicate(int in_copiedSlots, int in_skippedSlots) {
+            final List<StackValue> l_copied = popSlots(in_copiedSlots);
+            final List<StackValue> l_skipped = popSlots(in_skippedSlots);
+            if (stack == null) {
+                return;
+            }
+            stack.addAll(l_copied);
+            stack.addAll(l_skipped);
+            stack.addAll(l_copied);
+        }
+    }
+}
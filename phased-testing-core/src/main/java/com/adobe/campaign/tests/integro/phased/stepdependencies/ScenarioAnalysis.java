@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * The result of analyzing the sources of a set of scenarios. The dependencies of the scenarios are ordered by scenario
+ * name, regardless of the order in which they were analyzed. The time spent on each scenario is kept so that the
+ * slow sources can be identified.
+ */
+public final class ScenarioAnalysis {
+    private final Map<String, ScenarioStepDependencies> dependencies;
+    private final Map<String, Long> analysisTimes;
+    private final int parallelism;
+
+    ScenarioAnalysis(Map<String, ScenarioStepDependencies> in_dependencies, Map<String, Long> in_analysisTimes,
+            int in_parallelism) {
+        dependencies = Collections.unmodifiableMap(in_dependencies);
+        analysisTimes = Collections.unmodifiableMap(in_analysisTimes);
+        parallelism = in_parallelism;
+    }
+
+    /**
+     * @return The dependencies of each scenario, ordered by scenario name
+     */
+    public Map<String, ScenarioStepDependencies> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * @return The time in milliseconds spent analyzing each scenario, ordered by scenario name
+     */
+    public Map<String, Long> getAnalysisTimes() {
+        return analysisTimes;
+    }
+
+    /**
+     * @return The number of scenarios analyzed at the same time
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the scenarios whose analysis took the longest
+     *
+     * @param in_nrOfScenarios The maximum number of scenarios to return
+     * @return The names of the slowest scenarios, the slowest first
+     */
+    public List<String> fetchSlowestScenarios(int in_nrOfScenarios) {
+        return analysisTimes.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(in_nrOfScenarios).map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import com.adobe.campaign.tests.integro.phased.utils.GeneralTestUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A cache of the dependencies parsed from the scenario sources. The dependencies of a scenario are kept with the path,
+ * the modification time, the size and the SHA-256 hash of its source file. A source is only parsed again when its
+ * content has changed.
+ * <p>
+ * The cache is stored in the output directory, under {@value #CACHE_DIR}/{@value #CACHE_FILE}, in the format of the
+ * {@link ScenarioIndex}. Each scenario record is followed by a record {@code F <path> <modified> <size> <hash>}
+ * describing its source. The cache is read the first time a scenario is parsed, and is written when
+ * {@link #persist()} is called by the listeners.
+ */
+public final class ScenarioDependencyCache {
+    private static final Logger log = LogManager.getLogger();
+
+    public static final String CACHE_DIR = "phased_parsing";
+    public static final String CACHE_FILE = "scenario-dependencies.cache";
+    static final String CACHE_HEADER = "#phased-scenario-cache\t1";
+    static final String RECORD_SOURCE = "F";
+
+    private static final Map<String, CachedScenario> scenarios = new ConcurrentHashMap<>();
+    private static volatile boolean loaded = false;
+    private static volatile boolean modified = false;
+
+    private ScenarioDependencyCache() {
+    }
+
+    /**
+     * Returns the dependencies of a scenario. They are parsed from the source file if the file has changed since
+     * they were cached.
+     *
+     * @param in_scenarioName The name of the scenario class
+     * @param in_sourceFile   The source file of the scenario
+     * @param in_parser       Parses the content of the source file
+     * @return The dependencies of the scenario. Each call returns a new object
+     */
+    static ScenarioStepDependencies fetch(String in_scenarioName, File in_sourceFile,
+            Function<byte[], ScenarioStepDependencies> in_parser) {
+        loadIfNeeded();
+
+        final String l_path = in_sourceFile.getAbsolutePath();
+        final long l_modified = in_sourceFile.lastModified();
+        final long l_size = in_sourceFile.length();
+
+        final CachedScenario l_cached = scenarios.get(in_scenarioName);
+        if (l_cached != null && l_cached.isSameFile(l_path, l_modified, l_size)) {
+            return ScenarioIndex.toDependencies(in_scenarioName, l_cached.records);
+        }
+
+        final byte[] l_content;
+        try {
+            l_content = Files.readAllBytes(in_sourceFile.toPath());
+        } catch (IOException e) {
+            throw new PhasedTestConfigurationException(
+                    "The source file " + l_path + " of the scenario " + in_scenarioName + " could not be read.", e);
+        }
+        final String l_hash = hash(l_content);
+
+        if (l_cached != null && l_cached.path.equals(l_path) && l_cached.hash.equals(l_hash)) {
+            scenarios.put(in_scenarioName, new CachedScenario(l_path, l_modified, l_size, l_hash, l_cached.records));
+            modified = true;
+            return ScenarioIndex.toDependencies(in_scenarioName, l_cached.records);
+        }
+
+        final ScenarioStepDependencies lr_dependencies = in_parser.apply(l_content);
+        final List<String[]> l_records = ScenarioIndex.toRecords(lr_dependencies);
+        if (Stream.concat(Stream.of(l_path), l_records.stream().flatMap(Arrays::stream))
+                .noneMatch(f -> f.matches("(?s).*[\t\r\n].*"))) {
+            scenarios.put(in_scenarioName, new CachedScenario(l_path, l_modified, l_size, l_hash, l_records));
+            modified = true;
+        }
+        return lr_dependencies;
+    }
+
+    /**
+     * @return The file in which the cache is stored
+     */
+    public static File fetchCacheFile() {
+        return new File(GeneralTestUtils.fetchCacheDirectory(CACHE_DIR), CACHE_FILE);
+    }
+
+    private static synchronized void loadIfNeeded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+
+        final File l_cacheFile = fetchCacheFile();
+        if (!l_cacheFile.exists()) {
+            return;
+        }
+
+        try (Reader l_reader = Files.newBufferedReader(l_cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, List<String[]>> lt_entry : ScenarioIndex.read(l_reader, CACHE_HEADER)
+                    .entrySet()) {
+                final List<String[]> lt_records = lt_entry.getValue();
+                if (lt_records.isEmpty() || !lt_records.get(0)[0].equals(RECORD_SOURCE)) {
+                    continue;
+                }
+                final String[] lt_source = lt_records.get(0);
+                scenarios.putIfAbsent(lt_entry.getKey(),
+                        new CachedScenario(lt_source[1], Long.parseLong(lt_source[2]), Long.parseLong(lt_source[3]),
+                                lt_source[4], lt_records.subList(1, lt_records.size())));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("The parse cache {} could not be read. The scenario sources will be parsed again.",
+                    l_cacheFile.getPath(), e);
+        }
+    }
+
+    /**
+     * Writes the cache to the output directory, if new dependencies have been parsed since it was last written
+     */
+    public static synchronized void persist() {
+        if (!modified) {
+            return;
+        }
+
+        Map<String, List<String[]>> l_entries = new TreeMap<>();
+        for (Map.Entry<String, CachedScenario> lt_entry : scenarios.entrySet()) {
+            final CachedScenario lt_cached = lt_entry.getValue();
+            List<String[]> lt_records = new ArrayList<>();
+            lt_records.add(new String[] { RECORD_SOURCE, lt_cached.path, Long.toString(lt_cached.modified),
+                    Long.toString(lt_cached.size), lt_cached.hash });
+            lt_records.addAll(lt_cached.records);
+            l_entries.put(lt_entry.getKey(), lt_records);
+        }
+
+        final File l_cacheFile = fetchCacheFile();
+        final File l_tempFile = new File(l_cacheFile.getParentFile(), CACHE_FILE + ".tmp");
+        try {
+            try (Writer l_writer = Files.newBufferedWriter(l_tempFile.toPath(), StandardCharsets.UTF_8)) {
+                ScenarioIndex.write(l_writer, CACHE_HEADER, l_entries);
+            }
+            Files.move(l_tempFile.toPath(), l_cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        } catch (IOException e) {
+            log.warn("The parse cache {} could not be written.", l_cacheFile.getPath(), e);
+        }
+    }
+
+    /**
+     * Discards the cached dependencies held in memory. The cache file is read again when a scenario is next parsed.
+     */
+    public static synchronized void clear() {
+        scenarios.clear();
+        loaded = false;
+        modified = false;
+    }
+
+    /**
+     * @return The number of scenarios in the cache
+     */
+    static int size() {
+        return scenarios.size();
+    }
+
+    private static String hash(byte[] in_content) {
+        try {
+            StringBuilder lr_hash = new StringBuilder();
+            for (byte lt_byte : MessageDigest.getInstance("SHA-256").digest(in_content)) {
+                lr_hash.append(String.format("%02x", lt_byte));
+            }
+            return lr_hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private static final class CachedScenario {
+        private final String path;
+        private final long modified;
+        private final long size;
+        private final String hash;
+        private final List<String[]> records;
+
+        private CachedScenario(String in_path, long in_modified, long in_size, String in_hash,
+                List<String[]> in_records) {
+            path = in_path;
+            modified = in_modified;
+            size = in_size;
+            hash = in_hash;
+            records = in_records;
+        }
+
+        private boolean isSameFile(String in_path, long in_modified, long in_size) {
+            return path.equals(in_path) && modified == in_modified && size == in_size;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The scenario index is generated at compile time by the phased-testing-processor. It contains, for each scenario
+ * class, the steps in their declaration order, their line numbers, the steps that are configuration methods or carry
+ * a {@link com.adobe.campaign.tests.integro.phased.PhaseEvent}, and the keys each step produces and consumes. When a
+ * scenario is indexed, its dependencies are read from the index, and its source file is no longer needed at run-time.
+ * <p>
+ * The index is a UTF-8 text resource stored under {@link #INDEX_RESOURCE}. Each line is a record whose fields are
+ * separated by tabs:
+ * <ul>
+ *     <li>{@code S <scenario class>} starts a scenario</li>
+ *     <li>{@code M <step> <line> <flags>} declares a step. The flags contain {@code C} for a configuration method,
+ *     and {@code E} for a step with an event. {@code -} when there is none</li>
+ *     <li>{@code P <key> <line>} a key produced by the last declared step</li>
+ *     <li>{@code C <key> <line>} a key consumed by the last declared step</li>
+ * </ul>
+ * The first line of the index is {@link #INDEX_HEADER}.
+ */
+public final class ScenarioIndex {
+    private static final Logger log = LogManager.getLogger();
+
+    public static final String INDEX_RESOURCE = "META-INF/phased-testing/scenario-index";
+    public static final String INDEX_HEADER = "#phased-scenario-index\t1";
+    public static final String RECORD_SCENARIO = "S";
+    public static final String RECORD_STEP = "M";
+    public static final String RECORD_PRODUCE = "P";
+    public static final String RECORD_CONSUME = "C";
+    public static final char FLAG_CONFIG = 'C';
+    public static final char FLAG_EVENT = 'E';
+    public static final String NO_FLAGS = "-";
+
+    private static final Map<String, List<String[]>> scenarios = new ConcurrentHashMap<>();
+    private static volatile boolean loaded = false;
+
+    private ScenarioIndex() {
+    }
+
+    /**
+     * Loads the scenario indexes found on the class path of the current thread. The indexes loaded previously are
+     * discarded. This is done at the start of each suite.
+     *
+     * @return The number of indexed scenarios
+     */
+    public static int load() {
+        ClassLoader l_classLoader = Thread.currentThread().getContextClassLoader();
+        return load(l_classLoader == null ? ScenarioIndex.class.getClassLoader() : l_classLoader);
+    }
+
+    /**
+     * Loads the scenario indexes found by the given class loader. The indexes loaded previously are discarded.
+     *
+     * @param in_classLoader The class loader in which we look for the indexes
+     * @return The number of indexed scenarios
+     */
+    public static synchronized int load(ClassLoader in_classLoader) {
+        Map<String, List<String[]>> l_scenarios = new HashMap<>();
+        try {
+            Enumeration<URL> l_resources = in_classLoader.getResources(INDEX_RESOURCE);
+            while (l_resources.hasMoreElements()) {
+                URL lt_resource = l_resources.nextElement();
+                try (InputStream lt_stream = lt_resource.openStream()) {
+                    l_scenarios.putAll(read(new InputStreamReader(lt_stream, StandardCharsets.UTF_8)));
+                }
+                log.debug("Loaded the scenario index {}.", lt_resource);
+            }
+        } catch (IOException e) {
+            throw new PhasedTestConfigurationException("The scenario indexes could not be read.", e);
+        }
+
+        scenarios.clear();
+        scenarios.putAll(l_scenarios);
+        loaded = true;
+        return scenarios.size();
+    }
+
+    /**
+     * Parses an index. The records are grouped by scenario
+     *
+     * @param in_reader A reader on the index
+     * @return A map of the records of each indexed scenario
+     * @throws IOException when the index cannot be read
+     */
+    public static Map<String, List<String[]>> read(Reader in_reader) throws IOException {
+        return read(in_reader, INDEX_HEADER);
+    }
+
+    /**
+     * Parses a file in the format of the index, with the given header
+     *
+     * @param in_reader A reader on the file
+     * @param in_header The expected first line of the file
+     * @return A map of the records of each scenario
+     * @throws IOException when the file cannot be read
+     */
+    static Map<String, List<String[]>> read(Reader in_reader, String in_header) throws IOException {
+        Map<String, List<String[]>> lr_scenarios = new LinkedHashMap<>();
+        BufferedReader l_reader = new BufferedReader(in_reader);
+
+        String l_header = l_reader.readLine();
+        if (l_header == null) {
+            return lr_scenarios;
+        }
+        if (!l_header.equals(in_header)) {
+            throw new PhasedTestConfigurationException(
+                    "The scenario index has an unsupported header " + l_header + ". Expected " + in_header + ".");
+        }
+
+        List<String[]> l_currentRecords = null;
+        String lt_line;
+        while ((lt_line = l_reader.readLine()) != null) {
+            if (lt_line.isEmpty()) {
+                continue;
+            }
+            String[] lt_record = lt_line.split("\t", -1);
+            if (lt_record[0].equals(RECORD_SCENARIO)) {
+                l_currentRecords = new ArrayList<>();
+                lr_scenarios.put(lt_record[1], l_currentRecords);
+            } else if (l_currentRecords == null) {
+                throw new PhasedTestConfigurationException(
+                        "The scenario index has a record outside of a scenario : " + lt_line);
+            } else {
+                l_currentRecords.add(lt_record);
+            }
+        }
+        return lr_scenarios;
+    }
+
+    /**
+     * Writes the records of the given scenarios as an index
+     *
+     * @param in_writer    The writer to which the index is written
+     * @param in_scenarios The records of each scenario
+     * @throws IOException when the index cannot be written
+     */
+    public static void write(Writer in_writer, Map<String, List<String[]>> in_scenarios) throws IOException {
+        write(in_writer, INDEX_HEADER, in_scenarios);
+    }
+
+    /**
+     * Writes the records of the given scenarios in the format of the index, with the given header
+     *
+     * @param in_writer    The writer to which the records are written
+     * @param in_header    The first line of the file
+     * @param in_scenarios The records of each scenario
+     * @throws IOException when the records cannot be written
+     */
+    static void write(Writer in_writer, String in_header, Map<String, List<String[]>> in_scenarios)
+            throws IOException {
+        in_writer.write(in_header);
+        in_writer.write('\n');
+        for (Map.Entry<String, List<String[]>> lt_scenario : in_scenarios.entrySet()) {
+            in_writer.write(RECORD_SCENARIO + '\t' + lt_scenario.getKey() + '\n');
+            for (String[] lt_record : lt_scenario.getValue()) {
+                in_writer.write(String.join("\t", lt_record));
+                in_writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Creates the records describing the given dependencies. The steps are listed by their line. Replaying the
+     * records with {@link #toDependencies(String, List)} returns the same dependencies.
+     *
+     * @param in_dependencies The dependencies of a scenario
+     * @return The records of the steps and of the keys they produce and consume
+     */
+    static List<String[]> toRecords(ScenarioStepDependencies in_dependencies) {
+        List<String[]> lr_records = new ArrayList<>();
+        List<StepDependencies> l_steps = new ArrayList<>(in_dependencies.getStepDependencies().values());
+        l_steps.sort(Comparator.comparing(StepDependencies::getStepLine).thenComparing(StepDependencies::getStepName));
+
+        for (StepDependencies lt_step : l_steps) {
+            final String lt_line = Integer.toString(lt_step.getStepLine());
+            lr_records.add(new String[] { RECORD_STEP, lt_step.getStepName(), lt_line,
+                    lt_step.isConfigMethod() ? String.valueOf(FLAG_CONFIG) : NO_FLAGS });
+            new TreeSet<>(lt_step.getProduceSet()).forEach(k -> lr_records.add(new String[] { RECORD_PRODUCE, k,
+                    lt_line }));
+            new TreeSet<>(lt_step.getConsumeSet()).forEach(k -> lr_records.add(new String[] { RECORD_CONSUME, k,
+                    lt_line }));
+        }
+        return lr_records;
+    }
+
+    /**
+     * Adds the records of one scenario to the loaded indexes. This is used when the index is not read from the class
+     * path
+     *
+     * @param in_scenarioName The name of the scenario class
+     * @param in_records      The records of the scenario, without the scenario record
+     */
+    public static void register(String in_scenarioName, List<String[]> in_records) {
+        if (!loaded) {
+            load();
+        }
+        scenarios.put(in_scenarioName, new ArrayList<>(in_records));
+    }
+
+    /**
+     * Discards the loaded indexes. The indexes are loaded again when they are next needed.
+     */
+    public static synchronized void clear() {
+        scenarios.clear();
+        loaded = false;
+    }
+
+    /**
+     * @param in_class A scenario class
+     * @return true if the given scenario is in the index
+     */
+    public static boolean isIndexed(Class<?> in_class) {
+        return fetchRecords(in_class.getTypeName()) != null;
+    }
+
+    /**
+     * Returns the records of a scenario. The indexes are loaded if they have not yet been loaded
+     *
+     * @param in_scenarioName The name of a scenario class
+     * @return The records of the scenario. Null if it is not indexed
+     */
+    private static List<String[]> fetchRecords(String in_scenarioName) {
+        if (!loaded) {
+            load();
+        }
+        return scenarios.get(in_scenarioName);
+    }
+
+    /**
+     * Returns the dependencies of a scenario as stored in the index. Each call returns a new object.
+     *
+     * @param in_class A scenario class
+     * @return The dependencies of the scenario, or an empty optional if the scenario is not indexed
+     */
+    public static Optional<ScenarioStepDependencies> fetchScenario(Class<?> in_class) {
+        final List<String[]> l_records = fetchRecords(in_class.getTypeName());
+        return l_records == null ? Optional.empty()
+                : Optional.of(toDependencies(in_class.getTypeName(), l_records));
+    }
+
+    /**
+     * Replays the records of a scenario
+     *
+     * @param in_scenarioName The name of the scenario class
+     * @param in_records      The records of the scenario, without the scenario record
+     * @return The dependencies described by the records
+     */
+    static ScenarioStepDependencies toDependencies(String in_scenarioName, List<String[]> in_records) {
+        ScenarioStepDependencies lr_dependencies = new ScenarioStepDependencies(in_scenarioName);
+        String l_currentStep = null;
+        for (String[] lt_record : in_records) {
+            switch (lt_record[0]) {
+            case RECORD_STEP:
+                l_currentStep = lt_record[1];
+                lr_dependencies.getStepDependencies().put(l_currentStep, new StepDependencies(l_currentStep));
+                lr_dependencies.getStep(l_currentStep).setStepLine(Integer.parseInt(lt_record[2]));
+                lr_dependencies.getStep(l_currentStep).setConfigMethod(lt_record[3].indexOf(FLAG_CONFIG) >= 0);
+                break;
+            case RECORD_PRODUCE:
+                lr_dependencies.putProduce(l_currentStep, lt_record[1], Integer.parseInt(lt_record[2]));
+                break;
+            case RECORD_CONSUME:
+                lr_dependencies.putConsume(l_currentStep, lt_record[1], Integer.parseInt(lt_record[2]));
+                break;
+            default:
+                throw new PhasedTestConfigurationException(
+                        "The scenario index has an unknown record type " + lt_record[0] + " for the scenario "
+                                + in_scenarioName + ".");
+            }
+        }
+        return lr_dependencies;
+    }
+
+    /**
+     * Returns the steps of an indexed scenario that have a {@link com.adobe.campaign.tests.integro.phased.PhaseEvent}
+     * annotation
+     *
+     * @param in_class A scenario class
+     * @return The names of the steps with an event, in declaration order. Empty if the scenario is not indexed
+     */
+    public static List<String> fetchEventSteps(Class<?> in_class) {
+        final List<String[]> l_records = fetchRecords(in_class.getTypeName());
+        if (l_records == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> lr_eventSteps = new ArrayList<>();
+        for (String[] lt_record : l_records) {
+            if (lt_record[0].equals(RECORD_STEP) && lt_record[3].indexOf(FLAG_EVENT) >= 0) {
+                lr_eventSteps.add(lt_record[1]);
+            }
+        }
+        return lr_eventSteps;
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The orderings in which the steps of a scenario can be executed. A step can only be executed once the keys it
+ * consumes have been produced by the steps executed before it.
+ * <p>
+ * The orderings are not stored. They are enumerated lazily, in a stable order: the steps are sorted by their line
+ * number, and the orderings are listed in the lexicographic order of the steps. The enumeration only keeps the
+ * ordering being built, so its memory does not depend on the number of orderings. An ordering can also be fetched by
+ * its index, without enumerating the orderings before it. For this, the number of ways of completing each set of
+ * executed steps is computed once, and kept. This also gives the number of orderings, and allows them to be sampled
+ * uniformly, without enumerating them.
+ * <p>
+ * Two steps commute when neither consumes what the other produces, and they do not produce the same key. Orderings
+ * that only differ by the order of commuting steps are equivalent. The representatives of the orderings list one
+ * ordering per set of equivalent orderings: the one that comes first in the stable order.
+ * <p>
+ * Each ordering has a name, used as the phase group of the PERMUTATIONAL execution mode. It is made of the short names
+ * of its steps, followed by its position and the number of orderings. When the orderings are enumerated in order, the
+ * position is their counter and the number of orderings is counted while enumerating, so the number of ways of
+ * completing the executed steps is only computed when an ordering is fetched by its index or name, or when the
+ * orderings are sampled.
+ */
+public final class ScenarioPermutations implements Iterable<List<StepDependencies>> {
+    /**
+     * The number of steps above which the orderings can only be enumerated
+     */
+    public static final int MAX_INDEXED_STEPS = StepDependencyGraph.MAX_MASKED_STEPS;
+
+    private final StepDependencyGraph graph;
+    private final List<StepDependencies> steps;
+    private final Map<Long, Long> completions = new HashMap<>();
+
+    /**
+     * Creates the orderings of the given steps
+     *
+     * @param in_steps The steps of a scenario
+     */
+    public ScenarioPermutations(Collection<StepDependencies> in_steps) {
+        this(new StepDependencyGraph(in_steps));
+    }
+
+    /**
+     * Creates the orderings of the steps of the given graph
+     *
+     * @param in_graph The compiled dependencies of the steps of a scenario
+     */
+    public ScenarioPermutations(StepDependencyGraph in_graph) {
+        graph = in_graph;
+        steps = in_graph.getSteps();
+    }
+
+    /**
+     * @return The steps being ordered, sorted by their line number
+     */
+    public List<StepDependencies> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return The compiled dependencies of the steps
+     */
+    public StepDependencyGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Lets us know if the given steps are still those from which the orderings were computed. This is the case if
+     * none of the steps, nor what they produce and consume, have changed.
+     *
+     * @param in_steps The current steps of a scenario
+     * @return true if the orderings are those of the given steps
+     */
+    boolean isOrderingOf(Collection<StepDependencies> in_steps) {
+        return graph.isGraphOf(in_steps);
+    }
+
+    /**
+     * Returns the number of orderings. It is computed without enumerating them.
+     *
+     * @return The number of orderings of the steps
+     * @throws PhasedTestConfigurationException if the scenario has more than {@value #MAX_INDEXED_STEPS} steps, or if
+     *                                          the number of orderings does not fit in a long
+     */
+    public synchronized long size() {
+        return fetchCompletions(0L);
+    }
+
+    /**
+     * Returns the ordering at the given index, without enumerating the orderings before it
+     *
+     * @param in_index The index of an ordering, starting at 0
+     * @return The steps in the order of the ordering
+     * @throws IndexOutOfBoundsException if there is no ordering at the given index
+     */
+    public synchronized List<StepDependencies> get(long in_index) {
+        if (in_index < 0 || in_index >= size()) {
+            throw new IndexOutOfBoundsException(
+                    "The index " + in_index + " is not between 0 and the number of orderings " + size() + ".");
+        }
+
+        final List<StepDependencies> lr_ordering = new ArrayList<>(steps.size());
+        long l_remaining = in_index;
+        long l_executed = 0L;
+        while (lr_ordering.size() < steps.size()) {
+            for (int i = 0; i < steps.size(); i++) {
+                if ((l_executed & (1L << i)) != 0 || !canRun(i, l_executed)) {
+                    continue;
+                }
+                final long lt_completions = fetchCompletions(l_executed | (1L << i));
+                if (l_remaining < lt_completions) {
+                    lr_ordering.add(steps.get(i));
+                    l_executed |= 1L << i;
+                    break;
+                }
+                l_remaining -= lt_completions;
+            }
+        }
+        return lr_ordering;
+    }
+
+    /**
+     * Returns the index of an ordering
+     *
+     * @param in_ordering The steps of an ordering
+     * @return The index of the ordering. -1 if it is not an ordering of the steps
+     */
+    public synchronized long indexOf(List<StepDependencies> in_ordering) {
+        checkIndexable();
+        if (in_ordering.size() != steps.size()) {
+            return -1;
+        }
+        long lr_index = 0;
+        long l_executed = 0L;
+        for (StepDependencies lt_step : in_ordering) {
+            final int lt_position = steps.indexOf(lt_step);
+            if (lt_position < 0 || (l_executed & (1L << lt_position)) != 0 || !canRun(lt_position, l_executed)) {
+                return -1;
+            }
+            for (int i = 0; i < lt_position; i++) {
+                if ((l_executed & (1L << i)) == 0 && canRun(i, l_executed)) {
+                    lr_index += fetchCompletions(l_executed | (1L << i));
+                }
+            }
+            l_executed |= 1L << lt_position;
+        }
+        return lr_index;
+    }
+
+    /**
+     * Returns one ordering per set of equivalent orderings. The orderings are enumerated lazily, and an ordering is
+     * only continued as long as it is the first of its equivalent orderings. Their index is that of the ordering in
+     * {@link #iterator()}.
+     *
+     * @return The representatives of the orderings, in their stable order
+     */
+    public Iterable<List<StepDependencies>> fetchRepresentatives() {
+        return () -> new Enumerator(true);
+    }
+
+    /**
+     * Returns the number of sets of equivalent orderings. The representatives are enumerated to count them.
+     *
+     * @return The number of representatives of the orderings
+     */
+    public long countRepresentatives() {
+        return StreamSupport.stream(fetchRepresentatives().spliterator(), false).count();
+    }
+
+    /**
+     * Selects orderings uniformly at random, without enumerating them. Each ordering has the same probability of being
+     * selected, and an ordering is not selected twice.
+     *
+     * @param in_nrOfPermutations The number of orderings to select
+     * @param in_random           The source of randomness
+     * @return The selected orderings, by their index. All the orderings if there are fewer than requested
+     */
+    public synchronized SortedMap<Long, List<StepDependencies>> sample(int in_nrOfPermutations, Random in_random) {
+        if (in_nrOfPermutations < 0) {
+            throw new IllegalArgumentException("The number of permutations to sample cannot be negative.");
+        }
+        final long l_size = size();
+        final SortedSet<Long> l_indexes = new TreeSet<>();
+        if (l_size <= in_nrOfPermutations) {
+            for (long i = 0; i < l_size; i++) {
+                l_indexes.add(i);
+            }
+        } else {
+            //Floyd's algorithm : each subset of indexes is equally likely
+            for (long j = l_size - in_nrOfPermutations; j < l_size; j++) {
+                final long lt_candidate = nextIndex(in_random, j + 1);
+                l_indexes.add(l_indexes.contains(lt_candidate) ? j : lt_candidate);
+            }
+        }
+
+        final SortedMap<Long, List<StepDependencies>> lr_sample = new TreeMap<>();
+        for (Long lt_index : l_indexes) {
+            lr_sample.put(lt_index, get(lt_index));
+        }
+        return lr_sample;
+    }
+
+    /**
+     * @return A uniformly distributed index between 0 (included) and the given bound (excluded)
+     */
+    private static long nextIndex(Random in_random, long in_bound) {
+        long l_bits;
+        long lr_value;
+        do {
+            l_bits = in_random.nextLong() >>> 1;
+            lr_value = l_bits % in_bound;
+        } while (l_bits - lr_value + (in_bound - 1) < 0);
+        return lr_value;
+    }
+
+    /**
+     * Returns the name of the ordering at the given position. The number of orderings is computed without
+     * enumerating them. When the orderings are enumerated, {@link #fetchName(List, long, long)} should be used instead.
+     *
+     * @param in_ordering The steps of an ordering
+     * @param in_index    The index of the ordering, starting at 0
+     * @return The name of the ordering, used as a phase group in the PERMUTATIONAL execution mode
+     */
+    public String fetchName(List<StepDependencies> in_ordering, long in_index) {
+        return fetchName(in_ordering, in_index, size());
+    }
+
+    /**
+     * Returns the name of the ordering at the given position, when the number of orderings is already known
+     *
+     * @param in_ordering      The steps of an ordering
+     * @param in_index         The index of the ordering, starting at 0
+     * @param in_nrOfOrderings The number of orderings of the steps
+     * @return The name of the ordering, used as a phase group in the PERMUTATIONAL execution mode
+     */
+    public static String fetchName(List<StepDependencies> in_ordering, long in_index, long in_nrOfOrderings) {
+        return PhasedTestManager.STD_PHASED_PERMUTATIONAL_PREFIX + in_ordering.stream()
+                .map(StepDependencies::getShortName).collect(Collectors.joining()) + "_" + (in_index + 1) + "-"
+                + in_nrOfOrderings;
+    }
+
+    /**
+     * Returns the ordering with the given name. The name contains the index of the ordering, so the orderings before
+     * it are not enumerated.
+     *
+     * @param in_name The name of an ordering, as returned by {@link #fetchName(List, long)}
+     * @return The steps in the order of the ordering. Null if no ordering has this name
+     */
+    public List<StepDependencies> fetchPermutation(String in_name) {
+        if (in_name == null) {
+            return null;
+        }
+        final int l_separator = in_name.lastIndexOf('_');
+        final int l_dash = in_name.lastIndexOf('-');
+        if (l_separator < 0 || l_dash < l_separator) {
+            return null;
+        }
+
+        final long l_index;
+        try {
+            l_index = Long.parseLong(in_name.substring(l_separator + 1, l_dash)) - 1;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (l_index < 0 || l_index >= size()) {
+            return null;
+        }
+
+        final List<StepDependencies> lr_ordering = get(l_index);
+        return fetchName(lr_ordering, l_index).equals(in_name) ? lr_ordering : null;
+    }
+
+    /**
+     * @return The orderings, in their stable order. The steps are enumerated lazily
+     */
+    @Override
+    public Iterator<List<StepDependencies>> iterator() {
+        return new Enumerator(false);
+    }
+
+    /**
+     * Returns a spliterator over the orderings. When the orderings can be indexed, the spliterator is sized and can be
+     * split, each part starting its enumeration at the first ordering of its range.
+     *
+     * @return A spliterator over the orderings
+     */
+    @Override
+    public Spliterator<List<StepDependencies>> spliterator() {
+        if (steps.size() > MAX_INDEXED_STEPS) {
+            return Spliterators.spliteratorUnknownSize(iterator(),
+                    Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+        }
+        return new RangeSpliterator(0, size());
+    }
+
+    /**
+     * @return A sequential stream of the orderings
+     */
+    public Stream<List<StepDependencies>> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    private boolean canRun(int in_step, long in_executed) {
+        return graph.canRunAfter(in_step, in_executed);
+    }
+
+    private void checkIndexable() {
+        if (steps.size() > MAX_INDEXED_STEPS) {
+            throw new PhasedTestConfigurationException(
+                    "The orderings of a scenario with more than " + MAX_INDEXED_STEPS
+                            + " steps can only be enumerated.");
+        }
+    }
+
+    /**
+     * Returns the number of ways of executing the steps that remain, once the given steps have been executed. Only
+     * the set of executed steps matters, as the keys available are those they produce.
+     *
+     * @param in_executed A mask of the executed steps
+     * @return The number of orderings of the remaining steps
+     */
+    private long fetchCompletions(long in_executed) {
+        checkIndexable();
+        if (in_executed == (1L << steps.size()) - 1) {
+            return 1;
+        }
+        final Long l_known = completions.get(in_executed);
+        if (l_known != null) {
+            return l_known;
+        }
+
+        long lr_completions = 0;
+        for (int i = 0; i < steps.size(); i++) {
+            if ((in_executed & (1L << i)) == 0 && canRun(i, in_executed)) {
+                try {
+                    lr_completions = Math.addExact(lr_completions, fetchCompletions(in_executed | (1L << i)));
+                } catch (ArithmeticException e) {
+                    throw new PhasedTestConfigurationException(
+                            "The number of orderings of the scenario exceeds " + Long.MAX_VALUE + ".", e);
+                }
+            }
+        }
+        completions.put(in_executed, lr_completions);
+        return lr_completions;
+    }
+
+    /**
+     * Enumerates the orderings depth first. Only the ordering being built, and the keys available at each of its
+     * steps, are kept. When reduced, a step is not added after a greater step if it commutes with it and
+     * with all the steps after it, as the ordering where it comes first is equivalent and comes before.
+     */
+    private final class Enumerator implements Iterator<List<StepDependencies>> {
+        private final boolean reduced;
+        private final int[] chosen = new int[steps.size()];
+        private final boolean[] executed = new boolean[steps.size()];
+        private final long[][] available = new long[steps.size() + 1][];
+        private boolean started = false;
+        private boolean pending = false;
+        private boolean finished = false;
+
+        private Enumerator(boolean in_reduced) {
+            reduced = in_reduced;
+            for (int d = 0; d < available.length; d++) {
+                available[d] = graph.createKeySet();
+            }
+        }
+
+        /**
+         * Positions the enumerator on the given ordering, which is the next one returned
+         *
+         * @param in_ordering The indexes of the steps of an ordering
+         */
+        private void position(List<StepDependencies> in_ordering) {
+            for (int d = 0; d < in_ordering.size(); d++) {
+                execute(d, steps.indexOf(in_ordering.get(d)));
+            }
+            started = true;
+            pending = true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!pending && !finished) {
+                pending = advance();
+                finished = !pending;
+            }
+            return pending;
+        }
+
+        @Override
+        public List<StepDependencies> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            pending = false;
+            final List<StepDependencies> lr_ordering = new ArrayList<>(chosen.length);
+            for (int lt_step : chosen) {
+                lr_ordering.add(steps.get(lt_step));
+            }
+            return lr_ordering;
+        }
+
+        private boolean advance() {
+            int l_depth;
+            int l_start;
+            if (!started) {
+                started = true;
+                if (steps.isEmpty()) {
+                    return true;
+                }
+                l_depth = 0;
+                l_start = 0;
+            } else {
+                if (steps.isEmpty()) {
+                    return false;
+                }
+                l_depth = steps.size() - 1;
+                l_start = revert(l_depth) + 1;
+            }
+
+            while (true) {
+                final int lt_next = fetchNextRunnable(l_depth, l_start);
+                if (lt_next >= 0) {
+                    execute(l_depth, lt_next);
+                    l_depth++;
+                    if (l_depth == steps.size()) {
+                        return true;
+                    }
+                    l_start = 0;
+                } else {
+                    if (l_depth == 0) {
+                        return false;
+                    }
+                    l_depth--;
+                    l_start = revert(l_depth) + 1;
+                }
+            }
+        }
+
+        private int fetchNextRunnable(int in_depth, int in_start) {
+            for (int i = in_start; i < steps.size(); i++) {
+                if (!executed[i] && graph.canRun(i, available[in_depth])
+                        && (!reduced || isFirstOfEquivalents(in_depth, i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private boolean isFirstOfEquivalents(int in_depth, int in_step) {
+            for (int d = in_depth - 1; d >= 0 && graph.commutes(chosen[d], in_step); d--) {
+                if (chosen[d] > in_step) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void execute(int in_depth, int in_step) {
+            chosen[in_depth] = in_step;
+            executed[in_step] = true;
+            System.arraycopy(available[in_depth], 0, available[in_depth + 1], 0, available[in_depth].length);
+            graph.produce(in_step, available[in_depth + 1]);
+        }
+
+        private int revert(int in_depth) {
+            final int lr_step = chosen[in_depth];
+            executed[lr_step] = false;
+            return lr_step;
+        }
+    }
+
+    /**
+     * A spliterator over a range of indexes. It starts its enumeration at the ordering of its first index.
+     */
+    private final class RangeSpliterator implements Spliterator<List<StepDependencies>> {
+        private long index;
+        private final long end;
+        private Enumerator enumerator = null;
+
+        private RangeSpliterator(long in_start, long in_end) {
+            index = in_start;
+            end = in_end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super List<StepDependencies>> in_action) {
+            if (index >= end) {
+                return false;
+            }
+            if (enumerator == null) {
+                enumerator = new Enumerator(false);
+                enumerator.position(get(index));
+            }
+            in_action.accept(enumerator.next());
+            index++;
+            return true;
+        }
+
+        @Override
+        public Spliterator<List<StepDependencies>> trySplit() {
+            if (enumerator != null || end - index < 2) {
+                return null;
+            }
+            final long l_middle = index + (end - index) / 2;
+            final RangeSpliterator lr_prefix = new RangeSpliterator(index, l_middle);
+            index = l_middle;
+            return lr_prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL
+                    | Spliterator.IMMUTABLE;
+        }
+    }
+}
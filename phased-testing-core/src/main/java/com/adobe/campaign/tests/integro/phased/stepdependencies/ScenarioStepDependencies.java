@@ -16,6 +16,7 @@ import java.util.stream.Collectors;
 public class ScenarioStepDependencies {
     private Map<String, StepDependencies> stepDependencies;
     private String scenarioName;
+    private ScenarioPermutations permutations = null;
 
     public ScenarioStepDependencies(String in_scenarioName) {
         this.setScenarioName(in_scenarioName);
@@ -175,35 +176,52 @@ public class ScenarioStepDependencies {
     }
 
 
-    private static Map<String, List<StepDependencies>> generatePermutationsMap(
-            List<List<StepDependencies>> l_scenarioPermutations) {
-        Map<String, List<StepDependencies>> lr_permutations = new HashMap<>();
-
-        for (int i = 0; i < l_scenarioPermutations.size(); i++) {
-            String lt_key = PhasedTestManager.STD_PHASED_PERMUTATIONAL_PREFIX
-                    +String.join("", l_scenarioPermutations.get(i).stream().map(StepDependencies::getShortName).collect(
-                    Collectors.toList())) + "_" + (i + 1) + "-" + l_scenarioPermutations.size();
+    /**
+     * This method calculated the possible permutations this scenario can have. All the permutations are built, so
+     * for large scenarios {@link #fetchPermutations()} should be used instead.
+     *
+     * @return a map containing the permutations and their order
+     */
+    public Map<String, List<StepDependencies>> fetchScenarioPermutations() {
+        List<List<StepDependencies>> l_permutations = new ArrayList<>();
+        fetchPermutations().forEach(l_permutations::add);
 
-            lr_permutations.put(lt_key, l_scenarioPermutations.get(i));
+        Map<String, List<StepDependencies>> lr_permutations = new LinkedHashMap<>();
+        for (int i = 0; i < l_permutations.size(); i++) {
+            lr_permutations.put(ScenarioPermutations.fetchName(l_permutations.get(i), i, l_permutations.size()),
+                    l_permutations.get(i));
         }
         return lr_permutations;
     }
 
     /**
-     * This method calculated the possible permutations this scenario can have
+     * Returns the possible permutations of this scenario. They are enumerated lazily, and can be fetched by their
+     * index or their name. The permutations are kept as long as the steps, and what they produce and consume, do not
+     * change.
      *
-     * @return a map containing the permutations and their order
+     * @return the permutations of the steps of this scenario
      */
-    public Map<String, List<StepDependencies>> fetchScenarioPermutations() {
-        var lr_permutationsMap = new HashMap<String, StepDependencies>();
-
-        //Fetch the permutations
-        List<List<StepDependencies>> l_scenarioPermutations = new ArrayList<>();
-        fetchScenarioPermutations(new HashSet<>(), new ArrayList<StepDependencies>(), new ArrayList<StepDependencies>(this.stepDependencies.values()), l_scenarioPermutations);
+    public synchronized ScenarioPermutations fetchPermutations() {
+        if (permutations == null || !permutations.isOrderingOf(this.stepDependencies.values())) {
+            permutations = new ScenarioPermutations(this.stepDependencies.values());
+        }
+        return permutations;
+    }
 
-        return generatePermutationsMap(l_scenarioPermutations);
+    /**
+     * Returns the number of possible permutations of this scenario. The permutations are counted without being
+     * enumerated.
+     *
+     * @return the number of permutations of the steps of this scenario
+     */
+    public long fetchPermutationCount() {
+        return fetchPermutations().size();
     }
 
+    /**
+     * @deprecated The permutations are now enumerated lazily by {@link #fetchPermutations()}
+     */
+    @Deprecated
     protected void fetchScenarioPermutations(HashSet<String> in_dependencies, List<StepDependencies> in_currentScenario, List<StepDependencies> in_baseScenario, List<List<StepDependencies>> in_permutations) {
         //Fetch the steps that can run with the current dependencies
         Set<StepDependencies> l_honorSet = in_baseScenario.stream().filter(f -> f.canRunWithDependencies(in_dependencies))
@@ -237,16 +255,33 @@ public class ScenarioStepDependencies {
      */
     public Map<StepDependencies.Categories, List<StepDependencies>> fetchCategorizations() {
         Map<StepDependencies.Categories, List<StepDependencies>> lr_categorizations = new HashMap<>();
-        this.getStepDependencies().values().stream().filter(f -> !f.isConfigMethod()).forEach(f -> {
-            lr_categorizations.computeIfAbsent(f.getCategory(), k -> new ArrayList<>()).add(f);
-        });
+        StepDependencyGraph l_graph = fetchDependencyGraph();
+        for (int i = 0; i < l_graph.size(); i++) {
+            if (!l_graph.getSteps().get(i).isConfigMethod()) {
+                lr_categorizations.computeIfAbsent(l_graph.fetchCategory(i), k -> new ArrayList<>())
+                        .add(l_graph.getSteps().get(i));
+            }
+        }
 
         return lr_categorizations;
     }
 
+    /**
+     * Lets us know if all the keys consumed in this scenario are produced by its steps
+     *
+     * @return true if the scenario can be executed
+     */
     public boolean isExecutable() {
-        Set<String> l_produces = this.stepDependencies.values().stream().flatMap(f -> f.getProduceSet().stream()).collect(Collectors.toSet());
-        Set<String> l_consumes = this.stepDependencies.values().stream().flatMap(f -> f.getConsumeSet().stream()).collect(Collectors.toSet());
-        return l_consumes.stream().allMatch(l_produces::contains);
+        return fetchDependencyGraph().isExecutable();
+    }
+
+    /**
+     * Returns the compiled form of the dependencies between the steps of this scenario. Like the permutations, it is
+     * kept as long as the steps, and what they produce and consume, do not change.
+     *
+     * @return the dependency graph of the steps of this scenario
+     */
+    public StepDependencyGraph fetchDependencyGraph() {
+        return fetchPermutations().getGraph();
     }
 }
@@ -11,20 +11,58 @@ package com.adobe.campaign.tests.integro.phased.stepdependencies;
 import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
 import com.adobe.campaign.tests.integro.phased.utils.ClassPathParser;
 import com.adobe.campaign.tests.integro.phased.ConfigValueHandlerPhased;
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseProblemException;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.ast.expr.MethodCallExpr;
 import com.github.javaparser.ast.visitor.VoidVisitorAdapter;
-import org.testng.annotations.*;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterGroups;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.AfterSuite;
+import org.testng.annotations.AfterTest;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeGroups;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeSuite;
+import org.testng.annotations.BeforeTest;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class ScenarioStepDependencyFactory {
+    private static final Logger log = LogManager.getLogger();
+
+    /**
+     * The number of slowest scenarios reported after an analysis
+     */
+    private static final int NR_OF_REPORTED_SCENARIOS = 5;
+
+    /**
+     * A {@link JavaParser} is not thread-safe. Each thread parses with its own parser, configured like
+     * {@link StaticJavaParser}.
+     */
+    private static final ThreadLocal<JavaParser> PARSERS = ThreadLocal.withInitial(
+            () -> new JavaParser(copyConfiguration(StaticJavaParser.getParserConfiguration())));
 
     private static final List<Class> CONFIG_CLASSES = Arrays.asList(BeforeClass.class, BeforeMethod.class,
             BeforeSuite.class, BeforeGroups.class,
@@ -32,24 +70,166 @@ public class ScenarioStepDependencyFactory {
             AfterTest.class);
 
     /**
-     * From a class, this method returns the methods, and what they produce / consume
+     * From a class, this method returns the methods, and what they produce / consume. If the class is in the
+     * {@link ScenarioIndex}, the dependencies are read from the index. If
+     * {@link ConfigValueHandlerPhased#PROP_ANALYSIS_EXTRACTOR} is set to BYTECODE, they are extracted from the
+     * compiled class, when it can be found on the class path, and all its keys are constants. Otherwise, the source file of the class is
+     * parsed. When {@link ConfigValueHandlerPhased#PROP_PARSE_CACHE} is activated, the parsed dependencies are kept in
+     * the {@link ScenarioDependencyCache}, and the source file is only parsed again when it has changed.
      *
      * @param in_class The scenario containing the steps and dependencies
      * @return A ScenarioStepDependencies object containing all the produce and consumed data.
      */
     public static ScenarioStepDependencies listMethodCalls(Class in_class) {
-        File file = ClassPathParser.fetchClassFile(in_class);
+        Optional<ScenarioStepDependencies> l_indexedDependencies = ScenarioIndex.fetchScenario(in_class);
+        if (l_indexedDependencies.isPresent()) {
+            return l_indexedDependencies.get();
+        }
 
-        ScenarioStepDependencies lr_dependencies = new ScenarioStepDependencies(in_class.getTypeName());
-        FileInputStream fis = null;
-        try {
-            fis = new FileInputStream(file);
-        } catch (FileNotFoundException e) {
+        if (ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.is("BYTECODE")) {
+            Optional<byte[]> l_classBytes = BytecodeDependencyExtractor.fetchClassBytes(in_class);
+            if (l_classBytes.isPresent()) {
+                Optional<ScenarioStepDependencies> l_extractedDependencies = BytecodeDependencyExtractor.extract(
+                        in_class.getTypeName(), l_classBytes.get(), m -> isConfigMethod(in_class, m));
+                if (l_extractedDependencies.isPresent()) {
+                    return l_extractedDependencies.get();
+                }
+            } else {
+                    log.debug("{} The class file of {} could not be found. Its source is parsed instead.",
+                        PhasedTestManager.PHASED_TEST_LOG_PREFIX, in_class.getTypeName());
+            }
+        } else if (!ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.is("SOURCE")) {
+            throw new PhasedTestConfigurationException(
+                    "The value " + ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.fetchValue() + " of "
+                            + ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.systemName
+                            + " is not supported. It should be SOURCE or BYTECODE.");
+        }
+
+        File file = ClassPathParser.fetchClassFile(in_class);
+        if (!file.isFile()) {
             throw new PhasedTestConfigurationException(
                     "The class " + in_class.getTypeName() + " could not be found in the given directory "
                             + ConfigValueHandlerPhased.PHASED_TEST_SOURCE_LOCATION
-                            + "you can configure this by setting the execution property PHASED.TESTS.CODE.ROOT", e);
+                            + "you can configure this by setting the execution property PHASED.TESTS.CODE.ROOT",
+                    new FileNotFoundException(file.getPath()));
+        }
+
+        if (ConfigValueHandlerPhased.PROP_PARSE_CACHE.is("true")) {
+            return ScenarioDependencyCache.fetch(in_class.getTypeName(), file,
+                    c -> parseMethodCalls(in_class, new ByteArrayInputStream(c)));
+        }
+
+        try (FileInputStream fis = new FileInputStream(file)) {
+            return parseMethodCalls(in_class, fis);
+        } catch (IOException e) {
+            throw new PhasedTestConfigurationException(
+                    "The class " + in_class.getTypeName() + " could not be read from " + file.getPath(), e);
+        }
+    }
+
+    /**
+     * Analyzes the sources of the given scenarios. The scenarios are analyzed in parallel on a dedicated fork-join
+     * pool, whose parallelism is set by {@link ConfigValueHandlerPhased#PROP_ANALYSIS_PARALLELISM}. The results are
+     * ordered by scenario name, whatever the order in which they were analyzed. The time spent on each scenario is
+     * logged.
+     *
+     * @param in_classes The scenarios to analyze
+     * @return The dependencies of the scenarios, and the time spent analyzing each of them
+     */
+    public static ScenarioAnalysis analyzeScenarios(Collection<? extends Class> in_classes) {
+        final List<Class> l_classes = in_classes.stream().distinct()
+                .sorted(Comparator.comparing(Class::getTypeName)).collect(Collectors.toList());
+        final int l_parallelism = Math.min(fetchParallelism(), Math.max(1, l_classes.size()));
+        final long l_start = System.nanoTime();
+
+        final List<TimedDependencies> l_results;
+        if (l_parallelism == 1) {
+            l_results = l_classes.stream().map(ScenarioStepDependencyFactory::analyzeScenario)
+                    .collect(Collectors.toList());
+        } else {
+            //The workers load the scenario classes like the calling thread
+            final ClassLoader l_contextClassLoader = Thread.currentThread().getContextClassLoader();
+            final ForkJoinPool l_pool = new ForkJoinPool(l_parallelism, p -> {
+                ForkJoinWorkerThread lr_worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                lr_worker.setContextClassLoader(l_contextClassLoader);
+                return lr_worker;
+            }, null, false);
+            try {
+                final List<ForkJoinTask<TimedDependencies>> l_tasks = l_classes.stream()
+                        .map(c -> l_pool.submit(() -> analyzeScenario(c))).collect(Collectors.toList());
+                l_results = new ArrayList<>();
+                for (ForkJoinTask<TimedDependencies> lt_task : l_tasks) {
+                    l_results.add(lt_task.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PhasedTestConfigurationException("The analysis of the scenarios was interrupted.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new PhasedTestConfigurationException("The analysis of the scenarios failed.", e.getCause());
+            } finally {
+                l_pool.shutdownNow();
+            }
+        }
+
+        final Map<String, ScenarioStepDependencies> l_dependencies = new LinkedHashMap<>();
+        final Map<String, Long> l_times = new LinkedHashMap<>();
+        for (TimedDependencies lt_result : l_results) {
+            l_dependencies.put(lt_result.dependencies.getScenarioName(), lt_result.dependencies);
+            l_times.put(lt_result.dependencies.getScenarioName(), lt_result.duration);
+        }
+        final ScenarioAnalysis lr_analysis = new ScenarioAnalysis(l_dependencies, l_times, l_parallelism);
+
+        log.info("{} Analyzed {} scenarios in {} ms with a parallelism of {}. Slowest scenarios : {}",
+                PhasedTestManager.PHASED_TEST_LOG_PREFIX, l_classes.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - l_start), l_parallelism,
+                lr_analysis.fetchSlowestScenarios(NR_OF_REPORTED_SCENARIOS).stream()
+                        .map(n -> n + " (" + l_times.get(n) + " ms)").collect(Collectors.joining(", ")));
+        return lr_analysis;
+    }
+
+    /**
+     * @return The parallelism of the analysis, as set in {@link ConfigValueHandlerPhased#PROP_ANALYSIS_PARALLELISM}.
+     * The number of available processors if it is 0
+     */
+    static int fetchParallelism() {
+        final String l_value = ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.fetchValue();
+        final int l_parallelism;
+        try {
+            l_parallelism = Integer.parseInt(l_value.trim());
+        } catch (NumberFormatException e) {
+            throw new PhasedTestConfigurationException(
+                    "The value " + l_value + " of " + ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.systemName
+                            + " is not a number.", e);
+        }
+        if (l_parallelism < 0) {
+            throw new PhasedTestConfigurationException(
+                    "The value of " + ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.systemName
+                            + " cannot be negative. It was " + l_parallelism + ".");
         }
+        return l_parallelism == 0 ? Runtime.getRuntime().availableProcessors() : l_parallelism;
+    }
+
+    private static TimedDependencies analyzeScenario(Class in_class) {
+        final long l_start = System.nanoTime();
+        final ScenarioStepDependencies l_dependencies = listMethodCalls(in_class);
+        final long l_duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - l_start);
+        log.debug("{} Analyzed the scenario {} in {} ms.", PhasedTestManager.PHASED_TEST_LOG_PREFIX,
+                in_class.getTypeName(), l_duration);
+        return new TimedDependencies(l_dependencies, l_duration);
+    }
+
+    /**
+     * Parses the source of a scenario, and extracts the methods, and what they produce / consume
+     *
+     * @param in_class  The scenario containing the steps and dependencies
+     * @param in_source The source code of the scenario
+     * @return A ScenarioStepDependencies object containing all the produce and consumed data.
+     */
+    private static ScenarioStepDependencies parseMethodCalls(Class in_class, InputStream in_source) {
+        ScenarioStepDependencies lr_dependencies = new ScenarioStepDependencies(in_class.getTypeName());
 
         new VoidVisitorAdapter<Object>() {
             String lt_currentMethod = "not set";
@@ -81,24 +261,67 @@ public class ScenarioStepDependencyFactory {
             public void visit(MethodDeclaration n, Object arg) {
                 lt_currentMethod = n.getName().asString();
 
-                Method lt_method = Arrays.stream(in_class.getMethods())
-                        .filter(f -> f.getName().equals(lt_currentMethod)).findFirst().orElseThrow(PhasedTestConfigurationException::new);
-
                 lr_dependencies.getStepDependencies().put(lt_currentMethod, new StepDependencies(lt_currentMethod));
                 lr_dependencies.getStep(lt_currentMethod).setStepLine(n.getBegin().map(s -> s.line).orElse(lr_dependencies.fetchLastStepPosition() + 1));
-                if (Arrays.stream(lt_method.getDeclaredAnnotations())
-                        .anyMatch(a -> CONFIG_CLASSES.contains(a.annotationType()))) {
+                if (isConfigMethod(in_class, lt_currentMethod)) {
                     lr_dependencies.getStep(lt_currentMethod).setConfigMethod(true);
                 }
 
                 super.visit(n, arg);
 
             }
-        }.visit(StaticJavaParser.parse(fis), null);
+        }.visit(parse(in_source), null);
 
         return lr_dependencies;
     }
 
+    /**
+     * Creates a new parser configuration with the same settings as the given one. The processors are not copied
+     * as such, since they are derived from these settings.
+     *
+     * @param in_configuration A parser configuration
+     * @return A new parser configuration with the same settings
+     */
+    static ParserConfiguration copyConfiguration(ParserConfiguration in_configuration) {
+        ParserConfiguration lr_configuration = new ParserConfiguration()
+                .setLanguageLevel(in_configuration.getLanguageLevel())
+                .setAttributeComments(in_configuration.isAttributeComments())
+                .setDoNotAssignCommentsPrecedingEmptyLines(in_configuration.isDoNotAssignCommentsPrecedingEmptyLines())
+                .setIgnoreAnnotationsWhenAttributingComments(
+                        in_configuration.isIgnoreAnnotationsWhenAttributingComments())
+                .setStoreTokens(in_configuration.isStoreTokens())
+                .setTabSize(in_configuration.getTabSize())
+                .setLexicalPreservationEnabled(in_configuration.isLexicalPreservationEnabled())
+                .setPreprocessUnicodeEscapes(in_configuration.isPreprocessUnicodeEscapes())
+                .setDetectOriginalLineSeparator(in_configuration.isDetectOriginalLineSeparator())
+                .setCharacterEncoding(in_configuration.getCharacterEncoding());
+        in_configuration.getSymbolResolver().ifPresent(lr_configuration::setSymbolResolver);
+        return lr_configuration;
+    }
+
+    /**
+     * Lets us know if the given method of a scenario is a configuration method
+     *
+     * @param in_class      The scenario declaring the method
+     * @param in_methodName The name of a public method of the scenario
+     * @return true if the method has a TestNG configuration annotation
+     */
+    private static boolean isConfigMethod(Class in_class, String in_methodName) {
+        Method l_method = Arrays.stream(in_class.getMethods())
+                .filter(f -> f.getName().equals(in_methodName)).findFirst().orElseThrow(PhasedTestConfigurationException::new);
+
+        return Arrays.stream(l_method.getDeclaredAnnotations())
+                .anyMatch(a -> CONFIG_CLASSES.contains(a.annotationType()));
+    }
+
+    private static CompilationUnit parse(InputStream in_source) {
+        final ParseResult<CompilationUnit> l_result = PARSERS.get().parse(in_source);
+        if (!l_result.isSuccessful() || !l_result.getResult().isPresent()) {
+            throw new ParseProblemException(l_result.getProblems());
+        }
+        return l_result.getResult().get();
+    }
+
     //if the code contains a line number we return it otherwise we calculate where the next line would be
     private static int fetchLineNumberOfCalls(MethodCallExpr n, ScenarioStepDependencies lr_dependencies) {
 
@@ -106,4 +329,13 @@ public class ScenarioStepDependencyFactory {
 
     }
 
+    private static final class TimedDependencies {
+        private final ScenarioStepDependencies dependencies;
+        private final long duration;
+
+        private TimedDependencies(ScenarioStepDependencies in_dependencies, long in_duration) {
+            dependencies = in_dependencies;
+            duration = in_duration;
+        }
+    }
 }
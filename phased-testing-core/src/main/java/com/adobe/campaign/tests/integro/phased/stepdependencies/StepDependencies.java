@@ -8,6 +8,7 @@
  */
 package com.adobe.campaign.tests.integro.phased.stepdependencies;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -106,8 +107,8 @@ public class StepDependencies {
      * @return The relationship of type ${{@link Relations}}
      */
     public Relations fetchRelation(StepDependencies in_step) {
-        boolean l_producesMyConsumes = in_step.getProduceSet().stream().anyMatch(f -> this.getConsumeSet().contains(f));
-        boolean l_consumesMyProduces = in_step.getConsumeSet().stream().anyMatch(f -> this.getProduceSet().contains(f));
+        boolean l_producesMyConsumes = !Collections.disjoint(in_step.getProduceSet(), this.getConsumeSet());
+        boolean l_consumesMyProduces = !Collections.disjoint(in_step.getConsumeSet(), this.getProduceSet());
 
         if (l_producesMyConsumes && !l_consumesMyProduces) {
             return Relations.DEPENDS_ON;
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * A compiled form of the dependencies between the steps of a scenario. The steps are sorted by their line number, and
+ * are referred to by their position. The keys are given a number, in the order in which they are first met, and the
+ * keys produced or consumed by a step are stored as a bit set. A bit set is an array of longs, so that any number of
+ * keys can be stored, but in most scenarios it is a single long.
+ * <p>
+ * Checking whether a step can run, or the relation between two steps, is then done with bit operations, without
+ * creating any object. The graph is a snapshot: it does not follow the changes made to the steps after it was
+ * created.
+ */
+public final class StepDependencyGraph {
+    /**
+     * The number of steps above which the sets of steps cannot be stored in a long
+     */
+    public static final int MAX_MASKED_STEPS = Long.SIZE - 1;
+
+    private final List<StepDependencies> steps;
+    private final List<Set<String>> producedKeys;
+    private final List<Set<String>> consumedKeys;
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final int nrOfWords;
+    private final long[][] produces;
+    private final long[][] consumes;
+    private final long[] producerMasks;
+
+    /**
+     * Compiles the dependencies of the given steps
+     *
+     * @param in_steps The steps of a scenario
+     */
+    public StepDependencyGraph(Collection<StepDependencies> in_steps) {
+        steps = in_steps.stream().sorted(Comparator.comparing(StepDependencies::getStepLine)
+                .thenComparing(StepDependencies::getStepName)).collect(Collectors.toList());
+        producedKeys = steps.stream().map(s -> (Set<String>) new HashSet<>(s.getProduceSet()))
+                .collect(Collectors.toList());
+        consumedKeys = steps.stream().map(s -> (Set<String>) new HashSet<>(s.getConsumeSet()))
+                .collect(Collectors.toList());
+
+        for (int i = 0; i < steps.size(); i++) {
+            producedKeys.get(i).forEach(k -> keyIds.putIfAbsent(k, keyIds.size()));
+            consumedKeys.get(i).forEach(k -> keyIds.putIfAbsent(k, keyIds.size()));
+        }
+        nrOfWords = Math.max(1, (keyIds.size() + Long.SIZE - 1) / Long.SIZE);
+
+        produces = new long[steps.size()][];
+        consumes = new long[steps.size()][];
+        for (int i = 0; i < steps.size(); i++) {
+            produces[i] = toKeySet(producedKeys.get(i));
+            consumes[i] = toKeySet(consumedKeys.get(i));
+        }
+
+        producerMasks = new long[keyIds.size()];
+        if (steps.size() <= MAX_MASKED_STEPS) {
+            for (int i = 0; i < steps.size(); i++) {
+                for (int lt_key = nextKey(produces[i], 0); lt_key >= 0; lt_key = nextKey(produces[i], lt_key + 1)) {
+                    producerMasks[lt_key] |= 1L << i;
+                }
+            }
+        }
+    }
+
+    private long[] toKeySet(Set<String> in_keys) {
+        final long[] lr_keySet = createKeySet();
+        for (String lt_key : in_keys) {
+            final int lt_id = keyIds.get(lt_key);
+            lr_keySet[lt_id / Long.SIZE] |= 1L << (lt_id % Long.SIZE);
+        }
+        return lr_keySet;
+    }
+
+    private static int nextKey(long[] in_keySet, int in_from) {
+        for (int w = in_from / Long.SIZE; w < in_keySet.length; w++) {
+            final long lt_word = w == in_from / Long.SIZE ? in_keySet[w] & (-1L << (in_from % Long.SIZE))
+                    : in_keySet[w];
+            if (lt_word != 0) {
+                return w * Long.SIZE + Long.numberOfTrailingZeros(lt_word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return The steps of the graph, sorted by their line number
+     */
+    public List<StepDependencies> getSteps() {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * @return The number of steps in the graph
+     */
+    public int size() {
+        return steps.size();
+    }
+
+    /**
+     * @return The number of distinct keys produced or consumed by the steps
+     */
+    public int fetchNrOfKeys() {
+        return keyIds.size();
+    }
+
+    /**
+     * @param in_key A key produced or consumed in the scenario
+     * @return The number of the key. -1 if no step produces or consumes it
+     */
+    public int fetchKeyId(String in_key) {
+        return keyIds.getOrDefault(in_key, -1);
+    }
+
+    /**
+     * @return An empty set of keys, to be used with {@link #canRun(int, long[])} and {@link #produce(int, long[])}
+     */
+    public long[] createKeySet() {
+        return new long[nrOfWords];
+    }
+
+    /**
+     * Lets us know if a step can run once the given keys have been produced
+     *
+     * @param in_step          The position of a step
+     * @param in_availableKeys The keys that have been produced
+     * @return true if all the keys consumed by the step are available
+     */
+    public boolean canRun(int in_step, long[] in_availableKeys) {
+        final long[] l_consumes = consumes[in_step];
+        for (int w = 0; w < nrOfWords; w++) {
+            if ((l_consumes[w] & ~in_availableKeys[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the keys produced by a step to the given keys
+     *
+     * @param in_step          The position of a step
+     * @param in_availableKeys The keys that have been produced. They are modified
+     */
+    public void produce(int in_step, long[] in_availableKeys) {
+        final long[] l_produces = produces[in_step];
+        for (int w = 0; w < nrOfWords; w++) {
+            in_availableKeys[w] |= l_produces[w];
+        }
+    }
+
+    /**
+     * Lets us know if a step can run once the given steps have been executed. This requires the graph to have at most
+     * {@value #MAX_MASKED_STEPS} steps.
+     *
+     * @param in_step          The position of a step
+     * @param in_executedSteps A mask of the positions of the executed steps
+     * @return true if each key consumed by the step is produced by one of the executed steps
+     */
+    public boolean canRunAfter(int in_step, long in_executedSteps) {
+        final long[] l_consumes = consumes[in_step];
+        for (int lt_key = nextKey(l_consumes, 0); lt_key >= 0; lt_key = nextKey(l_consumes, lt_key + 1)) {
+            if ((producerMasks[lt_key] & in_executedSteps) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the relation between two steps, as {@link StepDependencies#fetchRelation(StepDependencies)} does
+     *
+     * @param in_step  The position of a step
+     * @param in_other The position of the step with which it is compared
+     * @return The relation of the first step to the second
+     */
+    public StepDependencies.Relations fetchRelation(int in_step, int in_other) {
+        final boolean l_producesMyConsumes = intersects(produces[in_other], consumes[in_step]);
+        final boolean l_consumesMyProduces = intersects(consumes[in_other], produces[in_step]);
+
+        if (l_producesMyConsumes && !l_consumesMyProduces) {
+            return StepDependencies.Relations.DEPENDS_ON;
+        }
+        if (!l_producesMyConsumes && l_consumesMyProduces) {
+            return StepDependencies.Relations.DEPENDED_ON_BY;
+        }
+        if (!l_producesMyConsumes) {
+            return StepDependencies.Relations.INDEPENDANT;
+        }
+        return StepDependencies.Relations.INTERDEPENDANT;
+    }
+
+    /**
+     * Lets us know if two steps commute, i.e. if executing them in any order gives the same result. This is the case
+     * if they are independent, and do not produce the same key.
+     *
+     * @param in_step  The position of a step
+     * @param in_other The position of another step
+     * @return true if the two steps commute
+     */
+    public boolean commutes(int in_step, int in_other) {
+        return in_step != in_other && fetchRelation(in_step, in_other).equals(StepDependencies.Relations.INDEPENDANT)
+                && !intersects(produces[in_step], produces[in_other]);
+    }
+
+    /**
+     * @param in_step The position of a step
+     * @return The category of the step
+     */
+    public StepDependencies.Categories fetchCategory(int in_step) {
+        final boolean l_produces = !isEmpty(produces[in_step]);
+        final boolean l_consumes = !isEmpty(consumes[in_step]);
+        if (l_produces && l_consumes) {
+            return StepDependencies.Categories.PRODUCER_CONSUMER;
+        }
+        if (l_produces) {
+            return StepDependencies.Categories.PRODUCER_ONLY;
+        }
+        return l_consumes ? StepDependencies.Categories.CONSUMER_ONLY : StepDependencies.Categories.INDEPENDANT;
+    }
+
+    /**
+     * @return true if each key consumed in the scenario is produced by one of its steps
+     */
+    public boolean isExecutable() {
+        final long[] l_produced = createKeySet();
+        final long[] l_consumed = createKeySet();
+        for (int i = 0; i < steps.size(); i++) {
+            for (int w = 0; w < nrOfWords; w++) {
+                l_produced[w] |= produces[i][w];
+                l_consumed[w] |= consumes[i][w];
+            }
+        }
+        for (int w = 0; w < nrOfWords; w++) {
+            if ((l_consumed[w] & ~l_produced[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lets us know if the given steps are still those from which the graph was compiled. This is the case if none of
+     * the steps, nor what they produce and consume, have changed.
+     *
+     * @param in_steps The current steps of a scenario
+     * @return true if the graph is that of the given steps
+     */
+    boolean isGraphOf(Collection<StepDependencies> in_steps) {
+        if (in_steps.size() != steps.size()) {
+            return false;
+        }
+        final Map<String, Integer> l_positions = new HashMap<>();
+        for (int i = 0; i < steps.size(); i++) {
+            l_positions.put(steps.get(i).getStepName(), i);
+        }
+        for (StepDependencies lt_step : in_steps) {
+            final Integer lt_position = l_positions.get(lt_step.getStepName());
+            if (lt_position == null || steps.get(lt_position) != lt_step
+                    || !producedKeys.get(lt_position).equals(lt_step.getProduceSet())
+                    || !consumedKeys.get(lt_position).equals(lt_step.getConsumeSet())) {
+                return false;
+            }
+        }
+        for (int i = 1; i < steps.size(); i++) {
+            final StepDependencies lt_previous = steps.get(i - 1);
+            final StepDependencies lt_current = steps.get(i);
+            if (lt_previous.getStepLine() > lt_current.getStepLine() || (lt_previous.getStepLine()
+                    == lt_current.getStepLine() && lt_previous.getStepName().compareTo(lt_current.getStepName())
+                    > 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean intersects(long[] in_keySet, long[] in_otherKeySet) {
+        for (int w = 0; w < nrOfWords; w++) {
+            if ((in_keySet[w] & in_otherKeySet[w]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isEmpty(long[] in_keySet) {
+        for (int w = 0; w < nrOfWords; w++) {
+            if (in_keySet[w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.utils;
+
+/**
+ * The resolved identity of a call site, i.e. the class and method that called the phased API. Instances are
+ * immutable and cached per class and method by {@link StackTraceManager}, so that the "class.method" full name is
+ * only assembled once per call site.
+ */
+public final class CallerIdentity {
+    private final String className;
+    private final String methodName;
+    private final String fullName;
+
+    CallerIdentity(String in_className, String in_methodName) {
+        className = in_className;
+        methodName = in_methodName;
+        fullName = in_className + '.' + in_methodName;
+    }
+
+    /**
+     * @return The full name of the class that made the call
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return The name of the method that made the call
+     */
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return The full name of the calling method, i.e. the class name followed by the method name
+     */
+    public String getFullName() {
+        return fullName;
+    }
+
+    @Override
+    public String toString() {
+        return fullName;
+    }
+}
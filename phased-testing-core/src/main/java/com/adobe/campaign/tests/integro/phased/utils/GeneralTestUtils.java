@@ -13,8 +13,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -32,6 +38,11 @@ public final class GeneralTestUtils {
 
     private static final Logger log = LogManager.getLogger();
 
+    /**
+     * The largest number of elements whose number of permutations fits in a long
+     */
+    private static final int MAX_COUNTABLE_PERMUTATIONS = 20;
+
     private GeneralTestUtils() {
         //Utility class. Defeat instantiation
     }
@@ -178,51 +189,176 @@ public final class GeneralTestUtils {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Returns all the permutations of the given list. The permutations are generated with
+     * {@link #iteratePermutations(List)}. The set of permutations is the same as that of the former recursive
+     * implementation, but they are listed in the order of Heap's algorithm.
+     *
+     * @param in_listOfSteps A list of elements
+     * @param <T>            The type of the elements
+     * @return A list of all the permutations. Empty if the given list is null or empty
+     */
     public static <T> List<List<T>> generatePermutations(List<T> in_listOfSteps) {
         return generatePermutations(in_listOfSteps, 0);
     }
 
-
+    /**
+     * Returns the permutations of the given list in which the elements before the given index keep their position. They
+     * are listed in the order of Heap's algorithm.
+     *
+     * @param in_listOfSteps A list of elements
+     * @param currentIndex   The index of the first element that is permuted
+     * @param <T>            The type of the elements
+     * @return A list of the permutations. Empty if the given list is null or empty
+     */
     public static <T> List<List<T>> generatePermutations(List<T> in_listOfSteps, int currentIndex) {
-
-        List<List<T>> allPermutations = new ArrayList<>();
+        final List<List<T>> allPermutations = new ArrayList<>();
 
         if (in_listOfSteps == null || in_listOfSteps.isEmpty()) {
             return allPermutations;
         }
 
-        if (currentIndex == in_listOfSteps.size() - 1) {
-            allPermutations.add(new ArrayList<>(in_listOfSteps));
-        } else {
-            for (int i = currentIndex; i < in_listOfSteps.size(); i++) {
-                Collections.swap(in_listOfSteps, currentIndex, i);
-                allPermutations.addAll(generatePermutations(in_listOfSteps, currentIndex + 1));
-                Collections.swap(in_listOfSteps, currentIndex, i);
+        new HeapPermutationIterator<>(in_listOfSteps, currentIndex).forEachRemaining(allPermutations::add);
+        return allPermutations;
+    }
+
+    /**
+     * Returns an iterator over the permutations of the given list. The permutations are generated one at a time with
+     * Heap's algorithm, so that the caller can stop at any time. Each permutation differs from the previous one by a
+     * single swap. The given list is not modified.
+     *
+     * @param in_listOfSteps A list of elements
+     * @param <T>            The type of the elements
+     * @return An iterator over the permutations. Each permutation is a new list. Empty if the given list is null or
+     * empty
+     */
+    public static <T> Iterator<List<T>> iteratePermutations(List<T> in_listOfSteps) {
+        if (in_listOfSteps == null || in_listOfSteps.isEmpty()) {
+            return Collections.emptyIterator();
+        }
+        return new HeapPermutationIterator<>(in_listOfSteps, 0);
+    }
+
+    /**
+     * Returns the permutations of the given list as a lazy stream. See {@link #iteratePermutations(List)}.
+     *
+     * @param in_listOfSteps A list of elements
+     * @param <T>            The type of the elements
+     * @return A stream of the permutations. Empty if the given list is null or empty
+     */
+    public static <T> Stream<List<T>> streamPermutations(List<T> in_listOfSteps) {
+        final Iterator<List<T>> l_permutations = iteratePermutations(in_listOfSteps);
+        final int l_nrOfElements = in_listOfSteps == null ? 0 : in_listOfSteps.size();
+        final Spliterator<List<T>> l_spliterator = l_nrOfElements <= MAX_COUNTABLE_PERMUTATIONS
+                ? Spliterators.spliterator(l_permutations, l_nrOfElements == 0 ? 0 : factorial(l_nrOfElements),
+                Spliterator.ORDERED | Spliterator.NONNULL)
+                : Spliterators.spliteratorUnknownSize(l_permutations, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(l_spliterator, false);
+    }
+
+    private static long factorial(int in_number) {
+        long lr_factorial = 1;
+        for (int i = 2; i <= in_number; i++) {
+            lr_factorial *= i;
+        }
+        return lr_factorial;
+    }
+
+    /**
+     * Generates the permutations of a list with the iterative form of Heap's algorithm. Only the working copy of the
+     * list and one counter per element are kept between two permutations.
+     */
+    private static final class HeapPermutationIterator<T> implements Iterator<List<T>> {
+        private final List<T> elements;
+        private final int offset;
+        private final int[] counters;
+        private int position = 1;
+        private boolean hasNext;
+
+        private HeapPermutationIterator(List<T> in_list, int in_fixedPrefix) {
+            elements = new ArrayList<>(in_list);
+            offset = Math.max(0, in_fixedPrefix);
+            counters = new int[Math.max(0, in_list.size() - offset)];
+            hasNext = counters.length > 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public List<T> next() {
+            if (!hasNext) {
+                throw new NoSuchElementException("All the permutations have been returned.");
             }
+            final List<T> lr_permutation = new ArrayList<>(elements);
+            advance();
+            return lr_permutation;
+        }
+
+        private void advance() {
+            while (position < counters.length) {
+                if (counters[position] < position) {
+                    Collections.swap(elements, offset + (position % 2 == 0 ? 0 : counters[position]),
+                            offset + position);
+                    counters[position]++;
+                    position = 1;
+                    return;
+                }
+                counters[position] = 0;
+                position++;
+            }
+            hasNext = false;
         }
-        return allPermutations;
     }
 
+    /**
+     * Returns the concatenations of each list on the left with each list on the right. If one of the given lists is
+     * empty, the other one is returned.
+     *
+     * @param in_listLeft  The lists placed first
+     * @param in_listRight The lists placed last
+     * @param <T>          The type of the elements
+     * @return The list of all concatenations
+     */
     public static <T>  List<List<T>> outerJoinListOfLists(List<List<T>> in_listLeft, List<List<T>> in_listRight) {
         if (in_listLeft == null || in_listRight == null) {
             throw new IllegalArgumentException("The given lists cannot be null");
         }
 
-        List<List<T>> lr_result = new ArrayList<>();
-
         if (in_listLeft.isEmpty() || in_listRight.isEmpty()) {
             return in_listLeft.isEmpty() ? in_listRight : in_listLeft;
         }
 
-        for (List<T> l_list1Entry : in_listLeft) {
-            for (List<T> l_list2Entry : in_listRight) {
-                List<T> l_newEntry = new ArrayList<>();
-                l_newEntry.addAll(l_list1Entry);
-                l_newEntry.addAll(l_list2Entry);
-                lr_result.add(l_newEntry);
-            }
+        return streamOuterJoinListOfLists(in_listLeft.stream(), in_listRight).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the concatenations of each list on the left with each list on the right, as a lazy stream. The lists on
+     * the left are consumed one at a time, so that they can themselves be generated lazily, for example with
+     * {@link #streamPermutations(List)}. If the lists on the right are empty, the lists on the left are returned.
+     *
+     * @param in_listLeft  The lists placed first
+     * @param in_listRight The lists placed last
+     * @param <T>          The type of the elements
+     * @return A stream of all concatenations
+     */
+    public static <T> Stream<List<T>> streamOuterJoinListOfLists(Stream<List<T>> in_listLeft,
+            List<List<T>> in_listRight) {
+        if (in_listLeft == null || in_listRight == null) {
+            throw new IllegalArgumentException("The given lists cannot be null");
+        }
+
+        if (in_listRight.isEmpty()) {
+            return in_listLeft;
         }
 
-        return lr_result;
+        return in_listLeft.flatMap(l -> in_listRight.stream().map(r -> {
+            final List<T> lr_newEntry = new ArrayList<>(l.size() + r.size());
+            lr_newEntry.addAll(l);
+            lr_newEntry.addAll(r);
+            return lr_newEntry;
+        }));
     }
 }
@@ -8,8 +8,12 @@
  */
 package com.adobe.campaign.tests.integro.phased.utils;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
- * Manages access to the stack trace
+ * Manages access to the stack trace. We use a {@link StackWalker} so that only the frames we need are walked,
+ * instead of capturing the full stack trace of the current thread.
  *
  *
  * Author : gandomi
@@ -17,6 +21,19 @@ package com.adobe.campaign.tests.integro.phased.utils;
  */
 public final class StackTraceManager {
 
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance(
+            StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    /**
+     * The resolved caller identities, per class and method name
+     */
+    private static final ClassValue<Map<String, CallerIdentity>> CALLER_IDENTITIES = new ClassValue<>() {
+        @Override
+        protected Map<String, CallerIdentity> computeValue(Class<?> in_class) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
     private StackTraceManager() {
         //Utility class. Defeat instantiation
     }
@@ -28,19 +45,19 @@ public final class StackTraceManager {
      * A to B to C
      * <p>
      * If you call fetchCalledBy() from C it will return B
-     * 
+     *
      * @return A stack trace element corresponding to the method that called the
      *         caller
      */
     public static StackTraceElement fetchCalledBy() {
         /*
-        3 - because The stack trace contains :
-            0. getStackTrace()
-            1. StackTraceElement.fetchCalledBy()
-            2. The method from which this method "StackTraceElement fetchCalledBy()" is called
-            3. ---  The method that did the call  ---
+        2 - because the walked frames are :
+            0. StackTraceManager.fetchCalledBy()
+            1. The method from which this method "StackTraceElement fetchCalledBy()" is called
+            2. ---  The method that did the call  ---
         */
-        return Thread.currentThread().getStackTrace()[3];
+        return STACK_WALKER.walk(s -> s.skip(2).findFirst()).map(StackWalker.StackFrame::toStackTraceElement)
+                .orElseThrow(() -> new IllegalStateException("No caller found in the current stack."));
     }
 
     /**
@@ -58,9 +75,37 @@ public final class StackTraceManager {
      *
      */
     public static String fetchCalledByFullName() {
-        StackTraceElement l_calledElement = Thread.currentThread().getStackTrace()[3];
-        return l_calledElement.getClassName() + '.'
-            + l_calledElement.getMethodName();
+        return fetchCallerIdentity(STACK_WALKER.walk(s -> s.skip(2).findFirst())
+                .orElseThrow(() -> new IllegalStateException("No caller found in the current stack.")))
+                .getFullName();
+    }
+
+    /**
+     * This method fetches the frame of the method that called the current method. Example : if you have the
+     * following stack trace:
+     * <p>
+     * A to B to C
+     * <p>
+     * If you call fetchCalledByFrame() from C it will return the frame of B. Only the first three frames are walked.
+     *
+     * @return The stack frame of the caller of the method that called this method
+     */
+    public static StackWalker.StackFrame fetchCalledByFrame() {
+        return STACK_WALKER.walk(s -> s.skip(2).findFirst())
+                .orElseThrow(() -> new IllegalStateException("No caller found in the current stack."));
+    }
+
+    /**
+     * Returns the identity of the given frame. The identity is cached per class and method, so that the full name
+     * is only built once for a call site.
+     *
+     * @param in_frame A stack frame, usually fetched with {@link #fetchCalledByFrame()}
+     * @return The identity of the method that the frame corresponds to
+     */
+    public static CallerIdentity fetchCallerIdentity(StackWalker.StackFrame in_frame) {
+        final Class<?> l_declaringClass = in_frame.getDeclaringClass();
+        return CALLER_IDENTITIES.get(l_declaringClass).computeIfAbsent(in_frame.getMethodName(),
+                m -> new CallerIdentity(l_declaringClass.getName(), m));
     }
 
 }
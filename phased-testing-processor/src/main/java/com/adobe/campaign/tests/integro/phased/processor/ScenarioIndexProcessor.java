@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.processor;
+
+import com.adobe.campaign.tests.integro.phased.PhaseEvent;
+import com.adobe.campaign.tests.integro.phased.PhasedTest;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioIndex;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.source.util.Trees;
+import org.testng.annotations.*;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * An annotation processor that writes the {@link ScenarioIndex} of the compiled scenarios. A scenario is a class
+ * that has the annotation {@link PhasedTest}, or that extends such a class.
+ * <p>
+ * For each public method declared in a scenario, the index stores the line of the method, whether it is a
+ * configuration method or has a {@link PhaseEvent}, and the calls to produce, produceInStep, consume and
+ * consumeFromStep that are made in its body. These are the same dependencies as those found by parsing the source
+ * file at run-time.
+ * <p>
+ * When only part of the sources is compiled, the scenarios of the existing index are kept, and the recompiled ones are
+ * replaced. The processor never claims the annotations it sees.
+ */
+@SupportedAnnotationTypes("*")
+public class ScenarioIndexProcessor extends AbstractProcessor {
+    private static final Set<String> CONFIG_ANNOTATIONS = Stream.of(BeforeClass.class, BeforeMethod.class,
+            BeforeSuite.class, BeforeGroups.class, BeforeTest.class, AfterClass.class, AfterMethod.class,
+            AfterSuite.class, AfterGroups.class, AfterTest.class).map(Class::getTypeName).collect(Collectors.toSet());
+
+    private final Map<String, List<String[]>> indexedScenarios = new LinkedHashMap<>();
+    private Trees trees = null;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment in_processingEnv) {
+        super.init(in_processingEnv);
+        try {
+            trees = Trees.instance(in_processingEnv);
+        } catch (IllegalArgumentException e) {
+            in_processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "The scenario index is only generated by javac. The scenario sources will be parsed at run-time.");
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> in_annotations, RoundEnvironment in_roundEnv) {
+        if (trees == null) {
+            return false;
+        }
+
+        if (in_roundEnv.processingOver()) {
+            if (!indexedScenarios.isEmpty()) {
+                writeIndex();
+            }
+            return false;
+        }
+
+        for (TypeElement lt_type : ElementFilter.typesIn(in_roundEnv.getRootElements())) {
+            indexTypes(lt_type);
+        }
+        return false;
+    }
+
+    /**
+     * Indexes the given type, and the types nested in it, if they are scenarios
+     *
+     * @param in_type A compiled type
+     */
+    private void indexTypes(TypeElement in_type) {
+        if (isScenario(in_type)) {
+            indexedScenarios.put(processingEnv.getElementUtils().getBinaryName(in_type).toString(),
+                    indexScenario(in_type));
+        }
+
+        for (TypeElement lt_nestedType : ElementFilter.typesIn(in_type.getEnclosedElements())) {
+            indexTypes(lt_nestedType);
+        }
+    }
+
+    /**
+     * Lets us know if the type, or one of its super classes, has the annotation {@link PhasedTest}
+     *
+     * @param in_type A compiled type
+     * @return true if the type is a scenario
+     */
+    static boolean isScenario(TypeElement in_type) {
+        if (in_type.getKind() != ElementKind.CLASS) {
+            return false;
+        }
+
+        for (TypeElement lt_type = in_type; lt_type != null; lt_type = fetchSuperClass(lt_type)) {
+            if (hasAnnotation(lt_type, PhasedTest.class.getTypeName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static TypeElement fetchSuperClass(TypeElement in_type) {
+        TypeMirror l_superClass = in_type.getSuperclass();
+        return l_superClass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) l_superClass).asElement()
+                : null;
+    }
+
+    private static boolean hasAnnotation(Element in_element, String in_annotationName) {
+        return in_element.getAnnotationMirrors().stream().anyMatch(a -> isAnnotation(a, in_annotationName));
+    }
+
+    private static boolean isAnnotation(AnnotationMirror in_annotation, String in_annotationName) {
+        return ((TypeElement) in_annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(
+                in_annotationName);
+    }
+
+    /**
+     * Creates the index records of a scenario. The public methods are listed in the order in which they are declared
+     *
+     * @param in_scenario The scenario class
+     * @return The records describing the steps of the scenario
+     */
+    private List<String[]> indexScenario(TypeElement in_scenario) {
+        List<String[]> lr_records = new ArrayList<>();
+
+        for (ExecutableElement lt_method : ElementFilter.methodsIn(in_scenario.getEnclosedElements())) {
+            if (!lt_method.getModifiers().contains(Modifier.PUBLIC)) {
+                continue;
+            }
+            TreePath lt_path = trees.getPath(lt_method);
+            if (lt_path == null) {
+                continue;
+            }
+            final CompilationUnitTree lt_unit = lt_path.getCompilationUnit();
+            final String lt_stepName = lt_method.getSimpleName().toString();
+
+            lr_records.add(new String[] { ScenarioIndex.RECORD_STEP, lt_stepName,
+                    Long.toString(fetchLine(lt_unit, lt_path.getLeaf())), fetchFlags(lt_method) });
+
+            new TreeScanner<Void, Void>() {
+                @Override
+                public Void visitMethodInvocation(MethodInvocationTree in_call, Void in_arg) {
+                    super.visitMethodInvocation(in_call, in_arg);
+                    final String l_line = Long.toString(fetchLine(lt_unit, in_call));
+
+                    switch (fetchCalledName(in_call.getMethodSelect())) {
+                    case "produce":
+                        lr_records.add(new String[] { ScenarioIndex.RECORD_PRODUCE, fetchFirstArgument(in_call),
+                                l_line });
+                        break;
+                    case "produceInStep":
+                        lr_records.add(new String[] { ScenarioIndex.RECORD_PRODUCE, lt_stepName, l_line });
+                        break;
+                    case "consume":
+                    case "consumeFromStep":
+                        lr_records.add(new String[] { ScenarioIndex.RECORD_CONSUME, fetchFirstArgument(in_call),
+                                l_line });
+                        break;
+                    default:
+                        break;
+                    }
+                    return null;
+                }
+            }.scan(lt_path.getLeaf(), null);
+        }
+        return lr_records;
+    }
+
+    private static String fetchFlags(ExecutableElement in_method) {
+        StringBuilder lr_flags = new StringBuilder();
+        if (in_method.getAnnotationMirrors().stream().anyMatch(a -> CONFIG_ANNOTATIONS.contains(
+                ((TypeElement) a.getAnnotationType().asElement()).getQualifiedName().toString()))) {
+            lr_flags.append(ScenarioIndex.FLAG_CONFIG);
+        }
+        if (hasAnnotation(in_method, PhaseEvent.class.getTypeName())) {
+            lr_flags.append(ScenarioIndex.FLAG_EVENT);
+        }
+        return lr_flags.length() == 0 ? ScenarioIndex.NO_FLAGS : lr_flags.toString();
+    }
+
+    private long fetchLine(CompilationUnitTree in_unit, Tree in_tree) {
+        return in_unit.getLineMap().getLineNumber(trees.getSourcePositions().getStartPosition(in_unit, in_tree));
+    }
+
+    private static String fetchCalledName(ExpressionTree in_methodSelect) {
+        switch (in_methodSelect.getKind()) {
+        case IDENTIFIER:
+            return ((IdentifierTree) in_methodSelect).getName().toString();
+        case MEMBER_SELECT:
+            return ((MemberSelectTree) in_methodSelect).getIdentifier().toString();
+        default:
+            return "";
+        }
+    }
+
+    /**
+     * Returns the first argument as it is written in the source, without the quotes. This is how the keys are stored
+     * when the source is parsed at run-time. The separators of the index are replaced by spaces.
+     */
+    private static String fetchFirstArgument(MethodInvocationTree in_call) {
+        return in_call.getArguments().isEmpty() ? ""
+                : in_call.getArguments().get(0).toString().replace("\"", "").replaceAll("[\\t\\r\\n]", " ");
+    }
+
+    /**
+     * Writes the index. The scenarios of an index created by a previous compilation are kept, unless they have been
+     * compiled again.
+     */
+    private void writeIndex() {
+        Map<String, List<String[]>> l_scenarios = new TreeMap<>(readPreviousIndex());
+        l_scenarios.putAll(indexedScenarios);
+
+        try {
+            FileObject l_index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    ScenarioIndex.INDEX_RESOURCE);
+            try (Writer l_writer = l_index.openWriter()) {
+                ScenarioIndex.write(l_writer, l_scenarios);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "The scenario index could not be written : " + e.getMessage());
+        }
+    }
+
+    private Map<String, List<String[]>> readPreviousIndex() {
+        try {
+            FileObject l_previousIndex = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    ScenarioIndex.INDEX_RESOURCE);
+            try (Reader l_reader = l_previousIndex.openReader(true)) {
+                return ScenarioIndex.read(l_reader);
+            }
+        } catch (IOException | RuntimeException e) {
+            return Collections.emptyMap();
+        }
+    }
+}
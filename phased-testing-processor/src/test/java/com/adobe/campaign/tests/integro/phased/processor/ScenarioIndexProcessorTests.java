@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.processor;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import com.adobe.campaign.tests.integro.phased.processor.data.ProcessorScenario;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioIndex;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencies;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencyFactory;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.StepDependencies;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ScenarioIndexProcessorTests {
+    private static final File SCENARIO_SOURCE = new File(
+            "src/test/java/com/adobe/campaign/tests/integro/phased/processor/data/ProcessorScenario.java");
+
+    @BeforeMethod
+    @AfterMethod
+    public void clearIndex() {
+        ScenarioIndex.clear();
+    }
+
+    @Test
+    public void testIndexCorrespondsToTheParsedSource() throws IOException {
+        Map<String, List<String[]>> l_index = compileWithProcessor(Files.createTempDirectory("scenario-index"),
+                ToolProvider.getSystemJavaCompiler().getStandardFileManager(null, null, StandardCharsets.UTF_8)
+                        .getJavaFileObjects(SCENARIO_SOURCE));
+
+        assertThat(l_index.keySet(), contains(ProcessorScenario.class.getTypeName()));
+
+        assertThat("There is no index on the class path", ScenarioIndex.isIndexed(ProcessorScenario.class),
+                is(false));
+        ScenarioStepDependencies l_parsed = ScenarioStepDependencyFactory.listMethodCalls(ProcessorScenario.class);
+
+        ScenarioIndex.register(ProcessorScenario.class.getTypeName(),
+                l_index.get(ProcessorScenario.class.getTypeName()));
+        ScenarioStepDependencies l_indexed = ScenarioStepDependencyFactory.listMethodCalls(ProcessorScenario.class);
+
+        assertThat(l_indexed.getScenarioName(), equalTo(l_parsed.getScenarioName()));
+        assertThat(l_indexed.getStepDependencies().keySet(),
+                equalTo(l_parsed.getStepDependencies().keySet()));
+        for (StepDependencies lt_parsedStep : l_parsed.getStepDependencies().values()) {
+            StepDependencies lt_indexedStep = l_indexed.getStep(lt_parsedStep.getStepName());
+            assertThat(lt_indexedStep.getStepLine(), equalTo(lt_parsedStep.getStepLine()));
+            assertThat(lt_indexedStep.isConfigMethod(), equalTo(lt_parsedStep.isConfigMethod()));
+            assertThat(lt_indexedStep.getProduceSet(), equalTo(lt_parsedStep.getProduceSet()));
+            assertThat(lt_indexedStep.getConsumeSet(), equalTo(lt_parsedStep.getConsumeSet()));
+        }
+        assertThat(l_indexed.fetchExecutionOrderList(), equalTo(l_parsed.fetchExecutionOrderList()));
+
+        assertThat(l_indexed.getStep("prepare").isConfigMethod(), is(true));
+        assertThat(l_indexed.getStep("step2").getConsumeSet(), containsInAnyOrder("user", "step1"));
+        assertThat(l_indexed.getStep("step1").getProduceSet(), containsInAnyOrder("user", "step1"));
+        assertThat(ScenarioIndex.fetchEventSteps(ProcessorScenario.class), contains("step2"));
+    }
+
+    @Test
+    public void testIndexedScenarios() throws IOException {
+        Map<String, List<String[]>> l_index = compileWithProcessor(Files.createTempDirectory("scenario-index"),
+                Arrays.asList(
+                        new SourceString("a.Parent",
+                                "package a; @com.adobe.campaign.tests.integro.phased.PhasedTest public class Parent {}"),
+                        new SourceString("a.Child", "package a; public class Child extends Parent {\n"
+                                + "  public void step1(String v) { com.adobe.campaign.tests.integro.phased"
+                                + ".PhasedTestManager.produce(\"k\", \"v\"); }\n"
+                                + "  private void helper() { }\n"
+                                + "}"),
+                        new SourceString("a.Outer", "package a; public class Outer {\n"
+                                + "  @com.adobe.campaign.tests.integro.phased.PhasedTest public static class Inner {\n"
+                                + "    public void step1(String v) { }\n"
+                                + "  }\n"
+                                + "}")));
+
+        assertThat("Scenarios are found through their superclass, and in nested classes", l_index.keySet(),
+                containsInAnyOrder("a.Parent", "a.Child", "a.Outer$Inner"));
+
+        List<String[]> l_childRecords = l_index.get("a.Child");
+        assertThat("Only public methods are steps", l_childRecords.size(), equalTo(2));
+        assertThat(l_childRecords.get(0), arrayContaining(ScenarioIndex.RECORD_STEP, "step1", "2",
+                ScenarioIndex.NO_FLAGS));
+        assertThat(l_childRecords.get(1), arrayContaining(ScenarioIndex.RECORD_PRODUCE, "k", "2"));
+    }
+
+    @Test
+    public void testIndexIsMergedWithPreviousCompilations() throws IOException {
+        Path l_output = Files.createTempDirectory("scenario-index");
+        compileWithProcessor(l_output, Collections.singletonList(new SourceString("b.First",
+                "package b; @com.adobe.campaign.tests.integro.phased.PhasedTest public class First {}")));
+
+        Map<String, List<String[]>> l_index = compileWithProcessor(l_output, Collections.singletonList(
+                new SourceString("b.Second",
+                        "package b; @com.adobe.campaign.tests.integro.phased.PhasedTest public class Second {}")));
+
+        assertThat(l_index.keySet(), contains("b.First", "b.Second"));
+    }
+
+    @Test
+    public void testReadIndex() throws IOException {
+        Reader l_reader = new StringReader(ScenarioIndex.INDEX_HEADER + "\nS\ta.B\nM\tstep1\t3\tE\nC\tk\t4\n\nS\ta.C\n");
+        Map<String, List<String[]>> l_index = ScenarioIndex.read(l_reader);
+
+        assertThat(l_index.keySet(), contains("a.B", "a.C"));
+        assertThat(l_index.get("a.B").get(1), arrayContaining("C", "k", "4"));
+        assertThat(l_index.get("a.C"), empty());
+
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> ScenarioIndex.read(new StringReader("#other-index\nS\ta.B\n")));
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> ScenarioIndex.read(new StringReader(ScenarioIndex.INDEX_HEADER + "\nM\tstep1\t3\t-\n")));
+    }
+
+    /**
+     * Compiles the given sources with the {@link ScenarioIndexProcessor}, and reads the generated index
+     */
+    private static Map<String, List<String[]>> compileWithProcessor(Path in_output,
+            Iterable<? extends JavaFileObject> in_sources) throws IOException {
+        JavaCompiler l_compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> l_diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager l_fileManager = l_compiler.getStandardFileManager(l_diagnostics, null,
+                StandardCharsets.UTF_8);
+        l_fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(in_output.toFile()));
+
+        JavaCompiler.CompilationTask l_task = l_compiler.getTask(null, l_fileManager, l_diagnostics,
+                Arrays.asList("-proc:only", "-classpath",
+                        System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"))),
+                null, in_sources);
+        l_task.setProcessors(Collections.singletonList(new ScenarioIndexProcessor()));
+        assertThat(l_diagnostics.getDiagnostics().toString(), l_task.call(), is(true));
+
+        try (Reader l_reader = Files.newBufferedReader(in_output.resolve(ScenarioIndex.INDEX_RESOURCE),
+                StandardCharsets.UTF_8)) {
+            return ScenarioIndex.read(l_reader);
+        }
+    }
+
+    private static class SourceString extends SimpleJavaFileObject {
+        private final String code;
+
+        SourceString(String in_className, String in_code) {
+            super(URI.create("string:///" + in_className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            code = in_code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean in_ignoreEncodingErrors) {
+            return code;
+        }
+    }
+}
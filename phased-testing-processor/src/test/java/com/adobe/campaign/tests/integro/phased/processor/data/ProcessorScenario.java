@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.processor.data;
+
+import com.adobe.campaign.tests.integro.phased.PhaseEvent;
+import com.adobe.campaign.tests.integro.phased.PhasedTest;
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test
+@PhasedTest
+public class ProcessorScenario {
+
+    @BeforeClass
+    public void prepare() {
+        PhasedTestManager.produce("prepared", "true");
+    }
+
+    public void step1(String val) {
+        PhasedTestManager.produce("user", "u1");
+        PhasedTestManager.produceInStep("A");
+    }
+
+    @PhaseEvent
+    public void step2(String val) {
+        String l_user = PhasedTestManager.consume("user");
+        PhasedTestManager.produce("order",
+                l_user + PhasedTestManager.consumeFromStep("step1"));
+    }
+
+    public void step3(String val) {
+        PhasedTestManager.consume("order");
+        PhasedTestManager.consume("prepared");
+    }
+}
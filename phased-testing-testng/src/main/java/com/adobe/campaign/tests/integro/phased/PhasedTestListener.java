@@ -11,6 +11,8 @@ package com.adobe.campaign.tests.integro.phased;
 import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
 import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
 import com.adobe.campaign.tests.integro.phased.internal.PhaseProcessorFactory;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioDependencyCache;
+import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioIndex;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencies;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.ScenarioStepDependencyFactory;
 import com.adobe.campaign.tests.integro.phased.stepdependencies.StepDependencies;
@@ -27,11 +29,13 @@ import org.testng.xml.XmlClass;
 import org.testng.xml.XmlSuite;
 import org.testng.xml.XmlTest;
 
+import java.io.File;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -48,6 +52,10 @@ public class PhasedTestListener
 
     @Override
     public void alter(List<XmlSuite> suites) {
+        RunConfiguration.refresh();
+        setUpDataBroker(suites);
+        keepStepsInOrder(suites);
+
         if (ConfigValueHandlerPhased.PROP_SELECTED_PHASE.isSet()) {
             log.warn("IMPORTANT: The property {} is DEPRECATED. Please you the property {} henceforth.",
                     ConfigValueHandlerPhased.PROP_SELECTED_PHASE.systemName, ConfigValueHandlerPhased.PROP_EXECUTION_MODE.systemName);
@@ -55,6 +63,67 @@ public class PhasedTestListener
         log.debug("{} in alter - current Execution State is : {}", PhasedTestManager.PHASED_TEST_LOG_PREFIX
                 , ExecutionMode.getCurrentModeAsString());
 
+        final int l_nrOfScenarios = ScenarioIndex.load();
+        log.debug("{} Loaded {} scenarios from the scenario index.", PhasedTestManager.PHASED_TEST_LOG_PREFIX,
+                l_nrOfScenarios);
+
+        // *** import context for consumer ***
+        //The second condition is there for testing purposes. You can bypass the file by filling the Test
+        if (ExecutionMode.INTERRUPTIVE.isSelected("CONSUMER") && PhasedTestManager.getPhasedCache().isEmpty()) {
+            //Waits for the download started in setUpDataBroker
+            final Set<String> l_selectedClasses = PhasedDataSharding.fetchSelectedClasses(suites);
+            PhasedTestManager.importPhaseData(l_selectedClasses);
+        }
+
+        //Inject the phased tests executed in the previous phase
+        // This is activated when the test group "PHASED_PRODUCED_TESTS" group
+        for (XmlTest lt_xmlTest : suites.get(0).getTests().stream()
+                .filter(t -> t.getIncludedGroups().contains(PhasedTestManager.STD_GROUP_SELECT_TESTS_BY_PRODUCER))
+                .collect(Collectors.toList())) {
+
+            PhasedTestManager.activateTestSelectionByProducerMode();
+
+            //Attach new classes to suite
+            final Set<XmlClass> l_newXMLTests = PhasedTestManager.fetchExecutedPhasedClasses().stream()
+                    .map(XmlClass::new).collect(Collectors.toSet());
+
+            //add the original test classes
+            l_newXMLTests.addAll(lt_xmlTest.getXmlClasses());
+            lt_xmlTest.setXmlClasses(new ArrayList<>(l_newXMLTests));
+        }
+    }
+
+    /**
+     * The steps of a scenario are executed one after the other, by the same thread. When the methods or the instances
+     * are executed in parallel, TestNG executes the steps of a scenario concurrently. These tests are therefore
+     * executed with parallel classes instead, so that the scenarios are still executed in parallel.
+     *
+     * @param suites The suites being altered
+     */
+    private void keepStepsInOrder(List<XmlSuite> suites) {
+        for (XmlSuite lt_suite : suites) {
+            for (XmlTest lt_test : lt_suite.getTests()) {
+                final XmlSuite.ParallelMode lt_parallelMode = lt_test.getParallel();
+                if (lt_parallelMode == XmlSuite.ParallelMode.METHODS
+                        || lt_parallelMode == XmlSuite.ParallelMode.INSTANCES) {
+                    log.warn("{} The steps of a phased scenario cannot be executed in parallel. The test {} is "
+                                    + "executed with parallel=\"{}\" instead of parallel=\"{}\".",
+                            PhasedTestManager.PHASED_TEST_LOG_PREFIX, lt_test.getName(),
+                            XmlSuite.ParallelMode.CLASSES, lt_parallelMode);
+                    lt_test.setParallel(XmlSuite.ParallelMode.CLASSES);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the data broker of the suite, if any. In a CONSUMER phase, the download of the Phased Data through the data
+     * broker is started here, so that it overlaps with the loading of the scenario index and the selection of the
+     * classes. The data is imported once these are done.
+     *
+     * @param suites The suites being altered
+     */
+    private void setUpDataBroker(List<XmlSuite> suites) {
         // *** Import DataBroker ***
         String l_phasedDataBrokerClass = null;
         if (ConfigValueHandlerPhased.PROP_PHASED_TEST_DATABROKER.isSet()) {
@@ -79,27 +148,8 @@ public class PhasedTestListener
             }
         }
 
-        // *** import context for consumer ***
-        //The second condition is there for testing purposes. You can bypass the file by filling the Test
         if (ExecutionMode.INTERRUPTIVE.isSelected("CONSUMER") && PhasedTestManager.getPhasedCache().isEmpty()) {
-            PhasedTestManager.importPhaseData();
-        }
-
-        //Inject the phased tests executed in the previous phase
-        // This is activated when the test group "PHASED_PRODUCED_TESTS" group
-        for (XmlTest lt_xmlTest : suites.get(0).getTests().stream()
-                .filter(t -> t.getIncludedGroups().contains(PhasedTestManager.STD_GROUP_SELECT_TESTS_BY_PRODUCER))
-                .collect(Collectors.toList())) {
-
-            PhasedTestManager.activateTestSelectionByProducerMode();
-
-            //Attach new classes to suite
-            final Set<XmlClass> l_newXMLTests = PhasedTestManager.fetchExecutedPhasedClasses().stream()
-                    .map(XmlClass::new).collect(Collectors.toSet());
-
-            //add the original test classes
-            l_newXMLTests.addAll(lt_xmlTest.getXmlClasses());
-            lt_xmlTest.setXmlClasses(new ArrayList<>(l_newXMLTests));
+            PhasedTestManager.prefetchPhaseData();
         }
     }
 
@@ -125,7 +175,8 @@ public class PhasedTestListener
             //Cases 1,2,4,5
             final String l_dataProvider = PhasedTestManager.concatenateParameterArray(result.getParameters());
 
-            PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(l_method), l_dataProvider);
+            PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(l_method), l_dataProvider,
+                    result.getParameters());
 
             switch (PhasedTestManager.scenarioStateDecision(result)) {
             case SKIP_PREVIOUS_FAILURE:
@@ -151,6 +202,7 @@ public class PhasedTestListener
             case CONFIG_FAILURE:
             default:
                 //Continue
+                PhasedTestManager.prepareConsumables(result);
             }
 
             //Managing events
@@ -235,11 +287,13 @@ public class PhasedTestListener
      */
     protected void standardPostTestActions(ITestResult result) {
         final Method l_method = result.getMethod().getConstructorOrMethod().getMethod();
+        PhasedTestManager.clearStepContext();
 
         if (PhasedTestManager.isPhasedTest(l_method)) {
             //TRIM add property check
             appendShuffleGroupToName(result);
             PhasedTestManager.scenarioStateStore(result);
+            PhasedTestManager.releaseConsumables(PhasedTestManager.fetchScenarioName(result), l_method.getName());
 
             //Cases 4 & 5
             if (ExecutionMode.NON_INTERRUPTIVE.isSelected()) {
@@ -274,12 +328,30 @@ public class PhasedTestListener
     @Override
     public void onFinish(ITestContext context) {
 
+        //The dependencies parsed while the steps were executed are kept for the next run
+        ScenarioDependencyCache.persist();
+
         //Once the tests have finished in producer mode we, need to export the data
+        //The transfer through the data broker overlaps with the merging of the reports
+        CompletableFuture<File> l_export = CompletableFuture.completedFuture(null);
         if (ExecutionMode.INTERRUPTIVE.isSelected("PRODUCER")) {
             log.info("{} At the end. Exporting data", PhasedTestManager.PHASED_TEST_LOG_PREFIX);
-            PhasedTestManager.exportPhaseData();
+            l_export = PhasedTestManager.exportPhaseDataAsync();
         }
 
+        try {
+            reduceReports(context);
+        } finally {
+            PhasedTestManager.awaitTransfer(l_export);
+        }
+    }
+
+    /**
+     * Merges the results of the phased scenarios, if the merged reports are activated
+     *
+     * @param context The context of the finished test
+     */
+    private void reduceReports(ITestContext context) {
         PhasedTestManager.applyMergeReportChoice();
 
         boolean isInactive = !PhasedTestManager.isMergedReportsActivated();
@@ -516,8 +588,9 @@ public class PhasedTestListener
         } else {
 
             //Generate scenario step dependencies
-            Map<String, ScenarioStepDependencies> l_scenarioDependencies = l_phasedClasses.stream()
-                    .map(ScenarioStepDependencyFactory::listMethodCalls).collect(Collectors.toMap(ScenarioStepDependencies::getScenarioName, Function.identity()));
+            Map<String, ScenarioStepDependencies> l_scenarioDependencies = ScenarioStepDependencyFactory
+                    .analyzeScenarios(l_phasedClasses).getDependencies();
+            ScenarioDependencyCache.persist();
 
             //if (Phases.getCurrentPhase().hasSplittingEvent()) {
                 log.info("{} Generating Phased Providers", PhasedTestManager.PHASED_TEST_LOG_PREFIX);
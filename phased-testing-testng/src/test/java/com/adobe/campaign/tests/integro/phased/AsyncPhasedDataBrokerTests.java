@@ -0,0 +1,171 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.data.AsyncPhasedDataBrokerTestImplementation;
+import com.adobe.campaign.tests.integro.phased.data.PhasedDataBrokerTestImplementation;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+import com.adobe.campaign.tests.integro.phased.utils.GeneralTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class AsyncPhasedDataBrokerTests {
+    @BeforeMethod
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        PhasedTestManager.clearDataBroker();
+        ConfigValueHandlerPhased.resetAllValues();
+        AsyncPhasedDataBrokerTestImplementation.reset();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testSetAsyncDataBroker() {
+        PhasedTestManager.setDataBroker(AsyncPhasedDataBrokerTestImplementation.class.getTypeName());
+
+        assertThat(PhasedTestManager.getAsyncDataBroker(), instanceOf(AsyncPhasedDataBrokerTestImplementation.class));
+        assertThat("There is no file based data broker", PhasedTestManager.getDataBroker(), nullValue());
+
+        PhasedTestManager.clearDataBroker();
+        assertThat(PhasedTestManager.getAsyncDataBroker(), nullValue());
+    }
+
+    @Test
+    public void testFileDataBrokerIsAdapted() {
+        PhasedDataBrokerTestImplementation l_fileBroker = new PhasedDataBrokerTestImplementation();
+        PhasedTestManager.setDataBroker(l_fileBroker);
+
+        assertThat(PhasedTestManager.getDataBroker(), sameInstance(l_fileBroker));
+        assertThat(PhasedTestManager.getAsyncDataBroker(), instanceOf(FileDataBrokerAdapter.class));
+        assertThat(((FileDataBrokerAdapter) PhasedTestManager.getAsyncDataBroker()).getDataBroker(),
+                sameInstance(l_fileBroker));
+    }
+
+    @Test
+    public void testExportAndImportThroughAsyncBroker() {
+        PhasedTestManager.setDataBroker(new AsyncPhasedDataBrokerTestImplementation());
+        final String l_key = PhasedTestManager.produce("A", "Hello");
+        PhasedTestManager.produce("B", 5L);
+
+        File l_exported = PhasedTestManager.awaitTransfer(PhasedTestManager.exportPhaseDataAsync());
+        assertThat("The export file should be stored by the broker",
+                AsyncPhasedDataBrokerTestImplementation.storedData.keySet(), contains(l_exported.getName()));
+
+        l_exported.delete();
+        PhasedTestManager.clearCache();
+
+        Properties l_imported = PhasedTestManager.importPhaseData();
+        assertThat(l_imported.size(), equalTo(2));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty(l_key), equalTo("Hello"));
+        assertThat(PhasedTestManager.consume("B", Long.class), equalTo(5L));
+    }
+
+    @Test
+    public void testPrefetch() {
+        PhasedTestManager.setDataBroker(new AsyncPhasedDataBrokerTestImplementation());
+        final String l_key = PhasedTestManager.produce("A", "Hello");
+        PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+
+        PhasedTestManager.prefetchPhaseData();
+        PhasedTestManager.prefetchPhaseData();
+        PhasedTestManager.importPhaseData();
+
+        assertThat("The data should only be fetched once", AsyncPhasedDataBrokerTestImplementation.fetchedNames,
+                contains(PhasedTestManager.STD_STORE_FILE));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty(l_key), equalTo("Hello"));
+    }
+
+    @Test
+    public void testShardsThroughAsyncBroker() {
+        ConfigValueHandlerPhased.PROP_STORAGE_SHARDING.activate("CLASS");
+        PhasedTestManager.setDataBroker(new AsyncPhasedDataBrokerTestImplementation());
+        PhasedTestManager.getPhasedCache().produce("a.b.C->A", "1");
+        PhasedTestManager.getPhasedCache().produce("a.b.E->A", "2");
+
+        File l_manifest = PhasedTestManager.exportPhaseData();
+        assertThat("The manifest and the shards should be stored",
+                AsyncPhasedDataBrokerTestImplementation.storedData.keySet(),
+                containsInAnyOrder(l_manifest.getName(), l_manifest.getName() + ".a.b.C",
+                        l_manifest.getName() + ".a.b.E"));
+        PhasedTestManager.clearCache();
+
+        PhasedTestManager.importPhaseData(Collections.singletonList("a.b.E"));
+
+        assertThat("Only the needed shard should be fetched", AsyncPhasedDataBrokerTestImplementation.fetchedNames,
+                containsInAnyOrder(l_manifest.getName(), l_manifest.getName() + ".a.b.E"));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty("a.b.E->A"), equalTo("2"));
+        assertThat(PhasedTestManager.getPhasedCache().containsKey("a.b.C->A"), equalTo(false));
+    }
+
+    @Test
+    public void testIndexedThroughAsyncBroker() {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("INDEXED");
+        PhasedTestManager.setDataBroker(new AsyncPhasedDataBrokerTestImplementation());
+        final String l_key = PhasedTestManager.produce("A", "Hello");
+        PhasedTestManager.exportPhaseData().delete();
+        PhasedTestManager.clearCache();
+
+        PhasedTestManager.importPhaseData();
+
+        assertThat("The values should not have been decoded yet", PhasedTestManager.getPhasedCache().fetchResidentKeys(),
+                empty());
+        assertThat(PhasedTestManager.getPhasedCache().getProperty(l_key), equalTo("Hello"));
+    }
+
+    @Test
+    public void testImport_negativeNothingStored() {
+        PhasedTestManager.setDataBroker(new AsyncPhasedDataBrokerTestImplementation());
+
+        Assert.assertThrows(PhasedTestException.class, PhasedTestManager::importPhaseData);
+    }
+
+    @Test
+    public void testFileDataBrokerAdapter() {
+        PhasedDataBrokerTestImplementation l_fileBroker = new PhasedDataBrokerTestImplementation();
+        FileDataBrokerAdapter l_adapter = new FileDataBrokerAdapter(l_fileBroker);
+        l_fileBroker.deleteData("adapted.txt");
+
+        PhasedTestManager.awaitTransfer(l_adapter.store("adapted.txt",
+                new ByteArrayInputStream("Hellø".getBytes(StandardCharsets.UTF_8))));
+
+        assertThat("The file should have been stored by the file broker",
+                GeneralTestUtils.fetchFileContent(l_fileBroker.fetch("adapted.txt")), equalTo("Hellø"));
+
+        try (InputStream l_fetched = PhasedTestManager.awaitTransfer(l_adapter.fetch("adapted.txt"))) {
+            assertThat(new String(l_fetched.readAllBytes(), StandardCharsets.UTF_8), equalTo("Hellø"));
+        } catch (java.io.IOException e) {
+            Assert.fail("The fetched content should be readable", e);
+        }
+    }
+
+    @Test
+    public void testFileDataBrokerAdapter_negativeMissingFile() {
+        FileDataBrokerAdapter l_adapter = new FileDataBrokerAdapter(new PhasedDataBrokerTestImplementation());
+
+        Assert.assertThrows(PhasedTestException.class,
+                () -> PhasedTestManager.awaitTransfer(l_adapter.fetch("notStored.txt")));
+    }
+}
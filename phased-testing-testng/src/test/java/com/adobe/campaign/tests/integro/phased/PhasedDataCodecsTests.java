@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import com.adobe.campaign.tests.integro.phased.spi.PhasedDataCodec;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PhasedDataCodecsTests {
+    @BeforeClass
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        ConfigValueHandlerPhased.resetAllValues();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testBuiltInCodecs() {
+        assertThat(roundTrip(Integer.class, -12), equalTo(-12));
+        assertThat(roundTrip(Long.class, Long.MAX_VALUE), equalTo(Long.MAX_VALUE));
+        assertThat(roundTrip(Double.class, 1.25d), equalTo(1.25d));
+        assertThat(roundTrip(Float.class, 1.5f), equalTo(1.5f));
+        assertThat(roundTrip(Short.class, (short) 3), equalTo((short) 3));
+        assertThat(roundTrip(Byte.class, (byte) 4), equalTo((byte) 4));
+        assertThat(roundTrip(Character.class, 'x'), equalTo('x'));
+        assertThat(roundTrip(Boolean.class, true), equalTo(true));
+        assertThat(roundTrip(String.class, "Hellø"), equalTo("Hellø"));
+        assertThat(roundTrip(byte[].class, new byte[] { 5, 6 }), equalTo(new byte[] { 5, 6 }));
+
+        assertThat("Integers should be encoded in 4 bytes",
+                PhasedDataCodecs.fetchCodec(Integer.class).encode(Integer.MAX_VALUE).length, equalTo(4));
+    }
+
+    @Test
+    public void testPrimitiveTypes() {
+        assertThat(PhasedDataCodecs.fetchCodec(int.class).getType(), equalTo(Integer.class));
+        assertThat(PhasedDataCodecs.fetchCodec(boolean.class).getType(), equalTo(Boolean.class));
+    }
+
+    @Test
+    public void testUnknownType() {
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> PhasedDataCodecs.fetchCodec(StringBuilder.class));
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> PhasedDataCodecs.fetchCodec("a.b.C"));
+    }
+
+    @Test
+    public void testRegisterCodec() {
+        PhasedDataCodecs.register(new PhasedDataCodec<LocalDate>() {
+            @Override
+            public Class<LocalDate> getType() {
+                return LocalDate.class;
+            }
+
+            @Override
+            public byte[] encode(LocalDate in_value) {
+                return in_value.toString().getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public LocalDate decode(byte[] in_encodedValue) {
+                return LocalDate.parse(new String(in_encodedValue, StandardCharsets.UTF_8));
+            }
+        });
+
+        final LocalDate l_date = LocalDate.of(2022, 3, 4);
+        assertThat(roundTrip(LocalDate.class, l_date), equalTo(l_date));
+
+        PhasedTestManager.produce("date", l_date);
+        assertThat("We should consume the value with the registered codec",
+                PhasedTestManager.consume("date", LocalDate.class), equalTo(l_date));
+    }
+
+    private static <T> T roundTrip(Class<T> in_type, T in_value) {
+        final PhasedDataCodec<T> l_codec = PhasedDataCodecs.fetchCodec(in_type);
+        return l_codec.decode(l_codec.encode(in_value));
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.data.PhasedDataBrokerTestImplementation;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+import org.testng.Assert;
+import org.testng.ITestResult;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PhasedDataJournalTests {
+    @BeforeMethod
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        PhasedTestManager.clearDataBroker();
+        ConfigValueHandlerPhased.resetAllValues();
+        PhasedTestManager.fetchExportFile().delete();
+        PhasedDataJournal.fetchJournalFile(PhasedTestManager.fetchExportFile()).delete();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testJournalIsInactiveByDefault() {
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        PhasedTestManager.produce("A", "Hello");
+
+        assertThat("No journal should be kept by default", PhasedTestManager.fetchJournal(), nullValue());
+    }
+
+    @Test
+    public void testJournalIsInactiveOutsideProducer() {
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.activate("true");
+
+        PhasedTestManager.produce("A", "Hello");
+
+        assertThat("No journal should be kept outside the PRODUCER phase", PhasedTestManager.fetchJournal(),
+                nullValue());
+    }
+
+    @Test
+    public void testReplayAfterInterruptedProducer() throws IOException {
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.activate("true");
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        final String l_stringKey = PhasedTestManager.produce("A", "Hello");
+        PhasedTestManager.produce("B", 12L);
+        final String l_scenarioName = "myScenario";
+        PhasedTestManager.scenarioStateStore(l_scenarioName, "step1", ITestResult.SUCCESS, 0, 5);
+        PhasedTestManager.scenarioStateStore(l_scenarioName, "step2", ITestResult.FAILURE, 5, 7);
+
+        final File l_journalFile = PhasedTestManager.fetchJournal().getJournalFile();
+        assertThat("The journal should be next to the export file", l_journalFile,
+                equalTo(PhasedDataJournal.fetchJournalFile(PhasedTestManager.fetchExportFile())));
+
+        //The producer stops without exporting
+        PhasedTestManager.fetchJournal().sync();
+        PhasedTestManager.clearCache();
+        ExecutionMode.INTERRUPTIVE.activate("CONSUMER");
+
+        assertThat("The export file should not exist", !PhasedTestManager.fetchExportFile().exists());
+        assertThat("The journal should exist", l_journalFile.exists());
+
+        Properties l_imported = PhasedTestManager.importPhaseData();
+
+        assertThat("We should have imported the data and the scenario", l_imported.size(), equalTo(3));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty(l_stringKey), equalTo("Hello"));
+        assertThat(PhasedTestManager.consume("B", Long.class), equalTo(12L));
+        assertThat("The last state of the scenario should be kept",
+                PhasedTestManager.getScenarioContext().get(l_scenarioName).isPassed(), equalTo(false));
+        assertThat(PhasedTestManager.getScenarioContext().get(l_scenarioName).getDuration(), equalTo(7L));
+    }
+
+    @Test
+    public void testReplayIgnoresIncompleteRecord() throws IOException {
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.activate("true");
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        final String l_key = PhasedTestManager.produce("A", "Hello");
+        final File l_journalFile = PhasedTestManager.fetchJournal().getJournalFile();
+        PhasedTestManager.clearCache();
+
+        //Simulating a record that was being written when the JVM stopped
+        try (FileOutputStream l_output = new FileOutputStream(l_journalFile, true)) {
+            l_output.write(new byte[] { 0, 0, 0, 42, 1, 2, 3, 4, 5 });
+        }
+
+        Properties l_replayed = PhasedDataJournal.replay(l_journalFile);
+        assertThat("Only the complete record should be replayed", l_replayed.size(), equalTo(1));
+        assertThat(l_replayed.getProperty(l_key), equalTo("Hello"));
+    }
+
+    @Test
+    public void testReplay_negativeNotAJournal() throws IOException {
+        File l_notAJournal = File.createTempFile("phased", PhasedDataJournal.JOURNAL_SUFFIX);
+        l_notAJournal.deleteOnExit();
+
+        Assert.assertThrows(PhasedTestException.class, () -> PhasedDataJournal.replay(l_notAJournal));
+    }
+
+    @Test
+    public void testExportCompactsJournal() {
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.activate("true");
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        final String l_key = PhasedTestManager.produce("A", "Hello");
+        final File l_journalFile = PhasedTestManager.fetchJournal().getJournalFile();
+        assertThat("The journal should exist", l_journalFile.exists());
+
+        File l_exportFile = PhasedTestManager.exportPhaseData();
+
+        assertThat("The journal should have been deleted after the export", !l_journalFile.exists());
+
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_exportFile);
+        assertThat(PhasedTestManager.getPhasedCache().getProperty(l_key), equalTo("Hello"));
+    }
+
+    @Test
+    public void testJournalIsNotRecreatedAfterClose() {
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.activate("true");
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        PhasedTestManager.produce("A", "Hello");
+        final File l_journalFile = PhasedTestManager.fetchJournal().getJournalFile();
+        PhasedTestManager.exportPhaseData();
+
+        PhasedTestManager.produce("B", "World");
+
+        assertThat("The journal should not be created again once closed", PhasedTestManager.fetchJournal(),
+                nullValue());
+        assertThat("The journal should not have been recreated", !l_journalFile.exists());
+    }
+
+    @Test
+    public void testJournalIsSyncedPeriodically() throws IOException, InterruptedException {
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.activate("true");
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL_SYNC_INTERVAL.activate("50");
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        final String l_key = PhasedTestManager.produce("A", "Hello");
+        final File l_journalFile = PhasedTestManager.fetchJournal().getJournalFile();
+
+        //No other record is appended, the last record is written by the background sync
+        Thread.sleep(500);
+
+        Properties l_replayed = PhasedDataJournal.replay(l_journalFile);
+        assertThat("The record should have been written without a further append", l_replayed.getProperty(l_key),
+                equalTo("Hello"));
+    }
+
+    @Test
+    public void testReplayWhenTheBrokerHasNoData() {
+        ConfigValueHandlerPhased.PROP_STORAGE_JOURNAL.activate("true");
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        final String l_key = PhasedTestManager.produce("A", "Hello");
+        PhasedTestManager.closeJournal(false);
+        PhasedTestManager.clearCache();
+
+        PhasedTestManager.setDataBroker(PhasedDataBrokerTestImplementation.class.getTypeName());
+        ((PhasedDataBrokerTestImplementation) ((FileDataBrokerAdapter) PhasedTestManager.getAsyncDataBroker())
+                .getDataBroker()).deleteData(PhasedTestManager.STD_STORE_FILE);
+        ExecutionMode.INTERRUPTIVE.activate("CONSUMER");
+
+        PhasedTestManager.importPhaseData();
+
+        assertThat("The journal should have been replayed", PhasedTestManager.getPhasedCache().getProperty(l_key),
+                equalTo("Hello"));
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PhasedDataRetentionTests {
+
+    private static Map<String, Set<String>> fetchStepKeys() {
+        Map<String, Set<String>> lr_stepKeys = new HashMap<>();
+        lr_stepKeys.put("step2", new HashSet<>(Arrays.asList("A", "B")));
+        lr_stepKeys.put("step3", new HashSet<>(Collections.singletonList("A")));
+        lr_stepKeys.put("step4", new HashSet<>());
+        return lr_stepKeys;
+    }
+
+    @Test
+    public void testValuesAreReleasedAfterTheirLastConsumer() {
+        PhasedDataRetention l_retention = new PhasedDataRetention();
+        l_retention.register("S", fetchStepKeys(), 3);
+
+        assertThat("B is only consumed by step2", l_retention.stepFinished("S", "step2"), contains("B"));
+        assertThat(l_retention.stepFinished("S", "step3"), contains("A"));
+        assertThat(l_retention.isRetaining("S"), equalTo(true));
+        assertThat(l_retention.stepFinished("S", "step4"), empty());
+        assertThat("All the steps have finished", l_retention.isRetaining("S"), equalTo(false));
+    }
+
+    @Test
+    public void testValuesAreReleasedWhenTheScenarioFinishes() {
+        PhasedDataRetention l_retention = new PhasedDataRetention();
+        l_retention.register("S", fetchStepKeys(), 2);
+
+        assertThat("step2 was executed in the previous phase", l_retention.stepFinished("S", "step3"), empty());
+        assertThat("The last step releases the remaining values", l_retention.stepFinished("S", "step4"),
+                containsInAnyOrder("A", "B"));
+        assertThat(l_retention.isRetaining("S"), equalTo(false));
+    }
+
+    @Test
+    public void testScenarioFinished() {
+        PhasedDataRetention l_retention = new PhasedDataRetention();
+        l_retention.register("S", fetchStepKeys(), -1);
+
+        assertThat(l_retention.stepFinished("S", "step3"), empty());
+        assertThat(l_retention.stepFinished("S", "step3"), empty());
+        assertThat(l_retention.scenarioFinished("S"), containsInAnyOrder("A", "B"));
+        assertThat(l_retention.scenarioFinished("S"), empty());
+        assertThat("Unknown scenarios are ignored", l_retention.stepFinished("T", "step2"), empty());
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PhasedDataShardingTests {
+    @BeforeMethod
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        PhasedTestManager.clearDataBroker();
+        ConfigValueHandlerPhased.resetAllValues();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testFetchScenarioClass() {
+        assertThat(PhasedDataSharding.fetchScenarioClass("a.b.C->key"), equalTo("a.b.C"));
+        assertThat(PhasedDataSharding.fetchScenarioClass("a.b.C(Q)->key(1)"), equalTo("a.b.C"));
+        assertThat("Keys produced in a step start with the step name",
+                PhasedDataSharding.fetchScenarioClass("a.b.C.step1(Q)"), equalTo("a.b.C"));
+        assertThat(PhasedDataSharding.fetchScenarioClass("a.b.C.step1"), equalTo("a.b.C"));
+        assertThat(PhasedDataSharding.fetchScenarioClass("a.b.C$D->key"), equalTo("a.b.C$D"));
+    }
+
+    @Test
+    public void testShardIds() {
+        assertThat(PhasedDataSharding.CLASS.fetchShardId("a.b.C", 4), equalTo("a.b.C"));
+        assertThat(PhasedDataSharding.HASH.fetchShardId("a.b.C", 4),
+                equalTo("shard" + Math.floorMod("a.b.C".hashCode(), 4)));
+    }
+
+    @Test
+    public void testExportByClass() throws IOException {
+        ConfigValueHandlerPhased.PROP_STORAGE_SHARDING.activate("CLASS");
+        prepareCache();
+
+        File l_manifest = PhasedTestManager.exportPhaseData();
+        assertThat("The shard of a.b.C should exist", new File(l_manifest.getParentFile(),
+                l_manifest.getName() + ".a.b.C").exists());
+        assertThat("The shard of a.b.E should exist", new File(l_manifest.getParentFile(),
+                l_manifest.getName() + ".a.b.E").exists());
+
+        Properties l_manifestContent = PhasedDataFormat.readFile(l_manifest);
+        assertThat("The manifest should contain the scenario and the shards", l_manifestContent.size(), equalTo(4));
+
+        PhasedTestManager.clearCache();
+        Properties l_imported = PhasedTestManager.importContext(l_manifest, Collections.singletonList("a.b.C"));
+
+        assertThat("We should only have imported the data of the selected class and the scenarios",
+                l_imported.size(), equalTo(4));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty("a.b.C->A"), equalTo("1"));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty("a.b.C.step2(Q)"), equalTo("2"));
+        assertThat("Nested classes are included", PhasedTestManager.getPhasedCache().getProperty("a.b.C$D->B"),
+                equalTo("3"));
+        assertThat("The data of other classes should not be imported",
+                PhasedTestManager.getPhasedCache().containsKey("a.b.E->A"), equalTo(false));
+        assertThat("All scenarios are imported", PhasedTestManager.getScenarioContext().keySet(),
+                containsInAnyOrder("a.b.C(Q)"));
+    }
+
+    @Test
+    public void testExportByHash() throws IOException {
+        ConfigValueHandlerPhased.PROP_STORAGE_SHARDING.activate("hash");
+        ConfigValueHandlerPhased.PROP_STORAGE_SHARDS.activate("1");
+        prepareCache();
+
+        File l_manifest = PhasedTestManager.exportPhaseData();
+        final File l_shard = new File(l_manifest.getParentFile(), l_manifest.getName() + ".shard0");
+        assertThat("All the data is in the only shard", PhasedDataFormat.readFile(l_shard).size(), equalTo(4));
+
+        PhasedTestManager.clearCache();
+        Properties l_imported = PhasedTestManager.importContext(l_manifest);
+        assertThat("Everything should have been imported", l_imported.size(), equalTo(5));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty("a.b.E->A"), equalTo("4"));
+    }
+
+    @Test
+    public void testExportIndexedShards() {
+        ConfigValueHandlerPhased.PROP_STORAGE_SHARDING.activate("CLASS");
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("INDEXED");
+        prepareCache();
+
+        File l_manifest = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_manifest, Arrays.asList("a.b.C", "a.b.E"));
+
+        assertThat("The indexes of both shards should be attached", PhasedTestManager.getPhasedCache().size(),
+                equalTo(4));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty("a.b.C->A"), equalTo("1"));
+        assertThat(PhasedTestManager.getPhasedCache().getProperty("a.b.E->A"), equalTo("4"));
+    }
+
+    @Test
+    public void testExportWithoutSharding() throws IOException {
+        prepareCache();
+
+        File l_exportFile = PhasedTestManager.exportPhaseData();
+        assertThat("The export file is not a manifest",
+                PhasedDataSharding.isManifest(PhasedDataFormat.readFile(l_exportFile)), equalTo(false));
+    }
+
+    @Test
+    public void testExport_negativeUnknownSharding() {
+        ConfigValueHandlerPhased.PROP_STORAGE_SHARDING.activate("NOT_A_SHARDING");
+        prepareCache();
+
+        Assert.assertThrows(PhasedTestConfigurationException.class, PhasedTestManager::exportPhaseData);
+    }
+
+    @Test
+    public void testFetchSelectedClasses() {
+        XmlSuite l_suite = new XmlSuite();
+        XmlTest l_test = new XmlTest(l_suite);
+        l_test.setXmlClasses(Arrays.asList(new XmlClass("a.b.C", false), new XmlClass("a.b.E", false)));
+
+        assertThat(PhasedDataSharding.fetchSelectedClasses(Collections.singletonList(l_suite)),
+                containsInAnyOrder("a.b.C", "a.b.E"));
+
+        XmlTest l_producedTest = new XmlTest(l_suite);
+        l_producedTest.addIncludedGroup(PhasedTestManager.STD_GROUP_SELECT_TESTS_BY_PRODUCER);
+        assertThat("When the classes of the producer are selected, all shards are needed",
+                PhasedDataSharding.fetchSelectedClasses(Collections.singletonList(l_suite)), nullValue());
+    }
+
+    @Test
+    public void testExtractShardFileNames() {
+        Properties l_manifest = new Properties();
+        l_manifest.put(PhasedDataSharding.MANIFEST_SHARD_PREFIX + "a.b.C", "f.shard1");
+        l_manifest.put(PhasedDataSharding.MANIFEST_SHARD_PREFIX + "a.b.CD", "f.shard2");
+        l_manifest.put(PhasedTestManager.SCENARIO_CONTEXT_PREFIX + "a.b.C", "true;0;null;NA");
+
+        final List<String> l_selected = Collections.singletonList("a.b.C");
+        assertThat(PhasedDataSharding.extractShardFileNames(l_manifest, l_selected), contains("f.shard1"));
+        assertThat("Only the scenarios should remain", l_manifest.size(), equalTo(1));
+    }
+
+    private static void prepareCache() {
+        PhasedDataStore l_cache = PhasedTestManager.getPhasedCache();
+        l_cache.produce("a.b.C->A", "1");
+        l_cache.produce("a.b.C.step2(Q)", "2");
+        l_cache.produce("a.b.C$D->B", "3");
+        l_cache.produce("a.b.E->A", "4");
+        PhasedTestManager.getScenarioContext().put("a.b.C(Q)",
+                new PhasedTestManager.ScenarioContextData(true, 3, "NA"));
+    }
+}
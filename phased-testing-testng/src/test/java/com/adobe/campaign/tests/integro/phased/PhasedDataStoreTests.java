@@ -0,0 +1,237 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PhasedDataStoreTests {
+    @BeforeClass
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        ConfigValueHandlerPhased.resetAllValues();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testProduce() {
+        PhasedDataStore l_store = new PhasedDataStore();
+
+        assertThat("The key should be returned", l_store.produce("a", "b"), equalTo("a"));
+        assertThat("The value should be stored", l_store.fetch("a"), equalTo("b"));
+        assertThat("The value should be visible as a property", l_store.getProperty("a"), equalTo("b"));
+        assertThat("Missing values should be null", l_store.fetch("c"), nullValue());
+    }
+
+    @Test
+    public void testProduce_twice() {
+        PhasedDataStore l_store = new PhasedDataStore();
+        l_store.produce("a", "b");
+
+        Assert.assertThrows(PhasedTestException.class, () -> l_store.produce("a", "c"));
+        assertThat("The first value should have been kept", l_store.fetch("a"), equalTo("b"));
+    }
+
+    @Test
+    public void testExportImport() throws IOException {
+        PhasedDataStore l_store = new PhasedDataStore();
+        l_store.produce("a(1_1)->b", "c");
+
+        StringWriter l_writer = new StringWriter();
+        l_store.store(l_writer, null);
+
+        Properties l_imported = new Properties();
+        l_imported.load(new StringReader(l_writer.toString()));
+
+        assertThat("The stored data should be readable as a standard property file", l_imported.getProperty(
+                "a(1_1)->b"), equalTo("c"));
+    }
+
+    @Test
+    public void testExportImport_typedOutputStream() throws IOException {
+        PhasedDataStore l_store = new PhasedDataStore();
+        l_store.produce("a(1_1)->b", "c");
+        l_store.produce("a(1_1)->d", new PhasedDataStore.EncodedValue(Long.class.getTypeName(), new byte[] { 1, 2, 3 }));
+
+        ByteArrayOutputStream l_out = new ByteArrayOutputStream();
+        l_store.store(l_out, null);
+
+        Properties l_imported = new Properties();
+        l_imported.load(new ByteArrayInputStream(l_out.toByteArray()));
+        PhasedDataStore.importTypedValues(l_imported);
+
+        assertThat(l_imported.getProperty("a(1_1)->b"), equalTo("c"));
+        assertThat("The typed value should have been exported", l_imported.get("a(1_1)->d"),
+                instanceOf(PhasedDataStore.EncodedValue.class));
+        PhasedDataStore.EncodedValue l_typedValue = (PhasedDataStore.EncodedValue) l_imported.get("a(1_1)->d");
+        assertThat(l_typedValue.getTypeName(), equalTo(Long.class.getTypeName()));
+        assertThat(l_typedValue.getBytes(), equalTo(new byte[] { 1, 2, 3 }));
+    }
+
+    @Test
+    public void testListAndXML_typed() throws IOException {
+        PhasedDataStore l_store = new PhasedDataStore();
+        l_store.produce("a(1_1)->d", new PhasedDataStore.EncodedValue(Long.class.getTypeName(), new byte[] { 1, 2, 3 }));
+
+        StringWriter l_listed = new StringWriter();
+        l_store.list(new PrintWriter(l_listed));
+        assertThat("The typed values should be listed with their prefix", l_listed.toString(),
+                containsString(PhasedDataStore.TYPED_VALUE_PREFIX + "a(1_1)->d"));
+
+        ByteArrayOutputStream l_out = new ByteArrayOutputStream();
+        l_store.storeToXML(l_out, null);
+
+        Properties l_imported = new Properties();
+        l_imported.loadFromXML(new ByteArrayInputStream(l_out.toByteArray()));
+        assertThat("The typed values should be written to XML", l_imported.stringPropertyNames(),
+                contains(PhasedDataStore.TYPED_VALUE_PREFIX + "a(1_1)->d"));
+    }
+
+    @Test
+    public void testRelease() {
+        PhasedDataStore l_store = new PhasedDataStore();
+        l_store.produce("a", "b");
+        l_store.produce("c", new PhasedDataStore.EncodedValue(Long.class.getTypeName(), new byte[] { 1, 2, 3 }));
+
+        l_store.release("a");
+        l_store.release("c");
+        l_store.release("notStored");
+
+        assertThat("The released values should no longer be on the heap", l_store.fetchResidentKeys(), empty());
+        assertThat("The released values should still be visible", l_store.size(), equalTo(2));
+        assertThat(l_store.containsKey("a"), equalTo(true));
+        assertThat("The released value should be restored", l_store.fetch("a"), equalTo("b"));
+
+        PhasedDataStore.EncodedValue l_restored = (PhasedDataStore.EncodedValue) l_store.fetchValue("c");
+        assertThat(l_restored.getTypeName(), equalTo(Long.class.getTypeName()));
+        assertThat(l_restored.getBytes(), equalTo(new byte[] { 1, 2, 3 }));
+
+        Assert.assertThrows(PhasedTestException.class, () -> l_store.produce("a", "d"));
+        assertThat("The released value should not have been overwritten", l_store.fetch("a"), equalTo("b"));
+    }
+
+    @Test
+    public void testRelease_export() throws IOException {
+        PhasedDataStore l_store = new PhasedDataStore();
+        l_store.produce("a(1_1)->b", "c");
+        l_store.produce("a(1_1)->d", "e");
+        l_store.release("a(1_1)->b");
+
+        StringWriter l_writer = new StringWriter();
+        l_store.store(l_writer, null);
+
+        Properties l_imported = new Properties();
+        l_imported.load(new StringReader(l_writer.toString()));
+
+        assertThat("The released values should also be exported", l_imported.getProperty("a(1_1)->b"),
+                equalTo("c"));
+        assertThat(l_imported.getProperty("a(1_1)->d"), equalTo("e"));
+        assertThat("The released values are back on the heap", l_store.fetchResidentKeys(),
+                containsInAnyOrder("a(1_1)->b", "a(1_1)->d"));
+
+        l_store.clear();
+        assertThat(l_store.size(), equalTo(0));
+    }
+
+    /**
+     * Several threads try to produce the same key at the same time. Only one of them should succeed.
+     */
+    @Test
+    public void testProduce_concurrentSameKey() throws InterruptedException, ExecutionException {
+        PhasedDataStore l_store = new PhasedDataStore();
+        int l_nrOfThreads = 8;
+        ExecutorService l_executor = Executors.newFixedThreadPool(l_nrOfThreads);
+        CountDownLatch l_start = new CountDownLatch(1);
+        AtomicInteger l_failures = new AtomicInteger();
+
+        try {
+            List<Future<?>> l_futures = new ArrayList<>();
+            for (int i = 0; i < l_nrOfThreads; i++) {
+                final String lt_value = "value" + i;
+                l_futures.add(l_executor.submit(() -> {
+                    l_start.await();
+                    try {
+                        l_store.produce("sharedKey", lt_value);
+                    } catch (PhasedTestException e) {
+                        l_failures.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            l_start.countDown();
+            for (Future<?> lt_future : l_futures) {
+                lt_future.get();
+            }
+        } finally {
+            l_executor.shutdown();
+        }
+
+        assertThat("Only one thread should have been able to produce the value", l_failures.get(),
+                equalTo(l_nrOfThreads - 1));
+        assertThat("The value should be one of the produced values", l_store.fetch("sharedKey"),
+                startsWith("value"));
+    }
+
+    /**
+     * Several scenarios are executed at the same time, and store their states.
+     */
+    @Test
+    public void testScenarioStateStore_concurrent() throws InterruptedException, ExecutionException {
+        int l_nrOfScenarios = 50;
+        int l_nrOfSteps = 20;
+        ExecutorService l_executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> l_futures = new ArrayList<>();
+            for (int s = 0; s < l_nrOfScenarios; s++) {
+                final String lt_scenario = "scenario" + (s % 10);
+                for (int i = 0; i < l_nrOfSteps; i++) {
+                    final String lt_step = lt_scenario + ".step" + i;
+                    l_futures.add(l_executor.submit(
+                            () -> PhasedTestManager.scenarioStateStore(lt_scenario, lt_step, 1, 0, 1)));
+                }
+            }
+            for (Future<?> lt_future : l_futures) {
+                lt_future.get();
+            }
+        } finally {
+            l_executor.shutdown();
+        }
+
+        assertThat("We should have one context per scenario", PhasedTestManager.getScenarioContext().size(),
+                equalTo(10));
+        assertThat("All scenarios should have passed", PhasedTestManager.getScenarioContext().values().stream()
+                .allMatch(PhasedTestManager.ScenarioContextData::isPassed));
+        assertThat("No step execution should have been lost", PhasedTestManager.getScenarioContext().values().stream()
+                .mapToLong(PhasedTestManager.ScenarioContextData::getDuration).sum(),
+                equalTo((long) l_nrOfScenarios * l_nrOfSteps));
+    }
+}
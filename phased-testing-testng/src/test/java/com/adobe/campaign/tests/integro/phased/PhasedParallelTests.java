@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.data.parallel.PhasedParallel_A;
+import com.adobe.campaign.tests.integro.phased.data.parallel.PhasedParallel_B;
+import com.adobe.campaign.tests.integro.phased.data.parallel.PhasedParallel_C;
+import com.adobe.campaign.tests.integro.phased.data.parallel.PhasedParallel_D;
+import com.adobe.campaign.tests.integro.phased.utils.TestTools;
+import org.testng.ITestResult;
+import org.testng.TestListenerAdapter;
+import org.testng.TestNG;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.testng.xml.XmlClass;
+import org.testng.xml.XmlSuite;
+import org.testng.xml.XmlTest;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class PhasedParallelTests {
+    private static final List<Class<?>> SCENARIOS = Arrays.asList(PhasedParallel_A.class, PhasedParallel_B.class,
+            PhasedParallel_C.class, PhasedParallel_D.class);
+
+    private static final List<String> PRODUCER_GROUPS = Arrays.asList("3_0", "2_1", "1_2");
+
+    @BeforeMethod
+    @AfterMethod
+    public void resetVariables() {
+        PhasedTestManager.clearCache();
+        ConfigValueHandlerPhased.resetAllValues();
+        PhasedTestManager.deactivateMergedReports();
+        PhasedTestManager.MergedReportData.resetReport();
+    }
+
+    @Test
+    public void testProducer_parallelClasses() {
+        runProducer(XmlSuite.ParallelMode.CLASSES);
+    }
+
+    @Test
+    public void testProducer_parallelInstances() {
+        runProducer(XmlSuite.ParallelMode.INSTANCES);
+    }
+
+    @Test
+    public void testProducer_parallelMethods() {
+        runProducer(XmlSuite.ParallelMode.METHODS);
+    }
+
+    private void runProducer(XmlSuite.ParallelMode in_parallelMode) {
+        TestNG myTestNG = TestTools.createTestNG();
+        TestListenerAdapter tla = TestTools.fetchTestResultsHandler(myTestNG);
+
+        XmlSuite mySuite = TestTools.addSuitToTestNGTest(myTestNG, "Automated Suite Parallel Phased Testing");
+        mySuite.setParallel(in_parallelMode);
+        mySuite.setThreadCount(SCENARIOS.size());
+        mySuite.addListener(PhasedTestListener.class.getTypeName());
+
+        XmlTest myTest = TestTools.attachTestToSuite(mySuite, "Test Parallel Phased Tests");
+        myTest.setXmlClasses(SCENARIOS.stream().map(XmlClass::new).collect(Collectors.toList()));
+
+        Set<Long> l_threads = ConcurrentHashMap.newKeySet();
+        myTestNG.addListener(new TestListenerAdapter() {
+            @Override
+            public void onTestSuccess(ITestResult in_result) {
+                l_threads.add(Thread.currentThread().getId());
+            }
+        });
+
+        Phases.PRODUCER.activate();
+        ConfigValueHandlerPhased.PROP_MERGE_STEP_RESULTS.activate("false");
+
+        myTestNG.run();
+
+        assertThat("No step should have failed", tla.getFailedTests().stream()
+                .map(r -> r.getName() + " : " + r.getThrowable()).collect(Collectors.toList()), empty());
+        assertThat("No step should have been skipped", tla.getSkippedTests(), empty());
+        assertThat("Each scenario has 6 steps in the producer phase", tla.getPassedTests().size(),
+                equalTo(6 * SCENARIOS.size()));
+        assertThat("The scenarios should have been executed by several threads", l_threads.size(),
+                greaterThan(1));
+
+        for (Class<?> lt_scenario : SCENARIOS) {
+            final String lt_letter = lt_scenario.getSimpleName().substring(lt_scenario.getSimpleName().length() - 1);
+            for (String lt_group : PRODUCER_GROUPS) {
+                final String lt_phaseGroup = PhasedTestManager.STD_PHASED_GROUP_PREFIX + lt_group;
+                final String lt_scenarioName = lt_scenario.getTypeName() + "(" + lt_phaseGroup + ")";
+
+                assertThat(PhasedTestManager.getPhasedCache().getProperty(
+                                lt_scenarioName + PhasedTestManager.STD_KEY_CLASS_SEPARATOR + "value"),
+                        equalTo(lt_letter + lt_phaseGroup));
+                assertThat(PhasedTestManager.getPhasedCache().getProperty(
+                                lt_scenario.getTypeName() + ".step1(" + lt_phaseGroup + ")"), equalTo(lt_letter));
+                assertThat("The scenario " + lt_scenarioName + " should have passed",
+                        PhasedTestManager.getScenarioContext().get(lt_scenarioName).isPassed(), is(true));
+            }
+            assertThat(PhasedTestManager.getPhasedCache().getProperty(lt_scenario.getTypeName() + ".step2("
+                    + PhasedTestManager.STD_PHASED_GROUP_PREFIX + "3_0)"), equalTo(lt_letter + "B"));
+        }
+    }
+}
@@ -36,6 +36,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -556,6 +560,330 @@ public class PhasedTestManagerTests {
 
     }
 
+    @Test
+    public void testProduceTyped() {
+        final String l_key = PhasedTestManager.produce("A", 42);
+
+        assertThat("The typed value should be stored encoded",
+                PhasedTestManager.getPhasedCache().fetchValue(l_key), instanceOf(PhasedDataStore.EncodedValue.class));
+        assertThat("We should fetch the typed value", PhasedTestManager.consume("A", Integer.class), equalTo(42));
+        assertThat("We should fetch the typed value as a primitive", PhasedTestManager.consume("A", int.class),
+                equalTo(42));
+
+        PhasedTestManager.produce("B", new byte[] { 1, 2, 3 });
+        assertThat("We should fetch the byte array", PhasedTestManager.consume("B", byte[].class),
+                equalTo(new byte[] { 1, 2, 3 }));
+
+        PhasedTestManager.produce("C", (Object) "Hello");
+        assertThat("Strings are stored as they are", PhasedTestManager.consume("C"), equalTo("Hello"));
+        assertThat("Strings are stored as they are", PhasedTestManager.consume("C", String.class), equalTo("Hello"));
+    }
+
+    @Test
+    public void testProduceTyped_negative() {
+        PhasedTestManager.produce("A", 42L);
+
+        assertThrows(PhasedTestException.class, () -> PhasedTestManager.consume("A", Integer.class));
+        assertThrows(PhasedTestException.class, () -> PhasedTestManager.consume("A"));
+        assertThrows(PhasedTestException.class, () -> PhasedTestManager.consume("Z", Integer.class));
+        assertThrows(PhasedTestException.class, () -> PhasedTestManager.produce("A", 43L));
+        assertThrows(PhasedTestConfigurationException.class, () -> PhasedTestManager.produce("D", new Object()));
+    }
+
+    @Test
+    public void importingData_typedValues() {
+        String l_stepId = PhasedTestManager.produce("A", 3.5d);
+        String l_stringStepId = PhasedTestManager.produce("B", "Hello");
+
+        File l_phasedTestFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+
+        PhasedTestManager.importContext(l_phasedTestFile);
+        assertThat("The typed value should have been imported", PhasedTestManager.consume("A", Double.class),
+                equalTo(3.5d));
+        assertThat("The String value should have been imported",
+                PhasedTestManager.phasedCache.getProperty(l_stringStepId), equalTo("Hello"));
+        assertThat(PhasedTestManager.phasedCache.size(), equalTo(2));
+        assertThat("The typed value should be stored under its key", PhasedTestManager.phasedCache.containsKey(l_stepId));
+    }
+
+    @Test
+    public void importingData_binary() throws IOException {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("binary");
+        String l_stepId = PhasedTestManager.produceInStep("Hellø = : #");
+        PhasedTestManager.produce("A", 7);
+        String l_scenarioId = PhasedTestManager.storeTestData(PhasedSeries_F_Shuffle.class, "A",
+                new PhasedTestManager.ScenarioContextData(false, 3, "abc", "PRODUCER", "zdf"));
+
+        File l_phasedTestFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+
+        try (InputStream l_input = new FileInputStream(l_phasedTestFile)) {
+            assertThat("The file should start with the magic bytes", l_input.readNBytes(4),
+                    equalTo(PhasedDataFormat.BINARY_MAGIC));
+        }
+
+        //The format is detected regardless of the selected format
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.reset();
+        Properties l_phasedTestdata = PhasedTestManager.importContext(l_phasedTestFile);
+
+        assertThat("We should find our properties", l_phasedTestdata.size(), equalTo(3));
+        assertThat("We should find our property", PhasedTestManager.phasedCache.getProperty(l_stepId),
+                equalTo("Hellø = : #"));
+        assertThat("We should find our typed property", PhasedTestManager.consume("A", Integer.class), equalTo(7));
+        assertThat("scenarioContext: We should find our scenario",
+                PhasedTestManager.getScenarioContext().get(l_scenarioId).getFailedStep(), equalTo("abc"));
+    }
+
+    @Test
+    public void importingData_compressed() throws IOException {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("compressed");
+        String l_stepId = PhasedTestManager.produceInStep("Hellø = : #");
+        PhasedTestManager.produce("A", 7);
+        PhasedTestManager.produce("AB", "prefixed");
+        String l_scenarioId = PhasedTestManager.storeTestData(PhasedSeries_F_Shuffle.class, "A",
+                new PhasedTestManager.ScenarioContextData(false, 3, "abc", "PRODUCER", "zdf"));
+
+        File l_phasedTestFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+
+        try (InputStream l_input = new FileInputStream(l_phasedTestFile)) {
+            assertThat("The file should start with the magic bytes", l_input.readNBytes(4),
+                    equalTo(PhasedDataFormat.COMPRESSED_MAGIC));
+        }
+
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.reset();
+        Properties l_phasedTestdata = PhasedTestManager.importContext(l_phasedTestFile);
+
+        assertThat("We should find our properties", l_phasedTestdata.size(), equalTo(4));
+        assertThat("We should find our property", PhasedTestManager.phasedCache.getProperty(l_stepId),
+                equalTo("Hellø = : #"));
+        assertThat("We should find our typed property", PhasedTestManager.consume("A", Integer.class), equalTo(7));
+        assertThat("We should find the key sharing a prefix", PhasedTestManager.consume("AB"), equalTo("prefixed"));
+        assertThat("scenarioContext: We should find our scenario",
+                PhasedTestManager.getScenarioContext().get(l_scenarioId).getFailedStep(), equalTo("abc"));
+    }
+
+    @Test
+    public void exportingData_compressedIsSmaller() throws IOException {
+        for (int i = 0; i < 200; i++) {
+            PhasedTestManager.phasedCache.produce(
+                    "com.adobe.campaign.tests.integro.phased.data.PhasedSeries_F_Shuffle.step" + i
+                            + "(phased-shuffledGroup_" + i + "_3)", "value" + i);
+        }
+        final File l_propertiesFile = PhasedTestManager.exportPhaseData();
+        final long l_propertiesLength = l_propertiesFile.length();
+        final Properties l_propertiesContent = PhasedDataFormat.readFile(l_propertiesFile);
+
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("COMPRESSED");
+        final File l_compressedFile = PhasedTestManager.exportPhaseData();
+
+        assertThat("The compressed file should be much smaller", l_compressedFile.length() * 5,
+                lessThan(l_propertiesLength));
+        assertThat("Both files should have the same content", PhasedDataFormat.readFile(l_compressedFile),
+                equalTo(l_propertiesContent));
+    }
+
+    @Test
+    public void testFetchSharedPrefixLength() {
+        assertThat(PhasedDataFormat.fetchSharedPrefixLength("", "abc"), equalTo(0));
+        assertThat(PhasedDataFormat.fetchSharedPrefixLength("a.b.C->A", "a.b.C->B"), equalTo(7));
+        assertThat(PhasedDataFormat.fetchSharedPrefixLength("a.b.C", "a.b.C.step"), equalTo(5));
+    }
+
+    @Test
+    public void importingData_indexed() throws IOException {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("indexed");
+        String l_stepId = PhasedTestManager.produceInStep("Hellø = : #");
+        PhasedTestManager.produce("A", 7);
+        String l_scenarioId = PhasedTestManager.storeTestData(PhasedSeries_F_Shuffle.class, "A",
+                new PhasedTestManager.ScenarioContextData(false, 3, "abc", "PRODUCER", "zdf"));
+
+        File l_phasedTestFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+
+        try (InputStream l_input = new FileInputStream(l_phasedTestFile)) {
+            assertThat("The file should start with the magic bytes", l_input.readNBytes(4),
+                    equalTo(PhasedDataIndex.INDEXED_MAGIC));
+        }
+
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.reset();
+        Properties l_phasedTestdata = PhasedTestManager.importContext(l_phasedTestFile);
+
+        assertThat("Only the scenarios should have been read", l_phasedTestdata.size(), equalTo(1));
+        assertThat("scenarioContext: We should find our scenario",
+                PhasedTestManager.getScenarioContext().get(l_scenarioId).getFailedStep(), equalTo("abc"));
+        assertThat("The cache should know about the values", PhasedTestManager.phasedCache.size(), equalTo(2));
+        assertThat("The values should not have been decoded yet", PhasedTestManager.phasedCache.fetchResidentKeys(),
+                empty());
+
+        assertThat("We should find our property", PhasedTestManager.phasedCache.getProperty(l_stepId),
+                equalTo("Hellø = : #"));
+        assertThat("We should find our typed property", PhasedTestManager.consume("A", Integer.class), equalTo(7));
+        assertThat("The consumed values are now kept in the cache", PhasedTestManager.phasedCache.fetchResidentKeys(),
+                hasSize(2));
+
+        //The whole file can still be read eagerly
+        assertThat(PhasedDataFormat.readFile(l_phasedTestFile).size(), equalTo(3));
+    }
+
+    @Test
+    public void importingData_indexedIteration() {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("indexed");
+        String l_stepId = PhasedTestManager.produceInStep("Hello");
+        String l_key = PhasedTestManager.produce("A", "World");
+
+        File l_phasedTestFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.reset();
+        PhasedTestManager.importContext(l_phasedTestFile);
+
+        assertThat(PhasedTestManager.phasedCache.fetchResidentKeys(), empty());
+        assertThat("The iteration should include the values that are not decoded yet",
+                PhasedTestManager.phasedCache.keySet(), containsInAnyOrder(l_stepId, l_key));
+        assertThat(PhasedTestManager.phasedCache.stringPropertyNames(), containsInAnyOrder(l_stepId, l_key));
+        assertThat(PhasedTestManager.phasedCache.values(), containsInAnyOrder("Hello", "World"));
+
+        Map<Object, Object> l_iteratedValues = new HashMap<>();
+        PhasedTestManager.phasedCache.forEach(l_iteratedValues::put);
+        assertThat(l_iteratedValues.size(), equalTo(2));
+        assertThat(PhasedTestManager.phasedCache.entrySet(), hasSize(2));
+    }
+
+    @Test
+    public void importingData_indexedNegativeAlreadyProduced() {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("indexed");
+        String l_stepId = PhasedTestManager.produce("A", "Hello");
+
+        File l_phasedTestFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_phasedTestFile);
+
+        assertThat("The value should be known", PhasedTestManager.phasedCache.containsKey(l_stepId));
+        assertThrows(PhasedTestException.class, () -> PhasedTestManager.produce("A", "Bye"));
+        assertThat(PhasedTestManager.consume("A"), equalTo("Hello"));
+    }
+
+    @Test
+    public void importingData_indexedReExported() {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("indexed");
+        String l_stepId = PhasedTestManager.produce("A", "Hello");
+
+        File l_phasedTestFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_phasedTestFile);
+
+        //Exporting a cache that has not been consumed keeps all its values
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("binary");
+        File l_reExported = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_reExported);
+
+        assertThat(PhasedTestManager.phasedCache.getProperty(l_stepId), equalTo("Hello"));
+    }
+
+    @Test
+    public void exportingData_negativeUnknownFormat() {
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("NOT_A_FORMAT");
+        PhasedTestManager.produceInStep("Hello");
+
+        assertThrows(PhasedTestConfigurationException.class, PhasedTestManager::exportPhaseData);
+    }
+
+    @Test
+    public void testPrefetchConsumables() throws NoSuchMethodException {
+        final String l_phaseGroup = "phased-shuffledGroup_1_2";
+        final String l_producedKey = PhasedSeries_I_ShuffledProduceKey.class.getTypeName() + "(" + l_phaseGroup
+                + ")->step1Val";
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("INDEXED");
+        PhasedTestManager.phasedCache.produce(l_producedKey, "A");
+        File l_exportedFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_exportedFile);
+
+        ExecutionMode.INTERRUPTIVE.activate("CONSUMER");
+        final Method l_step2 = PhasedSeries_I_ShuffledProduceKey.class.getMethod("step2", String.class);
+        ITestResult l_itr = MockTestTools.generateTestResultMock(l_step2, new Object[] { l_phaseGroup });
+        PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(l_step2), l_phaseGroup);
+
+        assertThat("Nothing is prefetched by default", PhasedTestManager.prepareConsumables(l_itr), nullValue());
+        assertThat(PhasedTestManager.phasedCache.fetchResidentKeys(), empty());
+
+        ConfigValueHandlerPhased.PROP_STORAGE_PREFETCH.activate("true");
+        assertThat("All the consumables are available", PhasedTestManager.prepareConsumables(l_itr), empty());
+        assertThat("The consumed value should have been decoded", PhasedTestManager.phasedCache.fetchResidentKeys(),
+                contains(l_producedKey));
+        assertThat("A scenario is only prefetched once", PhasedTestManager.prepareConsumables(l_itr), nullValue());
+    }
+
+    @Test
+    public void testEvictConsumables() throws NoSuchMethodException {
+        final String l_phaseGroup = "phased-shuffledGroup_1_2";
+        final String l_producedKey = PhasedSeries_I_ShuffledProduceKey.class.getTypeName() + "(" + l_phaseGroup
+                + ")->step1Val";
+        PhasedTestManager.phasedCache.produce(l_producedKey, "A");
+        File l_exportedFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_exportedFile);
+
+        ExecutionMode.INTERRUPTIVE.activate("CONSUMER");
+        ConfigValueHandlerPhased.PROP_STORAGE_EVICTION.activate("true");
+        final Method l_step2 = PhasedSeries_I_ShuffledProduceKey.class.getMethod("step2", String.class);
+        ITestResult l_itr = MockTestTools.generateTestResultMock(l_step2, new Object[] { l_phaseGroup });
+        PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(l_step2), l_phaseGroup);
+        final String l_scenarioName = PhasedTestManager.fetchScenarioName(l_itr);
+
+        assertThat(PhasedTestManager.prepareConsumables(l_itr), empty());
+        assertThat(PhasedTestManager.phasedCache.fetchResidentKeys(), contains(l_producedKey));
+
+        assertThat(PhasedTestManager.releaseConsumables(l_scenarioName, "step2"), contains(l_producedKey));
+        assertThat("The value should no longer be on the heap", PhasedTestManager.phasedCache.fetchResidentKeys(), empty());
+        assertThat("The value should still be readable", PhasedTestManager.phasedCache.getProperty(l_producedKey),
+                equalTo("A"));
+        assertThat("The released value should be iterated over", PhasedTestManager.phasedCache.entrySet(),
+                hasSize(1));
+
+        assertThat(PhasedTestManager.releaseConsumables(l_scenarioName, "step3"), empty());
+        assertThat(PhasedTestManager.releaseConsumables(l_scenarioName), empty());
+    }
+
+    @Test
+    public void testEvictConsumables_indexed() throws NoSuchMethodException {
+        final String l_phaseGroup = "phased-shuffledGroup_1_2";
+        final String l_producedKey = PhasedSeries_I_ShuffledProduceKey.class.getTypeName() + "(" + l_phaseGroup
+                + ")->step1Val";
+        ConfigValueHandlerPhased.PROP_STORAGE_FORMAT.activate("INDEXED");
+        PhasedTestManager.phasedCache.produce(l_producedKey, "A");
+        File l_exportedFile = PhasedTestManager.exportPhaseData();
+        PhasedTestManager.clearCache();
+        PhasedTestManager.importContext(l_exportedFile);
+
+        ExecutionMode.INTERRUPTIVE.activate("CONSUMER");
+        ConfigValueHandlerPhased.PROP_STORAGE_EVICTION.activate("true");
+        final Method l_step2 = PhasedSeries_I_ShuffledProduceKey.class.getMethod("step2", String.class);
+        ITestResult l_itr = MockTestTools.generateTestResultMock(l_step2, new Object[] { l_phaseGroup });
+        PhasedTestManager.storePhasedContext(ClassPathParser.fetchFullName(l_step2), l_phaseGroup);
+
+        PhasedTestManager.prepareConsumables(l_itr);
+        assertThat(PhasedTestManager.phasedCache.getProperty(l_producedKey), equalTo("A"));
+        assertThat(PhasedTestManager.phasedCache.fetchResidentKeys(), contains(l_producedKey));
+
+        PhasedTestManager.releaseConsumables(PhasedTestManager.fetchScenarioName(l_itr), "step2");
+        assertThat("The decoded value should have been dropped", PhasedTestManager.phasedCache.fetchResidentKeys(), empty());
+        assertThat("The value should be decoded again from the index",
+                PhasedTestManager.phasedCache.getProperty(l_producedKey), equalTo("A"));
+    }
+
+    @Test
+    public void testPrefetchConsumables_notInConsumer() throws NoSuchMethodException {
+        ConfigValueHandlerPhased.PROP_STORAGE_PREFETCH.activate("true");
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+        final Method l_step2 = PhasedSeries_I_ShuffledProduceKey.class.getMethod("step2", String.class);
+        ITestResult l_itr = MockTestTools.generateTestResultMock(l_step2, new Object[] { "phased-shuffledGroup_1_2" });
+
+        assertThat(PhasedTestManager.prepareConsumables(l_itr), nullValue());
+    }
+
     @Test
     public void importingData_NegativeBadFile() {
         File l_phasedTestFile = new File("skjdfhqskdj", "kjhkjhkjh");
@@ -934,6 +1262,98 @@ public class PhasedTestManagerTests {
         assertThat(PhasedTestManager.consumeFromStep("testPhasedManagerContext"), equalTo("myVal"));
     }
 
+    @Test
+    public void testPhasedManagerContext_threadBound() {
+        final String l_stepName = this.getClass().getTypeName() + ".testPhasedManagerContext_threadBound";
+        PhasedTestManager.storePhasedContext(l_stepName, "phasedGroupShuffled_1", new Object[] { "phasedGroupShuffled_1" });
+
+        //Another phase group of the same step overwrites the shared context
+        PhasedTestManager.phaseContext.put(l_stepName, "phasedGroupShuffled_2");
+
+        assertThat("The context of the current thread should be used", PhasedTestManager.fetchPhaseGroup(l_stepName),
+                equalTo("phasedGroupShuffled_1"));
+        assertThat("The step context should contain the data provider values",
+                PhasedTestManager.fetchStepContext().getParameters(), arrayContaining("phasedGroupShuffled_1"));
+
+        assertThat("The key should have been generated with the context of the current thread",
+                PhasedTestManager.produce("A", "Hello"),
+                equalTo(this.getClass().getTypeName() + "(phasedGroupShuffled_1)"
+                        + PhasedTestManager.STD_KEY_CLASS_SEPARATOR + "A"));
+
+        PhasedTestManager.clearStepContext();
+        assertThat("Once the context is cleared we use the shared context",
+                PhasedTestManager.fetchPhaseGroup(l_stepName), equalTo("phasedGroupShuffled_2"));
+        assertThat(PhasedTestManager.fetchStepContext(), nullValue());
+    }
+
+    @Test
+    public void testForkProducedData() {
+        final String l_stepName = this.getClass().getTypeName() + ".testForkProducedData";
+        PhasedTestManager.storePhasedContext(l_stepName, "PERMUTATIONAL_ab_1-2");
+
+        final String l_keyA = PhasedTestManager.produce("A", "Hello");
+        final String l_keyB = PhasedTestManager.produceInStep("World");
+
+        assertThat("The step context should keep the produced keys",
+                PhasedTestManager.fetchStepContext().getProducedKeys(), contains(l_keyA, l_keyB));
+
+        List<String> l_forkedKeys = PhasedTestManager.forkProducedData(Arrays.asList(l_keyA, l_keyB),
+                "PERMUTATIONAL_ab_1-2", "PERMUTATIONAL_ba_2-2");
+
+        assertThat(l_forkedKeys, contains(this.getClass().getTypeName() + "(PERMUTATIONAL_ba_2-2)"
+                + PhasedTestManager.STD_KEY_CLASS_SEPARATOR + "A", l_stepName + "(PERMUTATIONAL_ba_2-2)"));
+
+        PhasedTestManager.storePhasedContext(l_stepName, "PERMUTATIONAL_ba_2-2");
+        assertThat("The copied values are consumed in the new phase group", PhasedTestManager.consume("A"),
+                equalTo("Hello"));
+        assertThat(PhasedTestManager.consumeFromStep("testForkProducedData"), equalTo("World"));
+
+        assertThrows(PhasedTestException.class,
+                () -> PhasedTestManager.forkProducedData(Arrays.asList(l_keyA, l_keyA + "B"), "PERMUTATIONAL_ab_1-2",
+                        "PERMUTATIONAL_x_3-3"));
+        assertThat("Nothing is copied if a value is missing",
+                PhasedTestManager.getPhasedCache().containsKey(this.getClass().getTypeName() + "(PERMUTATIONAL_x_3-3)"
+                        + PhasedTestManager.STD_KEY_CLASS_SEPARATOR + "A"), is(false));
+        assertThrows(PhasedTestException.class,
+                () -> PhasedTestManager.forkProducedData(Collections.singletonList(l_keyA), "otherGroup",
+                        "PERMUTATIONAL_x_3-3"));
+
+        PhasedTestManager.clearStepContext();
+    }
+
+    @Test
+    public void testPhasedManagerContext_concurrentPhaseGroups() throws InterruptedException, ExecutionException {
+        final String l_stepName = this.getClass().getTypeName() + ".produceInOtherThread";
+        int l_nrOfGroups = 20;
+        ExecutorService l_executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<String>> l_futures = new ArrayList<>();
+            for (int i = 0; i < l_nrOfGroups; i++) {
+                final String lt_phaseGroup = "phased-shuffledGroup_" + i;
+                l_futures.add(l_executor.submit(() -> produceInOtherThread(l_stepName, lt_phaseGroup)));
+            }
+            for (int i = 0; i < l_nrOfGroups; i++) {
+                assertThat("Each phase group should have its own key", l_futures.get(i).get(),
+                        equalTo(l_stepName + "(phased-shuffledGroup_" + i + ")"));
+            }
+        } finally {
+            l_executor.shutdown();
+        }
+
+        assertThat("All phase groups should have been stored", PhasedTestManager.getPhasedCache().size(),
+                equalTo(l_nrOfGroups));
+    }
+
+    private String produceInOtherThread(String in_stepName, String in_phaseGroup) {
+        PhasedTestManager.storePhasedContext(in_stepName, in_phaseGroup);
+        try {
+            return PhasedTestManager.produceInStep(in_phaseGroup);
+        } finally {
+            PhasedTestManager.clearStepContext();
+        }
+    }
+
     /**** Single Executions ****/
 
     @Test
@@ -1466,6 +1886,9 @@ public class PhasedTestManagerTests {
             }
         };
 
+        assertThat("The marker class is not yet a phased test",
+                !PhasedTestManager.isPhasedTest(RegisterMutationModeMarkerClass.class));
+
         PhasedTestManager.registerMutationMode(l_customMode);
 
         assertThat("The newly registered mode should recognize the marker class as a phased test",
@@ -1476,6 +1899,61 @@ public class PhasedTestManagerTests {
                 PhasedTestManager.isPhasedTestSingleMode(l_dummyMethod));
     }
 
+    @Test
+    public void testRegisterMutationMode_perMethod() throws NoSuchMethodException, SecurityException {
+        class PerMethodMutationModeMarkerClass {
+            public void selectedStep() {
+            }
+
+            public void otherStep() {
+            }
+        }
+
+        final Method l_selectedMethod = PerMethodMutationModeMarkerClass.class.getMethod("selectedStep");
+        final Method l_otherMethod = PerMethodMutationModeMarkerClass.class.getMethod("otherStep");
+
+        MutationMode l_customMode = new MutationMode() {
+            @Override
+            public boolean appliesTo(Method in_method) {
+                return in_method.equals(l_selectedMethod);
+            }
+
+            @Override
+            public boolean appliesTo(Class<?> in_class) {
+                return false;
+            }
+
+            @Override
+            public boolean appliesTo(ITestResult in_testResult) {
+                return false;
+            }
+
+            @Override
+            public boolean isSingleMode(Class<?> in_class) {
+                return false;
+            }
+
+            @Override
+            public boolean isShuffleMode(Class<?> in_class) {
+                return false;
+            }
+
+            @Override
+            public String fetchScenarioName(ITestResult in_testResult) {
+                return "custom-scenario-name";
+            }
+        };
+
+        PhasedTestManager.registerMutationMode(l_customMode);
+
+        assertThat("The mode should be asked for each method", PhasedTestManager.isPhasedTest(l_selectedMethod));
+        assertThat("The decision for a method should be cached", PhasedTestManager.isPhasedTest(l_selectedMethod));
+        assertThat("The mode does not apply to the other methods of the class",
+                !PhasedTestManager.isPhasedTest(l_otherMethod));
+        assertThat("The mode does not apply to the class", !PhasedTestManager.isPhasedTest(
+                PerMethodMutationModeMarkerClass.class));
+    }
+
     /**
      * <table>
      * <caption>Use Cases for Scenario States</caption>
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RunConfigurationTests {
+    @BeforeMethod
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        ConfigValueHandlerPhased.resetAllValues();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testDefaultConfiguration() {
+        RunConfiguration l_configuration = RunConfiguration.fetch();
+
+        assertThat(l_configuration.getExecutionMode(), equalTo(ExecutionMode.STANDARD));
+        assertThat(l_configuration.getBehavior(), equalTo(""));
+        assertThat(l_configuration.getPhase(), equalTo(Phases.NON_PHASED));
+        assertThat(l_configuration.getEvent(), nullValue());
+        assertThat(l_configuration.getEventTarget(), nullValue());
+        assertThat(l_configuration.getDataPath(), nullValue());
+        assertThat("The snapshot should be reused", RunConfiguration.fetch(), sameInstance(l_configuration));
+    }
+
+    @Test
+    public void testExecutionMode() {
+        ExecutionMode.INTERRUPTIVE.activate("CONSUMER");
+        ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.activate("a.b.MyEvent");
+        ConfigValueHandlerPhased.PROP_PHASED_DATA_PATH.activate("/tmp/phased.properties");
+
+        RunConfiguration l_configuration = RunConfiguration.fetch();
+        assertThat(l_configuration.getExecutionMode(), equalTo(ExecutionMode.INTERRUPTIVE));
+        assertThat(l_configuration.getBehavior(), equalTo("CONSUMER"));
+        assertThat(l_configuration.getPhase(), equalTo(Phases.CONSUMER));
+        assertThat(l_configuration.getRunValues(), equalTo(ExecutionMode.getCurrentMode().fetchRunValues()));
+        assertThat(l_configuration.toString(), equalTo("INTERRUPTIVE(CONSUMER)"));
+        assertThat(l_configuration.getEvent(), equalTo("a.b.MyEvent"));
+        assertThat(l_configuration.getDataPath(), equalTo("/tmp/phased.properties"));
+    }
+
+    @Test
+    public void testLegacyPhase() {
+        Phases.PRODUCER.activate();
+
+        assertThat(RunConfiguration.fetch().getExecutionMode(), equalTo(ExecutionMode.INTERRUPTIVE));
+        assertThat(RunConfiguration.fetch().getBehavior(), equalTo("PRODUCER"));
+        assertThat(RunConfiguration.fetch().getPhase(), equalTo(Phases.PRODUCER));
+    }
+
+    @Test
+    public void testActivationDiscardsTheSnapshot() {
+        RunConfiguration l_configuration = RunConfiguration.fetch();
+        ExecutionMode.INTERRUPTIVE.activate("PRODUCER");
+
+        assertThat(RunConfiguration.fetch(), not(sameInstance(l_configuration)));
+        assertThat(ExecutionMode.INTERRUPTIVE.isSelected("PRODUCER"), equalTo(true));
+
+        ConfigValueHandlerPhased.PROP_EXECUTION_MODE.reset();
+        assertThat(ExecutionMode.getCurrentMode(), equalTo(ExecutionMode.STANDARD));
+    }
+
+    @Test
+    public void testRefresh() {
+        RunConfiguration.fetch();
+        System.setProperty(ConfigValueHandlerPhased.PROP_EXECUTION_MODE.systemName, "PERMUTATIONAL");
+
+        assertThat("Properties set directly are only seen after a refresh", ExecutionMode.getCurrentMode(),
+                equalTo(ExecutionMode.STANDARD));
+
+        RunConfiguration.refresh();
+        assertThat(ExecutionMode.getCurrentMode(), equalTo(ExecutionMode.PERMUTATIONAL));
+        assertThat(Phases.getCurrentPhase(), equalTo(Phases.PERMUTATIONAL));
+    }
+
+    @Test
+    public void testLegacyEventName() {
+        System.setProperty(ConfigValueHandlerPhased.EVENTS_NONINTERRUPTIVE.legacySystemName, "a.b.LegacyEvent");
+
+        assertThat(RunConfiguration.refresh().getEvent(), equalTo("a.b.LegacyEvent"));
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.data.NormalSeries_A;
+import com.adobe.campaign.tests.integro.phased.data.PhasedSeries_I_SingleClassProduceTest;
+import com.adobe.campaign.tests.integro.phased.data.events.TestShuffled_eventDefinedOnPhasedTestAnnotation;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ScenarioClassMetadataTests {
+    @BeforeMethod
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        ConfigValueHandlerPhased.resetAllValues();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testMetadataIsComputedOnce() {
+        ScenarioClassMetadata l_metadata = PhasedTestManager.fetchScenarioMetadata(
+                TestShuffled_eventDefinedOnPhasedTestAnnotation.class);
+
+        assertThat(PhasedTestManager.fetchScenarioMetadata(TestShuffled_eventDefinedOnPhasedTestAnnotation.class),
+                sameInstance(l_metadata));
+        assertThat(l_metadata.isPhasedTest(), equalTo(true));
+        assertThat(l_metadata.isWithEvent(), equalTo(false));
+        assertThat(l_metadata.canShuffle(), equalTo(true));
+        assertThat(l_metadata.getEventClasses(),
+                contains("com.adobe.campaign.tests.integro.phased.data.events.MyNonInterruptiveEvent"));
+        assertThat(l_metadata.getSteps().stream().map(Method::getName).collect(Collectors.toList()),
+                contains("step1", "step2", "step3"));
+        assertThat(l_metadata.isShuffleMode(null), equalTo(true));
+        assertThat(l_metadata.isSingleMode(null), equalTo(false));
+    }
+
+    @Test
+    public void testSingleModeScenario() {
+        ScenarioClassMetadata l_metadata = PhasedTestManager.fetchScenarioMetadata(
+                PhasedSeries_I_SingleClassProduceTest.class);
+
+        assertThat(l_metadata.isWithEvent(), equalTo(true));
+        assertThat(l_metadata.getEventClasses(), empty());
+        assertThat(PhasedTestManager.isPhasedTestSingleMode(PhasedSeries_I_SingleClassProduceTest.class),
+                equalTo(true));
+        assertThat(PhasedTestManager.isPhasedTestShuffledMode(PhasedSeries_I_SingleClassProduceTest.class),
+                equalTo(false));
+    }
+
+    @Test
+    public void testNonPhasedClass() {
+        ScenarioClassMetadata l_metadata = PhasedTestManager.fetchScenarioMetadata(NormalSeries_A.class);
+
+        assertThat(l_metadata.isPhasedTest(), equalTo(false));
+        assertThat(l_metadata.getSteps(), empty());
+        assertThat(l_metadata.getEventClasses(), empty());
+    }
+
+    @Test
+    public void testEventTargetChangesTheMode() {
+        final Class<?> l_scenario = TestShuffled_eventDefinedOnPhasedTestAnnotation.class;
+        assertThat(PhasedTestManager.isPhasedTestShuffledMode(l_scenario), equalTo(true));
+        assertThat(PhasedTestManager.isPhasedTestTargetOfEvent(l_scenario), equalTo(false));
+
+        ConfigValueHandlerPhased.EVENT_TARGET.activate(l_scenario.getTypeName() + "#step2");
+
+        assertThat(PhasedTestManager.isPhasedTestTargetOfEvent(l_scenario), equalTo(true));
+        assertThat("A targeted scenario is executed in single mode",
+                PhasedTestManager.isPhasedTestShuffledMode(l_scenario), equalTo(false));
+        assertThat(PhasedTestManager.isPhasedTestSingleMode(l_scenario), equalTo(true));
+
+        ConfigValueHandlerPhased.EVENT_TARGET.reset();
+        assertThat(PhasedTestManager.isPhasedTestShuffledMode(l_scenario), equalTo(true));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased;
+
+import com.adobe.campaign.tests.integro.phased.utils.CallerIdentity;
+import com.adobe.campaign.tests.integro.phased.utils.StackTraceManager;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StepKeyTests {
+    @BeforeMethod
+    public void cleanCache() {
+        PhasedTestManager.clearCache();
+        PhasedTestManager.clearDataBroker();
+        ConfigValueHandlerPhased.resetAllValues();
+    }
+
+    @AfterMethod
+    public void clearAllData() {
+        cleanCache();
+    }
+
+    @Test
+    public void testIdentities() {
+        assertThat(new StepKey("a.b.C", null, null, "A").getIdentity(), equalTo("a.b.C->A"));
+        assertThat(new StepKey("a.b.C", null, "Q", "A").getIdentity(), equalTo("a.b.C(Q)->A"));
+        assertThat(new StepKey("a.b.C", "step1", "Q", null).getIdentity(), equalTo("a.b.C.step1(Q)"));
+        assertThat("An empty storage key is not added", new StepKey("a.b.C", "step1", null, " ").getIdentity(),
+                equalTo("a.b.C.step1"));
+    }
+
+    @Test
+    public void testIdentitiesAreThoseOfTheGeneratedKeys() {
+        PhasedTestManager.storePhasedContext("a.b.C.step1", "Q");
+
+        assertThat(new StepKey("a.b.C", null, "Q", "A").getIdentity(),
+                equalTo(PhasedTestManager.generateStepKeyIdentity("a.b.C.step1", "a.b.C", "A")));
+        assertThat(new StepKey("a.b.C", "step1", "Q", null).getIdentity(),
+                equalTo(PhasedTestManager.generateStepKeyIdentity("a.b.C.step1")));
+    }
+
+    @Test
+    public void testEquality() {
+        final StepKey l_key = new StepKey("a.b.C", null, "Q", "A");
+
+        assertThat(l_key, equalTo(new StepKey("a.b.C", null, "Q", "A")));
+        assertThat(l_key.hashCode(), equalTo(new StepKey("a.b.C", null, "Q", "A").hashCode()));
+        assertThat(l_key, not(equalTo(new StepKey("a.b.C", null, "R", "A"))));
+        assertThat("Keys with the same identity, but different parts are not equal",
+                new StepKey("a.b", "C", null, null), not(equalTo(new StepKey("a.b.C", null, null, null))));
+    }
+
+    @Test
+    public void testInterning() {
+        final CallerIdentity l_caller = fetchCurrentCaller();
+
+        final StepKey l_key = StepKey.fetchStorageKey(l_caller, "Q", "A");
+        assertThat("The key should be interned", StepKey.fetchStorageKey(l_caller, "Q", "A"), sameInstance(l_key));
+        assertThat(l_key.getIdentity(), equalTo(StepKeyTests.class.getTypeName() + "(Q)->A"));
+
+        assertThat("Each phase group has its key", StepKey.fetchStorageKey(l_caller, "R", "A"),
+                not(sameInstance(l_key)));
+        assertThat(StepKey.fetchStorageKey(l_caller, null, "A").getIdentity(),
+                equalTo(StepKeyTests.class.getTypeName() + "->A"));
+        assertThat("Step keys are distinct from storage keys", StepKey.fetchStepKey(l_caller, "Q", "A").getIdentity(),
+                equalTo(StepKeyTests.class.getTypeName() + ".A(Q)"));
+
+        PhasedTestManager.clearCache();
+        assertThat("The interned keys are cleared with the cache", StepKey.fetchStorageKey(l_caller, "Q", "A"),
+                not(sameInstance(l_key)));
+    }
+
+    @Test
+    public void testInterning_releasedWithTheScenario() {
+        final CallerIdentity l_caller = fetchCurrentCaller();
+
+        final StepKey l_keyQ = StepKey.fetchStorageKey(l_caller, "Q", "A");
+        final StepKey l_stepKeyQ = StepKey.fetchStepKey(l_caller, "Q", "A");
+        final StepKey l_keyR = StepKey.fetchStorageKey(l_caller, "R", "A");
+        assertThat(StepKey.countInternedKeys(), equalTo(3));
+
+        PhasedTestManager.releaseConsumables(StepKeyTests.class.getTypeName() + "(Q)");
+
+        assertThat("Only the keys of the other scenario should be kept", StepKey.countInternedKeys(), equalTo(1));
+        assertThat(StepKey.fetchStorageKey(l_caller, "Q", "A"), not(sameInstance(l_keyQ)));
+        assertThat(StepKey.fetchStepKey(l_caller, "Q", "A"), not(sameInstance(l_stepKeyQ)));
+        assertThat(StepKey.fetchStorageKey(l_caller, "R", "A"), sameInstance(l_keyR));
+    }
+
+    @Test
+    public void testInterning_bounded() {
+        final CallerIdentity l_caller = fetchCurrentCaller();
+
+        final StepKey l_key = StepKey.fetchStorageKey(l_caller, "Q", "A");
+        for (int i = 0; i < StepKey.MAX_INTERNED_KEYS; i++) {
+            StepKey.fetchStorageKey(l_caller, "G" + i, "A");
+        }
+
+        assertThat("The interned keys should be bounded", StepKey.countInternedKeys(),
+                lessThanOrEqualTo(StepKey.MAX_INTERNED_KEYS));
+        assertThat("Only the oldest keys should have been dropped", StepKey.countInternedKeys(),
+                greaterThan(StepKey.MAX_INTERNED_KEYS / 2));
+
+        final StepKey l_recentKey = StepKey.fetchStorageKey(l_caller, "G" + (StepKey.MAX_INTERNED_KEYS - 1), "A");
+        assertThat("The oldest key should have been dropped", StepKey.fetchStorageKey(l_caller, "Q", "A"),
+                not(sameInstance(l_key)));
+        assertThat(StepKey.fetchStorageKey(l_caller, "Q", "A").getIdentity(), equalTo(l_key.getIdentity()));
+        assertThat("The most recent keys should be kept",
+                StepKey.fetchStorageKey(l_caller, "G" + (StepKey.MAX_INTERNED_KEYS - 1), "A"),
+                sameInstance(l_recentKey));
+    }
+
+    @Test
+    public void testProduceAndConsumeWithPhaseGroups() {
+        final String l_stepName = StepKeyTests.class.getTypeName() + ".testProduceAndConsumeWithPhaseGroups";
+
+        PhasedTestManager.storePhasedContext(l_stepName, "G1");
+        final String l_keyG1 = PhasedTestManager.produce("A", "1");
+        final String l_stepKeyG1 = PhasedTestManager.produceInStep("S1");
+
+        PhasedTestManager.storePhasedContext(l_stepName, "G2");
+        final String l_keyG2 = PhasedTestManager.produce("A", "2");
+
+        assertThat(l_keyG1, equalTo(StepKeyTests.class.getTypeName() + "(G1)->A"));
+        assertThat(l_stepKeyG1, equalTo(l_stepName + "(G1)"));
+        assertThat(l_keyG2, equalTo(StepKeyTests.class.getTypeName() + "(G2)->A"));
+        assertThat(PhasedTestManager.consume("A"), equalTo("2"));
+
+        PhasedTestManager.storePhasedContext(l_stepName, "G1");
+        assertThat(PhasedTestManager.consume("A"), equalTo("1"));
+        assertThat(PhasedTestManager.consumeFromStep("testProduceAndConsumeWithPhaseGroups"), equalTo("S1"));
+    }
+
+    private static CallerIdentity fetchCurrentCaller() {
+        return StackTraceManager.fetchCallerIdentity(StackTraceManager.fetchCalledByFrame());
+    }
+}
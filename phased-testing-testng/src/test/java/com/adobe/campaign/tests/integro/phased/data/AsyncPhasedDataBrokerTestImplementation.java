@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.data;
+
+import com.adobe.campaign.tests.integro.phased.AsyncPhasedDataBroker;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * An in-memory data broker, that keeps track of the fetched names.
+ */
+public class AsyncPhasedDataBrokerTestImplementation implements AsyncPhasedDataBroker {
+    public static final Map<String, byte[]> storedData = new ConcurrentHashMap<>();
+    public static final List<String> fetchedNames = new CopyOnWriteArrayList<>();
+
+    @Override
+    public CompletableFuture<Void> store(String in_name, InputStream in_content) {
+        try {
+            final byte[] l_content = in_content.readAllBytes();
+            return CompletableFuture.runAsync(() -> storedData.put(in_name, l_content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<InputStream> fetch(String in_name) {
+        fetchedNames.add(in_name);
+        return CompletableFuture.supplyAsync(() -> {
+            if (!storedData.containsKey(in_name)) {
+                throw new IllegalStateException("Nothing stored under " + in_name);
+            }
+            return new ByteArrayInputStream(storedData.get(in_name));
+        });
+    }
+
+    /**
+     * Just for test purposes
+     */
+    public static void reset() {
+        storedData.clear();
+        fetchedNames.clear();
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.data.bytecode;
+
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+
+public class BytecodeComputedKey {
+    public void step1(Object param) {
+        PhasedTestManager.produce("constantKey", "value");
+    }
+
+    public void step2(Object param) {
+        for (int i = 0; i < 2; i++) {
+            PhasedTestManager.consume("loopKey" + i);
+        }
+    }
+}
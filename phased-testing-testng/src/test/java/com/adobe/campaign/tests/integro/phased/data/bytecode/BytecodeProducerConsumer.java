@@ -0,0 +1,44 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.data.bytecode;
+
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import org.testng.annotations.BeforeClass;
+
+import java.util.Arrays;
+
+public class BytecodeProducerConsumer {
+    private static final String SHARED_KEY = "sharedKey";
+
+    @BeforeClass
+    public void prepare() {
+        PhasedTestManager.produce("configKey", "configValue");
+    }
+
+    public void step1(Object param) {
+        PhasedTestManager.produce(SHARED_KEY, param == null ? "none" : param.toString());
+        OtherManager.produce("notAKey", "value");
+    }
+
+    public void step2(Object param) {
+        Arrays.asList("a", "b").forEach(v -> PhasedTestManager.produce("lambdaKey", v));
+        PhasedTestManager.produceInStep("stepValue");
+    }
+
+    public void step3(Object param) {
+        PhasedTestManager.consume(SHARED_KEY);
+        PhasedTestManager.consumeFromStep("step2");
+    }
+
+    public static class OtherManager {
+        public static String produce(String in_key, String in_value) {
+            return in_key + in_value;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.data.parallel;
+
+import com.adobe.campaign.tests.integro.phased.PhasedDataProvider;
+import com.adobe.campaign.tests.integro.phased.PhasedTest;
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+@Test(dataProvider = PhasedDataProvider.DEFAULT, dataProviderClass = PhasedDataProvider.class)
+@PhasedTest(canShuffle = true)
+public class PhasedParallel_A {
+
+    public void step1(String val) throws InterruptedException {
+        PhasedTestManager.produce("value", "A" + val);
+        Thread.sleep(10);
+        PhasedTestManager.produceInStep("A");
+    }
+
+    public void step2(String val) throws InterruptedException {
+        assertEquals(PhasedTestManager.consume("value"), "A" + val);
+        Thread.sleep(10);
+        PhasedTestManager.produceInStep(PhasedTestManager.consumeFromStep("step1") + "B");
+    }
+
+    public void step3(String val) {
+        assertEquals(PhasedTestManager.consumeFromStep("step2"), "AB");
+    }
+}
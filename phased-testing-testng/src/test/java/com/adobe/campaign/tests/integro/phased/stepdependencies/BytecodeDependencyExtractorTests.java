@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.ConfigValueHandlerPhased;
+import com.adobe.campaign.tests.integro.phased.data.bytecode.BytecodeComputedKey;
+import com.adobe.campaign.tests.integro.phased.data.bytecode.BytecodeProducerConsumer;
+import com.adobe.campaign.tests.integro.phased.data.permutational.*;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BytecodeDependencyExtractorTests {
+    @BeforeMethod
+    @AfterMethod
+    public void prepareEnvironment() {
+        ConfigValueHandlerPhased.resetAllValues();
+        ScenarioDependencyCache.clear();
+    }
+
+    @Test
+    public void testSameDependenciesAsTheSources() {
+        for (Class<?> lt_scenario : Arrays.asList(SimpleProducerConsumer.class, MultipleProducerConsumer.class,
+                ProducerConsumerWithBeforeClass.class, MixingEmptyAndProduceTests.class,
+                SimpleProducerConsumerFromStep.class, SimpleProducerConsumerStaticImport.class)) {
+            ScenarioStepDependencies lt_parsed = ScenarioStepDependencyFactory.listMethodCalls(lt_scenario);
+
+            ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.activate("BYTECODE");
+            ScenarioStepDependencies lt_extracted = ScenarioStepDependencyFactory.listMethodCalls(lt_scenario);
+            ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.reset();
+
+            assertThat(lt_extracted.getScenarioName(), equalTo(lt_parsed.getScenarioName()));
+            assertThat(lt_extracted.getStepDependencies().keySet(),
+                    equalTo(lt_parsed.getStepDependencies().keySet()));
+            assertThat("The steps are in the same order", fetchStepOrder(lt_extracted),
+                    equalTo(fetchStepOrder(lt_parsed)));
+            for (StepDependencies lt_step : lt_parsed.getStepDependencies().values()) {
+                StepDependencies lt_extractedStep = lt_extracted.getStep(lt_step.getStepName());
+                assertThat(lt_extractedStep.isConfigMethod(), equalTo(lt_step.isConfigMethod()));
+                assertThat(lt_extractedStep.getProduceSet(), equalTo(lt_step.getProduceSet()));
+                assertThat(lt_extractedStep.getConsumeSet(), equalTo(lt_step.getConsumeSet()));
+            }
+        }
+    }
+
+    @Test
+    public void testExtractingFromTheClassFile() {
+        ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.activate("bytecode");
+        ScenarioStepDependencies l_dependencies = ScenarioStepDependencyFactory.listMethodCalls(
+                BytecodeProducerConsumer.class);
+
+        assertThat(l_dependencies.getStepDependencies().keySet(),
+                containsInAnyOrder("prepare", "step1", "step2", "step3"));
+        assertThat(fetchStepOrder(l_dependencies), contains("prepare", "step1", "step2", "step3"));
+        assertThat(l_dependencies.getStep("prepare").isConfigMethod(), is(true));
+        assertThat(l_dependencies.getStep("prepare").getProduceSet(), contains("configKey"));
+
+        assertThat("Constants are resolved, and other produce methods are ignored",
+                l_dependencies.getStep("step1").getProduceSet(), contains("sharedKey"));
+        assertThat(l_dependencies.getStep("step1").isConfigMethod(), is(false));
+        assertThat("Lambdas belong to their step", l_dependencies.getStep("step2").getProduceSet(),
+                containsInAnyOrder("lambdaKey", "step2"));
+        assertThat(l_dependencies.getStep("step3").getConsumeSet(), containsInAnyOrder("sharedKey", "step2"));
+    }
+
+    @Test
+    public void testComputedKeysAreParsedFromTheSource() {
+        assertThat("A computed key cannot be read from the class file",
+                BytecodeDependencyExtractor.extract(BytecodeComputedKey.class.getTypeName(),
+                        BytecodeDependencyExtractor.fetchClassBytes(BytecodeComputedKey.class).get(), m -> false)
+                        .isPresent(), is(false));
+
+        ScenarioStepDependencies l_parsed = ScenarioStepDependencyFactory.listMethodCalls(BytecodeComputedKey.class);
+
+        ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.activate("BYTECODE");
+        ScenarioStepDependencies l_extracted = ScenarioStepDependencyFactory.listMethodCalls(
+                BytecodeComputedKey.class);
+
+        assertThat(l_extracted.getStepDependencies().keySet(), containsInAnyOrder("step1", "step2"));
+        assertThat("The source should have been parsed instead", l_extracted.getStep("step2").getConsumeSet(),
+                equalTo(l_parsed.getStep("step2").getConsumeSet()));
+        assertThat(l_extracted.getStep("step1").getProduceSet(), contains("constantKey"));
+    }
+
+    @Test
+    public void testUnknownExtractor() {
+        ConfigValueHandlerPhased.PROP_ANALYSIS_EXTRACTOR.activate("ASM");
+
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> ScenarioStepDependencyFactory.listMethodCalls(SimpleProducerConsumer.class));
+    }
+
+    @Test
+    public void testInvalidClassFile() {
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> BytecodeDependencyExtractor.extract("a.A", new byte[] { 1, 2, 3, 4 }, m -> false));
+
+        assertThat(BytecodeDependencyExtractor.fetchClassBytes(BytecodeProducerConsumer.class).isPresent(),
+                is(true));
+    }
+
+    private static List<String> fetchStepOrder(ScenarioStepDependencies in_dependencies) {
+        return in_dependencies.getStepDependencies().values().stream()
+                .sorted(Comparator.comparingInt(StepDependencies::getStepLine)).map(StepDependencies::getStepName)
+                .collect(Collectors.toList());
+    }
+}
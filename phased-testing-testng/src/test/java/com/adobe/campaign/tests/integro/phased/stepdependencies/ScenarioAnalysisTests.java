@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.ConfigValueHandlerPhased;
+import com.adobe.campaign.tests.integro.phased.data.permutational.*;
+import com.adobe.campaign.tests.integro.phased.exceptions.PhasedTestConfigurationException;
+import com.github.javaparser.ParserConfiguration;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ScenarioAnalysisTests {
+    private static final List<Class<?>> SCENARIOS = Arrays.asList(SimpleProducerConsumer.class,
+            MultipleProducerConsumer.class, ProducerConsumerWithBeforeClass.class, MixingEmptyAndProduceTests.class,
+            SimpleProducerConsumerFromStep.class);
+
+    @BeforeMethod
+    @AfterMethod
+    public void prepareEnvironment() {
+        ConfigValueHandlerPhased.resetAllValues();
+        ScenarioDependencyCache.clear();
+    }
+
+    @Test
+    public void testParallelAnalysis() {
+        ConfigValueHandlerPhased.PROP_PARSE_CACHE.activate("false");
+        ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.activate("4");
+
+        ScenarioAnalysis l_analysis = ScenarioStepDependencyFactory.analyzeScenarios(SCENARIOS);
+
+        assertThat(l_analysis.getParallelism(), equalTo(4));
+        assertThat("The results are ordered by scenario name", new ArrayList<>(l_analysis.getDependencies().keySet()),
+                contains(SCENARIOS.stream().map(Class::getTypeName).sorted().toArray()));
+        assertThat(l_analysis.getAnalysisTimes().keySet(), equalTo(l_analysis.getDependencies().keySet()));
+
+        for (Class<?> lt_scenario : SCENARIOS) {
+            ScenarioStepDependencies lt_expected = ScenarioStepDependencyFactory.listMethodCalls(lt_scenario);
+            ScenarioStepDependencies lt_actual = l_analysis.getDependencies().get(lt_scenario.getTypeName());
+
+            assertThat(lt_actual.getStepDependencies().keySet(), equalTo(lt_expected.getStepDependencies().keySet()));
+            for (StepDependencies lt_step : lt_expected.getStepDependencies().values()) {
+                assertThat(lt_actual.getStep(lt_step.getStepName()).getStepLine(), equalTo(lt_step.getStepLine()));
+                assertThat(lt_actual.getStep(lt_step.getStepName()).getProduceSet(),
+                        equalTo(lt_step.getProduceSet()));
+                assertThat(lt_actual.getStep(lt_step.getStepName()).getConsumeSet(),
+                        equalTo(lt_step.getConsumeSet()));
+            }
+        }
+    }
+
+    @Test
+    public void testSequentialAnalysis() {
+        ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.activate("1");
+
+        ScenarioAnalysis l_analysis = ScenarioStepDependencyFactory.analyzeScenarios(SCENARIOS);
+
+        assertThat(l_analysis.getParallelism(), equalTo(1));
+        assertThat(l_analysis.getDependencies().size(), equalTo(SCENARIOS.size()));
+    }
+
+    @Test
+    public void testParallelismIsBounded() {
+        assertThat("By default we use the available processors", ScenarioStepDependencyFactory.fetchParallelism(),
+                equalTo(Runtime.getRuntime().availableProcessors()));
+
+        ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.activate("16");
+        assertThat("The parallelism does not exceed the number of scenarios",
+                ScenarioStepDependencyFactory.analyzeScenarios(SCENARIOS.subList(0, 2)).getParallelism(),
+                equalTo(2));
+        assertThat(ScenarioStepDependencyFactory.analyzeScenarios(Collections.emptyList()).getDependencies(),
+                anEmptyMap());
+
+        ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.activate("-1");
+        Assert.assertThrows(PhasedTestConfigurationException.class, ScenarioStepDependencyFactory::fetchParallelism);
+
+        ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.activate("many");
+        Assert.assertThrows(PhasedTestConfigurationException.class, ScenarioStepDependencyFactory::fetchParallelism);
+    }
+
+    @Test
+    public void testParserConfigurationIsCopied() {
+        ParserConfiguration l_configuration = new ParserConfiguration()
+                .setLanguageLevel(ParserConfiguration.LanguageLevel.JAVA_11).setAttributeComments(false).setTabSize(4);
+
+        ParserConfiguration l_copy = ScenarioStepDependencyFactory.copyConfiguration(l_configuration);
+
+        assertThat(l_copy, not(sameInstance(l_configuration)));
+        assertThat(l_copy.getLanguageLevel(), equalTo(ParserConfiguration.LanguageLevel.JAVA_11));
+        assertThat(l_copy.isAttributeComments(), equalTo(false));
+        assertThat(l_copy.getTabSize(), equalTo(4));
+        assertThat(l_copy.getProcessors().size(), equalTo(l_configuration.getProcessors().size()));
+    }
+
+    @Test
+    public void testParallelAnalysis_negativeFileNotFound() {
+        ConfigValueHandlerPhased.PROP_ANALYSIS_PARALLELISM.activate("2");
+        ConfigValueHandlerPhased.PHASED_TEST_SOURCE_LOCATION.activate("/nonExistingDirectory");
+
+        Assert.assertThrows(PhasedTestConfigurationException.class,
+                () -> ScenarioStepDependencyFactory.analyzeScenarios(SCENARIOS));
+    }
+
+    @Test
+    public void testSlowestScenarios() {
+        Map<String, Long> l_times = new LinkedHashMap<>();
+        l_times.put("a", 5L);
+        l_times.put("b", 30L);
+        l_times.put("c", 12L);
+        l_times.put("d", 30L);
+
+        ScenarioAnalysis l_analysis = new ScenarioAnalysis(new LinkedHashMap<>(), l_times, 2);
+
+        assertThat(l_analysis.fetchSlowestScenarios(3), contains("b", "d", "c"));
+        assertThat(l_analysis.fetchSlowestScenarios(10), hasSize(4));
+    }
+}
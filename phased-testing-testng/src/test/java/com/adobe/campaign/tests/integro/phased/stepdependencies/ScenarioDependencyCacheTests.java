@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.ConfigValueHandlerPhased;
+import com.adobe.campaign.tests.integro.phased.data.permutational.MultipleProducerConsumer;
+import com.adobe.campaign.tests.integro.phased.data.permutational.ProducerConsumerWithBeforeClass;
+import com.adobe.campaign.tests.integro.phased.utils.ClassPathParser;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ScenarioDependencyCacheTests {
+    @BeforeMethod
+    @AfterMethod
+    public void prepareEnvironment() {
+        ConfigValueHandlerPhased.resetAllValues();
+        ScenarioDependencyCache.clear();
+        ScenarioDependencyCache.fetchCacheFile().delete();
+    }
+
+    @Test
+    public void testRecordsReproduceTheDependencies() {
+        ScenarioStepDependencies l_parsed = ScenarioStepDependencyFactory.listMethodCalls(
+                ProducerConsumerWithBeforeClass.class);
+
+        assertSameDependencies(ScenarioIndex.toDependencies(l_parsed.getScenarioName(),
+                ScenarioIndex.toRecords(l_parsed)), l_parsed);
+    }
+
+    @Test
+    public void testListMethodCallsUsesTheCache() {
+        ScenarioStepDependencies l_parsed = ScenarioStepDependencyFactory.listMethodCalls(
+                MultipleProducerConsumer.class);
+        assertThat(ScenarioDependencyCache.size(), equalTo(1));
+
+        ScenarioStepDependencies l_cached = ScenarioStepDependencyFactory.listMethodCalls(
+                MultipleProducerConsumer.class);
+        assertThat("Each call returns a new object", l_cached, not(sameInstance(l_parsed)));
+        assertSameDependencies(l_cached, l_parsed);
+
+        ScenarioDependencyCache.persist();
+        assertThat(ScenarioDependencyCache.fetchCacheFile().exists(), is(true));
+
+        ScenarioDependencyCache.clear();
+        assertSameDependencies(ScenarioStepDependencyFactory.listMethodCalls(MultipleProducerConsumer.class),
+                l_parsed);
+    }
+
+    @Test
+    public void testListMethodCallsWithoutCache() {
+        ConfigValueHandlerPhased.PROP_PARSE_CACHE.activate("false");
+
+        ScenarioStepDependencies l_parsed = ScenarioStepDependencyFactory.listMethodCalls(
+                MultipleProducerConsumer.class);
+        assertThat(l_parsed.getStepDependencies().keySet(), not(empty()));
+        assertThat(ScenarioDependencyCache.size(), equalTo(0));
+    }
+
+    @Test
+    public void testOnlyChangedSourcesAreParsed() throws IOException {
+        File l_source = File.createTempFile("Scenario", ".java");
+        l_source.deleteOnExit();
+        Files.write(l_source.toPath(), "class A {}".getBytes(StandardCharsets.UTF_8));
+
+        AtomicInteger l_nrOfParses = new AtomicInteger();
+        Function<byte[], ScenarioStepDependencies> l_parser = c -> {
+            l_nrOfParses.incrementAndGet();
+            ScenarioStepDependencies lr_dependencies = new ScenarioStepDependencies("a.A");
+            lr_dependencies.putProduce("step1", new String(c, StandardCharsets.UTF_8).trim(), 3);
+            return lr_dependencies;
+        };
+
+        assertThat(ScenarioDependencyCache.fetch("a.A", l_source, l_parser).getStep("step1").getProduceSet(),
+                contains("class A {}"));
+        ScenarioDependencyCache.fetch("a.A", l_source, l_parser);
+        assertThat("The unchanged source is not parsed again", l_nrOfParses.get(), equalTo(1));
+
+        assertThat(l_source.setLastModified(l_source.lastModified() - 10000), is(true));
+        ScenarioDependencyCache.fetch("a.A", l_source, l_parser);
+        assertThat("A source with the same content is not parsed again", l_nrOfParses.get(), equalTo(1));
+
+        ScenarioDependencyCache.persist();
+        ScenarioDependencyCache.clear();
+        ScenarioDependencyCache.fetch("a.A", l_source, l_parser);
+        assertThat("The cache is read from the output directory", l_nrOfParses.get(), equalTo(1));
+
+        Files.write(l_source.toPath(), "class A { }".getBytes(StandardCharsets.UTF_8));
+        assertThat(ScenarioDependencyCache.fetch("a.A", l_source, l_parser).getStep("step1").getProduceSet(),
+                contains("class A { }"));
+        assertThat("The changed source is parsed again", l_nrOfParses.get(), equalTo(2));
+    }
+
+    @Test
+    public void testCorruptCacheIsIgnored() throws IOException {
+        Files.write(ScenarioDependencyCache.fetchCacheFile().toPath(),
+                "#other-file\nS\tx\n".getBytes(StandardCharsets.UTF_8));
+
+        ScenarioStepDependencies l_parsed = ScenarioStepDependencyFactory.listMethodCalls(
+                MultipleProducerConsumer.class);
+        assertThat(l_parsed.getScenarioName(), equalTo(MultipleProducerConsumer.class.getTypeName()));
+        assertThat(ClassPathParser.fetchClassFile(MultipleProducerConsumer.class).exists(), is(true));
+
+        ScenarioDependencyCache.persist();
+        assertThat(new String(Files.readAllBytes(ScenarioDependencyCache.fetchCacheFile().toPath()),
+                StandardCharsets.UTF_8), startsWith(ScenarioDependencyCache.CACHE_HEADER));
+    }
+
+    private static void assertSameDependencies(ScenarioStepDependencies in_actual,
+            ScenarioStepDependencies in_expected) {
+        assertThat(in_actual.getScenarioName(), equalTo(in_expected.getScenarioName()));
+        assertThat(in_actual.getStepDependencies().keySet(), equalTo(in_expected.getStepDependencies().keySet()));
+        for (StepDependencies lt_expectedStep : in_expected.getStepDependencies().values()) {
+            StepDependencies lt_actualStep = in_actual.getStep(lt_expectedStep.getStepName());
+            assertThat(lt_actualStep.getStepLine(), equalTo(lt_expectedStep.getStepLine()));
+            assertThat(lt_actualStep.isConfigMethod(), equalTo(lt_expectedStep.isConfigMethod()));
+            assertThat(lt_actualStep.getProduceSet(), equalTo(lt_expectedStep.getProduceSet()));
+            assertThat(lt_actualStep.getConsumeSet(), equalTo(lt_expectedStep.getConsumeSet()));
+        }
+    }
+}
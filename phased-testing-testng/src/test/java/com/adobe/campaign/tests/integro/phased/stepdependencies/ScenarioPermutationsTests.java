@@ -0,0 +1,287 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import com.adobe.campaign.tests.integro.phased.PhasedTestManager;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ScenarioPermutationsTests {
+
+    /**
+     * a and b produce k1 and k2, c and d consume them, e is independent
+     */
+    private static ScenarioStepDependencies createScenario() {
+        ScenarioStepDependencies lr_scenario = new ScenarioStepDependencies("MyScenario");
+        lr_scenario.putProduce("a", "k1", 10);
+        lr_scenario.putProduce("b", "k2", 15);
+        lr_scenario.putConsume("c", "k1", 20);
+        lr_scenario.putConsume("d", "k2", 25);
+        lr_scenario.addStep("e");
+        return lr_scenario;
+    }
+
+    private static List<List<StepDependencies>> fetchRecursivePermutations(ScenarioStepDependencies in_scenario) {
+        List<List<StepDependencies>> lr_permutations = new ArrayList<>();
+        in_scenario.fetchScenarioPermutations(new HashSet<>(), new ArrayList<>(),
+                new ArrayList<>(in_scenario.getStepDependencies().values()), lr_permutations);
+        return lr_permutations;
+    }
+
+    @Test
+    public void testSamePermutationsAsTheRecursion() {
+        ScenarioStepDependencies l_scenario = createScenario();
+        ScenarioPermutations l_permutations = l_scenario.fetchPermutations();
+
+        List<List<StepDependencies>> l_enumerated = new ArrayList<>();
+        l_permutations.forEach(l_enumerated::add);
+
+        assertThat(l_enumerated, containsInAnyOrder(fetchRecursivePermutations(l_scenario).toArray()));
+        assertThat("The permutations are not repeated", new HashSet<>(l_enumerated), hasSize(l_enumerated.size()));
+        assertThat(l_permutations.size(), equalTo((long) l_enumerated.size()));
+        assertThat(l_permutations.size(), equalTo(30L));
+
+        assertThat("The permutations are in a stable order", l_enumerated.get(0).stream()
+                .map(StepDependencies::getStepName).collect(Collectors.joining()), equalTo("abcde"));
+        assertThat(l_enumerated.get(29).stream().map(StepDependencies::getStepName).collect(Collectors.joining()),
+                equalTo("ebdac"));
+    }
+
+    @Test
+    public void testRandomAccess() {
+        ScenarioPermutations l_permutations = createScenario().fetchPermutations();
+
+        long i = 0;
+        for (List<StepDependencies> lt_permutation : l_permutations) {
+            assertThat(l_permutations.get(i), equalTo(lt_permutation));
+
+            String lt_name = l_permutations.fetchName(lt_permutation, i);
+            assertThat(lt_name, endsWith("_" + (i + 1) + "-30"));
+            assertThat("The enumeration names the permutations without the count tables",
+                    ScenarioPermutations.fetchName(lt_permutation, i, 30), equalTo(lt_name));
+            assertThat(l_permutations.fetchPermutation(lt_name), equalTo(lt_permutation));
+            i++;
+        }
+
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> l_permutations.get(30));
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> l_permutations.get(-1));
+        assertThat(l_permutations.fetchPermutation(PhasedTestManager.STD_PHASED_PERMUTATIONAL_PREFIX + "abcde_2-30"),
+                nullValue());
+        assertThat(l_permutations.fetchPermutation(PhasedTestManager.STD_PHASED_PERMUTATIONAL_PREFIX + "abcde_31-30"),
+                nullValue());
+        assertThat(l_permutations.fetchPermutation("somethingElse"), nullValue());
+        assertThat(l_permutations.fetchPermutation(null), nullValue());
+    }
+
+    @Test
+    public void testMapOfPermutations() {
+        ScenarioStepDependencies l_scenario = createScenario();
+        Map<String, List<StepDependencies>> l_map = l_scenario.fetchScenarioPermutations();
+
+        assertThat(l_map.keySet(), hasSize(30));
+        assertThat(new ArrayList<>(l_map.values()), contains(l_scenario.fetchPermutations().stream().toArray()));
+        assertThat(l_map.keySet().iterator().next(),
+                equalTo(PhasedTestManager.STD_PHASED_PERMUTATIONAL_PREFIX + "abcde_1-30"));
+    }
+
+    @Test
+    public void testParallelStream() {
+        ScenarioPermutations l_permutations = createScenario().fetchPermutations();
+
+        assertThat(l_permutations.spliterator().hasCharacteristics(Spliterator.SIZED), is(true));
+        assertThat(l_permutations.spliterator().estimateSize(), equalTo(30L));
+        assertThat(l_permutations.stream().parallel().collect(Collectors.toList()),
+                equalTo(l_permutations.stream().collect(Collectors.toList())));
+    }
+
+    @Test
+    public void testLargeScenarioIsNotMaterialized() {
+        ScenarioStepDependencies l_scenario = new ScenarioStepDependencies("Large");
+        for (int i = 0; i < 14; i++) {
+            l_scenario.putProduce("step" + (char) ('a' + i), "key" + i, 10 + i);
+        }
+        l_scenario.putConsume("stepn", "key0", 23);
+
+        ScenarioPermutations l_permutations = l_scenario.fetchPermutations();
+        assertThat("14! / 2 permutations", l_permutations.size(), equalTo(43589145600L));
+
+        List<StepDependencies> l_last = l_permutations.get(l_permutations.size() - 1);
+        assertThat(l_last.get(0).getStepName(), equalTo("stepm"));
+        assertThat("stepn consumes what stepa produces", l_last.subList(12, 14).stream()
+                .map(StepDependencies::getStepName).collect(Collectors.toList()), contains("stepa", "stepn"));
+
+        Iterator<List<StepDependencies>> l_iterator = l_permutations.iterator();
+        for (long i = 0; i < 1000; i++) {
+            assertThat(l_iterator.next(), equalTo(l_permutations.get(i)));
+        }
+    }
+
+    @Test
+    public void testPermutationsAreKeptUntilTheStepsChange() {
+        ScenarioStepDependencies l_scenario = createScenario();
+        ScenarioPermutations l_permutations = l_scenario.fetchPermutations();
+
+        assertThat(l_scenario.fetchPermutations(), sameInstance(l_permutations));
+
+        l_scenario.getStep("e").consume("k2");
+        ScenarioPermutations l_newPermutations = l_scenario.fetchPermutations();
+        assertThat(l_newPermutations, not(sameInstance(l_permutations)));
+        assertThat(l_newPermutations.size(), equalTo(20L));
+
+        l_scenario.getStep("a").setStepLine(30);
+        assertThat(l_scenario.fetchPermutations(), not(sameInstance(l_newPermutations)));
+        assertThat(l_scenario.fetchPermutations().get(0).get(0).getStepName(), equalTo("b"));
+    }
+
+    @Test
+    public void testEmptyAndBlockedScenarios() {
+        ScenarioPermutations l_empty = new ScenarioStepDependencies("Empty").fetchPermutations();
+        assertThat(l_empty.size(), equalTo(1L));
+        assertThat(l_empty.get(0), empty());
+        assertThat(l_empty.stream().collect(Collectors.toList()), contains(empty()));
+
+        ScenarioStepDependencies l_blocked = new ScenarioStepDependencies("Blocked");
+        l_blocked.putConsume("a", "never", 10);
+        l_blocked.putProduce("b", "k", 15);
+        assertThat(l_blocked.fetchPermutations().size(), equalTo(0L));
+        assertThat(l_blocked.fetchPermutations().iterator().hasNext(), is(false));
+        assertThat(l_blocked.fetchScenarioPermutations(), anEmptyMap());
+    }
+
+    @Test
+    public void testCountingPermutations() {
+        ScenarioStepDependencies l_scenario = createScenario();
+        assertThat(l_scenario.fetchPermutationCount(), equalTo(30L));
+
+        ScenarioStepDependencies l_independent = new ScenarioStepDependencies("Independent");
+        for (int i = 0; i < 16; i++) {
+            l_independent.addStep("step" + i);
+        }
+        assertThat("16! orderings are counted without being enumerated", l_independent.fetchPermutationCount(),
+                equalTo(20922789888000L));
+    }
+
+    @Test
+    public void testSamplingPermutations() {
+        ScenarioPermutations l_permutations = createScenario().fetchPermutations();
+
+        SortedMap<Long, List<StepDependencies>> l_sample = l_permutations.sample(5, new Random(42));
+        assertThat(l_sample.keySet(), hasSize(5));
+        l_sample.forEach((k, v) -> assertThat(v, equalTo(l_permutations.get(k))));
+        assertThat("The same seed gives the same sample", l_permutations.sample(5, new Random(42)).keySet(),
+                equalTo(l_sample.keySet()));
+
+        assertThat("All the permutations are returned when there are fewer",
+                l_permutations.sample(40, new Random(1)).keySet(), hasSize(30));
+        assertThat(l_permutations.sample(0, new Random(1)), anEmptyMap());
+        Assert.assertThrows(IllegalArgumentException.class, () -> l_permutations.sample(-1, new Random(1)));
+
+        int[] l_selections = new int[30];
+        Random l_random = new Random(7);
+        for (int i = 0; i < 3000; i++) {
+            l_permutations.sample(3, l_random).keySet().forEach(k -> l_selections[k.intValue()]++);
+        }
+        assertThat("Each permutation is selected about 300 times",
+                Arrays.stream(l_selections).boxed().collect(Collectors.toList()),
+                everyItem(both(greaterThan(200)).and(lessThan(400))));
+    }
+
+    @Test
+    public void testReducingCommutingSteps() {
+        ScenarioStepDependencies l_scenario = new ScenarioStepDependencies("Independent");
+        l_scenario.addStep("a");
+        l_scenario.addStep("b");
+        l_scenario.addStep("c");
+        ScenarioPermutations l_independent = l_scenario.fetchPermutations();
+
+        assertThat(l_independent.size(), equalTo(6L));
+        assertThat("Independent steps always commute", l_independent.countRepresentatives(), equalTo(1L));
+        assertThat(l_independent.fetchRepresentatives().iterator().next(), equalTo(l_independent.get(0)));
+
+        ScenarioPermutations l_chains = createScenario().fetchPermutations();
+        assertThat("The chains a-c and b-d, and e, touch disjoint keys", l_chains.countRepresentatives(),
+                equalTo(1L));
+    }
+
+    @Test
+    public void testReductionKeepsTheDependentOrderings() {
+        ScenarioStepDependencies l_scenario = new ScenarioStepDependencies("SameKey");
+        l_scenario.putProduce("a", "k", 10);
+        l_scenario.putProduce("b", "k", 15);
+        l_scenario.putConsume("c", "k", 20);
+        l_scenario.addStep("d");
+        ScenarioPermutations l_permutations = l_scenario.fetchPermutations();
+
+        assertThat(l_permutations.size(), equalTo(16L));
+        assertThat("Producers of the same key do not commute", l_permutations.countRepresentatives(), equalTo(4L));
+        assertThat(StreamSupport.stream(l_permutations.fetchRepresentatives().spliterator(), false)
+                        .map(p -> p.stream().map(StepDependencies::getStepName).collect(Collectors.joining()))
+                        .collect(Collectors.toList()),
+                contains("abcd", "acbd", "bacd", "bcad"));
+    }
+
+    @Test
+    public void testOneRepresentativePerEquivalenceClass() {
+        ScenarioStepDependencies l_scenario = new ScenarioStepDependencies("Mixed");
+        l_scenario.putProduce("a", "k1", 10);
+        l_scenario.putConsume("b", "k1", 15);
+        l_scenario.putProduce("b", "k2", 16);
+        l_scenario.putProduce("c", "k3", 20);
+        l_scenario.putConsume("d", "k2", 25);
+        l_scenario.putConsume("d", "k3", 26);
+        l_scenario.putProduce("e", "k1", 30);
+        l_scenario.addStep("f");
+        ScenarioPermutations l_permutations = l_scenario.fetchPermutations();
+        List<StepDependencies> l_steps = l_permutations.getSteps();
+
+        Set<List<StepDependencies>> l_expected = l_permutations.stream()
+                .map(p -> fetchFirstEquivalent(p, l_steps)).collect(Collectors.toSet());
+        List<List<StepDependencies>> l_representatives = new ArrayList<>();
+        l_permutations.fetchRepresentatives().forEach(l_representatives::add);
+
+        assertThat(l_representatives, containsInAnyOrder(l_expected.toArray()));
+        assertThat(l_permutations.countRepresentatives(), lessThan(l_permutations.size()));
+        for (List<StepDependencies> lt_representative : l_representatives) {
+            assertThat(l_permutations.get(l_permutations.indexOf(lt_representative)), equalTo(lt_representative));
+        }
+        assertThat(l_permutations.indexOf(l_steps.subList(1, l_steps.size())), equalTo(-1L));
+    }
+
+    /**
+     * Computes the first ordering equivalent to the given one. The steps that do not commute keep their relative
+     * order, and the smallest step that can be placed is placed first.
+     */
+    private static List<StepDependencies> fetchFirstEquivalent(List<StepDependencies> in_ordering,
+            List<StepDependencies> in_steps) {
+        List<StepDependencies> l_remaining = new ArrayList<>(in_ordering);
+        List<StepDependencies> lr_ordering = new ArrayList<>();
+        while (!l_remaining.isEmpty()) {
+            StepDependencies lt_first = null;
+            for (int i = 0; i < l_remaining.size(); i++) {
+                final StepDependencies lt_candidate = l_remaining.get(i);
+                final boolean lt_free = l_remaining.subList(0, i).stream().allMatch(
+                        p -> p.fetchRelation(lt_candidate).equals(StepDependencies.Relations.INDEPENDANT)
+                                && Collections.disjoint(p.getProduceSet(), lt_candidate.getProduceSet()));
+                if (lt_free && (lt_first == null || in_steps.indexOf(lt_candidate) < in_steps.indexOf(lt_first))) {
+                    lt_first = lt_candidate;
+                }
+            }
+            lr_ordering.add(lt_first);
+            l_remaining.remove(lt_first);
+        }
+        return lr_ordering;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2022 Adobe
+ * All Rights Reserved.
+ *
+ * NOTICE: Adobe permits you to use, modify, and distribute this file in
+ * accordance with the terms of the Adobe license agreement accompanying
+ * it.
+ */
+package com.adobe.campaign.tests.integro.phased.stepdependencies;
+
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class StepDependencyGraphTests {
+
+    private static ScenarioStepDependencies createRandomScenario(Random in_random, int in_nrOfSteps,
+            int in_nrOfKeys) {
+        ScenarioStepDependencies lr_scenario = new ScenarioStepDependencies("Random");
+        for (int i = 0; i < in_nrOfSteps; i++) {
+            final String lt_step = "step" + i;
+            lr_scenario.addStep(lt_step);
+            lr_scenario.getStep(lt_step).setStepLine(10 * (i + 1));
+            for (int k = 0; k < in_nrOfKeys; k++) {
+                final int lt_draw = in_random.nextInt(8);
+                if (lt_draw == 0) {
+                    lr_scenario.getStep(lt_step).produce("key" + k);
+                } else if (lt_draw == 1) {
+                    lr_scenario.getStep(lt_step).consume("key" + k);
+                }
+            }
+        }
+        return lr_scenario;
+    }
+
+    @Test
+    public void testSameRelationsAsTheSteps() {
+        Random l_random = new Random(3);
+        for (int lt_nrOfKeys : new int[] { 3, 64, 150 }) {
+            ScenarioStepDependencies lt_scenario = createRandomScenario(l_random, 8, lt_nrOfKeys);
+            StepDependencyGraph lt_graph = lt_scenario.fetchDependencyGraph();
+            List<StepDependencies> lt_steps = lt_graph.getSteps();
+
+            assertThat(lt_graph.size(), equalTo(8));
+            for (int i = 0; i < lt_steps.size(); i++) {
+                assertThat(lt_graph.fetchCategory(i), equalTo(lt_steps.get(i).getCategory()));
+                for (int j = 0; j < lt_steps.size(); j++) {
+                    assertThat(lt_graph.fetchRelation(i, j), equalTo(lt_steps.get(i).fetchRelation(lt_steps.get(j))));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCanRunBeyondSixtyFourKeys() {
+        ScenarioStepDependencies l_scenario = new ScenarioStepDependencies("ManyKeys");
+        for (int k = 0; k < 130; k++) {
+            l_scenario.putProduce("producer", "key" + k, 10);
+        }
+        l_scenario.putConsume("firstConsumer", "key0", 20);
+        l_scenario.putConsume("lastConsumer", "key129", 30);
+        l_scenario.putConsume("lastConsumer", "missing", 31);
+
+        StepDependencyGraph l_graph = l_scenario.fetchDependencyGraph();
+        assertThat(l_graph.fetchNrOfKeys(), equalTo(131));
+        assertThat("The keys are stored in three longs", l_graph.createKeySet().length, equalTo(3));
+        assertThat(l_graph.fetchKeyId("key129"), greaterThanOrEqualTo(0));
+        assertThat(l_graph.fetchKeyId("unknown"), equalTo(-1));
+
+        long[] l_available = l_graph.createKeySet();
+        assertThat(l_graph.canRun(0, l_available), is(true));
+        assertThat(l_graph.canRun(1, l_available), is(false));
+
+        l_graph.produce(0, l_available);
+        assertThat(l_graph.canRun(1, l_available), is(true));
+        assertThat("The missing key is never produced", l_graph.canRun(2, l_available), is(false));
+        assertThat(l_graph.canRunAfter(1, 1L), is(true));
+        assertThat(l_graph.canRunAfter(1, 0L), is(false));
+
+        assertThat(l_graph.isExecutable(), is(false));
+        assertThat(l_scenario.isExecutable(), is(false));
+        l_scenario.putProduce("producer", "missing", 11);
+        assertThat("The graph is compiled again once the steps change", l_scenario.isExecutable(), is(true));
+    }
+
+    @Test
+    public void testPermutationsBeyondSixtyFourKeys() {
+        Random l_random = new Random(11);
+        for (int lt_try = 0; lt_try < 5; lt_try++) {
+            ScenarioStepDependencies lt_scenario = createRandomScenario(l_random, 6, 100);
+            ScenarioPermutations lt_permutations = lt_scenario.fetchPermutations();
+
+            List<List<StepDependencies>> lt_recursive = new ArrayList<>();
+            lt_scenario.fetchScenarioPermutations(new HashSet<>(), new ArrayList<>(),
+                    new ArrayList<>(lt_scenario.getStepDependencies().values()), lt_recursive);
+
+            List<List<StepDependencies>> lt_enumerated = new ArrayList<>();
+            lt_permutations.forEach(lt_enumerated::add);
+            assertThat(lt_enumerated, containsInAnyOrder(lt_recursive.toArray()));
+            assertThat(lt_permutations.size(), equalTo((long) lt_recursive.size()));
+        }
+    }
+
+    @Test
+    public void testCategorizations() {
+        ScenarioStepDependencies l_scenario = new ScenarioStepDependencies("Categories");
+        l_scenario.putProduce("a", "k1", 10);
+        l_scenario.putConsume("b", "k1", 20);
+        l_scenario.putProduce("b", "k2", 21);
+        l_scenario.putConsume("c", "k2", 30);
+        l_scenario.addStep("d");
+        l_scenario.addStep("config");
+        l_scenario.getStep("config").setConfigMethod(true);
+
+        Map<StepDependencies.Categories, List<StepDependencies>> l_categories = l_scenario.fetchCategorizations();
+        assertThat(l_categories.get(StepDependencies.Categories.PRODUCER_ONLY), contains(l_scenario.getStep("a")));
+        assertThat(l_categories.get(StepDependencies.Categories.PRODUCER_CONSUMER),
+                contains(l_scenario.getStep("b")));
+        assertThat(l_categories.get(StepDependencies.Categories.CONSUMER_ONLY), contains(l_scenario.getStep("c")));
+        assertThat("Configuration methods are not categorized",
+                l_categories.get(StepDependencies.Categories.INDEPENDANT), contains(l_scenario.getStep("d")));
+    }
+}
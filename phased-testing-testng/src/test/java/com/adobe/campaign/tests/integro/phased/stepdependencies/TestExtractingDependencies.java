@@ -27,9 +27,15 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -381,6 +387,62 @@ public class TestExtractingDependencies {
         assertThat("We should have only 1 permutation", allPermutations.size(), equalTo(0));
     }
 
+    @Test
+    public void testIteratingPermutations() {
+        List<String> l_steps = Arrays.asList("a", "b", "c", "d", "e");
+
+        Iterator<List<String>> l_permutations = GeneralTestUtils.iteratePermutations(l_steps);
+        Set<List<String>> l_distinctPermutations = new HashSet<>();
+        List<String> l_previous = null;
+        while (l_permutations.hasNext()) {
+            List<String> lt_permutation = l_permutations.next();
+            assertThat(lt_permutation, containsInAnyOrder(l_steps.toArray()));
+            if (l_previous != null) {
+                final List<String> lt_previous = l_previous;
+                assertThat("Each permutation differs from the previous one by a swap",
+                        IntStream.range(0, l_steps.size()).filter(i -> !lt_permutation.get(i).equals(
+                                lt_previous.get(i))).count(), equalTo(2L));
+            }
+            l_distinctPermutations.add(lt_permutation);
+            l_previous = lt_permutation;
+        }
+
+        assertThat("We should have all the permutations", l_distinctPermutations, hasSize(120));
+        assertThat("The given list is not modified", l_steps, contains("a", "b", "c", "d", "e"));
+        Assert.assertThrows(NoSuchElementException.class, l_permutations::next);
+
+        assertThat(GeneralTestUtils.generatePermutations(new ArrayList<>(l_steps)),
+                containsInAnyOrder(l_distinctPermutations.toArray()));
+        assertThat(GeneralTestUtils.iteratePermutations(null).hasNext(), equalTo(false));
+        assertThat(GeneralTestUtils.iteratePermutations(new ArrayList<>()).hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void testStreamingPermutations() {
+        List<Integer> l_steps = IntStream.range(0, 12).boxed().collect(Collectors.toList());
+
+        assertThat("The permutations are counted without being generated",
+                GeneralTestUtils.streamPermutations(l_steps).spliterator().getExactSizeIfKnown(),
+                equalTo(479001600L));
+        assertThat("We can stop at the first permutations", GeneralTestUtils.streamPermutations(l_steps).limit(3)
+                .collect(Collectors.toList()), hasSize(3));
+        assertThat(GeneralTestUtils.streamPermutations(l_steps).findFirst().get(), equalTo(l_steps));
+
+        assertThat(GeneralTestUtils.streamPermutations(Arrays.asList("a", "b", "c")).collect(Collectors.toSet()),
+                hasSize(6));
+        assertThat(GeneralTestUtils.streamPermutations(null).count(), equalTo(0L));
+    }
+
+    @Test
+    public void testCreatingPermutations_fixedPrefix() {
+        List<List<String>> l_permutations = GeneralTestUtils.generatePermutations(Arrays.asList("a", "b", "c", "d"),
+                2);
+
+        assertThat(l_permutations, containsInAnyOrder(Arrays.asList("a", "b", "c", "d"),
+                Arrays.asList("a", "b", "d", "c")));
+        assertThat(GeneralTestUtils.generatePermutations(Arrays.asList("a", "b"), 2), hasSize(0));
+    }
+
     @Test
     public void testCreatingSimplePermutations() {
         ScenarioStepDependencies l_scenarioSteps = new ScenarioStepDependencies("MyScenario");
@@ -611,6 +673,28 @@ public class TestExtractingDependencies {
         assertThat("We should have 4 entries", l_result3, hasSize(0));
     }
 
+    @Test
+    public void testStreamOuterJoinListOfLists() {
+        List<List<String>> l_list2 = new ArrayList<>();
+        l_list2.add(Arrays.asList("1"));
+        l_list2.add(Arrays.asList("2"));
+
+        List<List<String>> l_result = GeneralTestUtils.streamOuterJoinListOfLists(
+                GeneralTestUtils.streamPermutations(Arrays.asList("a", "b")), l_list2).collect(Collectors.toList());
+
+        assertThat(l_result, containsInAnyOrder(Arrays.asList("a", "b", "1"), Arrays.asList("a", "b", "2"),
+                Arrays.asList("b", "a", "1"), Arrays.asList("b", "a", "2")));
+
+        assertThat("The join is consumed lazily", GeneralTestUtils.streamOuterJoinListOfLists(
+                GeneralTestUtils.streamPermutations(Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h", "i", "j")),
+                l_list2).limit(4).count(), equalTo(4L));
+
+        assertThat(GeneralTestUtils.streamOuterJoinListOfLists(Stream.of(Arrays.asList("a")), new ArrayList<>())
+                .collect(Collectors.toList()), contains(Arrays.asList("a")));
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> GeneralTestUtils.streamOuterJoinListOfLists(null, l_list2));
+    }
+
     @Test
     public void testOuterJoinListOfLists_negativeNull() {
 
@@ -10,6 +10,7 @@ package com.adobe.campaign.tests.integro.phased.utils;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
 
 import org.testng.annotations.Test;
 
@@ -26,6 +27,45 @@ public class StackTraceManagerTests {
         return StackTraceManager.fetchCalledBy().getMethodName();
     }
     
+    @Test(description = "The full name should be the class and method of the caller of the caller")
+    public void testFetchCalledByFullName() {
+
+        assertThat(nestedCallForFetchCalledByFullName(),
+                equalTo(StackTraceManagerTests.class.getTypeName() + ".testFetchCalledByFullName"));
+    }
+
+    String nestedCallForFetchCalledByFullName() {
+        return StackTraceManager.fetchCalledByFullName();
+    }
+
+    @Test(description = "The identity of a call site should be resolved once and then reused")
+    public void testFetchCallerIdentity() {
+        CallerIdentity l_first = nestedCallForFetchCallerIdentity();
+        CallerIdentity l_second = nestedCallForFetchCallerIdentity();
+
+        assertThat(l_first.getClassName(), equalTo(StackTraceManagerTests.class.getName()));
+        assertThat(l_first.getMethodName(), equalTo("testFetchCallerIdentity"));
+        assertThat(l_first.getFullName(),
+                equalTo(StackTraceManagerTests.class.getName() + ".testFetchCallerIdentity"));
+        assertThat("The identity should be cached per call site", l_second, sameInstance(l_first));
+    }
+
+    CallerIdentity nestedCallForFetchCallerIdentity() {
+        return StackTraceManager.fetchCallerIdentity(StackTraceManager.fetchCalledByFrame());
+    }
+
+    @Test(description = "The frame should allow us to fetch the line of the call when needed")
+    public void testFetchCalledByFrame() {
+        StackWalker.StackFrame l_frame = nestedCallForFetchCalledByFrame();
+
+        assertThat(l_frame.getMethodName(), equalTo("testFetchCalledByFrame"));
+        assertThat(l_frame.toStackTraceElement().getClassName(), equalTo(StackTraceManagerTests.class.getName()));
+    }
+
+    StackWalker.StackFrame nestedCallForFetchCalledByFrame() {
+        return StackTraceManager.fetchCalledByFrame();
+    }
+
     @Test(groups = "TRACE")
     public void testFetchCalledTestInAfterMethod() {
 